@@ -346,4 +346,35 @@ public interface ClientConfig extends Config {
     @Property("cuba.gui.ignoreUnfetchedAttributesInTable")
     @DefaultBoolean(false)
     boolean getIgnoreUnfetchedAttributesInTable();
+
+    /**
+     * @return true if collection datasources refreshed on screen opening load their data in one request
+     * to the middleware, see {@link com.haulmont.cuba.core.global.DataManager#loadBatch(java.util.List)}
+     */
+    @Property("cuba.gui.datasourceBatchLoadEnabled")
+    @DefaultBoolean(true)
+    boolean getDatasourceBatchLoadEnabled();
+
+    /**
+     * @return number of rows in the datasource query above which the Excel action exports all rows to XLSX
+     * in background, loading them from the database by chunks. Zero or negative value disables streaming export.
+     */
+    @Property("cuba.gui.excelStreamingExportThreshold")
+    @DefaultInt(10000)
+    int getExcelStreamingExportThreshold();
+
+    /**
+     * @return number of rows loaded by a single query of {@code LazyCollectionDatasourceImpl}
+     */
+    @Property("cuba.gui.lazyDatasourceWindowSize")
+    @DefaultInt(100)
+    int getLazyDatasourceWindowSize();
+
+    /**
+     * @return maximum number of row windows kept in memory by {@code LazyCollectionDatasourceImpl}.
+     * Least recently used windows are evicted when the limit is exceeded.
+     */
+    @Property("cuba.gui.lazyDatasourceMaxWindows")
+    @DefaultInt(10)
+    int getLazyDatasourceMaxWindows();
 }
\ No newline at end of file
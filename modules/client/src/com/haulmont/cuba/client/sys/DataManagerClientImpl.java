@@ -26,10 +26,12 @@ import org.springframework.stereotype.Component;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Objects;
 import java.util.Set;
+import java.util.stream.Stream;
 
 @Component(DataManager.NAME)
 public class DataManagerClientImpl implements DataManager {
@@ -57,6 +59,24 @@ public class DataManagerClientImpl implements DataManager {
         return dataService.getCount(context);
     }
 
+    @Override
+    public List<List<Entity>> loadBatch(List<LoadContext<?>> contexts) {
+        if (contexts.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return dataService.loadBatch(contexts);
+    }
+
+    @Override
+    public <E extends Entity> Stream<E> loadStream(LoadContext<E> context, int chunkSize) {
+        return KeysetPagingIterator.stream(this, context, chunkSize);
+    }
+
+    @Override
+    public int bulkUpdate(BulkUpdateContext context) {
+        return dataService.bulkUpdate(context);
+    }
+
     @Override
     public <E extends Entity> E reload(E entity, String viewName) {
         Objects.requireNonNull(viewName, "viewName is null");
@@ -658,6 +658,7 @@ create table SYS_ENTITY_SNAPSHOT (
     VIEW_XML longvarchar,
     SNAPSHOT_XML longvarchar,
     SNAPSHOT_DATE timestamp,
+    FORMAT_VERSION integer,
     --
     primary key (ID),
     constraint FK_SYS_ENTITY_SNAPSHOT_AUTHOR_ID foreign key (AUTHOR_ID) references SEC_USER(ID)
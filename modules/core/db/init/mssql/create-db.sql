@@ -695,6 +695,7 @@ create table SYS_ENTITY_SNAPSHOT (
     VIEW_XML varchar(max) not null,
     SNAPSHOT_XML varchar(max) not null,
     SNAPSHOT_DATE datetime not null,
+    FORMAT_VERSION integer,
     --
     primary key nonclustered (ID),
     constraint FK_SYS_ENTITY_SNAPSHOT_AUTHOR_ID foreign key (AUTHOR_ID) references SEC_USER(ID)
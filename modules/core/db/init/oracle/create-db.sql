@@ -107,6 +107,7 @@ create table SYS_ENTITY_SNAPSHOT (
     VIEW_XML clob not null,
     SNAPSHOT_XML clob not null,
     SNAPSHOT_DATE timestamp not null,
+    FORMAT_VERSION integer,
     primary key(ID)
 )^
 create index IDX_SYS_ENTITY_SNAPSHOT_ENT_ID on SYS_ENTITY_SNAPSHOT(ENTITY_ID)^
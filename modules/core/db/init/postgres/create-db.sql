@@ -666,6 +666,7 @@ create table SYS_ENTITY_SNAPSHOT (
     VIEW_XML text not null,
     SNAPSHOT_XML text not null,
     SNAPSHOT_DATE timestamp not null,
+    FORMAT_VERSION integer,
     --
 	  primary key (ID),
     constraint FK_SYS_ENTITY_SNAPSHOT_AUTHOR_ID foreign key (AUTHOR_ID) references SEC_USER(ID)
@@ -0,0 +1 @@
+alter table SYS_ENTITY_SNAPSHOT add FORMAT_VERSION integer^
\ No newline at end of file
@@ -21,6 +21,8 @@ import com.haulmont.cuba.core.config.Config;
 import com.haulmont.cuba.core.config.Property;
 import com.haulmont.cuba.core.config.Source;
 import com.haulmont.cuba.core.config.SourceType;
+import com.haulmont.cuba.core.config.defaults.Default;
+import com.haulmont.cuba.core.config.defaults.DefaultBoolean;
 import com.haulmont.cuba.core.config.defaults.DefaultInt;
 import com.haulmont.cuba.core.config.defaults.DefaultLong;
 
@@ -38,6 +40,13 @@ public interface ClusterConfig extends Config {
     @DefaultLong(10000)
     long getStateReceiveTimeout();
 
+    /**
+     * @return compression of the state sent to a joining node: {@code none} or {@code deflate}
+     */
+    @Property("cuba.cluster.stateTransferCompression")
+    @Default("none")
+    String getStateTransferCompression();
+
     /**
      * @return Maximum size of thread pool which is used to send messages to the cluster members
      */
@@ -51,4 +60,25 @@ public interface ClusterConfig extends Config {
     @Property("cuba.cluster.messageSendingQueueCapacity")
     @DefaultInt(Integer.MAX_VALUE)
     int getClusterMessageSendingQueueCapacity();
+
+    /**
+     * @return whether asynchronously sent messages are collected into batches and sent as a single cluster message
+     */
+    @Property("cuba.cluster.messageBatchingEnabled")
+    @DefaultBoolean(false)
+    boolean getClusterMessageBatchingEnabled();
+
+    /**
+     * @return maximum number of messages in a batch. A batch is sent immediately when it reaches this size
+     */
+    @Property("cuba.cluster.messageBatchMaxSize")
+    @DefaultInt(100)
+    int getClusterMessageBatchMaxSize();
+
+    /**
+     * @return time in milliseconds a batch collects messages after the first message was added to it
+     */
+    @Property("cuba.cluster.messageBatchWindowMs")
+    @DefaultInt(20)
+    int getClusterMessageBatchWindowMs();
 }
@@ -16,6 +16,12 @@
  */
 package com.haulmont.cuba.core.app;
 
+import org.apache.commons.io.IOUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
 /**
  * Interface to be implemented by middleware cluster listeners. A cluster listener receives messages from other nodes
  * in the cluster.
@@ -50,4 +56,31 @@ public interface ClusterListener<T> {
      * @param state byte array containing the state
      */
     void setState(byte[] state);
+
+    /**
+     * Write state of this cluster node to the stream sent to a joining node.
+     *
+     * <p>Default implementation writes the result of {@link #getState()}. Listeners with large state should
+     * override this method together with {@link #readState(InputStream)} to write the state piece by piece
+     * instead of building it in memory.</p>
+     *
+     * @param output stream receiving the state. It must not be closed by the listener.
+     */
+    default void writeState(OutputStream output) throws IOException {
+        byte[] state = getState();
+        if (state != null) {
+            output.write(state);
+        }
+    }
+
+    /**
+     * Read state of this cluster node written by {@link #writeState(OutputStream)} on other active node.
+     *
+     * <p>Default implementation passes the whole stream content to {@link #setState(byte[])}.</p>
+     *
+     * @param input stream containing the state
+     */
+    default void readState(InputStream input) throws IOException {
+        setState(IOUtils.toByteArray(input));
+    }
 }
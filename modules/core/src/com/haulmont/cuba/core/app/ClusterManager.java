@@ -20,8 +20,11 @@ import com.haulmont.bali.util.Preconditions;
 import com.haulmont.cuba.core.global.GlobalConfig;
 import com.haulmont.cuba.core.global.Resources;
 import com.haulmont.cuba.core.sys.AppContext;
+import com.haulmont.cuba.core.sys.metrics.MetricsRegistry;
 import com.haulmont.cuba.core.sys.serialization.SerializationSupport;
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.output.CountingOutputStream;
+import org.apache.commons.io.output.NullOutputStream;
 import org.jgroups.*;
 import org.jgroups.conf.XmlConfigurator;
 import org.jgroups.jmx.JmxConfigurator;
@@ -37,11 +40,16 @@ import javax.inject.Inject;
 import javax.management.MBeanServer;
 import java.io.*;
 import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
 
 /**
  * Standard implementation of middleware clustering based on JGroups.
@@ -53,12 +61,22 @@ public class ClusterManager implements ClusterManagerAPI, AppContext.Listener, O
 
     protected Map<String, ClusterListener> listeners = new HashMap<>();
 
+    protected Map<String, ClusterMessageMerger> mergers = new ConcurrentHashMap<>();
+
     protected JChannel channel;
 
     protected View currentView;
 
     protected ThreadPoolExecutor executor;
 
+    protected ScheduledExecutorService batchExecutor;
+
+    protected final Object batchLock = new Object();
+
+    protected List<Serializable> batch = new ArrayList<>();
+
+    protected long batchStartTime;
+
     @Inject
     protected Resources resources;
 
@@ -68,12 +86,21 @@ public class ClusterManager implements ClusterManagerAPI, AppContext.Listener, O
     @Inject
     protected ClusterConfig clusterConfig;
 
+    @Inject
+    protected MetricsRegistry metrics;
+
     protected ThreadLocal<Boolean> forceSyncSending = new ThreadLocal<>();
 
     protected Map<String, MessageStat> messagesStat = new ConcurrentHashMap<>();
 
     protected static final String STATE_MAGIC = "CUBA_STATE";
 
+    protected static final String STREAMING_STATE_MAGIC = "CUBA_STATE_STREAM";
+
+    protected static final String COMPRESSION_NONE = "none";
+
+    protected static final String COMPRESSION_DEFLATE = "deflate";
+
     public ClusterManager() {
         AppContext.addListener(this);
     }
@@ -90,6 +117,15 @@ public class ClusterManager implements ClusterManagerAPI, AppContext.Listener, O
                         log.info("Queue capacity is exceeded. Message: {}: {}", sendMessageRunnable.message.getClass(), sendMessageRunnable.message);
                     }
                 });
+
+        if (clusterConfig.getClusterMessageBatchingEnabled()) {
+            batchExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "ClusterMessageBatchSender");
+                thread.setDaemon(true);
+                return thread;
+            });
+            messagesStat.put(MessageBatch.class.getName(), new MessageStat());
+        }
     }
 
     @Override
@@ -100,12 +136,72 @@ public class ClusterManager implements ClusterManagerAPI, AppContext.Listener, O
         Boolean sync = forceSyncSending.get();
         if (sync != null && sync) {
             internalSend(message, true);
+        } else if (batchExecutor != null) {
+            log.trace("Adding message: {}: {} to batch", message.getClass(), message);
+            addToBatch(message);
         } else {
             log.trace("Submitting message: {}: {} to send asynchronously", message.getClass(), message);
             executor.execute(new SendMessageRunnable(message));
         }
     }
 
+    @SuppressWarnings("unchecked")
+    protected void addToBatch(Serializable message) {
+        MessageBatch fullBatch = null;
+        synchronized (batchLock) {
+            // merge only with the last message of the batch, so receiving nodes get messages in the send order
+            ClusterMessageMerger merger = mergers.get(message.getClass().getName());
+            if (merger != null && !batch.isEmpty()) {
+                int last = batch.size() - 1;
+                Serializable previous = batch.get(last);
+                if (previous.getClass() == message.getClass()) {
+                    Serializable merged = merger.merge(previous, message);
+                    if (merged != null) {
+                        log.trace("Message: {}: {} merged into batch", message.getClass(), message);
+                        batch.set(last, merged);
+                        return;
+                    }
+                }
+            }
+
+            if (batch.isEmpty()) {
+                batchStartTime = System.currentTimeMillis();
+                batchExecutor.schedule(this::flushBatch, clusterConfig.getClusterMessageBatchWindowMs(), TimeUnit.MILLISECONDS);
+            }
+            batch.add(message);
+            if (batch.size() >= clusterConfig.getClusterMessageBatchMaxSize()) {
+                fullBatch = takeBatch();
+            }
+        }
+        if (fullBatch != null) {
+            submitBatch(fullBatch);
+        }
+    }
+
+    protected void flushBatch() {
+        MessageBatch messageBatch;
+        synchronized (batchLock) {
+            messageBatch = takeBatch();
+        }
+        if (!messageBatch.messages.isEmpty()) {
+            submitBatch(messageBatch);
+        }
+    }
+
+    protected MessageBatch takeBatch() {
+        MessageBatch messageBatch = new MessageBatch(batch, batchStartTime);
+        batch = new ArrayList<>();
+        return messageBatch;
+    }
+
+    protected void submitBatch(MessageBatch messageBatch) {
+        if (messageBatch.messages.size() == 1) {
+            executor.execute(new SendMessageRunnable(messageBatch.messages.get(0)));
+        } else {
+            executor.execute(new SendMessageRunnable(messageBatch));
+        }
+    }
+
     @Override
     public void sendSync(Serializable message) {
         if (channel == null)
@@ -115,7 +211,7 @@ public class ClusterManager implements ClusterManagerAPI, AppContext.Listener, O
     }
 
     protected void internalSend(Serializable message, boolean sync) {
-        StopWatch sw = new Log4JStopWatch(String.format("sendClusterMessage(%s)", message.getClass().getSimpleName()));
+        long start = metrics.start();
         try {
             byte[] bytes = SerializationSupport.serialize(message);
             log.debug("Sending message: {}: {} ({} bytes)", message.getClass(), message, bytes.length);
@@ -123,6 +219,18 @@ public class ClusterManager implements ClusterManagerAPI, AppContext.Listener, O
             if (stat != null) {
                 stat.updateSent(bytes.length);
             }
+            if (message instanceof MessageBatch) {
+                MessageBatch messageBatch = (MessageBatch) message;
+                if (stat != null) {
+                    stat.updateBatch(messageBatch.messages.size(), System.currentTimeMillis() - messageBatch.startTime);
+                }
+                for (Serializable batchedMessage : messageBatch.messages) {
+                    MessageStat batchedStat = messagesStat.get(batchedMessage.getClass().getName());
+                    if (batchedStat != null) {
+                        batchedStat.updateSent(0);
+                    }
+                }
+            }
             Message msg = new Message(null, null, bytes);
             if (sync) {
                 msg.setFlag(Message.Flag.RSVP);
@@ -133,7 +241,8 @@ public class ClusterManager implements ClusterManagerAPI, AppContext.Listener, O
                 log.error("Error sending message", e);
             }
         } finally {
-            sw.stop();
+            if (start != MetricsRegistry.NOT_SAMPLED)
+                metrics.stop("cluster.send(" + message.getClass().getSimpleName() + ")", start);
         }
     }
 
@@ -165,6 +274,11 @@ public class ClusterManager implements ClusterManagerAPI, AppContext.Listener, O
         messagesStat.remove(className);
     }
 
+    @Override
+    public void addMessageMerger(Class messageClass, ClusterMessageMerger merger) {
+        mergers.put(messageClass.getName(), merger);
+    }
+
     @Override
     public void applicationStarted() {
         // Cluster starts in AppContextLoader.afterInitAppContext()
@@ -172,6 +286,10 @@ public class ClusterManager implements ClusterManagerAPI, AppContext.Listener, O
 
     @Override
     public void applicationStopped() {
+        if (batchExecutor != null) {
+            flushBatch();
+            batchExecutor.shutdown();
+        }
         executor.shutdown();
         stop();
     }
@@ -282,16 +400,30 @@ public class ClusterManager implements ClusterManagerAPI, AppContext.Listener, O
     public String printSharedStateStat() {
         StringBuilder clusterStateStat = new StringBuilder();
         for (Map.Entry<String, ClusterListener> entry : listeners.entrySet()) {
-            byte[] data = null;
+            long size = -1;
+            long compressedSize = -1;
             StopWatch sw = new StopWatch();
+            StopWatch compressSw = new StopWatch();
             try {
-                data = entry.getValue().getState();
-            } finally {
+                ByteArrayOutputStream out = new ByteArrayOutputStream();
+                entry.getValue().writeState(out);
                 sw.stop();
+                size = out.size();
+
+                compressSw.start();
+                CountingOutputStream compressedOut = new CountingOutputStream(new NullOutputStream());
+                DeflaterOutputStream deflaterOut = new DeflaterOutputStream(compressedOut, new Deflater(Deflater.BEST_SPEED));
+                out.writeTo(deflaterOut);
+                deflaterOut.finish();
+                compressSw.stop();
+                compressedSize = compressedOut.getByteCount();
+            } catch (IOException e) {
+                log.error("Error writing state: {}", entry.getKey(), e);
             }
             clusterStateStat
-                    .append(String.format("State: %s, size: %s bytes, serialize time: %s ms\n",
-                            entry.getKey(), data != null ? data.length : -1, sw.getElapsedTime()));
+                    .append(String.format("State: %s, size: %s bytes, serialize time: %s ms, " +
+                                    "deflate size: %s bytes, deflate time: %s ms\n",
+                            entry.getKey(), size, sw.getElapsedTime(), compressedSize, compressSw.getElapsedTime()));
         }
         return clusterStateStat.toString();
     }
@@ -303,9 +435,16 @@ public class ClusterManager implements ClusterManagerAPI, AppContext.Listener, O
             MessageStat stat = entry.getValue();
             if (stat != null) {
                 messagesStats
-                        .append(String.format("Class: %s; received: %s, %s bytes; sent: %s, %s bytes\n",
+                        .append(String.format("Class: %s; received: %s, %s bytes; sent: %s, %s bytes",
                                 entry.getKey(), stat.getReceivedMessages(), stat.getReceivedBytes(),
                                 stat.getSentMessages(), stat.getSentBytes()));
+                if (stat.getSentBatches() > 0) {
+                    messagesStats
+                            .append(String.format("; average batch size: %s, average batch latency: %s ms",
+                                    stat.getBatchedMessages() / stat.getSentBatches(),
+                                    stat.getBatchLatency() / stat.getSentBatches()));
+                }
+                messagesStats.append("\n");
             }
         }
         return messagesStats.toString();
@@ -365,23 +504,34 @@ public class ClusterManager implements ClusterManagerAPI, AppContext.Listener, O
                 log.debug("Null buffer received");
                 return;
             }
-            StopWatch sw = new Log4JStopWatch();
+            long start = metrics.start();
             String simpleClassName = null;
             try {
                 Serializable data = (Serializable) SerializationSupport.deserialize(bytes);
-                String className = data.getClass().getName();
                 simpleClassName = data.getClass().getSimpleName();
                 log.debug("Received message: {}: {} ({} bytes)", data.getClass(), data, bytes.length);
-                MessageStat stat = messagesStat.get(className);
-                if (stat != null) {
-                    stat.updateReceived(bytes.length);
-                }
-                ClusterListener listener = listeners.get(className);
-                if (listener != null) {
-                    listener.receive(data);
+                dispatch(data, bytes.length);
+                if (data instanceof MessageBatch) {
+                    for (Serializable batchedMessage : ((MessageBatch) data).messages) {
+                        dispatch(batchedMessage, 0);
+                    }
                 }
             } finally {
-                sw.stop(String.format("receiveClusterMessage(%s)", simpleClassName));
+                if (start != MetricsRegistry.NOT_SAMPLED)
+                    metrics.stop("cluster.receive(" + simpleClassName + ")", start);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        protected void dispatch(Serializable data, int length) {
+            String className = data.getClass().getName();
+            MessageStat stat = messagesStat.get(className);
+            if (stat != null) {
+                stat.updateReceived(length);
+            }
+            ClusterListener listener = listeners.get(className);
+            if (listener != null) {
+                listener.receive(data);
             }
         }
 
@@ -394,33 +544,46 @@ public class ClusterManager implements ClusterManagerAPI, AppContext.Listener, O
         @Override
         public void getState(OutputStream output) {
             log.debug("Sending state");
+            StopWatch totalSw = new Log4JStopWatch("getClusterState");
             try (DataOutputStream out = new DataOutputStream(output)) {
-                Map<String, byte[]> state = new HashMap<>();
+                String compression = clusterConfig.getStateTransferCompression();
+                boolean deflate = COMPRESSION_DEFLATE.equals(compression);
+                out.writeUTF(STREAMING_STATE_MAGIC);
+                out.writeUTF(deflate ? COMPRESSION_DEFLATE : COMPRESSION_NONE);
+
+                DeflaterOutputStream deflaterOut = null;
+                CountingOutputStream countingOut;
+                if (deflate) {
+                    deflaterOut = new DeflaterOutputStream(out, new Deflater(Deflater.BEST_SPEED), 65536);
+                    countingOut = new CountingOutputStream(deflaterOut);
+                } else {
+                    countingOut = new CountingOutputStream(out);
+                }
+                DataOutputStream stateOut = new DataOutputStream(countingOut);
                 for (Map.Entry<String, ClusterListener> entry : listeners.entrySet()) {
-                    byte[] data;
+                    long startCount = countingOut.getByteCount();
                     StopWatch sw = new Log4JStopWatch(String.format("getClusterState(%s)", entry.getKey()));
                     try {
-                        data = entry.getValue().getState();
+                        stateOut.writeBoolean(true);
+                        stateOut.writeUTF(entry.getKey());
+                        ChunkedOutputStream chunkedOut = new ChunkedOutputStream(stateOut);
+                        entry.getValue().writeState(chunkedOut);
+                        chunkedOut.close();
                     } finally {
                         sw.stop();
                     }
-                    if (data != null && data.length > 0) {
-                        state.put(entry.getKey(), data);
-                    }
+                    log.debug("Sending state: {} ({} bytes)", entry.getKey(), countingOut.getByteCount() - startCount);
                 }
-
-                if (state.size() > 0) {
-                    out.writeUTF(STATE_MAGIC);
-                    out.writeInt(state.size());
-                    for (Map.Entry<String, byte[]> entry : state.entrySet()) {
-                        log.debug("Sending state: {} ({} bytes)", entry.getKey(), entry.getValue().length);
-                        out.writeUTF(entry.getKey());
-                        out.writeInt(entry.getValue().length);
-                        out.write(entry.getValue());
-                    }
+                stateOut.writeBoolean(false);
+                stateOut.flush();
+                if (deflaterOut != null) {
+                    deflaterOut.finish();
                 }
+                log.debug("State sent: {} bytes, compression: {}", countingOut.getByteCount(), compression);
             } catch (Exception e) {
                 log.error("Error sending state", e);
+            } finally {
+                totalSw.stop();
             }
         }
 
@@ -438,37 +601,65 @@ public class ClusterManager implements ClusterManagerAPI, AppContext.Listener, O
                     return;
 
                 String magic = in.readUTF();
-                if (!STATE_MAGIC.equals(magic)) {
+                if (STREAMING_STATE_MAGIC.equals(magic)) {
+                    readStreamingState(in);
+                } else if (STATE_MAGIC.equals(magic)) {
+                    readState(in);
+                } else {
                     log.debug("Invalid magic in state received");
                     return;
                 }
-                int count = in.readInt();
-                for (int i = 0; i < count; i++) {
-                    String name = in.readUTF();
-                    int len = in.readInt();
-                    StopWatch sw = new Log4JStopWatch(String.format("setClusterState(%s)", name));
-                    try {
-                        log.debug("Receiving state: {} ({} bytes)", name, len);
-                        byte[] data = new byte[len];
-                        int c = in.read(data);
-                        if (c != len) {
-                            log.error("Error receiving state: invalid data length");
-                            return;
-                        }
-                        ClusterListener listener = listeners.get(name);
-                        if (listener != null) {
-                            listener.setState(data);
-                        }
-                    } finally {
-                        sw.stop();
-                    }
-                }
                 log.debug("State received");
             } catch (Exception e) {
                 log.error("Error receiving state", e);
             }
         }
 
+        protected void readStreamingState(DataInputStream in) throws IOException {
+            String compression = in.readUTF();
+            DataInputStream stateIn = COMPRESSION_DEFLATE.equals(compression) ?
+                    new DataInputStream(new InflaterInputStream(in, new Inflater(), 65536)) : in;
+            while (stateIn.readBoolean()) {
+                String name = stateIn.readUTF();
+                StopWatch sw = new Log4JStopWatch(String.format("setClusterState(%s)", name));
+                try {
+                    log.debug("Receiving state: {}", name);
+                    ChunkedInputStream chunkedIn = new ChunkedInputStream(stateIn);
+                    ClusterListener listener = listeners.get(name);
+                    if (listener != null) {
+                        listener.readState(chunkedIn);
+                    }
+                    chunkedIn.close();
+                } finally {
+                    sw.stop();
+                }
+            }
+        }
+
+        protected void readState(DataInputStream in) throws IOException {
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String name = in.readUTF();
+                int len = in.readInt();
+                StopWatch sw = new Log4JStopWatch(String.format("setClusterState(%s)", name));
+                try {
+                    log.debug("Receiving state: {} ({} bytes)", name, len);
+                    byte[] data = new byte[len];
+                    int c = in.read(data);
+                    if (c != len) {
+                        log.error("Error receiving state: invalid data length");
+                        return;
+                    }
+                    ClusterListener listener = listeners.get(name);
+                    if (listener != null) {
+                        listener.setState(data);
+                    }
+                } finally {
+                    sw.stop();
+                }
+            }
+        }
+
         @Override
         public void block() {
         }
@@ -491,11 +682,145 @@ public class ClusterManager implements ClusterManagerAPI, AppContext.Listener, O
         }
     }
 
+    /**
+     * Splits the state of a single listener into length-prefixed chunks, so that the state can be written
+     * without knowing its size in advance. The end of the state is marked by an empty chunk.
+     * Closing the stream does not close the underlying stream.
+     */
+    protected static class ChunkedOutputStream extends OutputStream {
+        protected DataOutputStream out;
+        protected byte[] buffer = new byte[8192];
+        protected int count;
+        protected boolean closed;
+
+        public ChunkedOutputStream(DataOutputStream out) {
+            this.out = out;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count == buffer.length) {
+                writeChunk();
+            }
+            buffer[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                if (count == buffer.length) {
+                    writeChunk();
+                }
+                int n = Math.min(len, buffer.length - count);
+                System.arraycopy(b, off, buffer, count, n);
+                count += n;
+                off += n;
+                len -= n;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed)
+                return;
+            closed = true;
+            writeChunk();
+            out.writeInt(0);
+        }
+
+        protected void writeChunk() throws IOException {
+            if (count > 0) {
+                out.writeInt(count);
+                out.write(buffer, 0, count);
+                count = 0;
+            }
+        }
+    }
+
+    /**
+     * Reads the state written by {@link ChunkedOutputStream}. Closing the stream skips the rest of the state
+     * and does not close the underlying stream.
+     */
+    protected static class ChunkedInputStream extends InputStream {
+        protected DataInputStream in;
+        protected int remaining;
+        protected boolean finished;
+
+        public ChunkedInputStream(DataInputStream in) {
+            this.in = in;
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (!nextChunk())
+                return -1;
+            remaining--;
+            return in.readUnsignedByte();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0)
+                return 0;
+            if (!nextChunk())
+                return -1;
+            int n = in.read(b, off, Math.min(len, remaining));
+            if (n < 0)
+                throw new EOFException("Unexpected end of cluster state");
+            remaining -= n;
+            return n;
+        }
+
+        @Override
+        public void close() throws IOException {
+            while (nextChunk()) {
+                IOUtils.skipFully(in, remaining);
+                remaining = 0;
+            }
+        }
+
+        protected boolean nextChunk() throws IOException {
+            if (finished)
+                return false;
+            if (remaining == 0) {
+                remaining = in.readInt();
+                if (remaining == 0) {
+                    finished = true;
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Envelope for messages sent to the cluster in one batch.
+     */
+    protected static class MessageBatch implements Serializable {
+        private static final long serialVersionUID = 6306409429456452418L;
+
+        protected List<Serializable> messages;
+        protected transient long startTime;
+
+        public MessageBatch(List<Serializable> messages, long startTime) {
+            this.messages = messages;
+            this.startTime = startTime;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("MessageBatch{size=%s}", messages.size());
+        }
+    }
+
     protected class MessageStat {
         protected LongAdder sentBytes = new LongAdder();
         protected LongAdder receivedBytes = new LongAdder();
         protected LongAdder receivedMessages = new LongAdder();
         protected LongAdder sentMessages = new LongAdder();
+        protected LongAdder sentBatches = new LongAdder();
+        protected LongAdder batchedMessages = new LongAdder();
+        protected LongAdder batchLatency = new LongAdder();
 
         public void updateReceived(int bytes) {
             receivedMessages.increment();
@@ -507,6 +832,12 @@ public class ClusterManager implements ClusterManagerAPI, AppContext.Listener, O
             sentBytes.add(bytes);
         }
 
+        public void updateBatch(int size, long latency) {
+            sentBatches.increment();
+            batchedMessages.add(size);
+            batchLatency.add(latency);
+        }
+
         public long getSentBytes() {
             return sentBytes.longValue();
         }
@@ -522,5 +853,17 @@ public class ClusterManager implements ClusterManagerAPI, AppContext.Listener, O
         public long getReceivedMessages() {
             return receivedMessages.longValue();
         }
+
+        public long getSentBatches() {
+            return sentBatches.longValue();
+        }
+
+        public long getBatchedMessages() {
+            return batchedMessages.longValue();
+        }
+
+        public long getBatchLatency() {
+            return batchLatency.longValue();
+        }
     }
-}
\ No newline at end of file
+}
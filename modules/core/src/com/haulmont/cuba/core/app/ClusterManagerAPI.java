@@ -65,6 +65,14 @@ public interface ClusterManagerAPI {
      */
     void removeListener(Class messageClass, ClusterListener listener);
 
+    /**
+     * Register an object combining messages of the given class when they are sent in one batch.
+     * @param messageClass  the class of messages
+     * @param merger        merger instance
+     * @see ClusterConfig#getClusterMessageBatchingEnabled()
+     */
+    void addMessageMerger(Class messageClass, ClusterMessageMerger merger);
+
     /**
      * Inform whether the current node is currently the master node in the cluster. A middleware cluster always
      * elects one of its members as master, ususally it is the oldest one.
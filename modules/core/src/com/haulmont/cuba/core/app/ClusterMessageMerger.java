@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2008-2016 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.app;
+
+import javax.annotation.Nullable;
+import java.io.Serializable;
+
+/**
+ * Interface to be implemented by objects that can combine several cluster messages of the same class into one.
+ * Mergers are used only when batch sending of cluster messages is turned on. A message is merged only with the
+ * message immediately preceding it in the batch, so the order of messages is preserved.
+ * @param <T>   type of messages this merger combines
+ *
+ * @see ClusterConfig#getClusterMessageBatchingEnabled()
+ */
+public interface ClusterMessageMerger<T extends Serializable> {
+
+    /**
+     * Combine two messages waiting in the same batch.
+     * @param previous  message that was sent earlier
+     * @param next      message that is being sent now
+     * @return          message having the same effect on receiving nodes as both messages delivered in order,
+     *                  or null if the messages cannot be merged
+     */
+    @Nullable
+    T merge(T previous, T next);
+}
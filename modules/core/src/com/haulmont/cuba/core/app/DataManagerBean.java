@@ -24,6 +24,8 @@ import com.haulmont.cuba.core.entity.BaseGenericIdEntity;
 import com.haulmont.cuba.core.entity.Entity;
 import com.haulmont.cuba.core.global.*;
 import com.haulmont.cuba.core.sys.AppContext;
+import com.haulmont.cuba.core.sys.SecurityContext;
+import com.haulmont.cuba.core.sys.metrics.MetricsRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
@@ -35,6 +37,7 @@ import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.util.*;
+import java.util.stream.Stream;
 
 @Component(DataManager.NAME)
 public class DataManagerBean implements DataManager {
@@ -50,6 +53,9 @@ public class DataManagerBean implements DataManager {
     @Inject
     protected StoreFactory storeFactory;
 
+    @Inject
+    protected MetricsRegistry metrics;
+
     @Nullable
     @Override
     public <E extends Entity> E load(LoadContext<E> context) {
@@ -60,7 +66,13 @@ public class DataManagerBean implements DataManager {
             return null;
         }
         DataStore storage = storeFactory.get(storeName);
-        return storage.load(context);
+        long start = metrics.start();
+        try {
+            return storage.load(context);
+        } finally {
+            if (start != MetricsRegistry.NOT_SAMPLED)
+                metrics.stop("dataManager.load(" + metaClass.getName() + ")", start);
+        }
     }
 
     @Override
@@ -73,7 +85,13 @@ public class DataManagerBean implements DataManager {
             return null;
         }
         DataStore storage = storeFactory.get(storeName);
-        return storage.loadList(context);
+        long start = metrics.start();
+        try {
+            return storage.loadList(context);
+        } finally {
+            if (start != MetricsRegistry.NOT_SAMPLED)
+                metrics.stop("dataManager.loadList(" + metaClass.getName() + ")", start);
+        }
     }
 
     @Override
@@ -85,7 +103,39 @@ public class DataManagerBean implements DataManager {
             return 0;
         }
         DataStore storage = storeFactory.get(storeName);
-        return storage.getCount(context);
+        long start = metrics.start();
+        try {
+            return storage.getCount(context);
+        } finally {
+            if (start != MetricsRegistry.NOT_SAMPLED)
+                metrics.stop("dataManager.getCount(" + metaClass.getName() + ")", start);
+        }
+    }
+
+    @Override
+    public <E extends Entity> Stream<E> loadStream(LoadContext<E> context, int chunkSize) {
+        // chunks are loaded after this method returns, so keep the current authorization mode for them explicitly
+        SecurityContext securityContext = AppContext.getSecurityContext();
+        DataManager chunkLoader = securityContext != null && securityContext.isAuthorizationRequired() ? secure() : this;
+        return KeysetPagingIterator.stream(chunkLoader, context, chunkSize);
+    }
+
+    @Override
+    public int bulkUpdate(BulkUpdateContext context) {
+        MetaClass metaClass = metadata.getClassNN(context.getEntityName());
+        String storeName = metadata.getTools().getStoreName(metaClass);
+        if (storeName == null) {
+            log.debug("Storage for {} is not defined, returning 0", metaClass);
+            return 0;
+        }
+        DataStore storage = storeFactory.get(storeName);
+        long start = metrics.start();
+        try {
+            return storage.bulkUpdate(context);
+        } finally {
+            if (start != MetricsRegistry.NOT_SAMPLED)
+                metrics.stop("dataManager.bulkUpdate(" + metaClass.getName() + ")", start);
+        }
     }
 
     @Override
@@ -159,7 +209,14 @@ public class DataManagerBean implements DataManager {
         Set<Entity> result = new HashSet<>();
         for (Map.Entry<String, CommitContext> entry : storeToContextMap.entrySet()) {
             DataStore dataStore = storeFactory.get(entry.getKey());
-            Set<Entity> committed = dataStore.commit(entry.getValue());
+            long start = metrics.start();
+            Set<Entity> committed;
+            try {
+                committed = dataStore.commit(entry.getValue());
+            } finally {
+                if (start != MetricsRegistry.NOT_SAMPLED)
+                    metrics.stop("dataManager.commit(" + entry.getKey() + ")", start);
+            }
             if (!committed.isEmpty()) {
                 Entity committedEntity = committed.iterator().next();
                 if (committedEntity instanceof AbstractNotPersistentEntity) {
@@ -17,6 +17,7 @@
 package com.haulmont.cuba.core.app;
 
 import com.haulmont.cuba.core.entity.Entity;
+import com.haulmont.cuba.core.global.BulkUpdateContext;
 import com.haulmont.cuba.core.global.CommitContext;
 import com.haulmont.cuba.core.global.DataManager;
 import com.haulmont.cuba.core.global.LoadContext;
@@ -53,4 +54,14 @@ public class DataServiceBean implements DataService {
     public long getCount(LoadContext<? extends Entity> context) {
         return dataManager.secure().getCount(context);
     }
+
+    @Override
+    public List<List<Entity>> loadBatch(List<LoadContext<?>> contexts) {
+        return dataManager.secure().loadBatch(contexts);
+    }
+
+    @Override
+    public int bulkUpdate(BulkUpdateContext context) {
+        return dataManager.secure().bulkUpdate(context);
+    }
 }
\ No newline at end of file
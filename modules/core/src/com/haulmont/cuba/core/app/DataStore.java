@@ -17,10 +17,12 @@
 package com.haulmont.cuba.core.app;
 
 import com.haulmont.cuba.core.entity.Entity;
+import com.haulmont.cuba.core.global.BulkUpdateContext;
 import com.haulmont.cuba.core.global.CommitContext;
 import com.haulmont.cuba.core.global.LoadContext;
 
 import javax.annotation.Nullable;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 
@@ -54,4 +56,21 @@ public interface DataStore {
      * @return set of committed instances
      */
     Set<Entity> commit(CommitContext context);
+
+    /**
+     * Executes a set-based update or delete statement.
+     * <p>The default implementation supports only delete statements, loading the affected instances and removing
+     * them by {@link #commit(CommitContext)}.
+     * @return number of affected instances
+     */
+    default int bulkUpdate(BulkUpdateContext context) {
+        if (!context.isDelete()) {
+            throw new UnsupportedOperationException("Bulk update is not supported by " + getClass().getName());
+        }
+        List<Entity> instances = loadList(context.createLoadContextForDelete());
+        CommitContext commitContext = new CommitContext(Collections.emptyList(), instances);
+        commitContext.setSoftDeletion(context.isSoftDeletion());
+        commit(commitContext);
+        return instances.size();
+    }
 }
@@ -110,4 +110,13 @@ public interface EntitySnapshotAPI {
      * @return Diffs
      */
     EntityDiff getDifference(@Nullable EntitySnapshot first, EntitySnapshot second);
+
+    /**
+     * Convert snapshots created before the format version was introduced, including legacy XML snapshots,
+     * to the current format. Processes at most {@link ServerConfig#getEntitySnapshotConversionBatchSize()} snapshots,
+     * so it can be invoked repeatedly by a scheduled task until it returns 0.
+     *
+     * @return number of processed snapshots
+     */
+    int convertSnapshots();
 }
\ No newline at end of file
@@ -32,21 +32,34 @@ import com.haulmont.cuba.core.global.*;
 import com.haulmont.cuba.security.entity.User;
 import com.thoughtworks.xstream.XStream;
 import com.thoughtworks.xstream.converters.reflection.ExternalizableConverter;
+import org.apache.commons.io.IOUtils;
 import org.dom4j.*;
-
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
+
 import javax.annotation.Nullable;
 import javax.inject.Inject;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.UUID;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
 @Component(EntitySnapshotAPI.NAME)
 public class EntitySnapshotManager implements EntitySnapshotAPI {
 
+    private Logger log = LoggerFactory.getLogger(EntitySnapshotManager.class);
+
     @Inject
     protected Persistence persistence;
 
@@ -71,6 +84,9 @@ public class EntitySnapshotManager implements EntitySnapshotAPI {
     @Inject
     protected ViewSerializationAPI viewSerializationAPI;
 
+    @Inject
+    protected ServerConfig serverConfig;
+
     @Override
     public List<EntitySnapshot> getSnapshots(MetaClass metaClass, UUID id) {
         metaClass = getOriginalOrCurrentMetaClass(metaClass);
@@ -186,11 +202,14 @@ public class EntitySnapshotManager implements EntitySnapshotAPI {
                 snapshot.setEntityMetaClass(mappedMetaClass.getName());
             }
 
-            String snapshotXml = snapshot.getSnapshotXml();
-            String viewXml = snapshot.getViewXml();
+            // compressed snapshots contain JSON with entity names instead of class names
+            if (!isCompressed(snapshot)) {
+                String snapshotXml = snapshot.getSnapshotXml();
+                String viewXml = snapshot.getViewXml();
 
-            snapshot.setSnapshotXml(processSnapshotXml(snapshotXml, classMapping));
-            snapshot.setViewXml(processViewXml(viewXml, classMapping));
+                snapshot.setSnapshotXml(processSnapshotXml(snapshotXml, classMapping));
+                snapshot.setViewXml(processViewXml(viewXml, classMapping));
+            }
         }
 
         // Save snapshots to db
@@ -241,8 +260,9 @@ public class EntitySnapshotManager implements EntitySnapshotAPI {
         MetaClass metaClass = getOriginalOrCurrentMetaClass(entity.getClass());
 
         snapshot.setEntityMetaClass(metaClass.getName());
-        snapshot.setViewXml(viewSerializationAPI.toJson(view, ViewSerializationOption.COMPACT_FORMAT));
-        snapshot.setSnapshotXml(entitySerializationAPI.toJson(entity));
+        setContent(snapshot,
+                viewSerializationAPI.toJson(view, ViewSerializationOption.COMPACT_FORMAT),
+                entitySerializationAPI.toJson(entity));
         snapshot.setSnapshotDate(snapshotDate);
         snapshot.setAuthor(author);
 
@@ -261,10 +281,10 @@ public class EntitySnapshotManager implements EntitySnapshotAPI {
 
     @Override
     public Entity extractEntity(EntitySnapshot snapshot) {
-        String rawResult = snapshot.getSnapshotXml();
+        String rawResult = isCompressed(snapshot) ? decompress(snapshot.getSnapshotXml()) : snapshot.getSnapshotXml();
         BaseUuidEntity entity;
         if (isXml(rawResult)) {
-            entity = (BaseUuidEntity) fromXML(snapshot.getSnapshotXml());
+            entity = (BaseUuidEntity) fromXML(rawResult);
         } else {
             entity = entitySerializationAPI.entityFromJson(rawResult, metadata.getClass(snapshot.getEntityMetaClass()));
         }
@@ -273,7 +293,7 @@ public class EntitySnapshotManager implements EntitySnapshotAPI {
 
     @Override
     public View extractView(EntitySnapshot snapshot) {
-        String rawResult = snapshot.getViewXml();
+        String rawResult = isCompressed(snapshot) ? decompress(snapshot.getViewXml()) : snapshot.getViewXml();
         View view;
         if (isXml(rawResult)) {
             view = (View) fromXML(rawResult);
@@ -288,6 +308,90 @@ public class EntitySnapshotManager implements EntitySnapshotAPI {
         return diffManager.getDifference(first, second);
     }
 
+    @Override
+    public int convertSnapshots() {
+        int count = 0;
+        Transaction tx = persistence.createTransaction();
+        try {
+            EntityManager em = persistence.getEntityManager();
+            TypedQuery<EntitySnapshot> query = em.createQuery(
+                    "select s from sys$EntitySnapshot s where s.formatVersion is null order by s.createTs",
+                    EntitySnapshot.class);
+            query.setMaxResults(serverConfig.getEntitySnapshotConversionBatchSize());
+            query.setView(EntitySnapshot.class, View.LOCAL);
+            for (EntitySnapshot snapshot : query.getResultList()) {
+                convertSnapshot(snapshot);
+                count++;
+            }
+            tx.commit();
+        } finally {
+            tx.end();
+        }
+        if (count > 0) {
+            log.debug("Converted {} entity snapshots", count);
+        }
+        return count;
+    }
+
+    /**
+     * Converts a snapshot created before the format version was introduced to JSON in the current format.
+     * If the XML content cannot be read anymore, e.g. because of changed classes, the snapshot is left as is
+     * and marked as plain to be excluded from further conversion.
+     */
+    protected void convertSnapshot(EntitySnapshot snapshot) {
+        String viewJson;
+        String entityJson;
+        try {
+            View view = extractView(snapshot);
+            viewJson = isXml(snapshot.getViewXml())
+                    ? viewSerializationAPI.toJson(view, ViewSerializationOption.COMPACT_FORMAT)
+                    : snapshot.getViewXml();
+            entityJson = isXml(snapshot.getSnapshotXml())
+                    ? entitySerializationAPI.toJson(extractEntity(snapshot))
+                    : snapshot.getSnapshotXml();
+        } catch (RuntimeException e) {
+            log.warn("Unable to convert entity snapshot {}: {}", snapshot.getId(), e.toString());
+            snapshot.setFormatVersion(EntitySnapshot.FORMAT_PLAIN);
+            return;
+        }
+        setContent(snapshot, viewJson, entityJson);
+    }
+
+    protected void setContent(EntitySnapshot snapshot, String viewJson, String entityJson) {
+        if (serverConfig.getCompactEntitySnapshots()) {
+            snapshot.setViewXml(compress(viewJson));
+            snapshot.setSnapshotXml(compress(entityJson));
+            snapshot.setFormatVersion(EntitySnapshot.FORMAT_COMPRESSED);
+        } else {
+            snapshot.setViewXml(viewJson);
+            snapshot.setSnapshotXml(entityJson);
+            snapshot.setFormatVersion(EntitySnapshot.FORMAT_PLAIN);
+        }
+    }
+
+    protected boolean isCompressed(EntitySnapshot snapshot) {
+        return Objects.equals(snapshot.getFormatVersion(), EntitySnapshot.FORMAT_COMPRESSED);
+    }
+
+    protected String compress(String value) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(value.length() / 4, 64));
+        try (DeflaterOutputStream deflater = new DeflaterOutputStream(out)) {
+            deflater.write(value.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to compress entity snapshot", e);
+        }
+        return Base64.getEncoder().encodeToString(out.toByteArray());
+    }
+
+    protected String decompress(String value) {
+        byte[] bytes = Base64.getDecoder().decode(value);
+        try (InflaterInputStream inflater = new InflaterInputStream(new ByteArrayInputStream(bytes))) {
+            return IOUtils.toString(inflater, StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new RuntimeException("Unable to decompress entity snapshot", e);
+        }
+    }
+
     private MetaClass getOriginalOrCurrentMetaClass(Class javaClass) {
         MetaClass metaClass = metadata.getSession().getClass(javaClass);
         return getOriginalOrCurrentMetaClass(metaClass);
@@ -16,14 +16,17 @@
  */
 package com.haulmont.cuba.core.app;
 
+import com.haulmont.bali.datastruct.Pair;
 import com.haulmont.cuba.core.entity.Entity;
 import com.haulmont.cuba.core.entity.FtsChangeType;
+import org.slf4j.LoggerFactory;
 
+import java.util.List;
 import java.util.UUID;
 
 /**
  * Interface that is used to enque changed entities for indexing in Full Text Search engine.
- * It is implemented outside CUBA in the FTS project.
+ * It is implemented outside CUBA in the FTS project, the platform itself does not contain an indexing engine.
  *
  */
 public interface FtsSender {
@@ -34,6 +37,25 @@ public interface FtsSender {
 
     void enqueue(String entityName, Object entityId, FtsChangeType changeType);
 
+    /**
+     * Enqueues all changes made by a transaction. Invoked once before the transaction commit, so an implementation
+     * can override this method to store the whole batch at once or to pass it to an asynchronous indexer.
+     * The default implementation enqueues each change separately, an error is logged and does not prevent
+     * enqueueing the other changes.
+     *
+     * @param changes all changes in the order of processing, an entity may occur several times
+     */
+    default void enqueue(List<Pair<Entity, FtsChangeType>> changes) {
+        for (Pair<Entity, FtsChangeType> change : changes) {
+            try {
+                enqueue(change.getFirst(), change.getSecond());
+            } catch (Exception e) {
+                LoggerFactory.getLogger(FtsSender.class).error("Error enqueueing {} of {} for FTS",
+                        change.getSecond(), change.getFirst(), e);
+            }
+        }
+    }
+
     void enqueueFake(String entityName, Object entityId);
 
     void emptyQueue(String entityName);
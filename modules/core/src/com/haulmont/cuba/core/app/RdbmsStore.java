@@ -29,6 +29,10 @@ import com.haulmont.cuba.core.entity.Entity;
 import com.haulmont.cuba.core.entity.SoftDelete;
 import com.haulmont.cuba.core.global.*;
 import com.haulmont.cuba.core.sys.AppContext;
+import com.haulmont.cuba.core.sys.entitycache.QueryCacheManager;
+import com.haulmont.cuba.core.sys.persistence.OrmCacheSupport;
+import com.haulmont.cuba.security.app.EntityLogAPI;
+import com.haulmont.cuba.security.entity.EntityLogItem;
 import com.haulmont.cuba.security.entity.ConstraintOperationType;
 import com.haulmont.cuba.security.entity.EntityOp;
 import com.haulmont.cuba.security.entity.PermissionType;
@@ -42,6 +46,8 @@ import javax.inject.Inject;
 import javax.persistence.NoResultException;
 import java.util.*;
 import java.util.function.Predicate;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import static org.apache.commons.lang.StringUtils.isBlank;
 
@@ -57,6 +63,12 @@ public class RdbmsStore implements DataStore {
 
     private Logger log = LoggerFactory.getLogger(RdbmsStore.class);
 
+    protected static final Pattern DELETE_PATTERN = Pattern.compile(
+            "^\\s*delete\\s+from\\s+([\\w$]+)\\s+(?:as\\s+)?(\\w+)(.*)$", Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    protected static final String DELETE_TS_PARAM = "cuba_deleteTs";
+    protected static final String DELETED_BY_PARAM = "cuba_deletedBy";
+
     @Inject
     protected Metadata metadata;
 
@@ -87,6 +99,18 @@ public class RdbmsStore implements DataStore {
     @Inject
     protected DynamicAttributesManagerAPI dynamicAttributesManagerAPI;
 
+    @Inject
+    protected TimeSource timeSource;
+
+    @Inject
+    protected EntityLogAPI entityLog;
+
+    @Inject
+    protected OrmCacheSupport ormCacheSupport;
+
+    @Inject
+    protected QueryCacheManager queryCacheManager;
+
     protected String storeName;
 
     public RdbmsStore(String storeName) {
@@ -224,53 +248,144 @@ public class RdbmsStore implements DataStore {
 
         queryResultsManager.savePreviousQueryResults(context);
 
-        if (security.hasInMemoryConstraints(metaClass, ConstraintOperationType.READ, ConstraintOperationType.ALL)) {
-            context = context.copy();
-            List resultList;
-            try (Transaction tx = persistence.createTransaction(storeName)) {
-                EntityManager em = persistence.getEntityManager(storeName);
-                em.setSoftDeletion(context.isSoftDeletion());
-                persistence.getEntityManagerContext(storeName).setDbHints(context.getDbHints());
-
-                boolean ensureDistinct = false;
-                if (serverConfig.getInMemoryDistinct() && context.getQuery() != null) {
-                    QueryTransformer transformer = QueryTransformerFactory.createTransformer(
-                            context.getQuery().getQueryString());
-                    ensureDistinct = transformer.removeDistinct();
+        if (needToApplyInMemoryReadConstraints(context)) {
+            return getCountWithInMemoryConstraints(context, metaClass);
+        } else {
+            return getCountFromDatabase(context);
+        }
+    }
+
+    protected long getCountFromDatabase(LoadContext<? extends Entity> context) {
+        QueryTransformer transformer = QueryTransformerFactory.createTransformer(context.getQuery().getQueryString());
+        transformer.replaceWithCount();
+        context = context.copy();
+        context.getQuery().setQueryString(transformer.getResult());
+
+        Number result;
+        try (Transaction tx = persistence.createTransaction(storeName)) {
+            EntityManager em = persistence.getEntityManager(storeName);
+            em.setSoftDeletion(context.isSoftDeletion());
+            persistence.getEntityManagerContext(storeName).setDbHints(context.getDbHints());
+
+            Query query = createQuery(em, context);
+            result = (Number) query.getSingleResult();
+
+            tx.commit();
+        }
+
+        return result.longValue();
+    }
+
+    /**
+     * Counts entities by loading them in chunks and checking in-memory constraints chunk by chunk, so only the
+     * current chunk is kept in memory. Chunks are paged by the primary key like in {@link KeysetPagingIterator},
+     * so the cost of loading a chunk does not depend on its position in the result.
+     * If {@link ServerConfig#getInMemoryConstraintsCountEstimateThreshold()} is set, the count may be estimated
+     * after checking the given number of rows.
+     */
+    @SuppressWarnings("unchecked")
+    protected long getCountWithInMemoryConstraints(LoadContext<? extends Entity> context, MetaClass metaClass) {
+        MetaProperty primaryKey = metadata.getTools().getPrimaryKeyProperty(metaClass);
+        if (primaryKey == null || primaryKey.getRange().isClass()) {
+            return getCountByLoadingAll(context);
+        }
+
+        LoadContext<? extends Entity> chunkContext = context.copy();
+        int chunkSize = Math.max(serverConfig.getInMemoryConstraintsCountChunkSize(), 1);
+        int estimateThreshold = serverConfig.getInMemoryConstraintsCountEstimateThreshold();
+
+        long count = 0;
+        long checked = 0;
+        boolean exhausted = false;
+        try (Transaction tx = persistence.createTransaction(storeName)) {
+            EntityManager em = persistence.getEntityManager(storeName);
+            em.setSoftDeletion(chunkContext.isSoftDeletion());
+            persistence.getEntityManagerContext(storeName).setDbHints(chunkContext.getDbHints());
+
+            QueryTransformer transformer = QueryTransformerFactory.createTransformer(
+                    chunkContext.getQuery().getQueryString());
+            boolean ensureDistinct = serverConfig.getInMemoryDistinct() && transformer.removeDistinct();
+            transformer.replaceOrderBy(false, primaryKey.getName());
+            String firstQueryString = transformer.getResult();
+
+            transformer = QueryTransformerFactory.createTransformer(firstQueryString);
+            transformer.addWhere("{E}." + primaryKey.getName() + " > :" + KeysetPagingIterator.LAST_KEY_PARAM);
+            String nextQueryString = transformer.getResult();
+
+            LoadContext.Query chunkQuery = chunkContext.getQuery();
+            chunkQuery.setQueryString(firstQueryString);
+            chunkQuery.setFirstResult(0);
+            chunkQuery.setMaxResults(chunkSize);
+            chunkQuery.setCacheable(false);
+
+            View view = createRestrictedView(chunkContext);
+            Object lastCountedId = null;
+            while (!exhausted && (estimateThreshold <= 0 || checked < estimateThreshold)) {
+                Query query = createQuery(em, chunkContext);
+                query.setView(view);
+                List<Entity> chunk = executeQuery(query, false);
+                int loaded = chunk.size();
+                checked += loaded;
+                exhausted = loaded < chunkSize;
+
+                if (loaded > 0) {
+                    // the next chunk starts after the last loaded row, whether it is permitted or not
+                    chunkQuery.setQueryString(nextQueryString);
+                    chunkQuery.setParameter(KeysetPagingIterator.LAST_KEY_PARAM, chunk.get(loaded - 1).getId());
+
+                    security.filterByConstraints(chunk);
                     if (ensureDistinct) {
-                        context.getQuery().setQueryString(transformer.getResult());
+                        // rows are ordered by the primary key, so duplicates of an entity are adjacent
+                        for (Entity entity : chunk) {
+                            if (!entity.getId().equals(lastCountedId)) {
+                                lastCountedId = entity.getId();
+                                count++;
+                            }
+                        }
+                    } else {
+                        count += chunk.size();
                     }
                 }
-                context.getQuery().setFirstResult(0);
-                context.getQuery().setMaxResults(0);
+                // the chunk is counted, detach it to keep the memory footprint constant
+                em.getDelegate().clear();
+            }
+            tx.commit();
+        }
 
-                Query query = createQuery(em, context);
-                query.setView(createRestrictedView(context));
+        if (exhausted) {
+            return count;
+        }
 
-                resultList = getResultList(context, query, ensureDistinct);
-                tx.commit();
-            }
-            return resultList.size();
-        } else {
-            QueryTransformer transformer = QueryTransformerFactory.createTransformer(context.getQuery().getQueryString());
-            transformer.replaceWithCount();
-            context = context.copy();
-            context.getQuery().setQueryString(transformer.getResult());
+        long total = getCountFromDatabase(context);
+        long estimate = Math.round((double) count / checked * total);
+        log.debug("getCount: estimated {} of {} after checking {} rows of {}", estimate, total, checked, metaClass);
+        return Math.min(Math.max(estimate, count), total);
+    }
 
-            Number result;
-            try (Transaction tx = persistence.createTransaction(storeName)) {
-                EntityManager em = persistence.getEntityManager(storeName);
-                em.setSoftDeletion(context.isSoftDeletion());
-                persistence.getEntityManagerContext(storeName).setDbHints(context.getDbHints());
+    /**
+     * Counts entities having no simple primary key for paging by loading the whole result at once.
+     */
+    protected long getCountByLoadingAll(LoadContext<? extends Entity> context) {
+        context = context.copy();
+        List resultList;
+        try (Transaction tx = persistence.createTransaction(storeName)) {
+            EntityManager em = persistence.getEntityManager(storeName);
+            em.setSoftDeletion(context.isSoftDeletion());
+            persistence.getEntityManagerContext(storeName).setDbHints(context.getDbHints());
 
-                Query query = createQuery(em, context);
-                result = (Number) query.getSingleResult();
+            QueryTransformer transformer = QueryTransformerFactory.createTransformer(context.getQuery().getQueryString());
+            boolean ensureDistinct = serverConfig.getInMemoryDistinct() && transformer.removeDistinct();
+            context.getQuery().setQueryString(transformer.getResult());
+            context.getQuery().setFirstResult(0);
+            context.getQuery().setMaxResults(0);
 
-                tx.commit();
-            }
+            Query query = createQuery(em, context);
+            query.setView(createRestrictedView(context));
 
-            return result.longValue();
+            resultList = getResultList(context, query, ensureDistinct);
+            tx.commit();
         }
+        return resultList.size();
     }
 
     @Override
@@ -392,6 +507,78 @@ public class RdbmsStore implements DataStore {
         return res;
     }
 
+    @Override
+    public int bulkUpdate(BulkUpdateContext context) {
+        log.debug("bulkUpdate: {}", context);
+
+        MetaClass metaClass = metadata.getClassNN(context.getEntityName());
+        boolean delete = context.isDelete();
+        checkPermission(metaClass, delete ? EntityOp.DELETE : EntityOp.UPDATE);
+        // row-level constraints are checked for each instance, which is impossible without loading them
+        ConstraintOperationType operationType = delete ? ConstraintOperationType.DELETE : ConstraintOperationType.UPDATE;
+        if (isAuthorizationRequired()
+                && userSessionSource.getUserSession().hasConstraints()
+                && security.hasConstraints(metaClass)) {
+            throw new RowLevelSecurityException(
+                    "Bulk " + operationType + " is not permitted for entity with constraints " + metaClass.getName(),
+                    metaClass.getName(), operationType);
+        }
+
+        String queryString = context.getQueryString();
+        Map<String, Object> parameters = new HashMap<>(context.getParameters());
+        if (delete && context.isSoftDeletion() && SoftDelete.class.isAssignableFrom(metaClass.getJavaClass())) {
+            queryString = getSoftDeleteStatement(queryString);
+            parameters.put(DELETE_TS_PARAM, timeSource.currentTimestamp());
+            parameters.put(DELETED_BY_PARAM, userSessionSource.getUserSession().getUser().getLogin());
+        }
+
+        int count;
+        try (Transaction tx = persistence.createTransaction(storeName)) {
+            EntityManager em = persistence.getEntityManager(storeName);
+            em.setSoftDeletion(context.isSoftDeletion());
+
+            Query query = em.createQuery(queryString);
+            for (Map.Entry<String, Object> entry : parameters.entrySet()) {
+                query.setParameter(entry.getKey(), entry.getValue());
+            }
+            count = query.executeUpdate();
+
+            if (context.isLogSummary()) {
+                entityLog.registerBulkOperation(metaClass,
+                        delete ? EntityLogItem.Type.DELETE : EntityLogItem.Type.MODIFY, context.getQueryString(), count);
+            }
+            tx.commit();
+        }
+
+        // instances could be cached by concurrent transactions while the statement was executed,
+        // so evict them again after commit and on all cluster members
+        MetaClass effectiveMetaClass = metadata.getExtendedEntities().getEffectiveMetaClass(metaClass);
+        Set<String> entityNames = new HashSet<>();
+        entityNames.add(metaClass.getName());
+        entityNames.add(effectiveMetaClass.getName());
+        for (MetaClass descendant : effectiveMetaClass.getDescendants()) {
+            entityNames.add(descendant.getName());
+        }
+        ormCacheSupport.evictEntities(storeName, entityNames, true);
+        queryCacheManager.invalidate(entityNames, true);
+
+        log.debug("bulkUpdate: {} instances of {} affected", count, metaClass);
+        return count;
+    }
+
+    /**
+     * Converts {@code delete from E e where ...} to an update setting {@code deleteTs} and {@code deletedBy}.
+     */
+    protected String getSoftDeleteStatement(String queryString) {
+        Matcher matcher = DELETE_PATTERN.matcher(queryString);
+        if (!matcher.matches() || "where".equalsIgnoreCase(matcher.group(2))) {
+            throw new IllegalArgumentException("Delete statement must define an entity alias: " + queryString);
+        }
+        String alias = matcher.group(2);
+        return String.format("update %s %s set %s.deleteTs = :%s, %s.deletedBy = :%s%s",
+                matcher.group(1), alias, alias, DELETE_TS_PARAM, alias, DELETED_BY_PARAM, matcher.group(3));
+    }
+
     protected View getViewFromContext(CommitContext context, Entity entity) {
         View view = context.getViews().get(entity);
         if (view == null) {
@@ -132,6 +132,41 @@ public interface ServerConfig extends Config {
     boolean getInMemoryDistinct();
     void setInMemoryDistinct(boolean value);
 
+    /**
+     * @return Number of rows loaded at once when DataManager counts entities having in-memory READ constraints.
+     */
+    @Property("cuba.inMemoryConstraintsCountChunkSize")
+    @DefaultInt(1000)
+    int getInMemoryConstraintsCountChunkSize();
+
+    /**
+     * @return If positive, DataManager stops checking in-memory READ constraints after this number of rows when
+     * counting entities, and returns an estimate: the permitted share of the checked rows applied to the number of
+     * rows in the database. The estimate never exceeds the database count. If 0, the count is exact.
+     */
+    @Property("cuba.inMemoryConstraintsCountEstimateThreshold")
+    @DefaultInt(0)
+    int getInMemoryConstraintsCountEstimateThreshold();
+
+    /**
+     * @return Block sizes of {@link UniqueNumbersAPI} domains in the form {@code domain1:size1, domain2:size2}.
+     * Numbers of a listed domain are reserved in the database by blocks of the given size and handed out from
+     * memory. Numbers reserved but not handed out are lost when the server stops, so list only domains where gaps
+     * in numbering are acceptable. Other domains access the database for each number and have no gaps.
+     * <p>The block size is used as the increment of the domain's database sequence, so it must be defined before
+     * the sequence is created and must be the same on all cluster nodes.
+     */
+    @Property("cuba.uniqueNumbersBlockSizes")
+    String getUniqueNumbersBlockSizes();
+
+    /**
+     * @return Maximum number of fetch plans compiled from views and queries that are kept in memory.
+     * If 0, a fetch plan is compiled for each query execution.
+     */
+    @Property("cuba.fetchPlanCacheSize")
+    @DefaultInt(1000)
+    int getFetchPlanCacheSize();
+
     /**
      * @return Default database query timeout in seconds. If 0, middleware doesn't apply any timeout to queries.
      */
@@ -201,6 +236,37 @@ public interface ServerConfig extends Config {
     @DefaultInt(60)
     int getBruteForceBlockIntervalSec();
 
+    /**
+     * @return number of entities exported to a single zip entry or imported in a single transaction by the streaming
+     * methods of {@code EntityImportExportAPI}
+     */
+    @Property("cuba.importExportChunkSize")
+    @DefaultInt(1000)
+    int getImportExportChunkSize();
+
+    /**
+     * @return whether new entity snapshots are stored in the compressed format
+     */
+    @Property("cuba.compactEntitySnapshots")
+    @DefaultBoolean(true)
+    boolean getCompactEntitySnapshots();
+
+    /**
+     * @return maximum number of legacy entity snapshots converted to the current format by a single invocation of
+     * {@code EntitySnapshotAPI.convertSnapshots()}
+     */
+    @Property("cuba.entitySnapshotConversionBatchSize")
+    @DefaultInt(100)
+    int getEntitySnapshotConversionBatchSize();
+
+    /**
+     * @return whether the {@code /remoting/metrics} endpoint is enabled. The endpoint serves only requests from
+     * addresses listed in {@code cuba.trustedClientPermittedIpList}.
+     */
+    @Property("cuba.metricsEndpointEnabled")
+    @DefaultBoolean(false)
+    boolean getMetricsEndpointEnabled();
+
     @Property("cuba.anonymousLogin")
     @Source(type = SourceType.DATABASE)
     @Default("anonymous")
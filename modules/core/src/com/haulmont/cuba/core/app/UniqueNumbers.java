@@ -27,6 +27,7 @@ import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.text.StrTokenizer;
 
 import org.springframework.stereotype.Component;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
@@ -36,14 +37,21 @@ import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 /**
  * Provides unique numbers based on database sequences.
+ * <p>
+ * Domains listed in {@link ServerConfig#getUniqueNumbersBlockSizes()} reserve numbers in the database by blocks and
+ * hand them out from memory without locking.
+ * <p>
+ * Changing the increment of a sequence is DDL, which commits the current transaction implicitly on some databases,
+ * e.g. Oracle. So the increment is always changed in a separate transaction.
  *
  */
 @Component(UniqueNumbersAPI.NAME)
@@ -52,6 +60,9 @@ public class UniqueNumbers implements UniqueNumbersAPI {
     @Inject
     protected Persistence persistence;
 
+    @Inject
+    protected ServerConfig serverConfig;
+
     protected ReadWriteLock lock = new ReentrantReadWriteLock();
 
     @GuardedBy("lock")
@@ -59,6 +70,60 @@ public class UniqueNumbers implements UniqueNumbersAPI {
 
     protected SequenceSupport sequenceSupport;
 
+    protected ConcurrentMap<String, NumberBlock> numberBlocks = new ConcurrentHashMap<>();
+
+    protected ConcurrentMap<String, Object> blockAllocationLocks = new ConcurrentHashMap<>();
+
+    protected volatile BlockSizes blockSizes;
+
+    /**
+     * Increments of sequences known to be set by this instance, by domain.
+     */
+    protected ConcurrentMap<String, Long> sequenceIncrements = new ConcurrentHashMap<>();
+
+    /**
+     * Range of numbers reserved in the database and not yet handed out.
+     */
+    protected static class NumberBlock {
+        protected final AtomicLong next;
+        protected final long last;
+
+        protected NumberBlock(long first, long last) {
+            this.next = new AtomicLong(first);
+            this.last = last;
+        }
+
+        /**
+         * @return next number from the block or -1 if the block is exhausted
+         */
+        protected long take() {
+            long number = next.getAndIncrement();
+            return number <= last ? number : -1;
+        }
+    }
+
+    /**
+     * Parsed value of {@link ServerConfig#getUniqueNumbersBlockSizes()}.
+     */
+    protected static class BlockSizes {
+        protected final String source;
+        protected final Map<String, Integer> sizes = new HashMap<>();
+
+        protected BlockSizes(String source) {
+            this.source = source;
+            if (source != null) {
+                for (String item : source.split("[,\\s]+")) {
+                    if (StringUtils.isBlank(item))
+                        continue;
+                    String[] parts = item.split(":");
+                    if (parts.length != 2)
+                        throw new IllegalStateException("Invalid unique numbers block size definition: " + item);
+                    sizes.put(parts[0], Integer.parseInt(parts[1]));
+                }
+            }
+        }
+    }
+
     @PostConstruct
     public void init() {
         sequenceSupport = DbmsSpecificFactory.getSequenceSupport();
@@ -66,17 +131,136 @@ public class UniqueNumbers implements UniqueNumbersAPI {
 
     @Override
     public long getNextNumber(String domain) {
+        int blockSize = getBlockSize(domain);
+        if (isBlockAllocationSupported(domain)) {
+            if (blockSize > 1) {
+                NumberBlock block = numberBlocks.get(domain);
+                long number;
+                while (block == null || (number = block.take()) < 0) {
+                    block = allocateBlock(domain, block, blockSize);
+                }
+                return number;
+            }
+            if (!Objects.equals(sequenceIncrements.get(domain), 1L)) {
+                return getNextValueResettingIncrement(domain);
+            }
+        }
+        return getNextSequenceValue(domain, 1);
+    }
+
+    protected long getNextSequenceValue(String domain, int increment) {
         String seqName = getSequenceName(domain);
         String sqlScript = sequenceSupport.getNextValueSql(seqName);
 
         try {
             lock.readLock().lock();
-            return getResult(seqName, sqlScript);
+            return getResult(seqName, sqlScript, increment);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    protected boolean isBlockAllocationSupported(String domain) {
+        String seqName = getSequenceName(domain);
+        return sequenceSupport.getIncrementSql(seqName) != null
+                && sequenceSupport.modifyIncrementSql(seqName, 1) != null;
+    }
+
+    /**
+     * Reserves the next block of numbers in the database, unless another thread has already replaced the exhausted
+     * block with a new one.
+     */
+    protected NumberBlock allocateBlock(String domain, @Nullable NumberBlock exhaustedBlock, int blockSize) {
+        Object blockLock = blockAllocationLocks.computeIfAbsent(domain, d -> new Object());
+        synchronized (blockLock) {
+            NumberBlock currentBlock = numberBlocks.get(domain);
+            if (currentBlock != null && currentBlock != exhaustedBlock)
+                return currentBlock;
+
+            NumberBlock block = reserveBlock(domain, blockSize);
+            numberBlocks.put(domain, block);
+            return block;
+        }
+    }
+
+    /**
+     * Takes the next value of a sequence that can still have the increment of block allocation, e.g. after its domain
+     * has been removed from {@link ServerConfig#getUniqueNumbersBlockSizes()}, and sets the increment back to 1.
+     * The value is taken with the old increment, so it follows all numbers reserved by blocks.
+     */
+    protected long getNextValueResettingIncrement(String domain) {
+        String seqName = getSequenceName(domain);
+        Object blockLock = blockAllocationLocks.computeIfAbsent(domain, d -> new Object());
+        synchronized (blockLock) {
+            try {
+                lock.readLock().lock();
+                long value;
+                Transaction tx = persistence.createTransaction();
+                try {
+                    checkSequenceExists(seqName);
+                    value = toLong(executeScript(sequenceSupport.getNextValueSql(seqName)));
+                    tx.commit();
+                } finally {
+                    tx.end();
+                }
+                resetIncrement(seqName);
+
+                numberBlocks.remove(domain);
+                sequenceIncrements.put(domain, 1L);
+                return value;
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+    }
+
+    /**
+     * Takes the next sequence value and reserves the numbers up to the value the sequence returns next, i.e.
+     * the block size is the actual increment of the sequence. Then the increment is changed to the configured block
+     * size if it differs, so sequences created before block allocation was enabled, or a changed block size,
+     * never make ranges of different nodes overlap.
+     */
+    protected NumberBlock reserveBlock(String domain, int blockSize) {
+        String seqName = getSequenceName(domain);
+        Transaction tx = persistence.createTransaction();
+        try {
+            lock.readLock().lock();
+            checkSequenceExists(seqName, blockSize);
+
+            long incrementBefore = toLong(executeScript(sequenceSupport.getIncrementSql(seqName)));
+            long first = toLong(executeScript(sequenceSupport.getNextValueSql(seqName)));
+            long incrementAfter = toLong(executeScript(sequenceSupport.getIncrementSql(seqName)));
+            if (incrementAfter != blockSize) {
+                executeScript(sequenceSupport.modifyIncrementSql(seqName, blockSize));
+            }
+            tx.commit();
+            sequenceIncrements.put(domain, (long) blockSize);
+
+            long reserved = Math.max(Math.min(incrementBefore, incrementAfter), 1);
+            return new NumberBlock(first, first + reserved - 1);
         } finally {
             lock.readLock().unlock();
+            tx.end();
         }
     }
 
+    protected int getBlockSize(String domain) {
+        String source = serverConfig.getUniqueNumbersBlockSizes();
+        BlockSizes sizes = blockSizes;
+        if (sizes == null || !Objects.equals(sizes.source, source)) {
+            sizes = new BlockSizes(source);
+            blockSizes = sizes;
+        }
+        Integer size = sizes.sizes.get(domain);
+        return size != null && size > 1 ? size : 1;
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * For domains allocated by blocks, the returned value reflects the last block reserved in the database rather
+     * than the last number handed out.
+     */
     @Override
     public long getCurrentNumber(String domain) {
         String seqName = getSequenceName(domain);
@@ -84,7 +268,7 @@ public class UniqueNumbers implements UniqueNumbersAPI {
 
         try {
             lock.readLock().lock();
-            return getResult(seqName, sqlScript);
+            return getResult(seqName, sqlScript, getBlockSize(domain));
         } finally {
             lock.readLock().unlock();
         }
@@ -98,15 +282,39 @@ public class UniqueNumbers implements UniqueNumbersAPI {
         Transaction tx = persistence.getTransaction();
         try {
             lock.readLock().lock();
-            checkSequenceExists(seqName);
+            checkSequenceExists(seqName, getBlockSize(domain));
+            resetIncrement(seqName);
             executeScript(sqlScript);
             tx.commit();
+            numberBlocks.remove(domain);
+            sequenceIncrements.put(domain, 1L);
         } finally {
             lock.readLock().unlock();
             tx.end();
         }
     }
 
+    /**
+     * Sets the increment of a sequence used for block allocation back to 1, so the value set by
+     * {@link #setCurrentNumber(String, long)} is followed by the same number as without block allocation.
+     */
+    protected void resetIncrement(String seqName) {
+        String incrementSql = sequenceSupport.getIncrementSql(seqName);
+        String modifyIncrementSql = sequenceSupport.modifyIncrementSql(seqName, 1);
+        if (incrementSql == null || modifyIncrementSql == null)
+            return;
+
+        Transaction tx = persistence.createTransaction();
+        try {
+            if (toLong(executeScript(incrementSql)) != 1) {
+                executeScript(modifyIncrementSql);
+            }
+            tx.commit();
+        } finally {
+            tx.end();
+        }
+    }
+
     @Override
     public void deleteSequence(String domain) {
         String seqName = getSequenceName(domain);
@@ -128,6 +336,8 @@ public class UniqueNumbers implements UniqueNumbersAPI {
             executeScript(sqlScript);
             tx.commit();
             existingSequences.remove(seqName);
+            numberBlocks.remove(domain);
+            sequenceIncrements.remove(domain);
         } finally {
             lock.writeLock().unlock();
             tx.end();
@@ -135,29 +345,37 @@ public class UniqueNumbers implements UniqueNumbersAPI {
     }
 
     protected long getResult(String seqName, String sqlScript) {
+        return getResult(seqName, sqlScript, 1);
+    }
+
+    protected long getResult(String seqName, String sqlScript, long increment) {
         Transaction tx = persistence.getTransaction();
         try {
-            checkSequenceExists(seqName);
+            checkSequenceExists(seqName, increment);
 
             Object value = executeScript(sqlScript);
             tx.commit();
-            if (value instanceof Long)
-                return (Long) value;
-            else if (value instanceof BigDecimal)
-                return ((BigDecimal) value).longValue();
-            else if (value instanceof BigInteger)
-                return ((BigInteger) value).longValue();
-            else if (value instanceof String)
-                return Long.parseLong((String) value);
-            else if (value == null)
-                throw new IllegalStateException("No value returned");
-            else
-                throw new IllegalStateException("Unsupported value type: " + value.getClass());
+            return toLong(value);
         } finally {
             tx.end();
         }
     }
 
+    protected long toLong(Object value) {
+        if (value instanceof Long)
+            return (Long) value;
+        else if (value instanceof BigDecimal)
+            return ((BigDecimal) value).longValue();
+        else if (value instanceof BigInteger)
+            return ((BigInteger) value).longValue();
+        else if (value instanceof String)
+            return Long.parseLong((String) value);
+        else if (value == null)
+            throw new IllegalStateException("No value returned");
+        else
+            throw new IllegalStateException("Unsupported value type: " + value.getClass());
+    }
+
     protected Object executeScript(String sqlScript) {
         EntityManager em = persistence.getEntityManager();
         StrTokenizer tokenizer = new StrTokenizer(sqlScript, SequenceSupport.SQL_DELIMITER);
@@ -184,6 +402,10 @@ public class UniqueNumbers implements UniqueNumbersAPI {
     }
 
     protected void checkSequenceExists(String seqName) {
+        checkSequenceExists(seqName, 1);
+    }
+
+    protected void checkSequenceExists(String seqName, long increment) {
         if (containsSequence(seqName)) return;
 
         // Create sequence in separate transaction because it's name is cached and we want to be sure it is created
@@ -198,7 +420,7 @@ public class UniqueNumbers implements UniqueNumbersAPI {
             Query query = em.createNativeQuery(sequenceSupport.sequenceExistsSql(seqName));
             List list = query.getResultList();
             if (list.isEmpty()) {
-                query = em.createNativeQuery(sequenceSupport.createSequenceSql(seqName, 1, 1));
+                query = em.createNativeQuery(sequenceSupport.createSequenceSql(seqName, 1, increment));
                 query.executeUpdate();
             }
             tx.commit();
@@ -17,15 +17,22 @@
 
 package com.haulmont.cuba.core.app.importexport;
 
+import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
 import com.haulmont.chile.core.model.MetaClass;
 import com.haulmont.chile.core.model.MetaProperty;
 import com.haulmont.cuba.core.EntityManager;
 import com.haulmont.cuba.core.Persistence;
 import com.haulmont.cuba.core.Query;
 import com.haulmont.cuba.core.Transaction;
+import com.haulmont.cuba.core.app.ServerConfig;
 import com.haulmont.cuba.core.app.serialization.EntitySerializationAPI;
 import com.haulmont.cuba.core.app.serialization.EntitySerializationOption;
 import com.haulmont.cuba.core.entity.Entity;
+import com.haulmont.cuba.core.entity.IdProxy;
 import com.haulmont.cuba.core.entity.SoftDelete;
 import com.haulmont.cuba.core.global.Metadata;
 import com.haulmont.cuba.core.global.PersistenceHelper;
@@ -37,13 +44,13 @@ import org.apache.commons.compress.archivers.zip.ZipArchiveOutputStream;
 import org.apache.commons.io.IOUtils;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
-import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import java.io.*;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import java.util.zip.CRC32;
 
 @Component(EntityImportExportAPI.NAME)
@@ -58,6 +65,11 @@ public class EntityImportExport implements EntityImportExportAPI {
     @Inject
     protected Metadata metadata;
 
+    @Inject
+    protected ServerConfig serverConfig;
+
+    protected static final int PREFETCH_BATCH_SIZE = 500;
+
     @Override
     public byte[] exportEntities(Collection<? extends Entity> entities, View view) {
         return exportEntities(reloadEntities(entities, view));
@@ -86,6 +98,51 @@ public class EntityImportExport implements EntityImportExportAPI {
         return byteArrayOutputStream.toByteArray();
     }
 
+    @Override
+    public void exportEntities(Collection<? extends Entity> entities, View view, OutputStream outputStream) {
+        List<? extends Entity> list = new ArrayList<>(entities);
+        Iterator<Collection<? extends Entity>> chunks = Iterators.transform(
+                Lists.partition(list, serverConfig.getImportExportChunkSize()).iterator(),
+                chunk -> reloadEntities(chunk, view));
+        writeChunks(chunks, outputStream);
+    }
+
+    @Override
+    public void exportEntities(Stream<? extends Entity> entities, OutputStream outputStream) {
+        Iterator<? extends Entity> iterator = entities.iterator();
+        Iterator<Collection<? extends Entity>> chunks = Iterators.transform(
+                Iterators.partition(iterator, serverConfig.getImportExportChunkSize()),
+                chunk -> chunk);
+        writeChunks(chunks, outputStream);
+    }
+
+    /**
+     * Writes each chunk of entities as a separate JSON array entry of the zip archive, so that only one chunk
+     * is held in memory at a time.
+     */
+    protected void writeChunks(Iterator<Collection<? extends Entity>> chunks, OutputStream outputStream) {
+        ZipArchiveOutputStream zipOutputStream = new ZipArchiveOutputStream(outputStream);
+        zipOutputStream.setMethod(ZipArchiveOutputStream.STORED);
+        zipOutputStream.setEncoding(StandardCharsets.UTF_8.name());
+        try {
+            int index = 0;
+            do {
+                Collection<? extends Entity> chunk = chunks.hasNext() ? chunks.next() : Collections.emptyList();
+                String json = entitySerialization.toJson(chunk, null, EntitySerializationOption.COMPLEX_ID_FORMAT,
+                        EntitySerializationOption.COMPACT_REPEATED_ENTITIES);
+                byte[] jsonBytes = json.getBytes(StandardCharsets.UTF_8);
+                zipOutputStream.putArchiveEntry(newStoredEntry(String.format("entities-%06d.json", index++), jsonBytes));
+                zipOutputStream.write(jsonBytes);
+                zipOutputStream.closeArchiveEntry();
+            } while (chunks.hasNext());
+            // finish the archive without closing the stream which is owned by the caller
+            zipOutputStream.finish();
+            zipOutputStream.flush();
+        } catch (IOException e) {
+            throw new RuntimeException("Error on creating zip archive during entities export", e);
+        }
+    }
+
     protected Collection<? extends Entity> reloadEntities(Collection<? extends Entity> entities, View view) {
         List<Object> ids = entities.stream()
                 .map(Entity::getId)
@@ -142,22 +199,72 @@ public class EntityImportExport implements EntityImportExportAPI {
         return IOUtils.toByteArray(archiveReader);
     }
 
+    @Override
+    public int importEntities(InputStream inputStream, EntityImportView view) {
+        int chunkSize = serverConfig.getImportExportChunkSize();
+        int count = 0;
+        ZipArchiveInputStream archiveReader = new ZipArchiveInputStream(inputStream);
+        try {
+            JsonParser parser = new JsonParser();
+            while (archiveReader.getNextZipEntry() != null) {
+                // the reader is not closed because it would close the archive stream
+                JsonReader jsonReader = new JsonReader(new InputStreamReader(archiveReader, StandardCharsets.UTF_8));
+                jsonReader.beginArray();
+                JsonArray chunk = new JsonArray();
+                while (jsonReader.hasNext()) {
+                    chunk.add(parser.parse(jsonReader));
+                    if (chunk.size() >= chunkSize) {
+                        count += importChunk(chunk, view);
+                        chunk = new JsonArray();
+                    }
+                }
+                jsonReader.endArray();
+                if (chunk.size() > 0) {
+                    count += importChunk(chunk, view);
+                }
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Exception occurred while importing entities", e);
+        }
+        return count;
+    }
+
+    /**
+     * Imports a chunk of the JSON array in a separate transaction.
+     *
+     * @return number of imported entities
+     */
+    protected int importChunk(JsonArray chunk, EntityImportView view) {
+        Collection<? extends Entity> entities = entitySerialization.entitiesCollectionFromJson(chunk.toString(),
+                null,
+                EntitySerializationOption.COMPLEX_ID_FORMAT, EntitySerializationOption.COMPACT_REPEATED_ENTITIES);
+        int count;
+        try (Transaction tx = persistence.createTransaction()) {
+            count = importEntities(entities, view).size();
+            tx.commit();
+        }
+        return count;
+    }
+
     @Override
     public Collection<Entity> importEntities(Collection<? extends Entity> entities, EntityImportView view) {
         Collection<Entity> result = new ArrayList<>();
         Map<Object, Entity> entitiesToCreate = new HashMap<>();
         Set<Entity> entitiesToRemove = new HashSet<>();
         List<ReferenceInfo> referenceInfoList = new ArrayList<>();
-        Map<Object, Entity> loadedEntities = new HashMap<>();
+        LoadedEntities loadedEntities = new LoadedEntities();
 
         try (Transaction tx = persistence.getTransaction()) {
 
+            //existing entities and references are loaded in advance by batches instead of loading them one by one
+            prefetchEntities(entities, view, loadedEntities);
+
             //import is performed in two steps. We have to do so, because imported entity may have a reference to
             //some next imported entity.
             //1. entities that should be created processed first, fields that should be references to existing entities
             //are stored in the referenceInfoList variable
             for (Entity entity : entities) {
-                importEntity(entity, view, entitiesToCreate, entitiesToRemove, referenceInfoList);
+                importEntity(entity, view, entitiesToCreate, entitiesToRemove, referenceInfoList, loadedEntities);
             }
 
             //2. references to existing entities are processed
@@ -190,11 +297,13 @@ public class EntityImportExport implements EntityImportExportAPI {
                                   EntityImportView view,
                                   Map<Object, Entity> entitiesToCreate,
                                   Set<Entity> entitiesToRemove,
-                                  Collection<ReferenceInfo> referenceInfoList) {
+                                  Collection<ReferenceInfo> referenceInfoList,
+                                  LoadedEntities loadedEntities) {
         EntityManager em = persistence.getEntityManager();
         //set softDeletion to false because we can import deleted entity, so we'll restore them and update
         em.setSoftDeletion(false);
-        Entity dstEntity = em.reload(srcEntity);
+        Entity dstEntity = loadedEntities.contains(srcEntity) ?
+                loadedEntities.get(srcEntity) : em.reload(srcEntity);
         MetaClass metaClass = srcEntity.getMetaClass();
         if (dstEntity == null) {
             dstEntity = metadata.create(metaClass);
@@ -210,13 +319,13 @@ public class EntityImportExport implements EntityImportExportAPI {
             } else if (metaProperty.getRange().isClass()) {
                 if (metadata.getTools().isEmbedded(metaProperty)) {
                     if (viewProperty.getView() != null) {
-                        Entity embeddedEntity = importEmbeddedAttribute(srcEntity, dstEntity, viewProperty, entitiesToCreate, entitiesToRemove, referenceInfoList);
+                        Entity embeddedEntity = importEmbeddedAttribute(srcEntity, dstEntity, viewProperty, entitiesToCreate, entitiesToRemove, referenceInfoList, loadedEntities);
                         dstEntity.setValue(viewProperty.getName(), embeddedEntity);
                     }
                 } else if (metaProperty.getRange().getCardinality().isMany()) {
-                    importCollectionAttribute(srcEntity, dstEntity, viewProperty, entitiesToCreate, entitiesToRemove, referenceInfoList);
+                    importCollectionAttribute(srcEntity, dstEntity, viewProperty, entitiesToCreate, entitiesToRemove, referenceInfoList, loadedEntities);
                 } else {
-                    importReference(srcEntity, dstEntity, viewProperty, entitiesToCreate, entitiesToRemove, referenceInfoList);
+                    importReference(srcEntity, dstEntity, viewProperty, entitiesToCreate, entitiesToRemove, referenceInfoList, loadedEntities);
                 }
             }
         }
@@ -229,7 +338,8 @@ public class EntityImportExport implements EntityImportExportAPI {
                                              EntityImportViewProperty viewProperty,
                                              Map<Object, Entity> entitiesToCreate,
                                              Set<Entity> entitiesToRemove,
-                                             Collection<ReferenceInfo> referenceInfoList) {
+                                             Collection<ReferenceInfo> referenceInfoList,
+                                             LoadedEntities loadedEntities) {
         MetaProperty metaProperty = srcEntity.getMetaClass().getPropertyNN(viewProperty.getName());
         Entity srcEmbeddedEntity = srcEntity.getValue(viewProperty.getName());
         if (srcEmbeddedEntity == null) {
@@ -247,9 +357,9 @@ public class EntityImportExport implements EntityImportExportAPI {
                 dstEmbeddedEntity.setValue(vp.getName(), srcEmbeddedEntity.getValue(vp.getName()));
             } else if (mp.getRange().isClass()) {
                 if (mp.getRange().getCardinality().isMany()) {
-                    importCollectionAttribute(srcEmbeddedEntity, dstEmbeddedEntity, vp, entitiesToCreate, entitiesToRemove, referenceInfoList);
+                    importCollectionAttribute(srcEmbeddedEntity, dstEmbeddedEntity, vp, entitiesToCreate, entitiesToRemove, referenceInfoList, loadedEntities);
                 } else {
-                    importReference(srcEmbeddedEntity, dstEmbeddedEntity, vp, entitiesToCreate, entitiesToRemove, referenceInfoList);
+                    importReference(srcEmbeddedEntity, dstEmbeddedEntity, vp, entitiesToCreate, entitiesToRemove, referenceInfoList, loadedEntities);
                 }
             }
         }
@@ -262,13 +372,14 @@ public class EntityImportExport implements EntityImportExportAPI {
                                    Entity dstEntity,
                                    EntityImportViewProperty viewProperty,
                                    Map<Object, Entity> entitiesToCreate,
-                                   Set<Entity> entitiesToRemove, Collection<ReferenceInfo> referenceInfoList) {
+                                   Set<Entity> entitiesToRemove, Collection<ReferenceInfo> referenceInfoList,
+                                   LoadedEntities loadedEntities) {
         Entity srcPropertyValue = srcEntity.<Entity>getValue(viewProperty.getName());
         if (viewProperty.getView() == null) {
             ReferenceInfo referenceInfo = new ReferenceInfo(dstEntity, viewProperty.getName(), srcPropertyValue, viewProperty.getReferenceImportBehaviour());
             referenceInfoList.add(referenceInfo);
         } else {
-            Entity dstPropertyValue = importEntity(srcPropertyValue, viewProperty.getView(), entitiesToCreate, entitiesToRemove, referenceInfoList);
+            Entity dstPropertyValue = importEntity(srcPropertyValue, viewProperty.getView(), entitiesToCreate, entitiesToRemove, referenceInfoList, loadedEntities);
             dstEntity.setValue(viewProperty.getName(), dstPropertyValue);
         }
     }
@@ -278,7 +389,8 @@ public class EntityImportExport implements EntityImportExportAPI {
                                              EntityImportViewProperty viewProperty,
                                              Map<Object, Entity> entitiesToCreate,
                                              Set<Entity> entitiesToRemove,
-                                             Collection<ReferenceInfo> referenceInfoList) {
+                                             Collection<ReferenceInfo> referenceInfoList,
+                                             LoadedEntities loadedEntities) {
         MetaProperty metaProperty = srcEntity.getMetaClass().getPropertyNN(viewProperty.getName());
         MetaProperty inverseMetaProperty = metaProperty.getInverse();
         boolean isComposition = metaProperty.getType() == MetaProperty.Type.COMPOSITION;
@@ -308,7 +420,7 @@ public class EntityImportExport implements EntityImportExportAPI {
                 referenceInfoList.add(referenceInfo);
             } else {
                 //create new referenced entity
-                Entity dstChildEntity = importEntity(srcChildEntity, viewProperty.getView(), entitiesToCreate, entitiesToRemove, referenceInfoList);
+                Entity dstChildEntity = importEntity(srcChildEntity, viewProperty.getView(), entitiesToCreate, entitiesToRemove, referenceInfoList, loadedEntities);
                 if (inverseMetaProperty != null) {
                     dstChildEntity.setValue(inverseMetaProperty.getName(), dstEntity);
                 }
@@ -329,7 +441,7 @@ public class EntityImportExport implements EntityImportExportAPI {
         dstEntity.setValue(viewProperty.getName(), collection);
     }
 
-    protected void processReferenceInfo(ReferenceInfo referenceInfo, Map<Object, Entity> entitiesToCreate, Map<Object, Entity> loadedEntities) {
+    protected void processReferenceInfo(ReferenceInfo referenceInfo, Map<Object, Entity> entitiesToCreate, LoadedEntities loadedEntities) {
         Entity entity = referenceInfo.getEntity();
         String propertyName = referenceInfo.getPropertyName();
 
@@ -350,13 +462,18 @@ public class EntityImportExport implements EntityImportExportAPI {
             }
 
             for (Entity childEntity : propertyValue) {
-                if (loadedEntities.get(childEntity.getId()) != null) {
-                    collection.add(loadedEntities.get(childEntity.getId()));
+                if (loadedEntities.get(childEntity) != null) {
+                    collection.add(loadedEntities.get(childEntity));
                 } else if (entitiesToCreate.get(childEntity.getId()) != null) {
                     collection.add(entitiesToCreate.get(childEntity.getId()));
                 } else {
-                    EntityManager em = persistence.getEntityManager();
-                    Entity loadedReference = em.reload(childEntity);
+                    Entity loadedReference;
+                    if (loadedEntities.contains(childEntity)) {
+                        loadedReference = null; // prefetched and not found
+                    } else {
+                        EntityManager em = persistence.getEntityManager();
+                        loadedReference = em.reload(childEntity);
+                    }
                     if (loadedReference == null) {
                         if (referenceInfo.getImportBehaviour() == ReferenceImportBehaviour.ERROR_ON_MISSING) {
                             throw new EntityImportException("Referenced entity for property '" + propertyName + "' with id = " + entity.getId() + " is missing");
@@ -364,7 +481,7 @@ public class EntityImportExport implements EntityImportExportAPI {
                     } else {
                         collection.add(loadedReference);
                     }
-                    loadedEntities.put(entity.getId(), loadedReference);
+                    loadedEntities.put(childEntity, loadedReference);
                 }
             }
             entity.setValue(propertyName, collection);
@@ -372,13 +489,18 @@ public class EntityImportExport implements EntityImportExportAPI {
             Entity propertyValue = (Entity) referenceInfo.getPropertyValue();
             if (propertyValue == null) {
                 entity.setValue(propertyName, null);
-            } else if (loadedEntities.get(propertyValue.getId()) != null) {
-                entity.setValue(propertyName, loadedEntities.get(propertyValue.getId()));
+            } else if (loadedEntities.get(propertyValue) != null) {
+                entity.setValue(propertyName, loadedEntities.get(propertyValue));
             } else if (entitiesToCreate.get(propertyValue.getId()) != null) {
                 entity.setValue(propertyName, entitiesToCreate.get(propertyValue.getId()));
             } else {
-                EntityManager em = persistence.getEntityManager();
-                Entity loadedReference = em.find(propertyValue.getClass(), propertyValue.getId());
+                Entity loadedReference;
+                if (loadedEntities.contains(propertyValue)) {
+                    loadedReference = null; // prefetched and not found
+                } else {
+                    EntityManager em = persistence.getEntityManager();
+                    loadedReference = em.find(propertyValue.getClass(), propertyValue.getId());
+                }
                 if (loadedReference == null) {
                     if (referenceInfo.getImportBehaviour() == ReferenceImportBehaviour.ERROR_ON_MISSING) {
                         throw new EntityImportException("Referenced entity for property '" + propertyName + "' with id = " + propertyValue.getId() + " is missing");
@@ -386,11 +508,128 @@ public class EntityImportExport implements EntityImportExportAPI {
                 } else {
                     entity.setValue(propertyName, loadedReference);
                 }
-                loadedEntities.put(propertyValue.getId(), loadedReference);
+                loadedEntities.put(propertyValue, loadedReference);
+            }
+        }
+    }
+
+    /**
+     * Loads existing instances of the imported entities and of the entities they reference by batches of {@code in}
+     * queries. Found instances are put to {@code loadedEntities}, not found ids are mapped to null.
+     */
+    protected void prefetchEntities(Collection<? extends Entity> entities, EntityImportView view,
+                                    LoadedEntities loadedEntities) {
+        Map<MetaClass, Set<Object>> idsByMetaClass = new LinkedHashMap<>();
+        for (Entity entity : entities) {
+            collectIds(entity, view, idsByMetaClass);
+        }
+
+        EntityManager em = persistence.getEntityManager();
+        em.setSoftDeletion(false);
+        for (Map.Entry<MetaClass, Set<Object>> entry : idsByMetaClass.entrySet()) {
+            MetaClass metaClass = metadata.getExtendedEntities().getEffectiveMetaClass(entry.getKey());
+            MetaProperty primaryKey = metadata.getTools().getPrimaryKeyProperty(metaClass);
+            if (primaryKey == null || !primaryKey.getRange().isDatatype()) {
+                continue; // entities with composite keys are loaded one by one
+            }
+            for (List<Object> ids : Lists.partition(new ArrayList<>(entry.getValue()), PREFETCH_BATCH_SIZE)) {
+                Query query = em.createQuery("select e from " + metaClass.getName() + " e where e."
+                        + primaryKey.getName() + " in :ids")
+                        .setParameter("ids", ids);
+                Map<Object, Entity> found = new HashMap<>();
+                for (Object result : query.getResultList()) {
+                    Entity entity = (Entity) result;
+                    found.put(entity.getId(), entity);
+                }
+                for (Object id : ids) {
+                    if (!loadedEntities.contains(metaClass, id) || found.get(id) != null) {
+                        loadedEntities.put(metaClass, id, found.get(id));
+                    }
+                }
+            }
+        }
+    }
+
+    protected void collectIds(Entity srcEntity, EntityImportView view, Map<MetaClass, Set<Object>> idsByMetaClass) {
+        if (srcEntity == null || srcEntity.getId() == null)
+            return;
+        if (addId(srcEntity, idsByMetaClass)) {
+            collectReferencedIds(srcEntity, view, idsByMetaClass);
+        }
+    }
+
+    protected void collectReferencedIds(Entity srcEntity, EntityImportView view, Map<MetaClass, Set<Object>> idsByMetaClass) {
+        for (EntityImportViewProperty viewProperty : view.getProperties()) {
+            MetaProperty metaProperty = srcEntity.getMetaClass().getProperty(viewProperty.getName());
+            if (metaProperty == null || !metaProperty.getRange().isClass())
+                continue;
+            Object value = srcEntity.getValue(viewProperty.getName());
+            if (value == null)
+                continue;
+            if (metadata.getTools().isEmbedded(metaProperty)) {
+                if (viewProperty.getView() != null) {
+                    collectReferencedIds((Entity) value, viewProperty.getView(), idsByMetaClass);
+                }
+            } else if (metaProperty.getRange().getCardinality().isMany()) {
+                for (Object item : (Collection) value) {
+                    collectReference((Entity) item, viewProperty, idsByMetaClass);
+                }
+            } else {
+                collectReference((Entity) value, viewProperty, idsByMetaClass);
             }
         }
     }
 
+    protected void collectReference(Entity reference, EntityImportViewProperty viewProperty,
+                                    Map<MetaClass, Set<Object>> idsByMetaClass) {
+        if (viewProperty.getView() != null) {
+            collectIds(reference, viewProperty.getView(), idsByMetaClass);
+        } else if (reference != null && reference.getId() != null) {
+            addId(reference, idsByMetaClass);
+        }
+    }
+
+    protected boolean addId(Entity entity, Map<MetaClass, Set<Object>> idsByMetaClass) {
+        if (entity.getId() instanceof IdProxy)
+            return true; // entities with identity ids are loaded one by one
+        return idsByMetaClass.computeIfAbsent(entity.getMetaClass(), metaClass -> new LinkedHashSet<>())
+                .add(entity.getId());
+    }
+
+    /**
+     * Entities loaded during import, by metaclass and id. Null value means that the entity does not exist.
+     */
+    protected class LoadedEntities {
+        protected Map<MetaClass, Map<Object, Entity>> entities = new HashMap<>();
+
+        public boolean contains(Entity entity) {
+            return contains(getMetaClass(entity), entity.getId());
+        }
+
+        public boolean contains(MetaClass metaClass, Object id) {
+            Map<Object, Entity> map = entities.get(metaClass);
+            return map != null && map.containsKey(id);
+        }
+
+        @Nullable
+        public Entity get(Entity entity) {
+            Map<Object, Entity> map = entities.get(getMetaClass(entity));
+            return map != null ? map.get(entity.getId()) : null;
+        }
+
+        public void put(Entity entity, @Nullable Entity loadedEntity) {
+            put(getMetaClass(entity), entity.getId(), loadedEntity);
+        }
+
+        public void put(MetaClass metaClass, Object id, @Nullable Entity loadedEntity) {
+            entities.computeIfAbsent(metaClass, m -> new HashMap<>()).put(id, loadedEntity);
+        }
+
+        protected MetaClass getMetaClass(Entity entity) {
+            return metadata.getExtendedEntities().getEffectiveMetaClass(entity.getMetaClass());
+        }
+    }
+
     protected class ReferenceInfo {
         protected Entity entity;
         protected String propertyName;
@@ -20,7 +20,10 @@ package com.haulmont.cuba.core.app.importexport;
 import com.haulmont.cuba.core.entity.Entity;
 import com.haulmont.cuba.core.global.View;
 
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Collection;
+import java.util.stream.Stream;
 
 /**
  * Class that is used for exporting a collection of entities and importing them. See full javadocs in the {@link
@@ -40,6 +43,37 @@ public interface EntityImportExportAPI {
      */
     byte[] exportEntities(Collection<? extends Entity> entities, View view);
 
+    /**
+     * Reloads the entities with the given view by chunks of {@code cuba.importExportChunkSize} instances and writes
+     * them to the output stream as a zip archive, one archive entry per chunk. The archive can be imported by any
+     * of the {@code importEntities} methods accepting a zip archive.
+     * <p>
+     * The output stream is not closed.
+     */
+    void exportEntities(Collection<? extends Entity> entities, View view, OutputStream outputStream);
+
+    /**
+     * Writes the entities to the output stream as a zip archive, consuming the stream by chunks of
+     * {@code cuba.importExportChunkSize} instances. Together with
+     * {@link com.haulmont.cuba.core.global.DataManager#loadStream(com.haulmont.cuba.core.global.LoadContext, int)}
+     * it allows exporting large data sets without loading them into memory.
+     * <p>
+     * The output stream is not closed.
+     */
+    void exportEntities(Stream<? extends Entity> entities, OutputStream outputStream);
+
+    /**
+     * Imports entities from a zip archive read from the input stream. JSON arrays of the archive entries are parsed
+     * incrementally, and every {@code cuba.importExportChunkSize} entities are imported and committed in a separate
+     * transaction, so the whole data set is never held in memory. Entities referenced by the imported ones must be
+     * either in the same chunk or in one of the previous chunks.
+     * <p>
+     * The input stream is not closed.
+     *
+     * @return number of imported entities
+     */
+    int importEntities(InputStream inputStream, EntityImportView view);
+
     /**
      * See documentation for {@link EntityImportExportService#importEntities(byte[], EntityImportView)}
      */
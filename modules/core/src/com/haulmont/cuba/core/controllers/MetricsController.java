@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2008-2016 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.haulmont.cuba.core.controllers;
+
+import com.haulmont.cuba.core.app.ServerConfig;
+import com.haulmont.cuba.core.sys.metrics.MetricsRegistry;
+import com.haulmont.cuba.security.sys.TrustedLoginHandler;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Returns the content of {@link MetricsRegistry} as plain text. The endpoint is disabled unless the
+ * {@code cuba.metricsEndpointEnabled} application property is set to true, and it serves only requests from the
+ * addresses permitted by {@code cuba.trustedClientPermittedIpList}.
+ */
+@Controller
+public class MetricsController {
+
+    @Inject
+    protected MetricsRegistry metrics;
+
+    @Inject
+    protected ServerConfig serverConfig;
+
+    @Inject
+    protected TrustedLoginHandler trustedLoginHandler;
+
+    @RequestMapping(value = "/metrics", method = RequestMethod.GET)
+    public void getMetrics(HttpServletRequest request, HttpServletResponse response,
+                           @RequestParam(value = "prefix", required = false) String prefix) throws IOException {
+        if (!serverConfig.getMetricsEndpointEnabled()) {
+            response.sendError(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        if (!trustedLoginHandler.checkAddress(request.getRemoteAddr())) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN);
+            return;
+        }
+
+        response.setHeader("Cache-Control", "no-cache");
+        response.setContentType("text/plain");
+        response.setCharacterEncoding("UTF-8");
+
+        PrintWriter writer = response.getWriter();
+        writer.write(metrics.print(prefix));
+        writer.flush();
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2008-2016 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.haulmont.cuba.core.jmx;
+
+import com.haulmont.cuba.core.sys.metrics.MetricsRegistry;
+import org.springframework.stereotype.Component;
+
+import javax.inject.Inject;
+
+@Component("cuba_MetricsMBean")
+public class Metrics implements MetricsMBean {
+
+    @Inject
+    protected MetricsRegistry metrics;
+
+    @Override
+    public String printMetrics() {
+        return printMetricsByPrefix(null);
+    }
+
+    @Override
+    public String printMetricsByPrefix(String prefix) {
+        String result = metrics.print(prefix);
+        return result.isEmpty() ? "No metrics" : result;
+    }
+
+    @Override
+    public int getSamplingRate() {
+        return metrics.getSamplingRate();
+    }
+
+    @Override
+    public void setSamplingRate(int samplingRate) {
+        metrics.setSamplingRate(samplingRate);
+    }
+
+    @Override
+    public void reset() {
+        metrics.reset();
+    }
+}
@@ -17,6 +17,7 @@
 
 package com.haulmont.cuba.core.jmx;
 
+import com.google.common.cache.CacheStats;
 import com.haulmont.chile.core.model.MetaClass;
 import com.haulmont.cuba.core.*;
 import com.haulmont.cuba.core.app.PersistenceConfig;
@@ -29,6 +30,7 @@ import com.haulmont.cuba.core.global.QueryParser;
 import com.haulmont.cuba.core.global.QueryTransformerFactory;
 import com.haulmont.cuba.core.sys.DBNotInitializedException;
 import com.haulmont.cuba.core.sys.DbUpdater;
+import com.haulmont.cuba.core.sys.jpql.QueryTreeCache;
 import com.haulmont.cuba.core.sys.persistence.DbmsType;
 import com.haulmont.cuba.security.app.Authenticated;
 import org.apache.commons.lang.StringUtils;
@@ -66,6 +68,9 @@ public class PersistenceManager implements PersistenceManagerMBean {
     @Inject
     protected PersistenceSecurity security;
 
+    @Inject
+    protected QueryTransformerFactory queryTransformerFactory;
+
     protected PersistenceConfig persistenceConfig;
 
     protected ServerConfig serverConfig;
@@ -254,6 +259,27 @@ public class PersistenceManager implements PersistenceManagerMBean {
         }
     }
 
+    @Override
+    public String printJpqlParseCacheStatistics() {
+        QueryTreeCache cache = queryTransformerFactory.getQueryTreeCache();
+        if (cache == null) {
+            return "JPQL parse cache is disabled";
+        }
+        CacheStats stats = cache.getStats();
+        return String.format("Size: %d\nRequests: %d\nHits: %d\nMisses: %d\nHit rate: %.2f%%\nEvictions: %d",
+                cache.size(), stats.requestCount(), stats.hitCount(), stats.missCount(),
+                stats.hitRate() * 100, stats.evictionCount());
+    }
+
+    @Override
+    public String clearJpqlParseCache() {
+        QueryTreeCache cache = queryTransformerFactory.getQueryTreeCache();
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+        return "Done";
+    }
+
     @Authenticated
     @Override
     public String refreshStatistics(String entityName) {
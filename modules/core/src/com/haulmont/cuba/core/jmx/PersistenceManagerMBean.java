@@ -145,4 +145,17 @@ public interface PersistenceManagerMBean {
      */
     @ManagedOperation(description = "Flush statistics cache. It will be reloaded on a next request")
     String flushStatisticsCache();
+
+    /**
+     * @return size and hit/miss statistics of the parsed JPQL cache
+     */
+    @ManagedOperation(description = "Print size and hit/miss statistics of the parsed JPQL cache")
+    String printJpqlParseCacheStatistics();
+
+    /**
+     * Remove all parsed queries from the JPQL cache.
+     * @return  operation result
+     */
+    @ManagedOperation(description = "Remove all parsed queries from the JPQL cache")
+    String clearJpqlParseCache();
 }
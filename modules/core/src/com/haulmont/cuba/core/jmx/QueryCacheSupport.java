@@ -20,6 +20,7 @@ import com.google.common.base.Strings;
 import com.haulmont.cuba.core.global.UuidProvider;
 import com.haulmont.cuba.core.sys.entitycache.QueryCache;
 import com.haulmont.cuba.core.sys.entitycache.QueryCacheManager;
+import com.haulmont.cuba.core.sys.entitycache.QueryCacheStat;
 import com.haulmont.cuba.core.sys.entitycache.QueryKey;
 import com.haulmont.cuba.core.sys.entitycache.QueryResult;
 import org.springframework.stereotype.Component;
@@ -109,4 +110,18 @@ public class QueryCacheSupport implements QueryCacheSupportMBean {
         }
         return null;
     }
+
+    @Override
+    public String printStatistics() {
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, QueryCacheStat> entry : queryCache.getStatistics().entrySet()) {
+            QueryCacheStat stat = entry.getValue();
+            builder.append(entry.getKey())
+                    .append(": hits=").append(stat.getHits())
+                    .append(", misses=").append(stat.getMisses())
+                    .append(", evictions=").append(stat.getEvictions())
+                    .append("\n");
+        }
+        return builder.toString();
+    }
 }
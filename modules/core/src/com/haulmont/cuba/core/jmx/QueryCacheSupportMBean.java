@@ -51,4 +51,7 @@ public interface QueryCacheSupportMBean {
             @ManagedOperationParameter(name = "id", description = "query identifier")
     })
     String printQueryResultsByQueryId(String id);
+
+    @ManagedOperation(description = "Print hits, misses and evictions of the cache for each entity type")
+    String printStatistics();
 }
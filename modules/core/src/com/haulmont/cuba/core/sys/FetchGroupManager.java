@@ -17,10 +17,13 @@
 
 package com.haulmont.cuba.core.sys;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.haulmont.bali.util.Preconditions;
 import com.haulmont.chile.core.model.MetaClass;
 import com.haulmont.chile.core.model.MetaProperty;
 import com.haulmont.chile.core.model.MetaPropertyPath;
+import com.haulmont.cuba.core.app.ServerConfig;
 import com.haulmont.cuba.core.entity.*;
 import com.haulmont.cuba.core.global.*;
 import org.apache.commons.lang.StringUtils;
@@ -55,6 +58,14 @@ public class FetchGroupManager {
     @Inject
     private ViewRepository viewRepository;
 
+    private volatile Cache<FetchPlanKey, FetchPlan> fetchPlans;
+
+    @Inject
+    private void setServerConfig(ServerConfig serverConfig) {
+        int cacheSize = serverConfig.getFetchPlanCacheSize();
+        fetchPlans = cacheSize > 0 ? CacheBuilder.newBuilder().maximumSize(cacheSize).<FetchPlanKey, FetchPlan>build() : null;
+    }
+
     public void setView(JpaQuery query, String queryString, @Nullable View view, boolean singleResultExpected) {
         Preconditions.checkNotNullArgument(query, "query is null");
         if (view != null) {
@@ -91,6 +102,84 @@ public class FetchGroupManager {
 
         boolean useFetchGroup = attrGroup instanceof FetchGroup;
 
+        FetchPlan fetchPlan = getFetchPlan(queryString, view, useFetchGroup, singleResultExpected);
+
+        if (useFetchGroup)
+            ((FetchGroup) attrGroup).setShouldLoadAll(true);
+
+        for (String attribute : fetchPlan.attributes) {
+            attrGroup.addAttribute(attribute);
+        }
+
+        if (!fetchPlan.cacheable) {
+            query.setHint(useFetchGroup ? QueryHints.FETCH_GROUP : QueryHints.LOAD_GROUP, attrGroup);
+        }
+
+        for (Map.Entry<String, String> entry : fetchPlan.fetchHints.entrySet()) {
+            query.setHint(entry.getValue(), entry.getKey());
+        }
+
+        if (fetchPlan.hasBatches) {
+            query.setHint(QueryHints.BATCH_TYPE, "IN");
+        }
+    }
+
+    private FetchPlan getFetchPlan(String queryString, View view, boolean useFetchGroup, boolean singleResultExpected) {
+        Cache<FetchPlanKey, FetchPlan> cache = fetchPlans;
+        if (cache == null) {
+            return compileFetchPlan(queryString, view, useFetchGroup, singleResultExpected);
+        }
+
+        // a shared view cannot change, so it is identified by the instance, other views by their structure
+        View sharedView = view.getSharedView();
+        Object viewKey = sharedView != null ? sharedView : getViewSignature(view);
+        FetchPlanKey key = new FetchPlanKey(viewKey, queryString, useFetchGroup, singleResultExpected);
+        FetchPlan fetchPlan = cache.getIfPresent(key);
+        if (fetchPlan == null) {
+            fetchPlan = compileFetchPlan(queryString, view, useFetchGroup, singleResultExpected);
+            cache.put(key, fetchPlan);
+        }
+        return fetchPlan;
+    }
+
+    private String getViewSignature(View view) {
+        StringBuilder sb = new StringBuilder();
+        appendViewSignature(sb, view);
+        return sb.toString();
+    }
+
+    private void appendViewSignature(StringBuilder sb, View view) {
+        sb.append(view.getEntityClass().getName()).append('[');
+        for (ViewProperty property : view.getProperties()) {
+            sb.append(property.getName()).append(':').append(property.getFetchMode().ordinal());
+            if (property.getView() != null) {
+                appendViewSignature(sb, property.getView());
+            }
+            sb.append(',');
+        }
+        sb.append(']');
+    }
+
+    /**
+     * Discards all compiled fetch plans. Invoked when views are redeployed.
+     */
+    public void invalidateCache() {
+        Cache<FetchPlanKey, FetchPlan> cache = fetchPlans;
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    /**
+     * @return number of compiled fetch plans in the cache
+     */
+    public long getCachedPlansCount() {
+        Cache<FetchPlanKey, FetchPlan> cache = fetchPlans;
+        return cache != null ? cache.size() : 0;
+    }
+
+    private FetchPlan compileFetchPlan(String queryString, View view, boolean useFetchGroup,
+                                       boolean singleResultExpected) {
         Set<FetchGroupField> fetchGroupFields = new LinkedHashSet<>();
         processView(view, null, fetchGroupFields, useFetchGroup);
 
@@ -100,9 +189,6 @@ public class FetchGroupManager {
         for (FetchGroupField field : fetchGroupFields) {
             fetchGroupAttributes.add(field.path());
         }
-        if (attrGroup instanceof FetchGroup)
-            ((FetchGroup) attrGroup).setShouldLoadAll(true);
-
         List<FetchGroupField> refFields = new ArrayList<>();
         for (FetchGroupField field : fetchGroupFields) {
             if (field.metaProperty.getRange().isClass() && !metadataTools.isEmbedded(field.metaProperty))
@@ -232,13 +318,6 @@ public class FetchGroupManager {
 
         if (log.isTraceEnabled())
             log.trace((useFetchGroup ? "Fetch" : "Load") + " group for " + view + ":\n" + fetchGroupAttributes.stream().collect(Collectors.joining("\n")));
-        for (String attribute : fetchGroupAttributes) {
-            attrGroup.addAttribute(attribute);
-        }
-
-        if (!metadataTools.isCacheable(metaClass)) {
-            query.setHint(useFetchGroup ? QueryHints.FETCH_GROUP : QueryHints.LOAD_GROUP, attrGroup);
-        }
 
         if (log.isDebugEnabled()) {
             String fetchModes = fetchHints.entrySet().stream()
@@ -246,13 +325,8 @@ public class FetchGroupManager {
                     .collect(Collectors.joining(", "));
             log.debug("Fetch modes for " + view + ": " + (fetchModes.equals("") ? "<none>" : fetchModes));
         }
-        for (Map.Entry<String, String> entry : fetchHints.entrySet()) {
-            query.setHint(entry.getValue(), entry.getKey());
-        }
 
-        if (hasBatches) {
-            query.setHint(QueryHints.BATCH_TYPE, "IN");
-        }
+        return new FetchPlan(fetchGroupAttributes, fetchHints, hasBatches, metadataTools.isCacheable(metaClass));
     }
 
     private List<String> getMasterEntityAttributes(Set<FetchGroupField> fetchGroupFields,
@@ -368,6 +442,66 @@ public class FetchGroupManager {
         return metadata.getClassNN(entityClass);
     }
 
+    /**
+     * Attributes and hints computed for a view and a query, ready to be applied to a JPA query.
+     */
+    protected static class FetchPlan {
+        private final List<String> attributes;
+        private final Map<String, String> fetchHints;
+        private final boolean hasBatches;
+        private final boolean cacheable;
+
+        public FetchPlan(Collection<String> attributes, Map<String, String> fetchHints, boolean hasBatches,
+                         boolean cacheable) {
+            this.attributes = Collections.unmodifiableList(new ArrayList<>(attributes));
+            this.fetchHints = Collections.unmodifiableMap(new LinkedHashMap<>(fetchHints));
+            this.hasBatches = hasBatches;
+            this.cacheable = cacheable;
+        }
+    }
+
+    /**
+     * Key of a compiled fetch plan. The view is represented either by a shared frozen instance, compared by
+     * identity, or by a string describing the view structure.
+     */
+    protected static class FetchPlanKey {
+        private final Object view;
+        private final String queryString;
+        private final boolean useFetchGroup;
+        private final boolean singleResultExpected;
+
+        public FetchPlanKey(Object view, String queryString, boolean useFetchGroup, boolean singleResultExpected) {
+            this.view = view;
+            this.queryString = queryString;
+            this.useFetchGroup = useFetchGroup;
+            this.singleResultExpected = singleResultExpected;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+
+            FetchPlanKey that = (FetchPlanKey) o;
+
+            // views are compared by identity as equal views may have different properties
+            boolean sameView = view instanceof View ? view == that.view : view.equals(that.view);
+            return sameView
+                    && useFetchGroup == that.useFetchGroup
+                    && singleResultExpected == that.singleResultExpected
+                    && queryString.equals(that.queryString);
+        }
+
+        @Override
+        public int hashCode() {
+            int result = view instanceof View ? System.identityHashCode(view) : view.hashCode();
+            result = 31 * result + queryString.hashCode();
+            result = 31 * result + (useFetchGroup ? 1 : 0);
+            result = 31 * result + (singleResultExpected ? 1 : 0);
+            return result;
+        }
+    }
+
     protected static class FetchGroupField {
         private final MetaClass metaClass;
         private FetchMode fetchMode;
@@ -16,20 +16,28 @@
  */
 package com.haulmont.cuba.core.sys;
 
+import com.haulmont.cuba.core.sys.metrics.MetricsRegistry;
 import org.aspectj.lang.ProceedingJoinPoint;
-import org.perf4j.StopWatch;
-import org.perf4j.log4j.Log4JStopWatch;
 
+/**
+ * Records execution time of methods annotated with {@link PerformanceLog} in the {@link MetricsRegistry}.
+ */
 public class PerformanceLogInterceptor {
+
+    private MetricsRegistry metrics;
+
+    public void setMetrics(MetricsRegistry metrics) {
+        this.metrics = metrics;
+    }
+
     @SuppressWarnings("UnusedDeclaration")
     private Object aroundInvoke(ProceedingJoinPoint ctx) throws Throwable {
-        StopWatch stopWatch = new Log4JStopWatch(ctx.getSignature().toShortString());
+        long start = metrics.start();
         try {
-            stopWatch.start();
-            Object res = ctx.proceed();
-            return res;
+            return ctx.proceed();
         } finally {
-            stopWatch.stop();
+            if (start != MetricsRegistry.NOT_SAMPLED)
+                metrics.stop(ctx.getSignature().toShortString(), start);
         }
     }
 }
\ No newline at end of file
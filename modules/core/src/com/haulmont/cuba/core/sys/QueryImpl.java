@@ -27,6 +27,7 @@ import com.haulmont.cuba.core.entity.IdProxy;
 import com.haulmont.cuba.core.global.*;
 import com.haulmont.cuba.core.sys.entitycache.QueryCacheManager;
 import com.haulmont.cuba.core.sys.entitycache.QueryKey;
+import com.haulmont.cuba.core.sys.metrics.MetricsRegistry;
 import com.haulmont.cuba.core.sys.persistence.DbmsFeatures;
 import com.haulmont.cuba.core.sys.persistence.DbmsSpecificFactory;
 import com.haulmont.cuba.core.sys.persistence.PersistenceImplSupport;
@@ -65,6 +66,7 @@ public class QueryImpl<T> implements TypedQuery<T> {
     private EntityFetcher entityFetcher;
     private QueryCacheManager queryCacheMgr;
     private QueryTransformerFactory queryTransformerFactory;
+    private MetricsRegistry metrics;
     private Set<Param> params = new HashSet<>();
     private LockModeType lockMode;
     private List<View> views = new ArrayList<>();
@@ -89,6 +91,7 @@ public class QueryImpl<T> implements TypedQuery<T> {
         this.support = AppBeans.get(PersistenceImplSupport.NAME);
         this.queryCacheMgr = AppBeans.get(QueryCacheManager.NAME);
         this.queryTransformerFactory = AppBeans.get(QueryTransformerFactory.NAME);
+        this.metrics = AppBeans.get(MetricsRegistry.NAME);
     }
 
     private JpaQuery<T> getQuery() {
@@ -383,7 +386,13 @@ public class QueryImpl<T> implements TypedQuery<T> {
             queryCacheMgr.invalidateAll(true);
         }
         preExecute(jpaQuery);
-        return jpaQuery.executeUpdate();
+        long start = metrics.start();
+        try {
+            return jpaQuery.executeUpdate();
+        } finally {
+            if (start != MetricsRegistry.NOT_SAMPLED)
+                metrics.stop(getMetricName(jpaQuery, "executeUpdate"), start);
+        }
     }
 
     @Override
@@ -583,7 +592,7 @@ public class QueryImpl<T> implements TypedQuery<T> {
                 }
             }
             try {
-                result = singleResult ? jpaQuery.getSingleResult() : jpaQuery.getResultList();
+                result = executeQuery(jpaQuery, singleResult);
             } catch (NoResultException | NonUniqueResultException ex) {
                 if (useQueryCache && singleResult) {
                     queryCacheMgr.putResultToCache(queryKey, null, entityName, parser.getAllEntityNames(), ex);
@@ -597,12 +606,28 @@ public class QueryImpl<T> implements TypedQuery<T> {
                         entityName, parser.getAllEntityNames());
             }
         } else {
-            result = singleResult ? jpaQuery.getSingleResult() : jpaQuery.getResultList();
+            result = executeQuery(jpaQuery, singleResult);
             fetcher.accept(result);
         }
         return result;
     }
 
+    protected Object executeQuery(JpaQuery jpaQuery, boolean singleResult) {
+        long start = metrics.start();
+        try {
+            return singleResult ? jpaQuery.getSingleResult() : jpaQuery.getResultList();
+        } finally {
+            if (start != MetricsRegistry.NOT_SAMPLED)
+                metrics.stop(getMetricName(jpaQuery, singleResult ? "singleResult" : "resultList"), start);
+        }
+    }
+
+    protected String getMetricName(JpaQuery jpaQuery, String operation) {
+        Class referenceClass = jpaQuery.getDatabaseQuery().getReferenceClass();
+        return (isNative ? "sql." : "jpql.") + operation
+                + (referenceClass != null ? "(" + referenceClass.getSimpleName() + ")" : "");
+    }
+
     protected static class Param {
         private Object name;
         private Object value;
@@ -20,6 +20,7 @@ import com.haulmont.cuba.core.Persistence;
 import com.haulmont.cuba.core.app.MiddlewareStatisticsAccumulator;
 import com.haulmont.cuba.core.global.Logging;
 import com.haulmont.cuba.core.global.RemoteException;
+import com.haulmont.cuba.core.sys.metrics.MetricsRegistry;
 import com.haulmont.cuba.security.app.UserSessionsAPI;
 import com.haulmont.cuba.security.global.NoUserSessionException;
 import com.haulmont.cuba.security.global.UserSession;
@@ -40,6 +41,8 @@ public class ServiceInterceptor {
 
     private MiddlewareStatisticsAccumulator statisticsAccumulator;
 
+    private MetricsRegistry metrics;
+
     private Logger log = LoggerFactory.getLogger(ServiceInterceptor.class);
 
     public void setUserSessions(UserSessionsAPI userSessions) {
@@ -54,6 +57,10 @@ public class ServiceInterceptor {
         this.statisticsAccumulator = statisticsAccumulator;
     }
 
+    public void setMetrics(MetricsRegistry metrics) {
+        this.metrics = metrics;
+    }
+
     private Object aroundInvoke(ProceedingJoinPoint ctx) throws Throwable {
         statisticsAccumulator.incMiddlewareRequestsCount();
 
@@ -66,6 +73,7 @@ public class ServiceInterceptor {
             }
         }
 
+        long start = metrics.start();
         try {
             UserSession userSession = getUserSession(ctx);
             if (log.isTraceEnabled())
@@ -81,6 +89,9 @@ public class ServiceInterceptor {
             logException(e, ctx);
             // Propagate the special exception to avoid serialization errors on remote clients
             throw new RemoteException(e);
+        } finally {
+            if (start != MetricsRegistry.NOT_SAMPLED)
+                metrics.stop("service." + ctx.getSignature().toShortString(), start);
         }
     }
 
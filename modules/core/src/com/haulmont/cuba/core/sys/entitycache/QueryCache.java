@@ -85,4 +85,9 @@ public interface QueryCache {
      * the map doesn't affect the cache.
      */
     Map<QueryKey, QueryResult> asMap();
+
+    /**
+     * Returns usage counters of the cache grouped by result entity type (metaClass name).
+     */
+    Map<String, QueryCacheStat> getStatistics();
 }
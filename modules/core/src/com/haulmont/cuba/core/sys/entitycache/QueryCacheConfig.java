@@ -34,4 +34,12 @@ public interface QueryCacheConfig extends Config {
     @Property("cuba.queryCache.maxSize")
     @DefaultInt(100)
     int getQueryCacheMaxSize();
+
+    /**
+     * Maximum number of identifiers passed in a single {@code id in (...)} query when cached query results
+     * are resolved for entities missing in the entity cache.
+     */
+    @Property("cuba.queryCache.fetchBatchSize")
+    @DefaultInt(500)
+    int getQueryCacheFetchBatchSize();
 }
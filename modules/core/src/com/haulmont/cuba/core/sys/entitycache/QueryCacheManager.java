@@ -17,14 +17,20 @@
 package com.haulmont.cuba.core.sys.entitycache;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 import com.haulmont.chile.core.model.MetaClass;
+import com.haulmont.chile.core.model.MetaProperty;
 import com.haulmont.chile.core.model.MetadataObject;
 import com.haulmont.cuba.core.EntityManager;
 import com.haulmont.cuba.core.Persistence;
+import com.haulmont.cuba.core.TypedQuery;
 import com.haulmont.cuba.core.app.ClusterListenerAdapter;
 import com.haulmont.cuba.core.app.ClusterManager;
+import com.haulmont.cuba.core.app.ClusterMessageMerger;
 import com.haulmont.cuba.core.entity.BaseGenericIdEntity;
+import com.haulmont.cuba.core.entity.Entity;
+import com.haulmont.cuba.core.entity.IdProxy;
 import com.haulmont.cuba.core.global.Metadata;
 import com.haulmont.cuba.core.global.View;
 import org.slf4j.Logger;
@@ -33,8 +39,8 @@ import org.springframework.stereotype.Component;
 
 import javax.annotation.PostConstruct;
 import javax.inject.Inject;
+import javax.persistence.Cache;
 import javax.persistence.MappedSuperclass;
-import javax.persistence.TypedQuery;
 import java.io.Serializable;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -71,6 +77,20 @@ public class QueryCacheManager {
                 }
             }
         });
+        clusterManager.addMessageMerger(InvalidateQueryCacheMsg.class, new ClusterMessageMerger<InvalidateQueryCacheMsg>() {
+            @Override
+            public InvalidateQueryCacheMsg merge(InvalidateQueryCacheMsg previous, InvalidateQueryCacheMsg next) {
+                if (previous.invalidateAll || next.invalidateAll) {
+                    return new InvalidateQueryCacheMsg(true);
+                }
+                if (previous.typeNames != null && next.typeNames != null) {
+                    Set<String> typeNames = new HashSet<>(previous.typeNames);
+                    typeNames.addAll(next.typeNames);
+                    return new InvalidateQueryCacheMsg(typeNames);
+                }
+                return null;
+            }
+        });
     }
 
     /**
@@ -89,21 +109,80 @@ public class QueryCacheManager {
         List<T> resultList = null;
         QueryResult queryResult = queryCache.get(queryKey);
         if (queryResult != null) {
-            EntityManager em = persistence.getEntityManager();
-            resultList = new ArrayList<>(queryResult.getResult().size());
             MetaClass metaClass = metadata.getClassNN(queryResult.getType());
             if (!metadata.getTools().isCacheable(metaClass)) {
                 log.warn("Using cached without entity cache for type {}", queryResult.getType());
             }
-            for (Object id : queryResult.getResult()) {
-                resultList.add((T) em.find(metaClass.getJavaClass(), id, views.toArray(new View[views.size()])));
-            }
+            resultList = (List<T>) loadEntities(metaClass, queryResult.getResult(), views);
         } else {
             log.debug("Query results is not found in cache: {}", queryKey.printDescription());
         }
         return resultList;
     }
 
+    /**
+     * Resolves cached identifiers into entities preserving the order of {@code ids}.
+     * Entities present in the entity cache are taken one by one, the others are loaded by batch queries.
+     */
+    protected List<Object> loadEntities(MetaClass metaClass, List<?> ids, List<View> views) {
+        EntityManager em = persistence.getEntityManager();
+        View[] viewArray = views.toArray(new View[views.size()]);
+        Class javaClass = metaClass.getJavaClass();
+
+        MetaProperty primaryKeyProperty = metadata.getTools().getPrimaryKeyProperty(metaClass);
+        if (primaryKeyProperty == null || metadata.getTools().isEmbedded(primaryKeyProperty)) {
+            List<Object> resultList = new ArrayList<>(ids.size());
+            for (Object id : ids) {
+                resultList.add(em.find(javaClass, id, viewArray));
+            }
+            return resultList;
+        }
+
+        Cache cache = em.getDelegate().getEntityManagerFactory().getCache();
+        boolean cacheable = metadata.getTools().isCacheable(metaClass);
+
+        Map<Object, Object> entitiesById = new HashMap<>(ids.size());
+        List<Object> missedIds = new ArrayList<>();
+        for (Object id : ids) {
+            Object realId = getRealId(id);
+            if (entitiesById.containsKey(realId))
+                continue;
+            if (cacheable && cache.contains(javaClass, realId)) {
+                entitiesById.put(realId, em.find(javaClass, id, viewArray));
+            } else {
+                entitiesById.put(realId, null);
+                missedIds.add(realId);
+            }
+        }
+
+        if (!missedIds.isEmpty()) {
+            log.debug("Load {} entities of type {} missing in entity cache", missedIds.size(), metaClass.getName());
+            int batchSize = Math.max(queryCacheConfig.getQueryCacheFetchBatchSize(), 1);
+            for (List<Object> batch : Lists.partition(missedIds, batchSize)) {
+                TypedQuery<Entity> query = em.createQuery(
+                        "select e from " + metaClass.getName() + " e where e." + primaryKeyProperty.getName() + " in :ids",
+                        javaClass);
+                query.setParameter("ids", batch);
+                for (View view : views) {
+                    query.addView(view);
+                }
+                for (Entity entity : query.getResultList()) {
+                    entitiesById.put(getRealId(entity.getId()), entity);
+                }
+            }
+        }
+
+        List<Object> resultList = new ArrayList<>(ids.size());
+        for (Object id : ids) {
+            resultList.add(entitiesById.get(getRealId(id)));
+        }
+        return resultList;
+    }
+
+    protected Object getRealId(Object id) {
+        return id instanceof IdProxy ? ((IdProxy) id).getNN() : id;
+    }
+
     /**
      * Get single query results from query cache by specified {@code queryKey}
      * If query is cached and no results found exception is thrown
@@ -159,7 +238,7 @@ public class QueryCacheManager {
      * Results are extracted as identifiers from entity {@code result}
      * @param type - result entity type (metaClass name)
      * @param relatedTypes - query dependent types (metaClass names). It's a list of entity types used in query
-     * @param exception - store exception in the query cache if {@link TypedQuery#getSingleResult()} throws exception
+     * @param exception - store exception in the query cache if {@link javax.persistence.TypedQuery#getSingleResult()} throws exception
      */
     @SuppressWarnings("unchecked")
     public <T> void putResultToCache(QueryKey queryKey, T result, String type, Set<String> relatedTypes, RuntimeException exception) {
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2008-2016 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys.entitycache;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Query cache usage counters for a single entity type (metaClass name).
+ */
+public class QueryCacheStat {
+
+    protected LongAdder hits = new LongAdder();
+    protected LongAdder misses = new LongAdder();
+    protected LongAdder evictions = new LongAdder();
+
+    public void updateHits() {
+        hits.increment();
+    }
+
+    public void updateMisses() {
+        misses.increment();
+    }
+
+    public void updateEvictions() {
+        evictions.increment();
+    }
+
+    /**
+     * Returns number of queries whose results were taken from the cache.
+     */
+    public long getHits() {
+        return hits.longValue();
+    }
+
+    /**
+     * Returns number of queries whose results were not found in the cache and were put into it after execution.
+     */
+    public long getMisses() {
+        return misses.longValue();
+    }
+
+    /**
+     * Returns number of cached queries evicted from the cache because of the size limit.
+     */
+    public long getEvictions() {
+        return evictions.longValue();
+    }
+}
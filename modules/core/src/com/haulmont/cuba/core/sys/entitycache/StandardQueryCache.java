@@ -18,8 +18,12 @@ package com.haulmont.cuba.core.sys.entitycache;
 
 import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalCause;
+import com.google.common.cache.RemovalListener;
+import com.google.common.cache.RemovalNotification;
 import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
+import com.google.common.util.concurrent.Striped;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
@@ -29,7 +33,6 @@ import javax.inject.Inject;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
-import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
@@ -38,8 +41,12 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 public class StandardQueryCache implements QueryCache {
 
     protected Cache<QueryKey, QueryResult> data;
-    protected ConcurrentMap<String, CopyOnWriteArrayList<QueryKey>> typeIndex = new ConcurrentHashMap<>();
+    protected ConcurrentMap<String, Set<QueryKey>> typeIndex = new ConcurrentHashMap<>();
+    protected ConcurrentMap<UUID, QueryKey> idIndex = new ConcurrentHashMap<>();
+    protected ConcurrentMap<String, QueryCacheStat> statistics = new ConcurrentHashMap<>();
     protected ReadWriteLock lock = new ReentrantReadWriteLock();
+    // guards consistency of index updates made by put and by removal of the same key
+    protected Striped<Lock> keyLocks = Striped.lock(64);
 
     @Inject
     protected QueryCacheConfig queryCacheConfig;
@@ -48,12 +55,19 @@ public class StandardQueryCache implements QueryCache {
 
     @PostConstruct
     protected void init() {
-        data = CacheBuilder.newBuilder().maximumSize(queryCacheConfig.getQueryCacheMaxSize()).build();
+        data = CacheBuilder.newBuilder()
+                .maximumSize(queryCacheConfig.getQueryCacheMaxSize())
+                .removalListener(new IndexRemovalListener())
+                .build();
     }
 
     @Override
     public QueryResult get(QueryKey queryKey) {
-        return data.getIfPresent(queryKey);
+        QueryResult queryResult = data.getIfPresent(queryKey);
+        if (queryResult != null) {
+            getStat(queryResult.getType()).updateHits();
+        }
+        return queryResult;
     }
 
     @Override
@@ -61,15 +75,22 @@ public class StandardQueryCache implements QueryCache {
         Lock readLock = lock.readLock();
         readLock.lock();
         try {
+            getStat(queryResult.getType()).updateMisses();
+            // drop the previously stored equal key together with its index entries, so that the new key instance is stored
+            data.invalidate(queryKey);
             data.put(queryKey, queryResult);
 
-            for (String type : queryResult.getRelatedTypes()) {
-                CopyOnWriteArrayList<QueryKey> keys = typeIndex.get(type);
-                if (keys == null) {
-                    typeIndex.putIfAbsent(type, new CopyOnWriteArrayList<>());
-                    keys = typeIndex.get(type);
+            Lock keyLock = keyLocks.get(queryKey);
+            keyLock.lock();
+            try {
+                if (data.asMap().containsKey(queryKey)) {
+                    for (String type : queryResult.getRelatedTypes()) {
+                        typeIndex.computeIfAbsent(type, t -> Sets.newConcurrentHashSet()).add(queryKey);
+                    }
+                    idIndex.put(queryKey.getId(), queryKey);
                 }
-                keys.add(queryKey);
+            } finally {
+                keyLock.unlock();
             }
         } finally {
             readLock.unlock();
@@ -78,11 +99,9 @@ public class StandardQueryCache implements QueryCache {
 
     @Override
     public QueryKey findQueryKeyById(UUID queryId) {
-        Set<QueryKey> keys = Sets.newHashSet(data.asMap().keySet());
-        for (QueryKey key : keys) {
-            if (Objects.equals(queryId, key.getId())) {
-                return key;
-            }
+        QueryKey key = idIndex.get(queryId);
+        if (key != null && data.asMap().containsKey(key)) {
+            return key;
         }
         return null;
     }
@@ -104,10 +123,7 @@ public class StandardQueryCache implements QueryCache {
         Lock readLock = lock.readLock();
         readLock.lock();
         try {
-            CopyOnWriteArrayList<QueryKey> keys = typeIndex.get(typeName);
-            if (keys == null) return;
-            log.debug("Invalidate cache for type {}", typeName);
-            Arrays.stream(keys.toArray()).forEach(it -> data.invalidate(it));
+            internalInvalidate(typeName);
         } finally {
             readLock.unlock();
         }
@@ -118,30 +134,29 @@ public class StandardQueryCache implements QueryCache {
         Lock readLock = lock.readLock();
         readLock.lock();
         try {
-            typeNames.forEach(typeName -> {
-                        CopyOnWriteArrayList<QueryKey> keys = typeIndex.get(typeName);
-                        if (keys == null) return;
-                        log.debug("Invalidate cache for type {}", typeName);
-                        Arrays.stream(keys.toArray()).forEach(it -> data.invalidate(it));
-                    }
-            );
+            typeNames.forEach(this::internalInvalidate);
         } finally {
             readLock.unlock();
         }
     }
 
+    protected void internalInvalidate(String typeName) {
+        Set<QueryKey> keys = typeIndex.get(typeName);
+        if (keys == null) return;
+        log.debug("Invalidate cache for type {}", typeName);
+        data.invalidateAll(new ArrayList<>(keys));
+    }
+
     @Override
     public QueryKey invalidate(UUID queryId) {
         Lock readLock = lock.readLock();
         readLock.lock();
         try {
-            Set<QueryKey> keys = Sets.newHashSet(data.asMap().keySet());
-            for (QueryKey key : keys) {
-                if (Objects.equals(queryId, key.getId())) {
-                    log.debug("Invalidate query by identifier {}", queryId);
-                    data.invalidate(key);
-                    return key;
-                }
+            QueryKey key = findQueryKeyById(queryId);
+            if (key != null) {
+                log.debug("Invalidate query by identifier {}", queryId);
+                data.invalidate(key);
+                return key;
             }
         } finally {
             readLock.unlock();
@@ -157,6 +172,7 @@ public class StandardQueryCache implements QueryCache {
             log.debug("Invalidate all cache");
             data.invalidateAll();
             typeIndex.clear();
+            idIndex.clear();
         } finally {
             writeLock.unlock();
         }
@@ -176,4 +192,49 @@ public class StandardQueryCache implements QueryCache {
     public Map<QueryKey, QueryResult> asMap() {
         return Maps.newHashMap(data.asMap());
     }
+
+    @Override
+    public Map<String, QueryCacheStat> getStatistics() {
+        return new TreeMap<>(statistics);
+    }
+
+    protected QueryCacheStat getStat(String type) {
+        return statistics.computeIfAbsent(type, t -> new QueryCacheStat());
+    }
+
+    /**
+     * Keeps the type and identifier indexes consistent with the cache content when entries are evicted
+     * because of the size limit or invalidated explicitly.
+     */
+    protected class IndexRemovalListener implements RemovalListener<QueryKey, QueryResult> {
+        @Override
+        public void onRemoval(RemovalNotification<QueryKey, QueryResult> notification) {
+            QueryKey queryKey = notification.getKey();
+            QueryResult queryResult = notification.getValue();
+            if (queryKey == null || queryResult == null || notification.getCause() == RemovalCause.REPLACED) {
+                return;
+            }
+            if (notification.wasEvicted()) {
+                log.debug("Query evicted from cache {}", queryKey.printDescription());
+                getStat(queryResult.getType()).updateEvictions();
+            }
+
+            Lock keyLock = keyLocks.get(queryKey);
+            keyLock.lock();
+            try {
+                idIndex.remove(queryKey.getId(), queryKey);
+                // the same key could be put again concurrently, its index entries must survive
+                if (!data.asMap().containsKey(queryKey)) {
+                    for (String type : queryResult.getRelatedTypes()) {
+                        Set<QueryKey> keys = typeIndex.get(type);
+                        if (keys != null) {
+                            keys.remove(queryKey);
+                        }
+                    }
+                }
+            } finally {
+                keyLock.unlock();
+            }
+        }
+    }
 }
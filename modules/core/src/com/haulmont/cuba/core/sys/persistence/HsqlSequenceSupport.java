@@ -51,4 +51,15 @@ public class HsqlSequenceSupport implements SequenceSupport {
         return "select START_WITH from INFORMATION_SCHEMA.SYSTEM_SEQUENCES where SEQUENCE_NAME = '"
                 + sequenceName.toUpperCase() + "'";
     }
+
+    @Override
+    public String getIncrementSql(String sequenceName) {
+        return "select cast(INCREMENT as bigint) from INFORMATION_SCHEMA.SYSTEM_SEQUENCES where SEQUENCE_NAME = '"
+                + sequenceName.toUpperCase() + "'";
+    }
+
+    @Override
+    public String modifyIncrementSql(String sequenceName, long increment) {
+        return "alter sequence " + sequenceName + " increment by " + increment;
+    }
 }
\ No newline at end of file
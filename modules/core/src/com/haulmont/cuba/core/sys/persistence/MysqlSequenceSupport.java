@@ -53,4 +53,16 @@ public class MysqlSequenceSupport implements SequenceSupport {
         Preconditions.checkNotNullArgument(sequenceName, "sequenceName is null");
         return "select CURR_VALUE from SYS_SEQUENCE where NAME = '" + sequenceName.toLowerCase() + "'";
     }
+
+    @Override
+    public String getIncrementSql(String sequenceName) {
+        Preconditions.checkNotNullArgument(sequenceName, "sequenceName is null");
+        return "select INCREMENT from SYS_SEQUENCE where NAME = '" + sequenceName + "'";
+    }
+
+    @Override
+    public String modifyIncrementSql(String sequenceName, long increment) {
+        Preconditions.checkNotNullArgument(sequenceName, "sequenceName is null");
+        return "update SYS_SEQUENCE set INCREMENT = " + increment + " where NAME = '" + sequenceName + "'";
+    }
 }
\ No newline at end of file
@@ -19,15 +19,23 @@ package com.haulmont.cuba.core.sys.persistence;
 import com.haulmont.chile.core.model.MetaClass;
 import com.haulmont.chile.core.model.MetaProperty;
 import com.haulmont.cuba.core.Persistence;
+import com.haulmont.cuba.core.app.ClusterListenerAdapter;
+import com.haulmont.cuba.core.app.ClusterManagerAPI;
 import com.haulmont.cuba.core.entity.BaseGenericIdEntity;
 import com.haulmont.cuba.core.global.Metadata;
 import com.haulmont.cuba.core.global.PersistenceHelper;
 import org.eclipse.persistence.jpa.JpaCache;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.Nullable;
+import javax.annotation.PostConstruct;
 import javax.inject.Inject;
+import javax.persistence.Cache;
 import javax.persistence.EntityManagerFactory;
+import java.io.Serializable;
+import java.util.Set;
 
 @Component(OrmCacheSupport.NAME)
 public class OrmCacheSupport {
@@ -40,6 +48,21 @@ public class OrmCacheSupport {
     @Inject
     protected Persistence persistence;
 
+    @Inject
+    protected ClusterManagerAPI clusterManager;
+
+    private static final Logger log = LoggerFactory.getLogger(OrmCacheSupport.class);
+
+    @PostConstruct
+    public void init() {
+        clusterManager.addListener(EvictEntitiesMsg.class, new ClusterListenerAdapter<EvictEntitiesMsg>() {
+            @Override
+            public void receive(EvictEntitiesMsg message) {
+                evictEntities(message.storeName, message.entityNames, false);
+            }
+        });
+    }
+
     /**
      * Evicts an entity from cache if it has the given entity as an element of collection.
      *
@@ -71,6 +94,30 @@ public class OrmCacheSupport {
         }
     }
 
+    /**
+     * Evicts all instances of the given entities from the shared cache. Used after bulk updates that change
+     * the database bypassing the cache coordination of the ORM.
+     *
+     * @param storeName     data store of the entities
+     * @param entityNames   names of the entities
+     * @param sendInCluster if true, evict the instances in all cluster members
+     */
+    public void evictEntities(String storeName, Set<String> entityNames, boolean sendInCluster) {
+        persistence.runInTransaction(storeName, em -> {
+            Cache cache = em.getDelegate().getEntityManagerFactory().getCache();
+            for (String entityName : entityNames) {
+                MetaClass metaClass = metadata.getClass(entityName);
+                if (metaClass != null && metaClass.getJavaClass() != null) {
+                    cache.evict(metaClass.getJavaClass());
+                }
+            }
+        });
+        log.debug("Evicted from cache: {}", entityNames);
+        if (sendInCluster) {
+            clusterManager.send(new EvictEntitiesMsg(storeName, entityNames));
+        }
+    }
+
     private void evictEntity(Object entity) {
         if (entity != null && !PersistenceHelper.isNew(entity)) {
             EntityManagerFactory emf = persistence.getEntityManager().getDelegate().getEntityManagerFactory();
@@ -78,4 +125,16 @@ public class OrmCacheSupport {
             cache.evict(entity, true);
         }
     }
+
+    protected static class EvictEntitiesMsg implements Serializable {
+        private static final long serialVersionUID = -2748306539122416183L;
+
+        protected String storeName;
+        protected Set<String> entityNames;
+
+        public EvictEntitiesMsg(String storeName, Set<String> entityNames) {
+            this.storeName = storeName;
+            this.entityNames = entityNames;
+        }
+    }
 }
@@ -18,6 +18,7 @@
 package com.haulmont.cuba.core.sys.persistence;
 
 import com.google.common.base.Strings;
+import com.haulmont.bali.datastruct.Pair;
 import com.haulmont.cuba.core.EntityManager;
 import com.haulmont.cuba.core.app.FtsSender;
 import com.haulmont.cuba.core.entity.*;
@@ -176,6 +177,10 @@ public class PersistenceImplSupport {
         }
     }
 
+    protected boolean isFtsEnabled() {
+        return FtsConfigHelper.getEnabled();
+    }
+
     public interface EntityVisitor {
         boolean visit(BaseGenericIdEntity entity);
     }
@@ -244,7 +249,9 @@ public class PersistenceImplSupport {
             if (log.isTraceEnabled())
                 log.trace("ContainerResourceSynchronization.beforeCommit: instances = " + container.getAllInstances());
 
-            traverseEntities(container, new OnCommitEntityVisitor(container.getStorageName()));
+            OnCommitEntityVisitor visitor = new OnCommitEntityVisitor(container.getStorageName());
+            traverseEntities(container, visitor);
+            visitor.flushFtsChanges();
 
             Collection<Object> instances = container.getAllInstances();
             Set<String> typeNames = new HashSet<>();
@@ -296,6 +303,8 @@ public class PersistenceImplSupport {
 
         private String storeName;
 
+        private List<Pair<Entity, FtsChangeType>> ftsChanges = new ArrayList<>();
+
         public OnCommitEntityVisitor(String storeName) {
             this.storeName = storeName;
         }
@@ -343,7 +352,13 @@ public class PersistenceImplSupport {
         }
 
         protected void enqueueForFts(Entity entity, FtsChangeType changeType) {
-            if (!FtsConfigHelper.getEnabled())
+            if (!isFtsEnabled())
+                return;
+            ftsChanges.add(new Pair<>(entity, changeType));
+        }
+
+        protected void flushFtsChanges() {
+            if (ftsChanges.isEmpty())
                 return;
             try {
                 if (ftsSender == null) {
@@ -354,7 +369,7 @@ public class PersistenceImplSupport {
                     }
                 }
                 if (ftsSender != null)
-                    ftsSender.enqueue(entity, changeType);
+                    ftsSender.enqueue(ftsChanges);
             } catch (Exception e) {
                 log.error("Error enqueueing changes for FTS", e);
             }
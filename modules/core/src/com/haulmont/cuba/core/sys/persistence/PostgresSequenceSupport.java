@@ -57,4 +57,17 @@ public class PostgresSequenceSupport implements SequenceSupport {
         Preconditions.checkNotNullArgument(sequenceName, "sequenceName is null");
         return "select last_value from " + sequenceName.toLowerCase();
     }
+
+    @Override
+    public String getIncrementSql(String sequenceName) {
+        Preconditions.checkNotNullArgument(sequenceName, "sequenceName is null");
+        return "select cast(increment as bigint) from information_schema.sequences where sequence_name = '"
+                + sequenceName.toLowerCase() + "'";
+    }
+
+    @Override
+    public String modifyIncrementSql(String sequenceName, long increment) {
+        Preconditions.checkNotNullArgument(sequenceName, "sequenceName is null");
+        return "alter sequence " + sequenceName.toLowerCase() + " increment by " + increment;
+    }
 }
\ No newline at end of file
@@ -41,4 +41,18 @@ public interface SequenceSupport {
     String getNextValueSql(String sequenceName);
 
     String getCurrentValueSql(String sequenceName);
+
+    /**
+     * @return SQL returning the increment of the sequence, or null if changing the increment is not supported
+     */
+    default String getIncrementSql(String sequenceName) {
+        return null;
+    }
+
+    /**
+     * @return SQL changing the increment of the sequence, or null if it is not supported
+     */
+    default String modifyIncrementSql(String sequenceName, long increment) {
+        return null;
+    }
 }
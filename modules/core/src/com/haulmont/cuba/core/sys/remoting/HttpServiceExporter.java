@@ -28,10 +28,11 @@ import org.springframework.web.util.NestedServletException;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
-import java.io.OptionalDataException;
+import java.io.*;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import static com.haulmont.cuba.core.sys.remoting.RemotingCompression.*;
 
 /**
  * Exports a middleware service bean as an HTTP invoker service endpoint.
@@ -39,6 +40,8 @@ import java.io.OptionalDataException;
  */
 public class HttpServiceExporter extends HttpInvokerServiceExporter implements BeanNameAware {
 
+    protected int compressionThreshold = RemotingCompression.getThreshold();
+
     public HttpServiceExporter() {
         super();
         setRegisterTraceInterceptor(false);
@@ -86,6 +89,34 @@ public class HttpServiceExporter extends HttpInvokerServiceExporter implements B
         }
     }
 
+    @Override
+    protected InputStream decorateInputStream(HttpServletRequest request, InputStream is) throws IOException {
+        if (isGzip(request.getHeader(CONTENT_ENCODING_HEADER))) {
+            return new GZIPInputStream(is);
+        }
+        return is;
+    }
+
+    /*
+     * If the client accepts gzip encoding, the result is buffered only until it exceeds the threshold, then the rest
+     * is compressed straight into the response. Otherwise the result is written to the response without buffering.
+     * The response always declares that compressed requests are accepted.
+     */
+    @Override
+    protected void writeRemoteInvocationResult(HttpServletRequest request, HttpServletResponse response,
+                                               RemoteInvocationResult result) throws IOException {
+        response.setContentType(getContentType());
+        response.setHeader(ACCEPT_REQUEST_ENCODING_HEADER, GZIP);
+
+        OutputStream os;
+        if (compressionThreshold > 0 && isGzip(request.getHeader(ACCEPT_ENCODING_HEADER))) {
+            os = new ThresholdGzipOutputStream(response, compressionThreshold);
+        } else {
+            os = response.getOutputStream();
+        }
+        writeRemoteInvocationResult(request, response, result, os);
+    }
+
     @Override
     protected void doWriteRemoteInvocationResult(RemoteInvocationResult result, ObjectOutputStream oos) throws IOException {
         SerializationSupport.serialize(result, oos);
@@ -95,4 +126,80 @@ public class HttpServiceExporter extends HttpInvokerServiceExporter implements B
     protected RemoteInvocation doReadRemoteInvocation(ObjectInputStream ois) throws IOException, ClassNotFoundException {
         return (RemoteInvocation) SerializationSupport.deserialize(ois);
     }
+
+    /**
+     * Buffers written data until it exceeds the threshold. A small response is sent as is with its content length
+     * on close. Once the threshold is exceeded, the {@code Content-Encoding: gzip} header is set and the buffered
+     * and all further data is compressed directly into the response.
+     */
+    protected static class ThresholdGzipOutputStream extends OutputStream {
+
+        protected final HttpServletResponse response;
+        protected final int threshold;
+
+        protected ByteArrayOutputStream buffer;
+        protected OutputStream gzipStream;
+        protected boolean closed;
+
+        public ThresholdGzipOutputStream(HttpServletResponse response, int threshold) {
+            this.response = response;
+            this.threshold = threshold;
+            this.buffer = new ByteArrayOutputStream(Math.min(threshold, 1024));
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            if (gzipStream == null && buffer.size() + 1 > threshold) {
+                startCompression();
+            }
+            if (gzipStream != null) {
+                gzipStream.write(b);
+            } else {
+                buffer.write(b);
+            }
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            if (gzipStream == null && buffer.size() + len > threshold) {
+                startCompression();
+            }
+            if (gzipStream != null) {
+                gzipStream.write(b, off, len);
+            } else {
+                buffer.write(b, off, len);
+            }
+        }
+
+        protected void startCompression() throws IOException {
+            response.setHeader(CONTENT_ENCODING_HEADER, GZIP);
+            gzipStream = new GZIPOutputStream(response.getOutputStream(), 8192);
+            buffer.writeTo(gzipStream);
+            buffer = null;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            // flushing the buffered data would commit the response before the compression decision
+            if (gzipStream != null) {
+                gzipStream.flush();
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (gzipStream != null) {
+                gzipStream.close();
+            } else {
+                response.setContentLength(buffer.size());
+                OutputStream out = response.getOutputStream();
+                buffer.writeTo(out);
+                out.close();
+            }
+        }
+    }
 }
\ No newline at end of file
@@ -16,6 +16,7 @@
  */
 package com.haulmont.cuba.security.app;
 
+import com.haulmont.bali.db.QueryRunner;
 import com.haulmont.chile.core.datatypes.Datatypes;
 import com.haulmont.chile.core.model.Instance;
 import com.haulmont.chile.core.model.MetaClass;
@@ -28,22 +29,35 @@ import com.haulmont.cuba.core.entity.Entity;
 import com.haulmont.cuba.core.entity.HasUuid;
 import com.haulmont.cuba.core.global.*;
 import com.haulmont.cuba.core.sys.AppContext;
+import com.haulmont.cuba.core.sys.EntityManagerContext;
+import com.haulmont.cuba.core.sys.PersistenceImpl;
+import com.haulmont.cuba.core.sys.persistence.DbTypeConverter;
 import com.haulmont.cuba.core.sys.persistence.EntityAttributeChanges;
 import com.haulmont.cuba.security.entity.*;
 import org.apache.commons.lang.BooleanUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 import java.io.IOException;
 import java.io.StringWriter;
+import java.sql.SQLException;
+import java.sql.Types;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
 
 @Component(EntityLogAPI.NAME)
-public class EntityLog implements EntityLogAPI {
+public class EntityLog implements EntityLogAPI, AppContext.Listener {
+
+    protected static final String PENDING_ITEMS_ATTR = "cuba.entityLog.pendingItems";
+
+    protected static final String INSERT_SQL = "insert into SEC_ENTITY_LOG " +
+            "(ID, EVENT_TS, USER_ID, CHANGE_TYPE, ENTITY, ENTITY_ID, CHANGES) values (?, ?, ?, ?, ?, ?, ?)";
 
     protected Logger log = LoggerFactory.getLogger(EntityLog.class);
 
@@ -58,6 +72,10 @@ public class EntityLog implements EntityLogAPI {
 
     private ThreadLocal<Boolean> entityLogSwitchedOn = new ThreadLocal<>();
 
+    protected volatile BlockingQueue<EntityLogItem> queue;
+
+    protected volatile ScheduledExecutorService writer;
+
     @Inject
     protected TimeSource timeSource;
 
@@ -73,6 +91,24 @@ public class EntityLog implements EntityLogAPI {
     @Inject
     public EntityLog(Configuration configuration) {
         config = configuration.getConfig(EntityLogConfig.class);
+        AppContext.addListener(this);
+    }
+
+    @Override
+    public void applicationStarted() {
+    }
+
+    @Override
+    public void applicationStopped() {
+        if (writer != null) {
+            writer.shutdown();
+            try {
+                writer.awaitTermination(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            flushQueue();
+        }
     }
 
     @Override
@@ -81,7 +117,7 @@ public class EntityLog implements EntityLogAPI {
     }
 
     @Override
-    public synchronized boolean isEnabled() {
+    public boolean isEnabled() {
         return !Boolean.FALSE.equals(entityLogSwitchedOn.get()) && config.getEnabled();
     }
 
@@ -203,11 +239,9 @@ public class EntityLog implements EntityLogAPI {
                 return;
             }
             Date ts = timeSource.currentTimestamp();
-            EntityManager em = persistence.getEntityManager();
 
             EntityLogItem item = metadata.create(EntityLogItem.class);
             item.setEventTs(ts);
-            item.setUser(findUser(em));
             item.setType(EntityLogItem.Type.CREATE);
             item.setEntity(entityName);
             item.setEntityId(((HasUuid) entity).getUuid());
@@ -218,13 +252,136 @@ public class EntityLog implements EntityLogAPI {
             }
             item.setChanges(getChanges(properties));
 
-            em.persist(item);
+            saveItem(item);
 
         } catch (Exception e) {
             log.warn("Unable to log entity " + entity + ", id=" + entity.getId(), e);
         }
     }
 
+    /**
+     * Persists the log item in the current transaction, or in asynchronous mode registers it to be written
+     * in background after the transaction is committed.
+     */
+    protected void saveItem(EntityLogItem item) {
+        if (config.getAsyncEnabled() && AppContext.isStarted() && persistence.isInTransaction()) {
+            item.setUser(userSessionSource.getUserSession().getUser());
+            addPendingItem(item);
+        } else {
+            EntityManager em = persistence.getEntityManager();
+            item.setUser(findUser(em));
+            em.persist(item);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    protected void addPendingItem(EntityLogItem item) {
+        EntityManagerContext context = persistence.getEntityManagerContext();
+        List<EntityLogItem> pendingItems = context.getAttribute(PENDING_ITEMS_ATTR);
+        if (pendingItems == null) {
+            pendingItems = new ArrayList<>();
+            context.setAttribute(PENDING_ITEMS_ATTR, pendingItems);
+
+            List<Consumer<Integer>> afterCompletion = context.getAttribute(PersistenceImpl.RUN_AFTER_COMPLETION_ATTR);
+            if (afterCompletion == null) {
+                afterCompletion = new ArrayList<>();
+                context.setAttribute(PersistenceImpl.RUN_AFTER_COMPLETION_ATTR, afterCompletion);
+            }
+            List<EntityLogItem> items = pendingItems;
+            afterCompletion.add(status -> {
+                if (status == TransactionSynchronization.STATUS_COMMITTED) {
+                    enqueue(items);
+                }
+            });
+        }
+        pendingItems.add(item);
+    }
+
+    protected void enqueue(List<EntityLogItem> items) {
+        BlockingQueue<EntityLogItem> queue = getQueue();
+        List<EntityLogItem> rejected = null;
+        for (EntityLogItem item : items) {
+            if (!queue.offer(item)) {
+                if (rejected == null) {
+                    rejected = new ArrayList<>();
+                }
+                rejected.add(item);
+            }
+        }
+        if (rejected != null) {
+            // the writer is behind, slow down the caller instead of losing log items
+            log.debug("Entity log queue is full, writing {} items synchronously", rejected.size());
+            writeItems(rejected);
+        }
+        if (queue.size() >= config.getAsyncBatchSize()) {
+            if (writer.isShutdown()) {
+                flushQueue();
+            } else {
+                writer.execute(this::flushQueue);
+            }
+        }
+    }
+
+    protected BlockingQueue<EntityLogItem> getQueue() {
+        if (queue == null) {
+            synchronized (this) {
+                if (queue == null) {
+                    writer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                        Thread thread = new Thread(runnable, "EntityLogWriter");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                    long interval = config.getAsyncFlushIntervalMs();
+                    writer.scheduleWithFixedDelay(this::flushQueue, interval, interval, TimeUnit.MILLISECONDS);
+                    queue = new ArrayBlockingQueue<>(config.getAsyncQueueCapacity());
+                }
+            }
+        }
+        return queue;
+    }
+
+    protected void flushQueue() {
+        if (queue == null) {
+            return;
+        }
+        int batchSize = config.getAsyncBatchSize();
+        List<EntityLogItem> batch = new ArrayList<>(batchSize);
+        while (queue.drainTo(batch, batchSize) > 0) {
+            writeItems(batch);
+            batch.clear();
+        }
+    }
+
+    /**
+     * Inserts the log items into the database using JDBC batching.
+     */
+    protected void writeItems(List<EntityLogItem> items) {
+        DbTypeConverter converter = persistence.getDbTypeConverter();
+        int[] paramTypes = new int[]{
+                converter.getSqlType(UUID.class), Types.TIMESTAMP, converter.getSqlType(UUID.class),
+                Types.CHAR, Types.VARCHAR, converter.getSqlType(UUID.class), Types.VARCHAR
+        };
+        Object[][] params = new Object[items.size()][];
+        for (int i = 0; i < items.size(); i++) {
+            EntityLogItem item = items.get(i);
+            params[i] = new Object[]{
+                    converter.getSqlObject(item.getId()),
+                    converter.getSqlObject(item.getEventTs()),
+                    converter.getSqlObject(item.getUser().getId()),
+                    item.getType().getId(),
+                    item.getEntity(),
+                    converter.getSqlObject(item.getEntityId()),
+                    item.getChanges()
+            };
+        }
+        try {
+            QueryRunner runner = new QueryRunner(persistence.getDataSource());
+            runner.batch(INSERT_SQL, params, paramTypes);
+        } catch (SQLException e) {
+            log.error("Unable to write {} entity log items", items.size(), e);
+        }
+    }
+
     protected User findUser(EntityManager em) {
         if (AppContext.isStarted())
             return em.getReference(User.class, userSessionSource.getUserSession().getUser().getId());
@@ -267,7 +424,6 @@ public class EntityLog implements EntityLogAPI {
         // Join to an existing transaction in main DB or create a new one if we came here with a tx for an additional DB
         try (Transaction tx = persistence.getTransaction()) {
             Date ts = timeSource.currentTimestamp();
-            EntityManager em = persistence.getEntityManager();
 
             Set<String> dirty;
             if (changes == null) {
@@ -285,13 +441,12 @@ public class EntityLog implements EntityLogAPI {
             if (!properties.isEmpty()) {
                 EntityLogItem item = metadata.create(EntityLogItem.class);
                 item.setEventTs(ts);
-                item.setUser(findUser(em));
                 item.setType(EntityLogItem.Type.MODIFY);
                 item.setEntity(entityName);
                 item.setEntityId(((HasUuid) entity).getUuid());
                 item.setChanges(getChanges(properties));
 
-                em.persist(item);
+                saveItem(item);
             }
 
             tx.commit();
@@ -346,11 +501,9 @@ public class EntityLog implements EntityLogAPI {
                 return;
             }
             Date ts = timeSource.currentTimestamp();
-            EntityManager em = persistence.getEntityManager();
 
             EntityLogItem item = metadata.create(EntityLogItem.class);
             item.setEventTs(ts);
-            item.setUser(findUser(em));
             item.setType(EntityLogItem.Type.DELETE);
             item.setEntity(entityName);
             item.setEntityId(((HasUuid) entity).getUuid());
@@ -361,12 +514,39 @@ public class EntityLog implements EntityLogAPI {
             }
             item.setChanges(getChanges(properties));
 
-            em.persist(item);
+            saveItem(item);
         } catch (Exception e) {
             log.warn("Unable to log entity " + entity + ", id=" + entity.getId(), e);
         }
     }
 
+    @Override
+    public void registerBulkOperation(MetaClass metaClass, EntityLogItem.Type type, String queryString, int count) {
+        if (!isEnabled())
+            return;
+
+        MetaClass originalMetaClass = metadata.getExtendedEntities().getOriginalMetaClass(metaClass);
+        String entityName = originalMetaClass != null ? originalMetaClass.getName() : metaClass.getName();
+        if (getLoggedAttributes(entityName, true) == null && getLoggedAttributes(entityName, false) == null)
+            return;
+
+        try {
+            EntityLogItem item = metadata.create(EntityLogItem.class);
+            item.setEventTs(timeSource.currentTimestamp());
+            item.setType(type);
+            item.setEntity(entityName);
+
+            Properties properties = new Properties();
+            properties.setProperty("bulkStatement", queryString);
+            properties.setProperty("bulkCount", String.valueOf(count));
+            item.setChanges(getChanges(properties));
+
+            saveItem(item);
+        } catch (Exception e) {
+            log.warn("Unable to log bulk operation on " + entityName, e);
+        }
+    }
+
     protected Set<String> getAllAttributes(Entity entity) {
         if (entity == null) {
             return null;
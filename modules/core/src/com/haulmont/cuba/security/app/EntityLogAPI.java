@@ -16,8 +16,10 @@
  */
 package com.haulmont.cuba.security.app;
 
+import com.haulmont.chile.core.model.MetaClass;
 import com.haulmont.cuba.core.entity.Entity;
 import com.haulmont.cuba.core.sys.persistence.EntityAttributeChanges;
+import com.haulmont.cuba.security.entity.EntityLogItem;
 
 import javax.annotation.Nullable;
 
@@ -77,6 +79,12 @@ public interface EntityLogAPI {
      */
     void registerDelete(Entity entity, boolean auto);
 
+    /**
+     * Logs a bulk update or delete of instances of an entity which is configured for auto or manual logging.
+     * Instead of attribute changes, the log item contains the statement and the number of affected instances.
+     */
+    void registerBulkOperation(MetaClass metaClass, EntityLogItem.Type type, String queryString, int count);
+
     /**
      * Invalidates configuration cache.
      * The configuration will be recreated from the database on next lifecycle event.
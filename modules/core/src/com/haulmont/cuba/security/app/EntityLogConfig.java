@@ -21,6 +21,7 @@ import com.haulmont.cuba.core.config.Property;
 import com.haulmont.cuba.core.config.Source;
 import com.haulmont.cuba.core.config.SourceType;
 import com.haulmont.cuba.core.config.defaults.DefaultBoolean;
+import com.haulmont.cuba.core.config.defaults.DefaultInt;
 
 /**
  * {@link com.haulmont.cuba.security.app.EntityLog} configuration parameters
@@ -35,4 +36,35 @@ public interface EntityLogConfig extends Config {
     @DefaultBoolean(true)
     boolean getEnabled();
     void setEnabled(boolean value);
+
+    /**
+     * @return Whether log items are written in background after the business transaction is committed.
+     * If false, log items are persisted in the business transaction.
+     */
+    @Property("cuba.entityLog.asyncEnabled")
+    @DefaultBoolean(false)
+    boolean getAsyncEnabled();
+    void setAsyncEnabled(boolean value);
+
+    /**
+     * @return Maximum number of log items waiting to be written in asynchronous mode. If the queue is full,
+     * items are written synchronously by the committing thread.
+     */
+    @Property("cuba.entityLog.asyncQueueCapacity")
+    @DefaultInt(10000)
+    int getAsyncQueueCapacity();
+
+    /**
+     * @return Maximum number of log items inserted in one JDBC batch in asynchronous mode
+     */
+    @Property("cuba.entityLog.asyncBatchSize")
+    @DefaultInt(100)
+    int getAsyncBatchSize();
+
+    /**
+     * @return Interval in milliseconds between writes of queued log items in asynchronous mode
+     */
+    @Property("cuba.entityLog.asyncFlushIntervalMs")
+    @DefaultInt(1000)
+    int getAsyncFlushIntervalMs();
 }
\ No newline at end of file
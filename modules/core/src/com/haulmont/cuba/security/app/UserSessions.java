@@ -19,6 +19,7 @@ package com.haulmont.cuba.security.app;
 import com.haulmont.bali.util.Preconditions;
 import com.haulmont.cuba.core.app.ClusterListener;
 import com.haulmont.cuba.core.app.ClusterManagerAPI;
+import com.haulmont.cuba.core.app.ClusterMessageMerger;
 import com.haulmont.cuba.core.app.ServerConfig;
 import com.haulmont.cuba.core.global.Configuration;
 import com.haulmont.cuba.core.global.Metadata;
@@ -161,6 +162,42 @@ public class UserSessions implements UserSessionsAPI {
                             log.error("Error receiving state", e);
                         }
                     }
+
+                    @Override
+                    public void writeState(OutputStream output) throws IOException {
+                        ObjectOutputStream oos = new ObjectOutputStream(output);
+                        for (UserSessionInfo usi : cache.values()) {
+                            oos.writeBoolean(true);
+                            oos.writeObject(usi);
+                            // do not keep references to already written sessions
+                            oos.reset();
+                        }
+                        oos.writeBoolean(false);
+                        oos.flush();
+                    }
+
+                    @Override
+                    public void readState(InputStream input) throws IOException {
+                        ObjectInputStream ois = new ObjectInputStream(input);
+                        try {
+                            while (ois.readBoolean()) {
+                                UserSessionInfo usi = (UserSessionInfo) ois.readObject();
+                                receive(usi);
+                            }
+                        } catch (ClassNotFoundException e) {
+                            log.error("Error receiving state", e);
+                        }
+                    }
+                }
+        );
+        this.clusterManager.addMessageMerger(
+                UserSessionInfo.class,
+                new ClusterMessageMerger<UserSessionInfo>() {
+                    @Override
+                    public UserSessionInfo merge(UserSessionInfo previous, UserSessionInfo next) {
+                        // the latest state of a session replaces all previous ones, including removal
+                        return previous.session.getId().equals(next.session.getId()) ? next : null;
+                    }
                 }
         );
     }
@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2008-2016 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.core;
+
+import com.haulmont.bali.db.QueryRunner;
+import com.haulmont.cuba.core.entity.Server;
+import com.haulmont.cuba.core.global.*;
+import com.haulmont.cuba.security.entity.Role;
+import com.haulmont.cuba.testsupport.TestContainer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BulkUpdateTest {
+
+    @ClassRule
+    public static TestContainer cont = TestContainer.Common.INSTANCE;
+
+    private DataManager dataManager;
+
+    private List<Role> roles = new ArrayList<>();
+
+    @Before
+    public void setUp() throws Exception {
+        dataManager = AppBeans.get(DataManager.class);
+
+        QueryRunner runner = new QueryRunner(cont.persistence().getDataSource());
+        runner.update("delete from SYS_SERVER");
+
+        CommitContext commitContext = new CommitContext();
+        for (int i = 0; i < 10; i++) {
+            Server server = cont.metadata().create(Server.class);
+            server.setName("bulk-" + i);
+            server.setRunning(i % 2 == 0);
+            commitContext.addInstanceToCommit(server);
+        }
+        for (int i = 0; i < 3; i++) {
+            Role role = cont.metadata().create(Role.class);
+            role.setName("bulkTestRole-" + role.getId());
+            commitContext.addInstanceToCommit(role);
+            roles.add(role);
+        }
+        dataManager.commit(commitContext);
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        cont.deleteRecord(roles.toArray(new Role[roles.size()]));
+    }
+
+    @Test
+    public void testUpdate() throws Exception {
+        int count = dataManager.bulkUpdate(new BulkUpdateContext(
+                "update sys$Server s set s.running = true where s.running = :running")
+                .setParameter("running", false));
+        assertEquals(5, count);
+
+        LoadContext<Server> loadContext = LoadContext.create(Server.class).setQuery(
+                LoadContext.createQuery("select s from sys$Server s where s.running = false"));
+        assertEquals(0, dataManager.getCount(loadContext));
+    }
+
+    @Test
+    public void testDelete() throws Exception {
+        int count = dataManager.bulkUpdate(new BulkUpdateContext(
+                "delete from sys$Server s where s.name in :names")
+                .setParameter("names", Arrays.asList("bulk-0", "bulk-1", "bulk-2")));
+        assertEquals(3, count);
+
+        LoadContext<Server> loadContext = LoadContext.create(Server.class).setQuery(
+                LoadContext.createQuery("select s from sys$Server s"));
+        assertEquals(7, dataManager.getCount(loadContext));
+    }
+
+    @Test
+    public void testSoftDelete() throws Exception {
+        Role role = roles.get(0);
+        int count = dataManager.bulkUpdate(new BulkUpdateContext(
+                "delete from sec$Role r where r.id = :id")
+                .setParameter("id", role.getId()));
+        assertEquals(1, count);
+
+        LoadContext<Role> loadContext = LoadContext.create(Role.class).setId(role.getId());
+        assertNull(dataManager.load(loadContext));
+
+        loadContext.setSoftDeletion(false);
+        Role deleted = dataManager.load(loadContext);
+        assertNotNull(deleted);
+        assertNotNull(deleted.getDeleteTs());
+        assertEquals("test_admin", deleted.getDeletedBy());
+
+        count = dataManager.bulkUpdate(new BulkUpdateContext(
+                "delete from sec$Role r where r.id = :id")
+                .setParameter("id", roles.get(1).getId())
+                .setSoftDeletion(false));
+        assertEquals(1, count);
+        roles.remove(1);
+    }
+
+    @Test
+    public void testNotUpdateStatement() throws Exception {
+        try {
+            dataManager.bulkUpdate(new BulkUpdateContext("select s from sys$Server s"));
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
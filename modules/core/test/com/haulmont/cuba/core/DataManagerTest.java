@@ -29,10 +29,8 @@ import org.junit.ClassRule;
 import org.junit.Test;
 
 import javax.persistence.TemporalType;
-import java.util.Collections;
-import java.util.Date;
-import java.util.List;
-import java.util.UUID;
+import java.util.*;
+import java.util.stream.Collectors;
 
 import static org.junit.Assert.*;
 
@@ -188,6 +186,62 @@ public class DataManagerTest {
         assertEquals(0, count);
     }
 
+    @Test
+    public void testLoadBatch() throws Exception {
+        Server server = new Server();
+        server.setName("localhost");
+        server.setRunning(true);
+
+        dataManager.commit(new CommitContext(Collections.<Entity>singleton(server)));
+
+        LoadContext<Server> serversContext = LoadContext.create(Server.class).setQuery(
+                LoadContext.createQuery("select s from sys$Server s"));
+        LoadContext<User> usersContext = LoadContext.create(User.class).setQuery(
+                LoadContext.createQuery("select u from sec$User u where u.login = :login").setParameter("login", "admin"));
+        LoadContext<User> emptyContext = LoadContext.create(User.class).setQuery(
+                LoadContext.createQuery("select u from sec$User u where u.login = :login")
+                        .setParameter("login", "cc1aa09f-c5d5-4bd1-896c-cb774d2e2898"));
+
+        List<List<Entity>> result = dataManager.loadBatch(Arrays.asList(serversContext, usersContext, emptyContext));
+        assertEquals(3, result.size());
+        assertEquals(Collections.singletonList(server), result.get(0));
+        assertEquals(1, result.get(1).size());
+        assertEquals("admin", ((User) result.get(1).get(0)).getLogin());
+        assertTrue(result.get(2).isEmpty());
+
+        assertTrue(dataManager.loadBatch(Collections.emptyList()).isEmpty());
+    }
+
+    @Test
+    public void testLoadStream() throws Exception {
+        CommitContext commitContext = new CommitContext();
+        Set<UUID> ids = new HashSet<>();
+        for (int i = 0; i < 25; i++) {
+            Server server = new Server();
+            server.setName("server-" + i);
+            server.setRunning(true);
+            commitContext.addInstanceToCommit(server);
+            ids.add(server.getId());
+        }
+        dataManager.commit(commitContext);
+
+        LoadContext<Server> loadContext = LoadContext.create(Server.class).setQuery(
+                LoadContext.createQuery("select s from sys$Server s where s.running = true order by s.name"));
+
+        List<UUID> loadedIds = dataManager.loadStream(loadContext, 10)
+                .map(Server::getId)
+                .collect(Collectors.toList());
+        assertEquals(25, loadedIds.size());
+        assertEquals(ids, new HashSet<>(loadedIds));
+
+        loadContext.getQuery().setMaxResults(15);
+        assertEquals(15, dataManager.loadStream(loadContext, 10).count());
+
+        loadContext = LoadContext.create(Server.class).setQuery(
+                LoadContext.createQuery("select s from sys$Server s where s.running = false"));
+        assertEquals(0, dataManager.loadStream(loadContext, 10).count());
+    }
+
     @Test
     public void testTemporalType() throws Exception {
         Date nextYear = DateUtils.addYears(AppBeans.get(TimeSource.class).currentTimestamp(), 1);
@@ -0,0 +1,110 @@
+/*
+ * Copyright (c) 2008-2016 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.core;
+
+import com.haulmont.bali.db.QueryRunner;
+import com.haulmont.cuba.core.app.EntitySnapshotAPI;
+import com.haulmont.cuba.core.app.serialization.EntitySerializationAPI;
+import com.haulmont.cuba.core.app.serialization.ViewSerializationAPI;
+import com.haulmont.cuba.core.app.serialization.ViewSerializationOption;
+import com.haulmont.cuba.core.entity.EntitySnapshot;
+import com.haulmont.cuba.core.global.AppBeans;
+import com.haulmont.cuba.core.global.View;
+import com.haulmont.cuba.security.entity.Role;
+import com.haulmont.cuba.security.entity.User;
+import com.haulmont.cuba.testsupport.TestContainer;
+import com.haulmont.cuba.testsupport.TestSupport;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.util.Date;
+
+import static org.junit.Assert.*;
+
+public class EntitySnapshotTest {
+
+    @ClassRule
+    public static TestContainer cont = TestContainer.Common.INSTANCE;
+
+    private EntitySnapshotAPI snapshotAPI;
+
+    private Role role;
+    private View view;
+
+    @Before
+    public void setUp() throws Exception {
+        snapshotAPI = AppBeans.get(EntitySnapshotAPI.NAME);
+
+        QueryRunner runner = new QueryRunner(cont.persistence().getDataSource());
+        runner.update("delete from SYS_ENTITY_SNAPSHOT");
+
+        role = cont.metadata().create(Role.class);
+        role.setName("snapshotTestRole");
+        role.setDescription("Role description");
+        view = new View(Role.class).addProperty("name").addProperty("description");
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        QueryRunner runner = new QueryRunner(cont.persistence().getDataSource());
+        runner.update("delete from SYS_ENTITY_SNAPSHOT");
+    }
+
+    @Test
+    public void testCompressedSnapshot() throws Exception {
+        EntitySnapshot snapshot = snapshotAPI.createSnapshot(role, view);
+        assertEquals(Integer.valueOf(EntitySnapshot.FORMAT_COMPRESSED), snapshot.getFormatVersion());
+        assertFalse(snapshot.getSnapshotXml().contains("snapshotTestRole"));
+
+        EntitySnapshot loaded = snapshotAPI.getSnapshots(role.getMetaClass(), role.getId()).get(0);
+        Role extracted = (Role) snapshotAPI.extractEntity(loaded);
+        assertEquals(role.getId(), extracted.getId());
+        assertEquals("snapshotTestRole", extracted.getName());
+        assertEquals("Role description", extracted.getDescription());
+        assertNotNull(snapshotAPI.extractView(loaded).getProperty("description"));
+    }
+
+    @Test
+    public void testConvertSnapshots() throws Exception {
+        EntitySerializationAPI entitySerializationAPI = AppBeans.get(EntitySerializationAPI.NAME);
+        ViewSerializationAPI viewSerializationAPI = AppBeans.get(ViewSerializationAPI.NAME);
+
+        EntitySnapshot snapshot = cont.metadata().create(EntitySnapshot.class);
+        snapshot.setEntityId(role.getId());
+        snapshot.setEntityMetaClass(role.getMetaClass().getName());
+        snapshot.setViewXml(viewSerializationAPI.toJson(view, ViewSerializationOption.COMPACT_FORMAT));
+        snapshot.setSnapshotXml(entitySerializationAPI.toJson(role));
+        snapshot.setSnapshotDate(new Date());
+        try (Transaction tx = cont.persistence().createTransaction()) {
+            EntityManager em = cont.persistence().getEntityManager();
+            snapshot.setAuthor(em.find(User.class, TestSupport.ADMIN_USER_ID));
+            em.persist(snapshot);
+            tx.commit();
+        }
+
+        assertEquals(1, snapshotAPI.convertSnapshots());
+        assertEquals(0, snapshotAPI.convertSnapshots());
+
+        EntitySnapshot converted = snapshotAPI.getSnapshots(role.getMetaClass(), role.getId()).get(0);
+        assertEquals(Integer.valueOf(EntitySnapshot.FORMAT_COMPRESSED), converted.getFormatVersion());
+        Role extracted = (Role) snapshotAPI.extractEntity(converted);
+        assertEquals("snapshotTestRole", extracted.getName());
+    }
+}
@@ -22,6 +22,8 @@ import com.haulmont.cuba.core.global.Scripting;
 import com.haulmont.cuba.security.entity.User;
 import com.haulmont.cuba.testsupport.TestContainer;
 import groovy.lang.Binding;
+import groovy.lang.Script;
+import org.codehaus.groovy.runtime.InvokerHelper;
 import org.junit.Before;
 import org.junit.ClassRule;
 import org.junit.Test;
@@ -74,4 +76,17 @@ public class ScriptingTest {
                                        "return PersistenceHelper.isNew(instance)", binding);
         assertTrue(result);
     }
+
+    @Test
+    public void testCompile() throws Exception {
+        Class<? extends Script> scriptClass = scripting.compileGroovy("return PersistenceHelper.isNew(instance)");
+
+        Script script = InvokerHelper.createScript(scriptClass, new Binding());
+        for (int i = 0; i < 3; i++) {
+            Binding binding = new Binding();
+            binding.setVariable("instance", new User());
+            script.setBinding(binding);
+            assertEquals(Boolean.TRUE, script.run());
+        }
+    }
 }
\ No newline at end of file
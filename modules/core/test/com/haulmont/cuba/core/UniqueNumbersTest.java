@@ -18,17 +18,22 @@
 package com.haulmont.cuba.core;
 
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.haulmont.cuba.core.app.ServerConfig;
+import com.haulmont.cuba.core.app.UniqueNumbers;
 import com.haulmont.cuba.core.app.UniqueNumbersAPI;
 import com.haulmont.cuba.core.global.AppBeans;
+import com.haulmont.cuba.core.global.Configuration;
+import com.haulmont.cuba.core.sys.AppContext;
 import com.haulmont.cuba.testsupport.TestContainer;
 import org.apache.commons.lang.StringUtils;
 import org.junit.ClassRule;
 import org.junit.Test;
 
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ThreadLocalRandom;
-import java.util.concurrent.TimeUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
@@ -59,6 +64,109 @@ public class UniqueNumbersTest {
         uniqueNumbersAPI.getCurrentNumber("s1");
     }
 
+    @Test
+    public void testBlockAllocation() throws Exception {
+        UniqueNumbersAPI uniqueNumbersAPI = AppBeans.get(UniqueNumbersAPI.NAME);
+        AppContext.setProperty("cuba.uniqueNumbersBlockSizes", "blockTest:10");
+        try {
+            long first = uniqueNumbersAPI.getNextNumber("blockTest");
+            for (int i = 1; i < 25; i++) {
+                assertEquals(first + i, uniqueNumbersAPI.getNextNumber("blockTest"));
+            }
+
+            int threadCnt = 4;
+            ExecutorService executorService = Executors.newFixedThreadPool(threadCnt);
+            Set<Long> numbers = ConcurrentHashMap.newKeySet();
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < threadCnt; i++) {
+                futures.add(executorService.submit(() -> {
+                    for (int j = 0; j < 50; j++) {
+                        numbers.add(uniqueNumbersAPI.getNextNumber("blockTest"));
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+            executorService.shutdown();
+            assertEquals(threadCnt * 50, numbers.size());
+            assertTrue(numbers.stream().allMatch(n -> n >= first + 25));
+        } finally {
+            uniqueNumbersAPI.deleteSequence("blockTest");
+            AppContext.setProperty("cuba.uniqueNumbersBlockSizes", null);
+        }
+    }
+
+    @Test
+    public void testBlockAllocationTurnedOff() throws Exception {
+        UniqueNumbersAPI uniqueNumbersAPI = AppBeans.get(UniqueNumbersAPI.NAME);
+        AppContext.setProperty("cuba.uniqueNumbersBlockSizes", "blockOffTest:10");
+        try {
+            long lastInBlockMode = 0;
+            for (int i = 0; i < 5; i++) {
+                lastInBlockMode = uniqueNumbersAPI.getNextNumber("blockOffTest");
+            }
+
+            // the domain is removed from the configuration, so numbers must follow one by one again
+            AppContext.setProperty("cuba.uniqueNumbersBlockSizes", null);
+            long first = uniqueNumbersAPI.getNextNumber("blockOffTest");
+            assertTrue(first > lastInBlockMode);
+            for (int i = 1; i < 5; i++) {
+                assertEquals(first + i, uniqueNumbersAPI.getNextNumber("blockOffTest"));
+            }
+        } finally {
+            uniqueNumbersAPI.deleteSequence("blockOffTest");
+            AppContext.setProperty("cuba.uniqueNumbersBlockSizes", null);
+        }
+    }
+
+    @Test
+    public void testBlockAllocationWithExistingSequence() throws Exception {
+        UniqueNumbersAPI uniqueNumbersAPI = AppBeans.get(UniqueNumbersAPI.NAME);
+        // another cluster node with its own blocks
+        UniqueNumbersAPI otherNode = new UniqueNumbers() {
+            {
+                persistence = cont.persistence();
+                serverConfig = AppBeans.get(Configuration.class).getConfig(ServerConfig.class);
+                init();
+            }
+        };
+        try {
+            // the sequence is created with increment 1 before block allocation is enabled
+            long last = uniqueNumbersAPI.getNextNumber("blockMixTest");
+
+            AppContext.setProperty("cuba.uniqueNumbersBlockSizes", "blockMixTest:10");
+            Set<Long> numbers = new HashSet<>();
+            for (int i = 0; i < 30; i++) {
+                assertTrue(numbers.add(uniqueNumbersAPI.getNextNumber("blockMixTest")));
+                assertTrue(numbers.add(otherNode.getNextNumber("blockMixTest")));
+            }
+            assertTrue(numbers.stream().allMatch(n -> n > last));
+
+            // the block size is changed on one node only
+            AppContext.setProperty("cuba.uniqueNumbersBlockSizes", "blockMixTest:3");
+            for (int i = 0; i < 30; i++) {
+                assertTrue(numbers.add(uniqueNumbersAPI.getNextNumber("blockMixTest")));
+            }
+            AppContext.setProperty("cuba.uniqueNumbersBlockSizes", "blockMixTest:10");
+            for (int i = 0; i < 30; i++) {
+                assertTrue(numbers.add(otherNode.getNextNumber("blockMixTest")));
+                assertTrue(numbers.add(uniqueNumbersAPI.getNextNumber("blockMixTest")));
+            }
+
+            // setting the current number gives the same next number as without block allocation
+            uniqueNumbersAPI.setCurrentNumber("blockMixTest", 1000);
+            long nextInBlockMode = uniqueNumbersAPI.getNextNumber("blockMixTest");
+
+            AppContext.setProperty("cuba.uniqueNumbersBlockSizes", null);
+            uniqueNumbersAPI.setCurrentNumber("blockMixTest", 1000);
+            assertEquals(nextInBlockMode, uniqueNumbersAPI.getNextNumber("blockMixTest"));
+        } finally {
+            uniqueNumbersAPI.deleteSequence("blockMixTest");
+            AppContext.setProperty("cuba.uniqueNumbersBlockSizes", null);
+        }
+    }
+
     @Test
     public void testConcurrentModification() throws Exception {
         int threadCnt = 8;
@@ -410,6 +410,50 @@ public class ViewTest {
         assertNull(viewRepository.getView(User.class, View.LOCAL).getProperty("group"));
     }
 
+    @Test
+    public void testSharedViews() throws Exception {
+        ViewRepository viewRepository = cont.metadata().getViewRepository();
+        View view1 = viewRepository.getView(User.class, View.LOCAL);
+        View view2 = viewRepository.getView(User.class, View.LOCAL);
+        assertNotSame(view1, view2);
+        assertFalse(view1.isFrozen());
+        assertEquals(view1.getProperties().size(), view2.getProperties().size());
+        assertFail(() -> view1.getProperties().clear());
+
+        view1.addProperty("group", new View(Group.class).addProperty("name"));
+        assertNotNull(view1.getProperty("group"));
+        assertNull(view2.getProperty("group"));
+        assertNull(viewRepository.getView(User.class, View.LOCAL).getProperty("group"));
+    }
+
+    @Test
+    public void testFrozenView() throws Exception {
+        View view = new View(User.class)
+                .addProperty("login")
+                .addProperty("group", new View(Group.class).addProperty("name"))
+                .freeze();
+        assertTrue(view.isFrozen());
+        assertTrue(view.getProperty("group").getView().isFrozen());
+        assertFail(() -> view.addProperty("name"));
+        assertFail(() -> view.setLoadPartialEntities(true));
+
+        View cowView = View.copyOnWrite(view);
+        cowView.addProperty("name");
+        assertNotNull(cowView.getProperty("login"));
+        assertNotNull(cowView.getProperty("name"));
+        assertNull(view.getProperty("name"));
+        assertFail(() -> cowView.getProperty("group").getView().addProperty("active"));
+
+        View copy = View.copy(view);
+        assertFalse(copy.isFrozen());
+        copy.getProperty("group").getView().addProperty("active");
+        assertNull(view.getProperty("group").getView().getProperty("active"));
+
+        View deserialized = reserialize(view);
+        assertFalse(deserialized.isFrozen());
+        deserialized.addProperty("name");
+    }
+
     @Test
     public void testFetchGroupIsAbsentIfViewIsFull() throws Exception {
         ViewRepository viewRepository = cont.metadata().getViewRepository();
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2008-2016 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.app;
+
+import mockit.Mocked;
+import mockit.NonStrictExpectations;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class ClusterManagerBatchTest {
+
+    @Mocked
+    private ClusterConfig clusterConfig;
+
+    private List<ClusterManager.MessageBatch> submitted = new ArrayList<>();
+
+    private ClusterManager clusterManager;
+
+    @Before
+    public void setUp() throws Exception {
+        new NonStrictExpectations() {
+            {
+                clusterConfig.getClusterMessageBatchMaxSize();
+                result = 3;
+                clusterConfig.getClusterMessageBatchWindowMs();
+                result = 60000;
+            }
+        };
+
+        clusterManager = new ClusterManager() {
+            @Override
+            protected void submitBatch(MessageBatch messageBatch) {
+                submitted.add(messageBatch);
+            }
+        };
+        clusterManager.clusterConfig = clusterConfig;
+        clusterManager.batchExecutor = Executors.newSingleThreadScheduledExecutor();
+        clusterManager.addMessageMerger(String.class, new ClusterMessageMerger<String>() {
+            @Override
+            public String merge(String previous, String next) {
+                return previous.startsWith("x") ? null : previous + next;
+            }
+        });
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        clusterManager.batchExecutor.shutdownNow();
+    }
+
+    @Test
+    public void testBatchIsSentWhenFull() throws Exception {
+        clusterManager.addToBatch(1);
+        clusterManager.addToBatch(2);
+        assertTrue(submitted.isEmpty());
+
+        clusterManager.addToBatch(3);
+        assertEquals(1, submitted.size());
+        assertEquals(Arrays.<Serializable>asList(1, 2, 3), submitted.get(0).messages);
+
+        clusterManager.addToBatch(4);
+        clusterManager.flushBatch();
+        assertEquals(2, submitted.size());
+        assertEquals(Arrays.<Serializable>asList(4), submitted.get(1).messages);
+    }
+
+    @Test
+    public void testFlushOfEmptyBatch() throws Exception {
+        clusterManager.flushBatch();
+        assertTrue(submitted.isEmpty());
+    }
+
+    @Test
+    public void testAdjacentMessagesAreMerged() throws Exception {
+        clusterManager.addToBatch("a");
+        clusterManager.addToBatch("b");
+        clusterManager.addToBatch("c");
+        clusterManager.addToBatch(1);
+        clusterManager.flushBatch();
+
+        assertEquals(1, submitted.size());
+        assertEquals(Arrays.<Serializable>asList("abc", 1), submitted.get(0).messages);
+    }
+
+    @Test
+    public void testMergeKeepsSendOrder() throws Exception {
+        clusterManager.addToBatch("a");
+        clusterManager.addToBatch(1);
+        clusterManager.addToBatch("b");
+
+        assertEquals(1, submitted.size());
+        assertEquals(Arrays.<Serializable>asList("a", 1, "b"), submitted.get(0).messages);
+    }
+
+    @Test
+    public void testMessageIsAddedWhenMergerDeclines() throws Exception {
+        clusterManager.addToBatch("x");
+        clusterManager.addToBatch("y");
+        clusterManager.flushBatch();
+
+        assertEquals(1, submitted.size());
+        assertEquals(Arrays.<Serializable>asList("x", "y"), submitted.get(0).messages);
+    }
+}
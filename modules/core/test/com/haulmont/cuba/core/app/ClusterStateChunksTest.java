@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2008-2016 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.app;
+
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ClusterStateChunksTest {
+
+    @Test
+    public void testRoundTripAtChunkBoundaries() throws Exception {
+        for (int size : new int[]{1, 100, 8191, 8192, 8193, 16384, 20000}) {
+            byte[] state = randomBytes(size);
+            byte[] written = writeChunked(state);
+            assertArrayEquals("size " + size, state, readChunked(written));
+        }
+    }
+
+    @Test
+    public void testRoundTripByteByByte() throws Exception {
+        byte[] state = randomBytes(8193);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        try (ClusterManager.ChunkedOutputStream chunkedOut = new ClusterManager.ChunkedOutputStream(out)) {
+            for (byte b : state) {
+                chunkedOut.write(b);
+            }
+        }
+
+        ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try (ClusterManager.ChunkedInputStream chunkedIn = new ClusterManager.ChunkedInputStream(
+                new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())))) {
+            int b;
+            while ((b = chunkedIn.read()) != -1) {
+                result.write(b);
+            }
+        }
+        assertArrayEquals(state, result.toByteArray());
+    }
+
+    @Test
+    public void testEmptyState() throws Exception {
+        byte[] written = writeChunked(new byte[0]);
+        assertEquals(4, written.length);
+        assertEquals(0, readChunked(written).length);
+    }
+
+    @Test
+    public void testSkipUnreadState() throws Exception {
+        byte[] first = randomBytes(10000);
+        byte[] second = randomBytes(300);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (byte[] state : Arrays.asList(first, second)) {
+            try (ClusterManager.ChunkedOutputStream chunkedOut = new ClusterManager.ChunkedOutputStream(out)) {
+                chunkedOut.write(state);
+            }
+        }
+
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        try (ClusterManager.ChunkedInputStream chunkedIn = new ClusterManager.ChunkedInputStream(in)) {
+            assertEquals(first[0] & 0xff, chunkedIn.read());
+        }
+        try (ClusterManager.ChunkedInputStream chunkedIn = new ClusterManager.ChunkedInputStream(in)) {
+            assertArrayEquals(second, IOUtils.toByteArray(chunkedIn));
+        }
+        assertEquals(-1, in.read());
+    }
+
+    @Test
+    public void testTruncatedState() throws Exception {
+        byte[] written = writeChunked(randomBytes(10000));
+
+        for (int length : new int[]{0, 2, 100, 8196, written.length - 4}) {
+            byte[] truncated = Arrays.copyOf(written, length);
+            try {
+                readChunked(truncated);
+                fail("EOFException expected for length " + length);
+            } catch (EOFException e) {
+                // expected
+            }
+        }
+    }
+
+    private byte[] randomBytes(int size) {
+        byte[] bytes = new byte[size];
+        new Random(size).nextBytes(bytes);
+        return bytes;
+    }
+
+    private byte[] writeChunked(byte[] state) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ClusterManager.ChunkedOutputStream chunkedOut = new ClusterManager.ChunkedOutputStream(new DataOutputStream(bytes))) {
+            chunkedOut.write(state);
+        }
+        return bytes.toByteArray();
+    }
+
+    private byte[] readChunked(byte[] bytes) throws IOException {
+        ClusterManager.ChunkedInputStream chunkedIn = new ClusterManager.ChunkedInputStream(
+                new DataInputStream(new ByteArrayInputStream(bytes)));
+        return IOUtils.toByteArray(chunkedIn);
+    }
+}
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2008-2016 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.app;
+
+import com.haulmont.bali.datastruct.Pair;
+import com.haulmont.cuba.core.entity.Entity;
+import com.haulmont.cuba.core.entity.FtsChangeType;
+import com.haulmont.cuba.security.entity.User;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class FtsSenderTest {
+
+    @Test
+    public void testFailedChangeDoesNotStopBatch() throws Exception {
+        User user1 = new User();
+        User user2 = new User();
+        User user3 = new User();
+
+        List<Entity> enqueued = new ArrayList<>();
+        FtsSender sender = new TestFtsSender() {
+            @Override
+            public void enqueue(Entity entity, FtsChangeType changeType) {
+                if (entity == user2) {
+                    throw new IllegalStateException("Test failure");
+                }
+                enqueued.add(entity);
+            }
+        };
+
+        sender.enqueue(Arrays.asList(
+                new Pair<>(user1, FtsChangeType.INSERT),
+                new Pair<>(user2, FtsChangeType.UPDATE),
+                new Pair<>(user3, FtsChangeType.DELETE)));
+
+        assertEquals(Arrays.<Entity>asList(user1, user3), enqueued);
+    }
+
+    private static class TestFtsSender implements FtsSender {
+
+        @Override
+        public void enqueue(Entity entity, FtsChangeType changeType) {
+        }
+
+        @Override
+        public void enqueue(String entityName, Object entityId, FtsChangeType changeType) {
+        }
+
+        @Override
+        public void enqueueFake(String entityName, Object entityId) {
+        }
+
+        @Override
+        public void emptyQueue(String entityName) {
+        }
+
+        @Override
+        public void emptyFakeQueue(String entityName) {
+        }
+
+        @Override
+        public void emptyQueue() {
+        }
+
+        @Override
+        public void initDefault() {
+        }
+    }
+}
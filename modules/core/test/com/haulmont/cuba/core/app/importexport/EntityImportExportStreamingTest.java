@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2008-2016 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.core.app.importexport;
+
+import com.haulmont.bali.db.QueryRunner;
+import com.haulmont.cuba.core.EntityManager;
+import com.haulmont.cuba.core.Transaction;
+import com.haulmont.cuba.core.entity.Entity;
+import com.haulmont.cuba.core.entity.Server;
+import com.haulmont.cuba.core.global.AppBeans;
+import com.haulmont.cuba.core.global.DataManager;
+import com.haulmont.cuba.core.global.LoadContext;
+import com.haulmont.cuba.core.sys.AppContext;
+import com.haulmont.cuba.security.entity.Group;
+import com.haulmont.cuba.security.entity.Role;
+import com.haulmont.cuba.security.entity.User;
+import com.haulmont.cuba.security.entity.UserRole;
+import com.haulmont.cuba.testsupport.TestContainer;
+import org.apache.commons.compress.archivers.zip.ZipArchiveInputStream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class EntityImportExportStreamingTest {
+
+    @ClassRule
+    public static TestContainer cont = TestContainer.Common.INSTANCE;
+
+    private EntityImportExportAPI importExport;
+    private DataManager dataManager;
+
+    @Before
+    public void setUp() throws Exception {
+        importExport = AppBeans.get(EntityImportExportAPI.NAME);
+        dataManager = AppBeans.get(DataManager.class);
+        AppContext.setProperty("cuba.importExportChunkSize", "10");
+        deleteServers();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        AppContext.setProperty("cuba.importExportChunkSize", null);
+        deleteServers();
+    }
+
+    private void deleteServers() throws Exception {
+        QueryRunner runner = new QueryRunner(cont.persistence().getDataSource());
+        runner.update("delete from SYS_SERVER");
+    }
+
+    @Test
+    public void testExportImport() throws Exception {
+        List<Server> servers = new ArrayList<>();
+        for (int i = 0; i < 25; i++) {
+            Server server = cont.metadata().create(Server.class);
+            server.setName("importExport-" + i);
+            servers.add(server);
+        }
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        importExport.exportEntities(servers.stream(), outputStream);
+        byte[] zipBytes = outputStream.toByteArray();
+
+        int entries = 0;
+        try (ZipArchiveInputStream archiveReader = new ZipArchiveInputStream(new ByteArrayInputStream(zipBytes))) {
+            while (archiveReader.getNextZipEntry() != null) {
+                entries++;
+            }
+        }
+        assertEquals(3, entries);
+
+        EntityImportView view = new EntityImportView(Server.class).addLocalProperties();
+        assertEquals(25, importExport.importEntities(new ByteArrayInputStream(zipBytes), view));
+        assertEquals(25, getServerCount());
+
+        // existing entities are updated
+        assertEquals(25, importExport.importEntities(new ByteArrayInputStream(zipBytes), view));
+        assertEquals(25, getServerCount());
+
+        // the archive produced by the streaming export can be imported by the byte array method
+        assertEquals(25, importExport.importEntities(zipBytes, view).size());
+    }
+
+    @Test
+    public void testExportWithView() throws Exception {
+        List<Server> servers = new ArrayList<>();
+        for (int i = 0; i < 15; i++) {
+            Server server = cont.metadata().create(Server.class);
+            server.setName("importExport-" + i);
+            servers.add(server);
+        }
+        EntityImportView importView = new EntityImportView(Server.class).addLocalProperties();
+        importExport.importEntities(servers, importView);
+
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        importExport.exportEntities(servers, cont.metadata().getViewRepository().getView(Server.class, "_local"),
+                outputStream);
+        deleteServers();
+
+        assertEquals(15, importExport.importEntities(new ByteArrayInputStream(outputStream.toByteArray()), importView));
+        assertEquals(15, getServerCount());
+    }
+
+    @Test
+    public void testPrefetchEntitiesOfDifferentTypesWithSameId() throws Exception {
+        User user = cont.metadata().create(User.class);
+        Role role = cont.metadata().create(Role.class);
+        role.setId(user.getId());
+        UserRole userRole = cont.metadata().create(UserRole.class);
+        try {
+            try (Transaction tx = cont.persistence().createTransaction()) {
+                EntityManager em = cont.persistence().getEntityManager();
+                user.setLogin("importTest-" + user.getId());
+                user.setGroup(em.find(Group.class, UUID.fromString("0fa2b1a5-1d68-4d69-9fbd-dff348347f93")));
+                em.persist(user);
+                role.setName("importTest-" + role.getId());
+                em.persist(role);
+                tx.commit();
+            }
+
+            UserRole srcUserRole = cont.metadata().create(UserRole.class);
+            srcUserRole.setId(userRole.getId());
+            srcUserRole.setUser(user);
+            srcUserRole.setRole(role);
+            EntityImportView view = new EntityImportView(UserRole.class)
+                    .addProperty("user", ReferenceImportBehaviour.ERROR_ON_MISSING)
+                    .addProperty("role", ReferenceImportBehaviour.ERROR_ON_MISSING);
+
+            Collection<Entity> imported = importExport.importEntities(Collections.singletonList(srcUserRole), view);
+            assertEquals(1, imported.size());
+            UserRole importedUserRole = (UserRole) imported.iterator().next();
+            assertTrue(importedUserRole.getUser() instanceof User);
+            assertTrue(importedUserRole.getRole() instanceof Role);
+            assertEquals(user.getId(), importedUserRole.getUser().getId());
+            assertEquals(role.getId(), importedUserRole.getRole().getId());
+        } finally {
+            cont.deleteRecord("SEC_USER_ROLE", userRole.getId());
+            cont.deleteRecord("SEC_USER", user.getId());
+            cont.deleteRecord("SEC_ROLE", role.getId());
+        }
+    }
+
+    private long getServerCount() {
+        return dataManager.getCount(LoadContext.create(Server.class).setQuery(
+                LoadContext.createQuery("select s from sys$Server s")));
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2008-2016 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.core.app.serialization;
+
+import com.haulmont.cuba.core.global.AppBeans;
+import com.haulmont.cuba.core.global.View;
+import com.haulmont.cuba.security.entity.Group;
+import com.haulmont.cuba.security.entity.Role;
+import com.haulmont.cuba.security.entity.User;
+import com.haulmont.cuba.security.entity.UserRole;
+import com.haulmont.cuba.testsupport.TestContainer;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class EntitySerializationTest {
+
+    @ClassRule
+    public static TestContainer cont = TestContainer.Common.INSTANCE;
+
+    private EntitySerializationAPI entitySerialization;
+
+    private User user;
+
+    @Before
+    public void setUp() throws Exception {
+        entitySerialization = AppBeans.get(EntitySerializationAPI.NAME);
+
+        Group group = cont.metadata().create(Group.class);
+        group.setName("Group <1>");
+
+        Role role = cont.metadata().create(Role.class);
+        role.setName("role");
+
+        user = cont.metadata().create(User.class);
+        user.setLogin("login \"1\"");
+        user.setName("user");
+        user.setActive(true);
+        user.setGroup(group);
+
+        UserRole userRole = cont.metadata().create(UserRole.class);
+        userRole.setUser(user);
+        userRole.setRole(role);
+        user.setUserRoles(new ArrayList<>(Collections.singletonList(userRole)));
+    }
+
+    @Test
+    public void testStreamingOutputIsTheSameAsTree() throws Exception {
+        View view = new View(User.class)
+                .addProperty("login")
+                .addProperty("name")
+                .addProperty("active")
+                .addProperty("position")
+                .addProperty("group", new View(Group.class).addProperty("name"))
+                .addProperty("userRoles", new View(UserRole.class)
+                        .addProperty("user", new View(User.class).addProperty("login"))
+                        .addProperty("role", new View(Role.class).addProperty("name")));
+
+        assertStreamingOutput(user, view);
+        assertStreamingOutput(user, null);
+        assertStreamingOutput(user, view, EntitySerializationOption.SERIALIZE_NULLS);
+        assertStreamingOutput(user, view, EntitySerializationOption.SERIALIZE_INSTANCE_NAME);
+        assertStreamingOutput(user, view, EntitySerializationOption.COMPLEX_ID_FORMAT);
+        assertStreamingOutput(user, view, EntitySerializationOption.COMPACT_REPEATED_ENTITIES);
+    }
+
+    @Test
+    public void testStringAndWriterOutput() throws Exception {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            User u = cont.metadata().create(User.class);
+            u.setLogin("login" + i);
+            users.add(u);
+        }
+
+        StringWriter writer = new StringWriter();
+        entitySerialization.toJson(users, null, writer, EntitySerializationOption.SERIALIZE_INSTANCE_NAME);
+        assertEquals(entitySerialization.toJson(users, null, EntitySerializationOption.SERIALIZE_INSTANCE_NAME),
+                writer.toString());
+
+        assertEquals("[]", entitySerialization.toJson(Collections.<User>emptyList()));
+    }
+
+    private void assertStreamingOutput(User user, View view, EntitySerializationOption... options) throws Exception {
+        String expected = "[" + entitySerialization.toJson(user, view, options) + "]";
+
+        StringWriter writer = new StringWriter();
+        entitySerialization.toJson(Collections.singletonList(user), view, writer, options);
+        assertEquals(expected, writer.toString());
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2008-2016 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.core.global;
+
+import com.haulmont.cuba.core.sys.jpql.DomainModel;
+import com.haulmont.cuba.core.sys.jpql.JpqlSyntaxException;
+import com.haulmont.cuba.core.sys.jpql.QueryTreeCache;
+import com.haulmont.cuba.core.sys.jpql.model.EntityBuilder;
+import com.haulmont.cuba.core.sys.jpql.model.JpqlEntityModel;
+import com.haulmont.cuba.core.sys.jpql.transform.QueryTransformerAstBased;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class QueryTreeCacheTest {
+
+    private static final String QUERY = "select c from sec$GroupHierarchy h join h.parent.constraints c " +
+            "where h.group = :par order by c.level";
+
+    private DomainModel model;
+    private QueryTreeCache cache;
+
+    @Before
+    public void setUp() throws Exception {
+        EntityBuilder builder = new EntityBuilder();
+        builder.startNewEntity("sec$GroupHierarchy");
+        builder.addStringAttribute("group");
+        builder.addStringAttribute("createdBy");
+        builder.addReferenceAttribute("parent", "sec$GroupHierarchy");
+        builder.addCollectionReferenceAttribute("constraints", "sec$Constraint");
+        JpqlEntityModel groupHierarchy = builder.produce();
+
+        builder = new EntityBuilder();
+        builder.startNewEntity("sec$Constraint");
+        builder.addReferenceAttribute("group", "sec$GroupHierarchy");
+        JpqlEntityModel constraintEntity = builder.produce();
+
+        model = new DomainModel(groupHierarchy, constraintEntity);
+        cache = new QueryTreeCache(model, 10);
+    }
+
+    @Test
+    public void testTransformersDoNotModifyCachedTree() throws Exception {
+        QueryTransformerAstBased transformer = new QueryTransformerAstBased(model, QUERY, cache);
+        transformer.addWhere("{E}.createdBy = :par1");
+        assertEquals("select c from sec$GroupHierarchy h join h.parent.constraints c " +
+                "where (h.group = :par) and (h.createdBy = :par1) order by c.level", transformer.getResult());
+
+        transformer = new QueryTransformerAstBased(model, QUERY, cache);
+        transformer.replaceWithCount();
+        assertEquals("select count(c) from sec$GroupHierarchy h join h.parent.constraints c " +
+                "where h.group = :par", transformer.getResult());
+
+        transformer = new QueryTransformerAstBased(model, QUERY, cache);
+        assertEquals(QUERY, transformer.getResult());
+
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.getStats().missCount());
+        assertEquals(2, cache.getStats().hitCount());
+    }
+
+    @Test
+    public void testParserUsesCachedTree() throws Exception {
+        QueryParser parser = new QueryParserAstBased(model, QUERY, cache);
+        assertEquals("sec$Constraint", parser.getEntityName());
+        assertTrue(parser.getParamNames().contains("par"));
+
+        QueryTransformerAstBased transformer = new QueryTransformerAstBased(model, QUERY, cache);
+        transformer.replaceWithCount();
+        transformer.getResult();
+
+        parser = new QueryParserAstBased(model, QUERY, cache);
+        assertEquals("sec$Constraint", parser.getEntityName());
+        assertEquals(1, cache.getStats().missCount());
+        assertEquals(2, cache.getStats().hitCount());
+    }
+
+    @Test
+    public void testInvalidQueryIsNotCached() throws Exception {
+        String query = "select h from sec$GroupHierarchy h join h.parent.constraints";
+        for (int i = 0; i < 2; i++) {
+            try {
+                new QueryTransformerAstBased(model, query, cache).getResult();
+                fail();
+            } catch (JpqlSyntaxException e) {
+                // expected
+            }
+        }
+        assertEquals(0, cache.size());
+    }
+}
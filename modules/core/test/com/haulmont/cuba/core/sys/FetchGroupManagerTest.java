@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2008-2016 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.core.sys;
+
+import com.haulmont.cuba.core.EntityManager;
+import com.haulmont.cuba.core.Transaction;
+import com.haulmont.cuba.core.TypedQuery;
+import com.haulmont.cuba.core.global.AppBeans;
+import com.haulmont.cuba.core.global.View;
+import com.haulmont.cuba.core.global.ViewRepository;
+import com.haulmont.cuba.security.entity.Group;
+import com.haulmont.cuba.security.entity.User;
+import com.haulmont.cuba.testsupport.TestContainer;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+public class FetchGroupManagerTest {
+
+    @ClassRule
+    public static TestContainer cont = TestContainer.Common.INSTANCE;
+
+    private FetchGroupManager fetchGroupManager;
+
+    @Before
+    public void setUp() throws Exception {
+        fetchGroupManager = AppBeans.get(FetchGroupManager.NAME);
+        fetchGroupManager.invalidateCache();
+    }
+
+    @Test
+    public void testFetchPlansAreCached() throws Exception {
+        loadUsers(createView());
+        assertEquals(1, fetchGroupManager.getCachedPlansCount());
+
+        // a structurally equal view uses the same plan
+        List<User> users = loadUsers(createView());
+        assertEquals(1, fetchGroupManager.getCachedPlansCount());
+        assertFalse(users.isEmpty());
+
+        ViewRepository viewRepository = cont.metadata().getViewRepository();
+        loadUsers(viewRepository.getView(User.class, "user.browse"));
+        loadUsers(viewRepository.getView(User.class, "user.browse"));
+        assertEquals(2, fetchGroupManager.getCachedPlansCount());
+
+        ((AbstractViewRepository) viewRepository).deployViews(new StringReader(
+                "<views><view class=\"com.haulmont.cuba.security.entity.User\" name=\"fetchPlanTest\">" +
+                        "<property name=\"login\"/></view></views>"));
+        assertEquals(0, fetchGroupManager.getCachedPlansCount());
+    }
+
+    private View createView() {
+        return new View(User.class)
+                .addProperty("login")
+                .addProperty("group", new View(Group.class).addProperty("name"));
+    }
+
+    private List<User> loadUsers(View view) {
+        try (Transaction tx = cont.persistence().createTransaction()) {
+            EntityManager em = cont.persistence().getEntityManager();
+            TypedQuery<User> query = em.createQuery("select u from sec$User u", User.class);
+            query.setView(view);
+            List<User> users = query.getResultList();
+            tx.commit();
+            return users;
+        }
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2008-2016 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys.entitycache;
+
+import com.google.common.collect.Sets;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class StandardQueryCacheTest {
+
+    private StandardQueryCache queryCache;
+
+    @Before
+    public void setUp() throws Exception {
+        queryCache = new StandardQueryCache();
+        queryCache.queryCacheConfig = new QueryCacheConfig() {
+            @Override
+            public boolean getQueryCacheEnabled() {
+                return true;
+            }
+
+            @Override
+            public int getQueryCacheMaxSize() {
+                return 2;
+            }
+
+            @Override
+            public int getQueryCacheFetchBatchSize() {
+                return 500;
+            }
+        };
+        queryCache.init();
+    }
+
+    @Test
+    public void testEvictionCleansIndexes() throws Exception {
+        QueryKey key1 = createKey("select u from sec$User u where u.name = 'a'");
+        QueryKey key2 = createKey("select u from sec$User u where u.name = 'b'");
+        QueryKey key3 = createKey("select u from sec$User u where u.name = 'c'");
+
+        queryCache.put(key1, createResult());
+        queryCache.put(key2, createResult());
+        queryCache.put(key3, createResult());
+
+        assertEquals(2, queryCache.size());
+        assertEquals(2, queryCache.typeIndex.get("sec$User").size());
+        assertEquals(2, queryCache.typeIndex.get("sec$Group").size());
+        assertEquals(2, queryCache.idIndex.size());
+        assertEquals(1, queryCache.getStatistics().get("sec$User").getEvictions());
+        assertEquals(3, queryCache.getStatistics().get("sec$User").getMisses());
+    }
+
+    @Test
+    public void testInvalidate() throws Exception {
+        QueryKey key1 = createKey("select u from sec$User u where u.name = 'a'");
+        QueryKey key2 = createKey("select u from sec$User u where u.name = 'b'");
+
+        queryCache.put(key1, createResult());
+        queryCache.put(key2, createResult());
+
+        assertNotNull(queryCache.get(key1));
+        assertEquals(1, queryCache.getStatistics().get("sec$User").getHits());
+
+        assertEquals(key1, queryCache.findQueryKeyById(key1.getId()));
+        assertEquals(key1, queryCache.invalidate(key1.getId()));
+        assertNull(queryCache.findQueryKeyById(key1.getId()));
+        assertNull(queryCache.get(key1));
+        assertEquals(1, queryCache.typeIndex.get("sec$User").size());
+
+        queryCache.invalidate("sec$Group");
+        assertEquals(0, queryCache.size());
+        assertTrue(queryCache.typeIndex.get("sec$User").isEmpty());
+        assertTrue(queryCache.idIndex.isEmpty());
+        assertEquals(0, queryCache.getStatistics().get("sec$User").getEvictions());
+    }
+
+    @Test
+    public void testPutSameQueryTwice() throws Exception {
+        QueryKey key1 = createKey("select u from sec$User u where u.name = 'a'");
+        QueryKey key2 = createKey("select u from sec$User u where u.name = 'a'");
+
+        queryCache.put(key1, createResult());
+        queryCache.put(key2, createResult());
+
+        assertEquals(1, queryCache.size());
+        assertEquals(1, queryCache.typeIndex.get("sec$User").size());
+        assertEquals(1, queryCache.idIndex.size());
+        assertEquals(key2, queryCache.findQueryKeyById(key2.getId()));
+    }
+
+    private QueryKey createKey(String queryString) {
+        return new QueryKey(queryString, 0, 0, true, false, null, null);
+    }
+
+    private QueryResult createResult() {
+        return new QueryResult(Collections.emptyList(), "sec$User", Sets.newHashSet("sec$User", "sec$Group"));
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2008-2016 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.core.sys.persistence;
+
+import com.haulmont.bali.datastruct.Pair;
+import com.haulmont.cuba.core.app.FtsSender;
+import com.haulmont.cuba.core.entity.Entity;
+import com.haulmont.cuba.core.entity.FtsChangeType;
+import com.haulmont.cuba.core.entity.Server;
+import com.haulmont.cuba.testsupport.TestContainer;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class PersistenceImplSupportFtsTest {
+
+    @ClassRule
+    public static TestContainer cont = TestContainer.Common.INSTANCE;
+
+    private List<List<Pair<Entity, FtsChangeType>>> batches;
+
+    private List<Pair<Entity, FtsChangeType>> singleChanges;
+
+    private PersistenceImplSupport support;
+
+    @Before
+    public void setUp() throws Exception {
+        batches = new ArrayList<>();
+        singleChanges = new ArrayList<>();
+
+        support = new PersistenceImplSupport() {
+            @Override
+            protected boolean isFtsEnabled() {
+                return true;
+            }
+        };
+        support.ftsSender = new TestFtsSender();
+    }
+
+    @Test
+    public void testAllChangesAreSentInOneBatch() throws Exception {
+        Server server1 = cont.metadata().create(Server.class);
+        Server server2 = cont.metadata().create(Server.class);
+
+        PersistenceImplSupport.OnCommitEntityVisitor visitor = support.new OnCommitEntityVisitor("main");
+        visitor.enqueueForFts(server1, FtsChangeType.INSERT);
+        visitor.enqueueForFts(server2, FtsChangeType.DELETE);
+        visitor.enqueueForFts(server1, FtsChangeType.UPDATE);
+        assertTrue(batches.isEmpty());
+
+        visitor.flushFtsChanges();
+
+        assertEquals(1, batches.size());
+        List<Pair<Entity, FtsChangeType>> batch = batches.get(0);
+        assertEquals(3, batch.size());
+        assertSame(server1, batch.get(0).getFirst());
+        assertEquals(FtsChangeType.INSERT, batch.get(0).getSecond());
+        assertSame(server2, batch.get(1).getFirst());
+        assertEquals(FtsChangeType.DELETE, batch.get(1).getSecond());
+        assertSame(server1, batch.get(2).getFirst());
+        assertEquals(FtsChangeType.UPDATE, batch.get(2).getSecond());
+    }
+
+    @Test
+    public void testEmptyBatchIsNotSent() throws Exception {
+        PersistenceImplSupport.OnCommitEntityVisitor visitor = support.new OnCommitEntityVisitor("main");
+        visitor.flushFtsChanges();
+
+        assertTrue(batches.isEmpty());
+    }
+
+    @Test
+    public void testDefaultBatchEnqueueKeepsEveryChange() throws Exception {
+        Server server = cont.metadata().create(Server.class);
+
+        List<Pair<Entity, FtsChangeType>> changes = new ArrayList<>();
+        changes.add(new Pair<>(server, FtsChangeType.INSERT));
+        changes.add(new Pair<>(server, FtsChangeType.UPDATE));
+
+        FtsSender sender = new TestFtsSender() {
+            @Override
+            public void enqueue(List<Pair<Entity, FtsChangeType>> changes) {
+                defaultEnqueue(changes);
+            }
+        };
+        sender.enqueue(changes);
+
+        assertEquals(changes, singleChanges);
+    }
+
+    private class TestFtsSender implements FtsSender {
+
+        @Override
+        public void enqueue(Entity entity, FtsChangeType changeType) {
+            singleChanges.add(new Pair<>(entity, changeType));
+        }
+
+        @Override
+        public void enqueue(String entityName, Object entityId, FtsChangeType changeType) {
+        }
+
+        @Override
+        public void enqueue(List<Pair<Entity, FtsChangeType>> changes) {
+            batches.add(new ArrayList<>(changes));
+        }
+
+        protected void defaultEnqueue(List<Pair<Entity, FtsChangeType>> changes) {
+            FtsSender.super.enqueue(changes);
+        }
+
+        @Override
+        public void enqueueFake(String entityName, Object entityId) {
+        }
+
+        @Override
+        public void emptyQueue(String entityName) {
+        }
+
+        @Override
+        public void emptyFakeQueue(String entityName) {
+        }
+
+        @Override
+        public void emptyQueue() {
+        }
+
+        @Override
+        public void initDefault() {
+        }
+    }
+}
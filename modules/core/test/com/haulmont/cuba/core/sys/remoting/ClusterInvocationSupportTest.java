@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2008-2016 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.core.sys.remoting;
+
+import com.haulmont.cuba.testsupport.TestContainer;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+
+import java.net.InetSocketAddress;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ClusterInvocationSupportTest {
+
+    @ClassRule
+    public static TestContainer cont = TestContainer.Common.INSTANCE;
+
+    private ClusterInvocationSupport support;
+
+    @Before
+    public void setUp() throws Exception {
+        support = new ClusterInvocationSupport();
+        support.setBaseUrl("http://host1/app-core,http://host2/app-core,http://host3/app-core");
+        support.setAdaptive(true);
+        support.init();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        support.shutdown();
+    }
+
+    @Test
+    public void testStaticPriorityWithoutStatistics() throws Exception {
+        assertEquals(Arrays.asList(
+                "http://host1/app-core/remoting/svc",
+                "http://host2/app-core/remoting/svc",
+                "http://host3/app-core/remoting/svc"),
+                support.getUrlList("svc"));
+    }
+
+    @Test
+    public void testLeastLoadedServerFirst() throws Exception {
+        invoke("http://host1/app-core/remoting/svc", true, 500);
+        invoke("http://host2/app-core/remoting/svc", true, 10);
+        invoke("http://host3/app-core/remoting/svc", true, 50);
+
+        List<String> urls = support.getUrlList("svc");
+        assertEquals("http://host2/app-core/remoting/svc", urls.get(0));
+        assertEquals("http://host3/app-core/remoting/svc", urls.get(1));
+        assertEquals("http://host1/app-core/remoting/svc", urls.get(2));
+
+        // requests in progress increase the load
+        support.invocationStarted("http://host2/app-core/remoting/svc");
+        support.invocationStarted("http://host2/app-core/remoting/svc");
+        support.invocationStarted("http://host2/app-core/remoting/svc");
+        support.invocationStarted("http://host2/app-core/remoting/svc");
+        support.invocationStarted("http://host2/app-core/remoting/svc");
+        assertEquals("http://host3/app-core/remoting/svc", support.getUrlList("svc").get(0));
+    }
+
+    @Test
+    public void testFailedServerLast() throws Exception {
+        for (int i = 0; i < support.failureThreshold; i++) {
+            invoke("http://host1/app-core/remoting/svc", false, 10);
+        }
+        invoke("http://host2/app-core/remoting/svc", true, 1000);
+
+        List<String> urls = support.getUrlList("svc");
+        assertEquals("http://host3/app-core/remoting/svc", urls.get(0));
+        assertEquals("http://host2/app-core/remoting/svc", urls.get(1));
+        assertEquals("http://host1/app-core/remoting/svc", urls.get(2));
+
+        invoke("http://host1/app-core/remoting/svc", true, 10);
+        assertEquals("http://host1/app-core/remoting/svc", support.getUrlList("svc").get(1));
+    }
+
+    @Test
+    public void testLatencyDecay() throws Exception {
+        ClusterInvocationSupport.ServerState state = new ClusterInvocationSupport.ServerState(10000);
+        state.succeeded(1000, 100000);
+        assertEquals(1000, state.getLatency(100000), 0.001);
+        assertEquals(500, state.getLatency(110000), 0.001);
+        assertEquals(250, state.getLatency(120000), 0.001);
+
+        // a new measurement is averaged with the decayed value
+        state.succeeded(50, 120000);
+        assertEquals(250 + 0.2 * (50 - 250), state.getLatency(120000), 0.001);
+    }
+
+    @Test
+    public void testSlowServerIsRetriedAfterDecay() throws Exception {
+        invoke("http://host1/app-core/remoting/svc", true, 5000);
+        invoke("http://host2/app-core/remoting/svc", true, 100);
+        invoke("http://host3/app-core/remoting/svc", true, 200);
+        assertEquals("http://host1/app-core/remoting/svc", support.getUrlList("svc").get(2));
+
+        // the last measurements of host2 and host3 are recent, host1 was measured long ago
+        long longAgo = System.currentTimeMillis() - support.latencyHalfLifeSec * 1000L * 10;
+        support.serverStates.get("http://host1/app-core/remoting").latencyUpdated = longAgo;
+        assertEquals("http://host1/app-core/remoting/svc", support.getUrlList("svc").get(0));
+    }
+
+    @Test
+    public void testLoadIsReadOnceWhileSorting() throws Exception {
+        List<String> urls = new ArrayList<>();
+        Map<String, AtomicInteger> loadReads = new HashMap<>();
+        for (int i = 0; i < 100; i++) {
+            String url = "http://host" + i + "/app-core/remoting";
+            AtomicInteger reads = new AtomicInteger();
+            urls.add(url);
+            loadReads.put(url, reads);
+            // simulates invocations finishing concurrently with the sort
+            support.serverStates.put(url, new ClusterInvocationSupport.ServerState(0) {
+                @Override
+                protected double getLoad(long now) {
+                    return reads.incrementAndGet() % 2 == 0 ? 1000 - reads.get() : reads.get();
+                }
+            });
+        }
+
+        assertEquals(new HashSet<>(urls), new HashSet<>(support.sortByLoad(urls)));
+        for (AtomicInteger reads : loadReads.values()) {
+            assertEquals(1, reads.get());
+        }
+    }
+
+    @Test
+    public void testHealthCheckRequiresSuccessfulResponse() throws Exception {
+        int[] responseCode = {500};
+        HttpServer server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/app-core/remoting/health", exchange -> {
+            exchange.sendResponseHeaders(responseCode[0], -1);
+            exchange.close();
+        });
+        server.start();
+        try {
+            String url = "http://localhost:" + server.getAddress().getPort() + "/app-core/remoting";
+            assertFalse(support.isServerResponding(url));
+
+            responseCode[0] = 503;
+            assertFalse(support.isServerResponding(url));
+
+            responseCode[0] = 200;
+            assertTrue(support.isServerResponding(url));
+
+            assertFalse(support.isServerResponding("http://localhost:" + server.getAddress().getPort() + "/unknown"));
+        } finally {
+            server.stop(0);
+        }
+    }
+
+    private void invoke(String url, boolean success, long latency) {
+        support.invocationStarted(url);
+        support.invocationFinished(url, success, latency);
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2008-2016 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.core.sys.remoting;
+
+import com.haulmont.cuba.core.sys.serialization.SerializationSupport;
+import com.haulmont.cuba.testsupport.TestContainer;
+import mockit.Delegate;
+import mockit.Mocked;
+import mockit.NonStrictExpectations;
+import org.apache.commons.lang.StringUtils;
+import org.junit.Before;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.springframework.remoting.support.RemoteInvocationResult;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.*;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+import static org.junit.Assert.*;
+
+public class HttpServiceExporterTest {
+
+    @ClassRule
+    public static TestContainer cont = TestContainer.Common.INSTANCE;
+
+    @Mocked
+    private HttpServletRequest request;
+
+    @Mocked
+    private HttpServletResponse response;
+
+    private HttpServiceExporter exporter;
+
+    private ByteArrayOutputStream body = new ByteArrayOutputStream();
+    private Map<String, String> headers = new HashMap<>();
+    private Integer contentLength;
+
+    @Before
+    public void setUp() throws Exception {
+        exporter = new HttpServiceExporter();
+        exporter.compressionThreshold = 1000;
+    }
+
+    @Test
+    public void testLargeResultIsCompressedForGzipClient() throws Exception {
+        String value = StringUtils.repeat("remoting ", 10000);
+        writeResult("gzip, deflate", value);
+
+        assertEquals("gzip", headers.get(RemotingCompression.CONTENT_ENCODING_HEADER));
+        assertEquals("gzip", headers.get(RemotingCompression.ACCEPT_REQUEST_ENCODING_HEADER));
+        assertNull(contentLength);
+        assertTrue(body.size() < value.length() / 10);
+        assertEquals(value, readResult(new GZIPInputStream(new ByteArrayInputStream(body.toByteArray()))));
+    }
+
+    @Test
+    public void testLargeResultIsNotCompressedForNonGzipClient() throws Exception {
+        String value = StringUtils.repeat("remoting ", 10000);
+        writeResult(null, value);
+
+        assertNull(headers.get(RemotingCompression.CONTENT_ENCODING_HEADER));
+        assertEquals("gzip", headers.get(RemotingCompression.ACCEPT_REQUEST_ENCODING_HEADER));
+        assertTrue(body.size() > value.length());
+        assertEquals(value, readResult(new ByteArrayInputStream(body.toByteArray())));
+    }
+
+    @Test
+    public void testSmallResultIsNotCompressed() throws Exception {
+        writeResult("gzip", "small");
+
+        assertNull(headers.get(RemotingCompression.CONTENT_ENCODING_HEADER));
+        assertEquals(Integer.valueOf(body.size()), contentLength);
+        assertEquals("small", readResult(new ByteArrayInputStream(body.toByteArray())));
+    }
+
+    private void writeResult(String acceptEncoding, String value) throws IOException {
+        new NonStrictExpectations() {
+            {
+                request.getHeader(RemotingCompression.ACCEPT_ENCODING_HEADER);
+                result = acceptEncoding;
+
+                response.getOutputStream();
+                result = new CapturingOutputStream();
+
+                response.setHeader(anyString, anyString);
+                result = new Delegate() {
+                    @SuppressWarnings("unused")
+                    void setHeader(String name, String headerValue) {
+                        headers.put(name, headerValue);
+                    }
+                };
+
+                response.setContentLength(anyInt);
+                result = new Delegate() {
+                    @SuppressWarnings("unused")
+                    void setContentLength(int length) {
+                        contentLength = length;
+                    }
+                };
+            }
+        };
+
+        exporter.writeRemoteInvocationResult(request, response, new RemoteInvocationResult(value));
+    }
+
+    private Object readResult(InputStream inputStream) throws IOException {
+        try (ObjectInputStream ois = new ObjectInputStream(inputStream)) {
+            return ((RemoteInvocationResult) SerializationSupport.deserialize(ois)).getValue();
+        }
+    }
+
+    private class CapturingOutputStream extends ServletOutputStream {
+
+        @Override
+        public void write(int b) throws IOException {
+            body.write(b);
+        }
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+        }
+    }
+}
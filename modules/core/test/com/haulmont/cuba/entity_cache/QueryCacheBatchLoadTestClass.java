@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2008-2016 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.entity_cache;
+
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import com.haulmont.cuba.core.EntityManager;
+import com.haulmont.cuba.core.Transaction;
+import com.haulmont.cuba.core.TypedQuery;
+import com.haulmont.cuba.core.global.AppBeans;
+import com.haulmont.cuba.core.global.View;
+import com.haulmont.cuba.core.sys.entitycache.QueryCache;
+import com.haulmont.cuba.security.entity.Group;
+import com.haulmont.cuba.security.entity.User;
+import com.haulmont.cuba.testsupport.TestAppender;
+import com.haulmont.cuba.testsupport.TestContainer;
+import com.haulmont.cuba.testsupport.TestNamePrinter;
+import org.eclipse.persistence.jpa.JpaCache;
+import org.junit.*;
+import org.junit.rules.TestRule;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compares resolving of cached query results when entities are missing in the entity cache (cold)
+ * and when all of them are already there (warm).
+ */
+public class QueryCacheBatchLoadTestClass {
+
+    private static final int USERS_COUNT = 200;
+    private static final int ITERATIONS = 20;
+
+    @ClassRule
+    public static TestContainer cont = EntityCacheTestSuite.cont;
+
+    @Rule
+    public TestRule testNamePrinter = new TestNamePrinter();
+
+    private JpaCache cache;
+    private QueryCache queryCache;
+
+    private final TestAppender appender;
+    private Group group;
+    private List<User> users = new ArrayList<>();
+
+    public QueryCacheBatchLoadTestClass() {
+        appender = new TestAppender();
+        appender.start();
+        LoggerContext context = (LoggerContext) LoggerFactory.getILoggerFactory();
+        Logger logger = context.getLogger("eclipselink.sql");
+        logger.addAppender(appender);
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        queryCache = AppBeans.get(QueryCache.NAME);
+        try (Transaction tx = cont.persistence().createTransaction()) {
+            EntityManager em = cont.entityManager();
+            cache = (JpaCache) em.getDelegate().getEntityManagerFactory().getCache();
+
+            group = cont.metadata().create(Group.class);
+            group.setName("group-" + group.getId());
+            em.persist(group);
+
+            for (int i = 0; i < USERS_COUNT; i++) {
+                User user = cont.metadata().create(User.class);
+                user.setLogin("ECBatchTest-" + user.getId());
+                user.setName(String.format("%04d", i));
+                user.setGroup(group);
+                em.persist(user);
+                users.add(user);
+            }
+            tx.commit();
+        }
+        cache.clear();
+        queryCache.invalidateAll();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        for (User user : users) {
+            cont.deleteRecord(user);
+        }
+        cont.deleteRecord(group);
+    }
+
+    @Test
+    public void testColdAndWarmEntityCache() throws Exception {
+        View view = new View(User.class)
+                .addProperty("login")
+                .addProperty("name");
+
+        List<User> expected = loadUsers(view);
+        assertEquals(USERS_COUNT, expected.size());
+        assertEquals(1, queryCache.size());
+        appender.clearMessages();
+
+        // cold: query results are cached, but the entities have to be loaded from the database
+        for (int i = 0; i < ITERATIONS; i++) {
+            cache.clear();
+            appender.clearMessages();
+
+            List<User> result = loadUsers(view);
+
+            assertEquals(expected, result);
+            assertEquals(1, appender.filterMessages(m -> m.startsWith("SELECT") && m.contains("SEC_USER")).count());
+        }
+
+        // warm: all entities are taken from the entity cache
+        loadUsers(view);
+        for (int i = 0; i < ITERATIONS; i++) {
+            appender.clearMessages();
+
+            List<User> result = loadUsers(view);
+
+            assertEquals(expected, result);
+            assertEquals(0, appender.filterMessages(m -> m.startsWith("SELECT")).count());
+        }
+    }
+
+    private List<User> loadUsers(View view) {
+        try (Transaction tx = cont.persistence().createTransaction()) {
+            EntityManager em = cont.entityManager();
+            TypedQuery<User> query = em.createQuery(
+                    "select u from sec$User u where u.login like 'ECBatchTest-%' order by u.name", User.class);
+            query.setCacheable(true);
+            query.setView(view);
+            List<User> resultList = query.getResultList();
+            tx.commit();
+            return resultList;
+        }
+    }
+}
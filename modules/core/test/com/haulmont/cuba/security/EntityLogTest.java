@@ -25,7 +25,9 @@ import com.haulmont.cuba.core.Transaction;
 import com.haulmont.cuba.core.TypedQuery;
 import com.haulmont.cuba.core.global.AppBeans;
 import com.haulmont.cuba.core.global.Messages;
+import com.haulmont.cuba.core.global.Configuration;
 import com.haulmont.cuba.security.app.EntityLogAPI;
+import com.haulmont.cuba.security.app.EntityLogConfig;
 import com.haulmont.cuba.security.entity.*;
 import com.haulmont.cuba.testsupport.TestContainer;
 import org.junit.After;
@@ -314,6 +316,54 @@ public class EntityLogTest {
         assertEquals("changed-3@test.com", attr.getValue());
     }
 
+    @Test
+    public void testAsync() throws Exception {
+        EntityLogConfig config = AppBeans.get(Configuration.class).getConfig(EntityLogConfig.class);
+        config.setAsyncEnabled(true);
+        try {
+            Transaction tx = cont.persistence().createTransaction();
+            try {
+                EntityManager em = cont.persistence().getEntityManager();
+
+                Group group = em.find(Group.class, UUID.fromString("0fa2b1a5-1d68-4d69-9fbd-dff348347f93"));
+
+                User user = new User();
+                userId = user.getId();
+                user.setGroup(group);
+                user.setLogin("test");
+                user.setEmail("test-email");
+                em.persist(user);
+
+                tx.commit();
+            } finally {
+                tx.end();
+            }
+
+            tx = cont.persistence().createTransaction();
+            try {
+                EntityManager em = cont.persistence().getEntityManager();
+
+                User user = em.find(User.class, userId);
+                user.setEmail("test-email-1");
+
+                tx.commit();
+            } finally {
+                tx.end();
+            }
+
+            List<EntityLogItem> items = getEntityLogItems();
+            for (int i = 0; i < 50 && items.size() < 2; i++) {
+                Thread.sleep(100);
+                items = getEntityLogItems();
+            }
+            assertEquals(2, items.size());
+            assertEquals(EntityLogItem.Type.MODIFY, items.get(0).getType());
+            assertEquals(EntityLogItem.Type.CREATE, items.get(1).getType());
+        } finally {
+            config.setAsyncEnabled(false);
+        }
+    }
+
     private List<EntityLogItem> getEntityLogItems() {
         Transaction tx;
         List<EntityLogItem> items;
@@ -19,6 +19,7 @@ package com.haulmont.cuba.security;
 import com.haulmont.cuba.core.EntityManager;
 import com.haulmont.cuba.core.Transaction;
 import com.haulmont.cuba.core.global.*;
+import com.haulmont.cuba.core.sys.AppContext;
 import com.haulmont.cuba.security.app.LoginWorker;
 import com.haulmont.cuba.security.entity.*;
 import com.haulmont.cuba.security.global.LoginException;
@@ -33,6 +34,7 @@ import java.util.Locale;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertTrue;
 
 public class InMemoryConstraintTest {
 
@@ -252,6 +254,60 @@ public class InMemoryConstraintTest {
         }
     }
 
+    @Test
+    public void testCountInChunks() throws LoginException {
+        LoginWorker lw = AppBeans.get(LoginWorker.NAME);
+
+        UserSession userSession = lw.login("constraintUser3", passwordEncryption.getPlainHash(PASSWORD), Locale.getDefault());
+        assertNotNull(userSession);
+
+        UserSessionSource uss = AppBeans.get(UserSessionSource.class);
+        UserSession savedUserSession = uss.getUserSession();
+        ((TestUserSessionSource) uss).setUserSession(userSession);
+        AppContext.setProperty("cuba.inMemoryConstraintsCountChunkSize", "7");
+        try {
+            DataManager dataManager = AppBeans.get(DataManager.NAME);
+            dataManager = dataManager.secure();
+            LoadContext loadContext = new LoadContext(User.class).setView(View.LOCAL);
+            loadContext.setQuery(new LoadContext.Query("select u from sec$User u order by u.login desc"));
+            long permitted = countInDatabase("select count(u) from sec$User u " +
+                    "where u.login like '%3%' and u.login not like 'constraint%'");
+            assertEquals(permitted, dataManager.getCount(loadContext));
+
+            AppContext.setProperty("cuba.inMemoryConstraintsCountEstimateThreshold", "21");
+            long estimate = dataManager.getCount(loadContext);
+            long total = countInDatabase("select count(u) from sec$User u");
+            assertTrue(estimate > 0);
+            assertTrue(estimate <= total);
+        } finally {
+            AppContext.setProperty("cuba.inMemoryConstraintsCountChunkSize", null);
+            AppContext.setProperty("cuba.inMemoryConstraintsCountEstimateThreshold", null);
+            ((TestUserSessionSource) uss).setUserSession(savedUserSession);
+        }
+    }
+
+    @Test
+    public void testUnsecuredCountIsNotFiltered() throws LoginException {
+        LoginWorker lw = AppBeans.get(LoginWorker.NAME);
+
+        UserSession userSession = lw.login("constraintUser3", passwordEncryption.getPlainHash(PASSWORD), Locale.getDefault());
+        assertNotNull(userSession);
+
+        UserSessionSource uss = AppBeans.get(UserSessionSource.class);
+        UserSession savedUserSession = uss.getUserSession();
+        ((TestUserSessionSource) uss).setUserSession(userSession);
+        AppContext.setProperty("cuba.inMemoryConstraintsCountChunkSize", "7");
+        try {
+            DataManager dataManager = AppBeans.get(DataManager.NAME);
+            LoadContext loadContext = new LoadContext(User.class).setView(View.LOCAL);
+            loadContext.setQuery(new LoadContext.Query("select u from sec$User u"));
+            assertEquals(countInDatabase("select count(u) from sec$User u"), dataManager.getCount(loadContext));
+        } finally {
+            AppContext.setProperty("cuba.inMemoryConstraintsCountChunkSize", null);
+            ((TestUserSessionSource) uss).setUserSession(savedUserSession);
+        }
+    }
+
     @Test
     public void testLoadingLastPage() throws LoginException {
         LoginWorker lw = AppBeans.get(LoginWorker.NAME);
@@ -316,4 +372,13 @@ public class InMemoryConstraintTest {
         cont.deleteRecord("SEC_CONSTRAINT", constraint1.getId(), constraint2.getId(), constraint3.getId(), constraint4.getId());
         cont.deleteRecord("SEC_GROUP", parentGroup.getId(), constraintGroup1.getId(), constraintGroup2.getId(), constraintGroup3.getId(), constraintGroup4.getId());
     }
+
+    private long countInDatabase(String queryString) {
+        try (Transaction tx = cont.persistence().createTransaction()) {
+            EntityManager em = cont.persistence().getEntityManager();
+            long count = ((Number) em.createQuery(queryString).getSingleResult()).longValue();
+            tx.commit();
+            return count;
+        }
+    }
 }
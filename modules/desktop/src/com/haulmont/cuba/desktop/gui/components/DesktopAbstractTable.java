@@ -2027,7 +2027,8 @@ public abstract class DesktopAbstractTable<C extends JXTable, E extends Entity>
             }
         }
 
-        if (allColumnsAreInline()) {
+        // measuring all rows of a lazy datasource would load all of them
+        if (allColumnsAreInline() || datasource instanceof CollectionDatasource.Lazy) {
             return;
         }
 
@@ -255,7 +255,11 @@ public class TableModelAdapter extends AbstractTableModel implements AnyTableMod
 
     public Object getItemId(int rowIndex) {
         Object id = null;
-        if (datasource instanceof CollectionDatasource.Ordered) {
+        if (datasource instanceof CollectionDatasource.Indexed) {
+            if (rowIndex >= 0 && rowIndex < datasource.size()) {
+                id = ((CollectionDatasource.Indexed) datasource).getItemIdByIndex(rowIndex);
+            }
+        } else if (datasource instanceof CollectionDatasource.Ordered) {
             int idx = 0;
             id = ((CollectionDatasource.Ordered) datasource).firstItemId();
             while (++idx <= rowIndex) {
@@ -283,7 +287,10 @@ public class TableModelAdapter extends AbstractTableModel implements AnyTableMod
     public int getRowIndex(Entity entity) {
         int idx = 0;
         if (entity != null) {
-            if (datasource instanceof CollectionDatasource.Ordered) {
+            if (datasource instanceof CollectionDatasource.Indexed) {
+                //noinspection unchecked
+                return ((CollectionDatasource.Indexed) datasource).indexOfId(entity.getId());
+            } else if (datasource instanceof CollectionDatasource.Ordered) {
                 Object id = ((CollectionDatasource.Ordered) datasource).firstItemId();
                 while (id != null) {
                     if (entity.equals(datasource.getItem(id)))
@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2008-2016 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.bali.collections;
+
+import org.apache.commons.collections.map.LinkedMap;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * {@link LinkedMap} with constant time {@link #get(int)} and {@link #indexOf(Object)}. <br/>
+ * Positions of keys are cached in an array and a hash map, which are rebuilt on the first positional access
+ * after the map has been structurally modified.
+ */
+public class IndexedLinkedMap extends LinkedMap {
+
+    private static final long serialVersionUID = -2307186045128870497L;
+
+    protected transient Object[] indexedKeys;
+    protected transient Map<Object, Integer> indexes;
+    protected transient int indexedModCount;
+
+    public IndexedLinkedMap() {
+    }
+
+    public IndexedLinkedMap(int initialCapacity) {
+        super(initialCapacity);
+    }
+
+    @Override
+    public Object get(int index) {
+        buildIndex();
+        if (index < 0 || index >= indexedKeys.length) {
+            throw new IndexOutOfBoundsException("Index " + index + " is invalid for size " + size());
+        }
+        return indexedKeys[index];
+    }
+
+    @Override
+    public int indexOf(Object key) {
+        buildIndex();
+        Integer index = indexes.get(key);
+        return index != null ? index : -1;
+    }
+
+    protected void buildIndex() {
+        if (indexedKeys != null && indexedModCount == modCount) {
+            return;
+        }
+        Object[] keys = new Object[size()];
+        Map<Object, Integer> keyIndexes = new HashMap<>(Math.max((int) (keys.length / .75f) + 1, 16));
+        int i = 0;
+        for (LinkEntry entry = entryAfter(header); entry != header; entry = entryAfter(entry)) {
+            keys[i] = entry.getKey();
+            keyIndexes.put(entry.getKey(), i);
+            i++;
+        }
+        indexedKeys = keys;
+        indexes = keyIndexes;
+        indexedModCount = modCount;
+    }
+}
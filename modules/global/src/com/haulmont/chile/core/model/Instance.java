@@ -56,6 +56,29 @@ public interface Instance extends Serializable {
      */
     void setValue(String name, Object value);
 
+    /**
+     * Get an attribute value.
+     * <p/> Unlike {@link #getValue(String)}, the caller can resolve the meta-property once and use it for
+     * many instances, e.g. when sorting or aggregating a collection.
+     *
+     * @param property  meta-property of the attribute
+     * @return          attribute value
+     */
+    @Nullable
+    default <T> T getValue(MetaProperty property) {
+        return getValue(property.getName());
+    }
+
+    /**
+     * Set an attribute value. Has the same semantics as {@link #setValue(String, Object)}.
+     *
+     * @param property  meta-property of the attribute
+     * @param value     attribute value
+     */
+    default void setValue(MetaProperty property, Object value) {
+        setValue(property.getName(), value);
+    }
+
     /**
      * Get an attribute value. Locates the attribute by the given path in object graph starting from this instance.
      * <p/> The path must consist of attribute names according to JavaBeans notation, separated by dots, e.g.
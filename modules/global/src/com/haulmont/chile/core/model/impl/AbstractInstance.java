@@ -20,6 +20,7 @@ package com.haulmont.chile.core.model.impl;
 import com.haulmont.chile.core.common.ValueListener;
 import com.haulmont.chile.core.common.compatibility.InstancePropertyChangeListenerWrapper;
 import com.haulmont.chile.core.model.Instance;
+import com.haulmont.chile.core.model.MetaProperty;
 import com.haulmont.chile.core.model.utils.InstanceUtils;
 import com.haulmont.chile.core.model.utils.MethodsCache;
 import org.apache.commons.lang.ObjectUtils;
@@ -37,6 +38,9 @@ public abstract class AbstractInstance implements Instance {
 
     private static transient Map<Class, MethodsCache> methodCacheMap = new ConcurrentHashMap<>();
 
+    private static transient Map<Class, Boolean> directGetterClasses = new ConcurrentHashMap<>();
+    private static transient Map<Class, Boolean> directSetterClasses = new ConcurrentHashMap<>();
+
     protected void propertyChanged(String s, Object prev, Object curr) {
         if (__propertyChangeListeners != null) {
             for (WeakReference<PropertyChangeListener> reference : new ArrayList<>(__propertyChangeListeners)) {
@@ -98,12 +102,24 @@ public abstract class AbstractInstance implements Instance {
         return (T) getMethodsCache().invokeGetter(this, name);
     }
 
+    /**
+     * Invokes the getter of the property directly if the class does not customize {@link #getValue(String)},
+     * otherwise delegates to it.
+     */
+    @SuppressWarnings("unchecked")
+    @Override
+    public <T> T getValue(MetaProperty property) {
+        if (!isDirectGetterSupported()) {
+            return getValue(property.getName());
+        }
+        return (T) getMethodsCache().getGetter(property.getName()).apply(this);
+    }
+
     protected MethodsCache getMethodsCache() {
         Class cls = getClass();
         MethodsCache cache = methodCacheMap.get(cls);
         if (cache == null) {
-            cache = new MethodsCache(cls);
-            methodCacheMap.put(cls, cache);
+            cache = methodCacheMap.computeIfAbsent(cls, MethodsCache::new);
         }
         return cache;
     }
@@ -128,6 +144,63 @@ public abstract class AbstractInstance implements Instance {
         }
     }
 
+    /**
+     * Invokes the setter of the property directly if the class does not customize {@link #setValue(String, Object)},
+     * otherwise delegates to it. The setter is not invoked if the new value equals to the current one.
+     */
+    @Override
+    public void setValue(MetaProperty property, Object value) {
+        if (!isDirectSetterSupported()) {
+            setValue(property.getName(), value);
+            return;
+        }
+        Object oldValue = getValue(property);
+        if (!ObjectUtils.equals(oldValue, value)) {
+            getMethodsCache().getSetter(property.getName()).accept(this, value);
+        }
+    }
+
+    protected boolean isDirectGetterSupported() {
+        Class cls = getClass();
+        Boolean supported = directGetterClasses.get(cls);
+        if (supported == null) {
+            supported = directGetterClasses.computeIfAbsent(cls, c -> isOverriddenConsistently(c, "getValue",
+                    new Class[]{MetaProperty.class}, new Class[]{String.class}));
+        }
+        return supported;
+    }
+
+    protected boolean isDirectSetterSupported() {
+        Class cls = getClass();
+        Boolean supported = directSetterClasses.get(cls);
+        if (supported == null) {
+            supported = directSetterClasses.computeIfAbsent(cls, c -> isOverriddenConsistently(c, "setValue",
+                    new Class[]{MetaProperty.class, Object.class},
+                    new Class[]{String.class, Object.class}, new Class[]{String.class, Object.class, boolean.class}));
+        }
+        return supported;
+    }
+
+    /**
+     * Checks that the method accepting a meta-property is declared in the same class as the methods accepting
+     * a property name, or in its subclass. Otherwise, a subclass changes the access by name, e.g. for dynamic
+     * attributes, and the access by meta-property must go through it.
+     */
+    protected static boolean isOverriddenConsistently(Class<?> cls, String methodName,
+                                                    Class<?>[] metaPropertyParams, Class<?>[]... nameParams) {
+        try {
+            Class<?> declaringClass = cls.getMethod(methodName, metaPropertyParams).getDeclaringClass();
+            for (Class<?>[] params : nameParams) {
+                if (!cls.getMethod(methodName, params).getDeclaringClass().isAssignableFrom(declaringClass)) {
+                    return false;
+                }
+            }
+            return true;
+        } catch (NoSuchMethodException e) {
+            return false;
+        }
+    }
+
     @Override
     public <T> T getValueEx(String name) {
         return InstanceUtils.<T>getValueEx(this, name);
@@ -17,16 +17,41 @@
 package com.haulmont.chile.core.model.utils;
 
 import org.apache.commons.lang.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import java.lang.reflect.Method;
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.InvocationTargetException;
-import java.util.Map;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
+/**
+ * Getters and setters of a class by property name.
+ * <p>
+ * Accessors are generated on first use by {@link LambdaMetafactory}, so reading and writing a property is
+ * a direct method call instead of {@link Method#invoke}. If a method cannot be linked from this class
+ * (e.g. a class loaded by a different class loader), the accessor falls back to reflection.
+ */
 public class MethodsCache {
 
-    private final transient Map<String, Method> getters = new HashMap<>();
-    private final transient Map<String, Method> setters = new HashMap<>();
+    private static final Logger log = LoggerFactory.getLogger(MethodsCache.class);
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    private final transient Map<String, Method> getterMethods = new HashMap<>();
+    private final transient Map<String, Method> setterMethods = new HashMap<>();
+
+    private final transient Map<String, Function<Object, Object>> getters = new ConcurrentHashMap<>();
+    private final transient Map<String, BiConsumer<Object, Object>> setters = new ConcurrentHashMap<>();
 
     public MethodsCache(Class clazz) {
         final Method[] methods = clazz.getMethods();
@@ -35,43 +60,143 @@ public class MethodsCache {
             if (name.startsWith("get") && method.getParameterTypes().length == 0) {
                 name = StringUtils.uncapitalize(name.substring(3));
                 method.setAccessible(true);
-                getters.put(name, method);
+                getterMethods.put(name, method);
             }
             if (name.startsWith("is") && method.getParameterTypes().length == 0) {
                 name = StringUtils.uncapitalize(name.substring(2));
                 method.setAccessible(true);
-                getters.put(name, method);
+                getterMethods.put(name, method);
             } else if (name.startsWith("set") && method.getParameterTypes().length == 1) {
                 name = StringUtils.uncapitalize(name.substring(3));
                 method.setAccessible(true);
-                setters.put(name, method);
+                setterMethods.put(name, method);
             }
         }
     }
 
     public void invokeSetter(Object object, String property, Object value) {
-        final Method method = setters.get(property);
-        if (method == null) {
-            throw new IllegalArgumentException(
-                    String.format("Can't find setter for property '%s' at class %s", property, object.getClass()));
+        getSetter(object, property).accept(object, value);
+    }
+
+    public Object invokeGetter(Object object, String property) {
+        return getGetter(object, property).apply(object);
+    }
+
+    /**
+     * @return function reading the property value from an instance of the class
+     * @throws IllegalArgumentException if the class has no getter for the property
+     */
+    public Function<Object, Object> getGetter(String property) {
+        return getGetter(null, property);
+    }
+
+    /**
+     * @return consumer writing the property value to an instance of the class
+     * @throws IllegalArgumentException if the class has no setter for the property
+     */
+    public BiConsumer<Object, Object> getSetter(String property) {
+        return getSetter(null, property);
+    }
+
+    protected Function<Object, Object> getGetter(Object object, String property) {
+        Function<Object, Object> getter = getters.get(property);
+        if (getter == null) {
+            Method method = getterMethods.get(property);
+            if (method == null) {
+                throw new IllegalArgumentException(
+                        String.format("Can't find getter for property '%s' at class %s", property,
+                                object != null ? object.getClass() : null));
+            }
+            getter = getters.computeIfAbsent(property, p -> createGetter(method));
         }
-        try {
-            method.invoke(object, value);
-        } catch (IllegalAccessException | InvocationTargetException e) {
-            throw new RuntimeException(e);
+        return getter;
+    }
+
+    protected BiConsumer<Object, Object> getSetter(Object object, String property) {
+        BiConsumer<Object, Object> setter = setters.get(property);
+        if (setter == null) {
+            Method method = setterMethods.get(property);
+            if (method == null) {
+                throw new IllegalArgumentException(
+                        String.format("Can't find setter for property '%s' at class %s", property,
+                                object != null ? object.getClass() : null));
+            }
+            setter = setters.computeIfAbsent(property, p -> createSetter(method));
         }
+        return setter;
     }
 
-    public Object invokeGetter(Object object, String property) {
-        final Method method = getters.get(property);
-        if (method == null) {
-            throw new IllegalArgumentException(
-                    String.format("Can't find getter for property '%s' at class %s", property, object.getClass()));
+    @SuppressWarnings("unchecked")
+    protected Function<Object, Object> createGetter(Method method) {
+        if (isLinkable(method)) {
+            try {
+                MethodHandle handle = LOOKUP.unreflect(method);
+                CallSite callSite = LambdaMetafactory.metafactory(LOOKUP, "apply",
+                        MethodType.methodType(Function.class),
+                        MethodType.methodType(Object.class, Object.class),
+                        handle,
+                        handle.type().wrap());
+                return (Function<Object, Object>) callSite.getTarget().invokeExact();
+            } catch (Throwable e) {
+                log.debug("Unable to generate getter for {}, using reflection: {}", method, e.toString());
+            }
         }
+        return object -> {
+            try {
+                return method.invoke(object);
+            } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
+                throw new RuntimeException(e);
+            }
+        };
+    }
+
+    @SuppressWarnings("unchecked")
+    protected BiConsumer<Object, Object> createSetter(Method method) {
+        if (isLinkable(method)) {
+            try {
+                MethodHandle handle = LOOKUP.unreflect(method);
+                CallSite callSite = LambdaMetafactory.metafactory(LOOKUP, "accept",
+                        MethodType.methodType(BiConsumer.class),
+                        MethodType.methodType(void.class, Object.class, Object.class),
+                        handle,
+                        handle.type().wrap().changeReturnType(void.class));
+                return (BiConsumer<Object, Object>) callSite.getTarget().invokeExact();
+            } catch (Throwable e) {
+                log.debug("Unable to generate setter for {}, using reflection: {}", method, e.toString());
+            }
+        }
+        return (object, value) -> {
+            try {
+                method.invoke(object, value);
+            } catch (IllegalAccessException | InvocationTargetException e) {
+                throw new RuntimeException(e);
+            }
+        };
+    }
+
+    /**
+     * Generated accessors are linked against this class, so all types in the method signature must be public
+     * and visible from its class loader.
+     */
+    protected boolean isLinkable(Method method) {
+        if (!isVisible(method.getDeclaringClass()) || !isVisible(method.getReturnType()))
+            return false;
+        for (Class<?> type : method.getParameterTypes()) {
+            if (!isVisible(type))
+                return false;
+        }
+        return true;
+    }
+
+    protected boolean isVisible(Class<?> type) {
+        if (type.isPrimitive())
+            return true;
+        if (!Modifier.isPublic(type.getModifiers()))
+            return false;
         try {
-            return method.invoke(object);
-        } catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
-            throw new RuntimeException(e);
+            return Class.forName(type.getName(), false, MethodsCache.class.getClassLoader()) == type;
+        } catch (ClassNotFoundException e) {
+            return false;
         }
     }
-}
\ No newline at end of file
+}
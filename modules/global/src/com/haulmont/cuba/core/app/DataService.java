@@ -17,10 +17,13 @@
 package com.haulmont.cuba.core.app;
 
 import com.haulmont.cuba.core.entity.Entity;
+import com.haulmont.cuba.core.global.BulkUpdateContext;
 import com.haulmont.cuba.core.global.CommitContext;
 import com.haulmont.cuba.core.global.LoadContext;
 
 import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 
@@ -65,4 +68,37 @@ public interface DataService {
      * @return          number of instances in the database
      */
     long getCount(LoadContext<? extends Entity> context);
+
+    /**
+     * Loads collections of entity instances for several {@link LoadContext}s in one call.
+     * @param contexts  list of {@link LoadContext} objects, defining what and how to load
+     * @return          list of results in the same order as the passed contexts
+     * @see com.haulmont.cuba.core.global.DataManager#loadBatch(List)
+     */
+    @SuppressWarnings("unchecked")
+    default List<List<Entity>> loadBatch(List<LoadContext<?>> contexts) {
+        List<List<Entity>> result = new ArrayList<>(contexts.size());
+        for (LoadContext<?> context : contexts) {
+            List<? extends Entity> list = loadList(context);
+            result.add(list != null ? (List<Entity>) list : new ArrayList<>());
+        }
+        return result;
+    }
+
+    /**
+     * Executes a set-based JPQL update or delete statement.
+     * @param context   {@link BulkUpdateContext} object, defining the statement and its parameters
+     * @return          number of affected instances
+     * @see com.haulmont.cuba.core.global.DataManager#bulkUpdate(BulkUpdateContext)
+     */
+    default int bulkUpdate(BulkUpdateContext context) {
+        if (!context.isDelete()) {
+            throw new UnsupportedOperationException("Bulk update is not supported by " + getClass().getName());
+        }
+        List<Entity> instances = loadList(context.createLoadContextForDelete());
+        CommitContext commitContext = new CommitContext(Collections.emptyList(), instances);
+        commitContext.setSoftDeletion(context.isSoftDeletion());
+        commit(commitContext);
+        return instances.size();
+    }
 }
@@ -19,6 +19,7 @@ package com.haulmont.cuba.core.app.serialization;
 
 import com.google.gson.*;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonWriter;
 import com.haulmont.chile.core.datatypes.Datatype;
 import com.haulmont.chile.core.datatypes.Datatypes;
 import com.haulmont.chile.core.model.MetaClass;
@@ -34,11 +35,16 @@ import org.springframework.stereotype.Component;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.validation.constraints.NotNull;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
 import java.lang.reflect.Field;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Type;
 import java.text.ParseException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 @Component(EntitySerializationAPI.NAME)
 public class EntitySerialization implements EntitySerializationAPI {
@@ -54,6 +60,8 @@ public class EntitySerialization implements EntitySerializationAPI {
     @Inject
     protected Metadata metadata;
 
+    protected ConcurrentMap<MetaClass, EntityJsonInfo> entityJsonInfoCache = new ConcurrentHashMap<>();
+
     protected ThreadLocal<EntitySerializationContext> context = new ThreadLocal<EntitySerializationContext>() {
         @Override
         protected EntitySerializationContext initialValue() {
@@ -94,8 +102,24 @@ public class EntitySerialization implements EntitySerializationAPI {
     public String toJson(Collection<? extends Entity> entities,
                          @Nullable View view,
                          EntitySerializationOption... options) {
+        StringWriter writer = new StringWriter();
+        try {
+            toJson(entities, view, writer, options);
+        } catch (IOException e) {
+            throw new EntitySerializationException(e);
+        }
+        return writer.toString();
+    }
+
+    @Override
+    public void toJson(Collection<? extends Entity> entities,
+                       @Nullable View view,
+                       Writer writer,
+                       EntitySerializationOption... options) throws IOException {
         context.remove();
-        return createGsonForSerialization(view, options).toJson(entities);
+        JsonWriter jsonWriter = new JsonWriter(writer);
+        new EntityJsonWriter(jsonWriter, view, options).writeCollection(entities);
+        jsonWriter.flush();
     }
 
     @Override
@@ -126,6 +150,18 @@ public class EntitySerialization implements EntitySerializationAPI {
         return gsonBuilder.create();
     }
 
+    protected EntityJsonInfo getEntityJsonInfo(MetaClass metaClass) {
+        EntityJsonInfo info = entityJsonInfoCache.get(metaClass);
+        if (info == null) {
+            info = new EntityJsonInfo(metaClass);
+            EntityJsonInfo existing = entityJsonInfoCache.putIfAbsent(metaClass, info);
+            if (existing != null) {
+                info = existing;
+            }
+        }
+        return info;
+    }
+
     protected Gson createGsonForDeserialization(@Nullable MetaClass metaClass, EntitySerializationOption... options) {
         return new GsonBuilder()
                 .registerTypeHierarchyAdapter(Entity.class, new EntityDeserializer(metaClass, options))
@@ -291,6 +327,187 @@ public class EntitySerialization implements EntitySerializationAPI {
         }
     }
 
+    /**
+     * Serialization metadata of an entity class, resolved once per metaClass.
+     */
+    protected class EntityJsonInfo {
+
+        protected final boolean embeddable;
+        protected final MetaProperty primaryKeyProperty;
+        protected final Datatype primaryKeyDatatype;
+        protected final List<PropertyJsonInfo> properties = new ArrayList<>();
+
+        public EntityJsonInfo(MetaClass metaClass) {
+            embeddable = metadataTools.isEmbeddable(metaClass);
+            primaryKeyProperty = metadataTools.getPrimaryKeyProperty(metaClass);
+            primaryKeyDatatype = primaryKeyProperty != null ? Datatypes.get(primaryKeyProperty.getJavaType()) : null;
+            for (MetaProperty metaProperty : metaClass.getProperties()) {
+                if (!"id".equals(metaProperty.getName())) {
+                    properties.add(new PropertyJsonInfo(metaProperty));
+                }
+            }
+        }
+    }
+
+    protected static class PropertyJsonInfo {
+
+        protected final MetaProperty metaProperty;
+        protected final String name;
+        protected final Range range;
+        protected final Datatype datatype;
+
+        public PropertyJsonInfo(MetaProperty metaProperty) {
+            this.metaProperty = metaProperty;
+            this.name = metaProperty.getName();
+            this.range = metaProperty.getRange();
+            this.datatype = range.isDatatype() ? Datatypes.get(metaProperty.getJavaType()) : null;
+        }
+    }
+
+    /**
+     * Writes entities directly to a {@link JsonWriter}. The output is the same as the one produced by
+     * {@link EntitySerializer}, but no intermediate JSON tree is built.
+     */
+    protected class EntityJsonWriter {
+
+        protected JsonWriter out;
+        protected boolean complexIdFormat;
+        protected boolean compactRepeatedEntities;
+        protected boolean serializeInstanceName;
+        protected View view;
+
+        public EntityJsonWriter(JsonWriter out, @Nullable View view, EntitySerializationOption... options) {
+            this.out = out;
+            this.view = view;
+            if (options != null) {
+                for (EntitySerializationOption option : options) {
+                    if (option == EntitySerializationOption.COMPLEX_ID_FORMAT)
+                        complexIdFormat = true;
+                    if (option == EntitySerializationOption.COMPACT_REPEATED_ENTITIES)
+                        compactRepeatedEntities = true;
+                    if (option == EntitySerializationOption.SERIALIZE_INSTANCE_NAME)
+                        serializeInstanceName = true;
+                }
+            }
+            // the same settings as Gson uses by default
+            out.setSerializeNulls(ArrayUtils.contains(options, EntitySerializationOption.SERIALIZE_NULLS));
+            out.setHtmlSafe(true);
+            out.setLenient(true);
+        }
+
+        public void writeCollection(Collection<? extends Entity> entities) throws IOException {
+            out.beginArray();
+            for (Entity entity : entities) {
+                if (entity == null) {
+                    out.nullValue();
+                } else {
+                    writeEntity(entity, view, new HashSet<>());
+                }
+            }
+            out.endArray();
+        }
+
+        protected void writeEntity(Entity entity, @Nullable View view, Set<Entity> cyclicReferences) throws IOException {
+            MetaClass metaClass = entity.getMetaClass();
+            EntityJsonInfo info = getEntityJsonInfo(metaClass);
+            out.beginObject();
+            if (!info.embeddable) {
+                if (!complexIdFormat) {
+                    out.name(ENTITY_NAME_PROP).value(metaClass.getName());
+                }
+                if (serializeInstanceName) {
+                    out.name(INSTANCE_NAME_PROP).value(entity.getInstanceName());
+                }
+                writeIdField(entity, info);
+                if (compactRepeatedEntities) {
+                    Map<Object, Entity> processedObjects = context.get().getProcessedEntities();
+                    if (!processedObjects.containsKey(entity.getId())) {
+                        processedObjects.put(entity.getId(), entity);
+                        writeFields(entity, info, view, cyclicReferences);
+                    }
+                } else {
+                    if (!cyclicReferences.contains(entity)) {
+                        cyclicReferences.add(entity);
+                        writeFields(entity, info, view, cyclicReferences);
+                    }
+                }
+            } else {
+                writeFields(entity, info, view, cyclicReferences);
+            }
+            out.endObject();
+        }
+
+        protected void writeIdField(Entity entity, EntityJsonInfo info) throws IOException {
+            if (info.primaryKeyProperty == null)
+                throw new EntitySerializationException("Primary key property not found for entity " + entity.getMetaClass());
+            if (info.primaryKeyDatatype == null)
+                throw new IllegalArgumentException("A datatype for " + info.primaryKeyProperty.getJavaType() + " is not found");
+            String idValue = info.primaryKeyDatatype.format(entity.getId());
+            out.name("id").value(complexIdFormat ? entity.getMetaClass().getName() + "-" + idValue : idValue);
+        }
+
+        protected void writeFields(Entity entity, EntityJsonInfo info, @Nullable View view,
+                                   Set<Entity> cyclicReferences) throws IOException {
+            for (PropertyJsonInfo property : info.properties) {
+                ViewProperty viewProperty = null;
+                if (view != null) {
+                    viewProperty = view.getProperty(property.name);
+                    if (viewProperty == null) continue;
+                }
+
+                if (!PersistenceHelper.isLoaded(entity, property.name)) {
+                    continue;
+                }
+
+                Object fieldValue = entity.getValue(property.name);
+
+                if (fieldValue == null) {
+                    out.name(property.name).nullValue();
+                    continue;
+                }
+
+                if (property.range.isDatatype()) {
+                    writeSimpleProperty(fieldValue, property);
+                } else if (property.range.isEnum()) {
+                    out.name(property.name).value(fieldValue.toString());
+                } else if (property.range.isClass()) {
+                    View propertyView = viewProperty != null ? viewProperty.getView() : null;
+                    if (fieldValue instanceof Entity) {
+                        out.name(property.name);
+                        writeEntity((Entity) fieldValue, propertyView, new HashSet<>(cyclicReferences));
+                    } else if (fieldValue instanceof Collection) {
+                        out.name(property.name);
+                        writeEntityCollection((Collection) fieldValue, propertyView, new HashSet<>(cyclicReferences));
+                    }
+                }
+            }
+        }
+
+        protected void writeSimpleProperty(@NotNull Object fieldValue, PropertyJsonInfo property) throws IOException {
+            out.name(property.name);
+            if (fieldValue instanceof Number) {
+                out.value((Number) fieldValue);
+            } else if (fieldValue instanceof Boolean) {
+                out.value(((Boolean) fieldValue).booleanValue());
+            } else if (property.datatype != null) {
+                out.value(property.datatype.format(fieldValue));
+            } else {
+                out.value(String.valueOf(fieldValue));
+            }
+        }
+
+        protected void writeEntityCollection(Collection value, @Nullable View view,
+                                             Set<Entity> cyclicReferences) throws IOException {
+            out.beginArray();
+            for (Object item : value) {
+                if (item instanceof Entity) {
+                    writeEntity((Entity) item, view, cyclicReferences);
+                }
+            }
+            out.endArray();
+        }
+    }
+
     protected class EntityDeserializer implements JsonDeserializer<Entity> {
 
         protected boolean complexIdFormat = false;
@@ -22,6 +22,8 @@ import com.haulmont.cuba.core.entity.Entity;
 import com.haulmont.cuba.core.global.View;
 
 import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.Writer;
 import java.util.Collection;
 
 /**
@@ -65,6 +67,24 @@ public interface EntitySerializationAPI {
                   @Nullable View view,
                   EntitySerializationOption... options);
 
+    /**
+     * Writes a collection of entities as a JSON array directly to the given writer. Produces the same JSON as the
+     * {@link #toJson(Collection, View, EntitySerializationOption...)} method, but doesn't build an intermediate object
+     * tree or result string, so it should be used for large collections that are sent to a stream.
+     * <p>
+     * The writer is flushed but not closed.
+     *
+     * @param entities a collection of entities to be serialized
+     * @param view     a view that defines which entity properties should be added to the result JSON object
+     * @param writer   a writer to output JSON to
+     * @param options  options specifying how an entity should be serialized
+     * @throws IOException if writing to the writer fails
+     */
+    void toJson(Collection<? extends Entity> entities,
+                @Nullable View view,
+                Writer writer,
+                EntitySerializationOption... options) throws IOException;
+
     /**
      * An overloaded version of the {@link #toJson(Entity, View, EntitySerializationOption...)} method with a null
      * {@code view} parameter and with no serialization options.
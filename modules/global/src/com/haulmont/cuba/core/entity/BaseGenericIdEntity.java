@@ -19,6 +19,7 @@ package com.haulmont.cuba.core.entity;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Multimap;
 import com.haulmont.chile.core.model.MetaClass;
+import com.haulmont.chile.core.model.MetaProperty;
 import com.haulmont.chile.core.model.impl.AbstractInstance;
 import com.haulmont.cuba.core.app.dynamicattributes.DynamicAttributes;
 import com.haulmont.cuba.core.app.dynamicattributes.DynamicAttributesUtils;
@@ -131,6 +132,24 @@ public abstract class BaseGenericIdEntity<T> extends AbstractInstance implements
         }
     }
 
+    @Override
+    public void setValue(MetaProperty property, Object newValue) {
+        if (DynamicAttributesUtils.isDynamicAttribute(property.getName())) {
+            setValue(property.getName(), newValue);
+        } else {
+            super.setValue(property, newValue);
+        }
+    }
+
+    @Override
+    public <V> V getValue(MetaProperty property) {
+        if (DynamicAttributesUtils.isDynamicAttribute(property.getName())) {
+            return getValue(property.getName());
+        } else {
+            return super.getValue(property);
+        }
+    }
+
     @Override
     @SuppressWarnings("unchecked")
     public <V> V getValue(String property) {
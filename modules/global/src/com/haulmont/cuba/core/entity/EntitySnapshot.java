@@ -43,6 +43,16 @@ public class EntitySnapshot extends BaseUuidEntity implements Creatable {
 
     private static final long serialVersionUID = 4835363127711391591L;
 
+    /**
+     * View and entity are stored as plain XML or JSON text.
+     */
+    public static final int FORMAT_PLAIN = 1;
+
+    /**
+     * View and entity are stored as deflated JSON encoded in Base64.
+     */
+    public static final int FORMAT_COMPRESSED = 2;
+
     @Column(name = "CREATE_TS")
     protected Date createTs;
 
@@ -68,6 +78,9 @@ public class EntitySnapshot extends BaseUuidEntity implements Creatable {
     @Column(name = "ENTITY_ID")
     private UUID entityId;
 
+    @Column(name = "FORMAT_VERSION")
+    private Integer formatVersion;
+
     @Override
     public Date getCreateTs() {
         return createTs;
@@ -120,6 +133,18 @@ public class EntitySnapshot extends BaseUuidEntity implements Creatable {
         this.entityId = entityId;
     }
 
+    /**
+     * @return {@link #FORMAT_PLAIN}, {@link #FORMAT_COMPRESSED} or null for snapshots created before the format
+     * version was introduced, which contain plain XML or JSON text
+     */
+    public Integer getFormatVersion() {
+        return formatVersion;
+    }
+
+    public void setFormatVersion(Integer formatVersion) {
+        this.formatVersion = formatVersion;
+    }
+
     public void setAuthor(User author) {
         this.author = author;
     }
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2008-2016 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.haulmont.cuba.core.global;
+
+import com.haulmont.bali.util.Preconditions;
+import com.haulmont.cuba.core.entity.Entity;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Class that defines a set-based JPQL {@code update} or {@code delete} statement for
+ * {@link DataManager#bulkUpdate(BulkUpdateContext)}.
+ * <p>Usage example:
+ * <pre>
+ *     BulkUpdateContext context = new BulkUpdateContext(
+ *             "update sec$User u set u.active = false where u.lastLoginTs &lt; :date")
+ *             .setParameter("date", date)
+ *             .setLogSummary(true);
+ *     int count = dataManager.bulkUpdate(context);
+ * </pre>
+ */
+public class BulkUpdateContext implements Serializable {
+
+    private static final long serialVersionUID = 4281593618396425327L;
+
+    private static final Pattern STATEMENT_PATTERN = Pattern.compile(
+            "^\\s*(update|delete\\s+from)\\s+([\\w$]+)", Pattern.CASE_INSENSITIVE);
+
+    private static final Pattern DELETE_PATTERN = Pattern.compile(
+            "^\\s*delete\\s+from\\s+([\\w$]+)\\s+(?:as\\s+)?(\\w+)", Pattern.CASE_INSENSITIVE);
+
+    protected String queryString;
+    protected Map<String, Object> parameters = new HashMap<>();
+    protected boolean softDeletion = true;
+    protected boolean logSummary;
+
+    /**
+     * @param queryString   JPQL update or delete statement. Only named parameters are supported.
+     */
+    public BulkUpdateContext(String queryString) {
+        Preconditions.checkNotNullArgument(queryString, "queryString is null");
+        this.queryString = queryString;
+    }
+
+    /**
+     * @return JPQL statement
+     */
+    public String getQueryString() {
+        return queryString;
+    }
+
+    /**
+     * Set value for a statement parameter.
+     * @param name  parameter name
+     * @param value parameter value
+     * @return      this instance for chaining
+     */
+    public BulkUpdateContext setParameter(String name, Object value) {
+        parameters.put(name, value);
+        return this;
+    }
+
+    /**
+     * @return editable map of the statement parameters
+     */
+    public Map<String, Object> getParameters() {
+        return parameters;
+    }
+
+    /**
+     * @return whether a delete statement marks soft-deleted entities as deleted instead of removing the rows,
+     * and whether soft-deleted rows are excluded from the update. True by default.
+     */
+    public boolean isSoftDeletion() {
+        return softDeletion;
+    }
+
+    /**
+     * @param softDeletion whether to use soft deletion
+     * @return this instance for chaining
+     */
+    public BulkUpdateContext setSoftDeletion(boolean softDeletion) {
+        this.softDeletion = softDeletion;
+        return this;
+    }
+
+    /**
+     * @return whether to register the operation in the entity log, if the entity is configured for logging.
+     * The log item contains the statement and the number of affected rows instead of individual changes.
+     */
+    public boolean isLogSummary() {
+        return logSummary;
+    }
+
+    /**
+     * @param logSummary whether to register the operation in the entity log
+     * @return this instance for chaining
+     */
+    public BulkUpdateContext setLogSummary(boolean logSummary) {
+        this.logSummary = logSummary;
+        return this;
+    }
+
+    /**
+     * @return name of the entity updated or deleted by the statement
+     * @throws IllegalArgumentException if the statement is not a JPQL update or delete
+     */
+    public String getEntityName() {
+        return matchStatement().group(2);
+    }
+
+    /**
+     * @return true if the statement is a delete, false if it is an update
+     * @throws IllegalArgumentException if the statement is not a JPQL update or delete
+     */
+    public boolean isDelete() {
+        return matchStatement().group(1).toLowerCase().startsWith("delete");
+    }
+
+    /**
+     * Creates a {@link LoadContext} selecting the instances removed by a delete statement, with the statement
+     * parameters. Used to execute the statement by loading and removing the instances where set-based operations
+     * are not implemented.
+     * @throws IllegalArgumentException if the statement is not a JPQL delete with an identification variable
+     */
+    public LoadContext<Entity> createLoadContextForDelete() {
+        Matcher matcher = DELETE_PATTERN.matcher(queryString);
+        if (!matcher.find() || "where".equalsIgnoreCase(matcher.group(2))) {
+            throw new IllegalArgumentException("Not a JPQL delete statement with an identification variable: " + queryString);
+        }
+        String entityName = matcher.group(1);
+        String alias = matcher.group(2);
+
+        LoadContext<Entity> loadContext = new LoadContext<>(AppBeans.get(Metadata.class).getClassNN(entityName));
+        LoadContext.Query query = LoadContext.createQuery(
+                "select " + alias + " from " + entityName + " " + alias + queryString.substring(matcher.end()));
+        query.setParameters(parameters);
+        loadContext.setQuery(query);
+        loadContext.setSoftDeletion(softDeletion);
+        return loadContext;
+    }
+
+    protected Matcher matchStatement() {
+        Matcher matcher = STATEMENT_PATTERN.matcher(queryString);
+        if (!matcher.find()) {
+            throw new IllegalArgumentException("Not a JPQL update or delete statement: " + queryString);
+        }
+        return matcher;
+    }
+
+    @Override
+    public String toString() {
+        return "BulkUpdateContext{" +
+                "queryString='" + queryString + '\'' +
+                ", softDeletion=" + softDeletion +
+                '}';
+    }
+}
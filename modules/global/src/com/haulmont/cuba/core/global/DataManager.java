@@ -21,8 +21,11 @@ import com.haulmont.chile.core.model.MetaClass;
 import com.haulmont.cuba.core.entity.Entity;
 
 import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * Central interface to provide CRUD functionality. Can be used on both middle and client tiers.
@@ -65,6 +68,63 @@ public interface DataManager {
      */
     long getCount(LoadContext<? extends Entity> context);
 
+    /**
+     * Loads collections of entity instances for several {@link LoadContext}s at once.
+     * <p>On the client tier all contexts are passed to the middleware in a single remote call, so this method
+     * should be preferred to a sequence of {@link #loadList(LoadContext)} calls when several independent
+     * collections are needed at the same time. The default implementation calls {@link #loadList(LoadContext)}
+     * for each context.</p>
+     * @param contexts  list of {@link LoadContext} objects, defining what and how to load
+     * @return          list of results in the same order as the passed contexts. Each result is a list of detached
+     * instances, or empty list if nothing found
+     */
+    @SuppressWarnings("unchecked")
+    default List<List<Entity>> loadBatch(List<LoadContext<?>> contexts) {
+        List<List<Entity>> result = new ArrayList<>(contexts.size());
+        for (LoadContext<?> context : contexts) {
+            List<? extends Entity> list = loadList(context);
+            result.add(list != null ? (List<Entity>) list : new ArrayList<>());
+        }
+        return result;
+    }
+
+    /**
+     * Loads entity instances lazily by chunks. Use this method instead of {@link #loadList(LoadContext)} to process
+     * large amounts of data with bounded memory consumption.
+     * <p>Chunks are loaded with keyset pagination by the primary key, so the query must select the main entity and
+     * its {@code order by} clause is replaced with the primary key ordering. Views and security constraints are
+     * applied to each chunk, and the returned instances are detached.</p>
+     * @param context   {@link LoadContext} object, defining what and how to load
+     * @param chunkSize maximum number of instances loaded from the data store in one request
+     * @return          a sequential stream of detached instances
+     * @see KeysetPagingIterator
+     */
+    default <E extends Entity> Stream<E> loadStream(LoadContext<E> context, int chunkSize) {
+        return KeysetPagingIterator.stream(this, context, chunkSize);
+    }
+
+    /**
+     * Executes a set-based JPQL update or delete statement without loading the affected instances.
+     * <p>Entity listeners are not invoked and individual changes are not registered in the entity log.
+     * Entity operation permissions are checked for the updated entity, and the operation is rejected if the entity
+     * has row-level constraints. Affected instances are evicted from the entity cache and the query cache
+     * in all cluster members.</p>
+     * <p>The default implementation supports only delete statements. It loads the affected instances and removes
+     * them by {@link #commit(CommitContext)}, so entity listeners are invoked.</p>
+     * @param context   {@link BulkUpdateContext} object, defining the statement and its parameters
+     * @return          number of affected instances
+     */
+    default int bulkUpdate(BulkUpdateContext context) {
+        if (!context.isDelete()) {
+            throw new UnsupportedOperationException("Bulk update is not supported by " + getClass().getName());
+        }
+        List<Entity> instances = loadList(context.createLoadContextForDelete());
+        CommitContext commitContext = new CommitContext(Collections.emptyList(), instances);
+        commitContext.setSoftDeletion(context.isSoftDeletion());
+        commit(commitContext);
+        return instances.size();
+    }
+
     /**
      * Reloads the entity instance from data store with the view specified.
      * @param entity        reloading instance
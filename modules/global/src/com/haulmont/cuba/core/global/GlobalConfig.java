@@ -146,6 +146,14 @@ public interface GlobalConfig extends Config {
     @DefaultBoolean(true)
     boolean getUseAstBasedJpqlTransformer();
 
+    /**
+     * @return maximum number of parsed JPQL query trees kept in cache by {@link QueryTransformerFactory}.
+     * 0 disables the cache.
+     */
+    @Property("cuba.jpqlParseCacheSize")
+    @DefaultInt(2000)
+    int getJpqlParseCacheSize();
+
     /**
      * @return Overriden AppFolderEditWindow class name
      */
@@ -0,0 +1,151 @@
+/*
+ * Copyright (c) 2008-2016 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.haulmont.cuba.core.global;
+
+import com.haulmont.bali.util.Preconditions;
+import com.haulmont.chile.core.model.MetaClass;
+import com.haulmont.chile.core.model.MetaProperty;
+import com.haulmont.cuba.core.entity.Entity;
+
+import java.util.*;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Iterates over the results of a {@link LoadContext} query loading them by chunks with keyset (seek) pagination.
+ * <p>Each chunk is requested by {@link DataManager#loadList(LoadContext)} with the condition
+ * {@code pk > :lastKey} and ordering by the primary key, so views, security constraints and detaching are applied
+ * to every chunk separately, and the cost of loading a chunk does not depend on its position in the result.</p>
+ * <p>The query must select the main entity. Its {@code order by} clause is replaced with the primary key ordering.
+ * {@link LoadContext.Query#getMaxResults()} limits the total number of loaded instances, first result is not
+ * supported.</p>
+ *
+ * @see DataManager#loadStream(LoadContext, int)
+ */
+public class KeysetPagingIterator<E extends Entity> implements Iterator<E> {
+
+    public static final String LAST_KEY_PARAM = "cuba_keysetLastKey";
+
+    protected final DataManager dataManager;
+    protected final LoadContext<E> context;
+    protected final int chunkSize;
+
+    protected final String firstQueryString;
+    protected final String nextQueryString;
+
+    protected List<E> chunk = Collections.emptyList();
+    protected int position;
+    protected Object lastKey;
+    protected int remaining;
+    protected boolean exhausted;
+
+    public KeysetPagingIterator(DataManager dataManager, LoadContext<E> context, int chunkSize) {
+        Preconditions.checkNotNullArgument(dataManager, "dataManager is null");
+        Preconditions.checkNotNullArgument(context, "context is null");
+        Preconditions.checkNotNullArgument(context.getQuery(), "query is not defined in the LoadContext");
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+        }
+        if (context.getQuery().getFirstResult() > 0) {
+            throw new IllegalArgumentException("firstResult is not supported by keyset pagination");
+        }
+
+        Metadata metadata = AppBeans.get(Metadata.NAME);
+        MetaClass metaClass = metadata.getClassNN(context.getMetaClass());
+        MetaProperty primaryKey = metadata.getTools().getPrimaryKeyProperty(metaClass);
+        if (primaryKey == null || primaryKey.getRange().isClass()) {
+            throw new UnsupportedOperationException("Keyset pagination requires a simple primary key: " + metaClass);
+        }
+
+        this.dataManager = dataManager;
+        this.context = context;
+        this.chunkSize = chunkSize;
+
+        String queryString = context.getQuery().getQueryString();
+
+        QueryTransformer transformer = QueryTransformerFactory.createTransformer(queryString);
+        transformer.replaceOrderBy(false, primaryKey.getName());
+        firstQueryString = transformer.getResult();
+
+        transformer = QueryTransformerFactory.createTransformer(queryString);
+        transformer.addWhere("{E}." + primaryKey.getName() + " > :" + LAST_KEY_PARAM);
+        transformer.replaceOrderBy(false, primaryKey.getName());
+        nextQueryString = transformer.getResult();
+
+        int maxResults = context.getQuery().getMaxResults();
+        remaining = maxResults > 0 ? maxResults : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Creates a sequential stream loading entities lazily by chunks.
+     */
+    public static <E extends Entity> Stream<E> stream(DataManager dataManager, LoadContext<E> context, int chunkSize) {
+        KeysetPagingIterator<E> iterator = new KeysetPagingIterator<>(dataManager, context, chunkSize);
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (position >= chunk.size()) {
+            if (exhausted) {
+                return false;
+            }
+            loadNextChunk();
+        }
+        return true;
+    }
+
+    @Override
+    public E next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        return chunk.get(position++);
+    }
+
+    @SuppressWarnings("unchecked")
+    protected void loadNextChunk() {
+        LoadContext<E> chunkContext = (LoadContext<E>) context.copy();
+        LoadContext.Query query = chunkContext.getQuery();
+        if (lastKey == null) {
+            query.setQueryString(firstQueryString);
+        } else {
+            query.setQueryString(nextQueryString);
+            query.setParameter(LAST_KEY_PARAM, lastKey);
+        }
+        int limit = Math.min(chunkSize, remaining);
+        query.setFirstResult(0);
+        query.setMaxResults(limit);
+        query.setCacheable(false);
+
+        chunk = dataManager.loadList(chunkContext);
+        position = 0;
+
+        // a chunk can be smaller than the limit if the middleware removes duplicates in memory,
+        // so only an empty chunk guarantees the end of data
+        if (chunk.isEmpty()) {
+            exhausted = true;
+        } else {
+            lastKey = chunk.get(chunk.size() - 1).getId();
+            remaining -= chunk.size();
+            if (remaining <= 0) {
+                exhausted = true;
+            }
+        }
+    }
+}
@@ -45,6 +45,7 @@ public class QueryParserAstBased implements QueryParser {
     protected DomainModel model;
     protected String query;
     protected QueryTreeAnalyzer queryTreeAnalyzer;
+    protected QueryTreeCache queryTreeCache;
 
     protected class EntityNameAndPath {
 
@@ -68,11 +69,24 @@ public class QueryParserAstBased implements QueryParser {
         this.query = query;
     }
 
+    /**
+     * Creates a parser which takes the analyzed query tree from the given cache. The parser does not modify
+     * the tree, so the cached instance is used directly.
+     */
+    public QueryParserAstBased(DomainModel model, String query, QueryTreeCache queryTreeCache) {
+        this(model, query);
+        this.queryTreeCache = queryTreeCache;
+    }
+
     private QueryTreeAnalyzer getQueryAnalyzer() {
         if (queryTreeAnalyzer == null) {
-            queryTreeAnalyzer = new QueryTreeAnalyzer();
             try {
-                queryTreeAnalyzer.prepare(model, query);
+                if (queryTreeCache != null) {
+                    queryTreeAnalyzer = queryTreeCache.getAnalyzer(query);
+                } else {
+                    queryTreeAnalyzer = new QueryTreeAnalyzer();
+                    queryTreeAnalyzer.prepare(model, query);
+                }
             } catch (RecognitionException e) {
                 throw new RuntimeException("Internal error while init queryTreeAnalyzer", e);
             }
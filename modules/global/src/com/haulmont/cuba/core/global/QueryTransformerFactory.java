@@ -18,8 +18,12 @@ package com.haulmont.cuba.core.global;
 
 import com.haulmont.cuba.core.sys.jpql.DomainModel;
 import com.haulmont.cuba.core.sys.jpql.DomainModelBuilder;
+import com.haulmont.cuba.core.sys.jpql.QueryTreeCache;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+
 /**
  * Factory to get {@link QueryParser} and {@link QueryTransformer} instances.
  */
@@ -30,10 +34,17 @@ public class QueryTransformerFactory {
 
     protected boolean useAst = true;
 
+    protected int parseCacheSize;
+
     protected volatile DomainModel domainModel;
 
+    protected volatile QueryTreeCache queryTreeCache;
+
+    @Inject
     public void setConfiguration(Configuration configuration) {
-        useAst = configuration.getConfig(GlobalConfig.class).getUseAstBasedJpqlTransformer();
+        GlobalConfig globalConfig = configuration.getConfig(GlobalConfig.class);
+        useAst = globalConfig.getUseAstBasedJpqlTransformer();
+        parseCacheSize = globalConfig.getJpqlParseCacheSize();
     }
 
     public static QueryTransformer createTransformer(String query) {
@@ -46,11 +57,11 @@ public class QueryTransformerFactory {
 
     public QueryTransformer transformer(String query) {
         if (useAst) {
-            if (domainModel == null) {
-                DomainModelBuilder builder = AppBeans.get(DomainModelBuilder.NAME);
-                domainModel = builder.produce();
+            QueryTreeCache cache = getQueryTreeCache();
+            if (cache != null) {
+                return AppBeans.getPrototype(QueryTransformer.NAME, cache.getModel(), query, cache);
             }
-            return AppBeans.getPrototype(QueryTransformer.NAME, domainModel, query);
+            return AppBeans.getPrototype(QueryTransformer.NAME, getDomainModel(), query);
         } else {
             return new QueryTransformerRegex(query);
         }
@@ -58,13 +69,39 @@ public class QueryTransformerFactory {
 
     public QueryParser parser(String query) {
         if (useAst) {
-            if (domainModel == null) {
-                DomainModelBuilder builder = AppBeans.get(DomainModelBuilder.NAME);
-                domainModel = builder.produce();
+            QueryTreeCache cache = getQueryTreeCache();
+            if (cache != null) {
+                return AppBeans.getPrototype(QueryParser.NAME, cache.getModel(), query, cache);
             }
-            return AppBeans.getPrototype(QueryParser.NAME, domainModel, query);
+            return AppBeans.getPrototype(QueryParser.NAME, getDomainModel(), query);
         } else {
             return new QueryParserRegex(query);
         }
     }
+
+    /**
+     * @return cache of parsed query trees, or null if the cache is disabled or AST-based parsing is not used
+     */
+    @Nullable
+    public QueryTreeCache getQueryTreeCache() {
+        if (!useAst || parseCacheSize <= 0) {
+            return null;
+        }
+        if (queryTreeCache == null) {
+            synchronized (this) {
+                if (queryTreeCache == null) {
+                    queryTreeCache = new QueryTreeCache(getDomainModel(), parseCacheSize);
+                }
+            }
+        }
+        return queryTreeCache;
+    }
+
+    protected DomainModel getDomainModel() {
+        if (domainModel == null) {
+            DomainModelBuilder builder = AppBeans.get(DomainModelBuilder.NAME);
+            domainModel = builder.produce();
+        }
+        return domainModel;
+    }
 }
@@ -23,6 +23,8 @@ import com.haulmont.cuba.security.entity.ConstraintOperationType;
 import com.haulmont.cuba.security.entity.EntityAttrAccess;
 import com.haulmont.cuba.security.entity.EntityOp;
 
+import java.util.Collection;
+
 /**
  * Intfrastructure interface providing methods to check permissions of the current user.
  *
@@ -133,6 +135,15 @@ public interface Security {
      */
     boolean isPermitted(Entity entity, String customCode);
 
+    /**
+     * Remove entities for which the operation type is not permitted from the collection.
+     * In-memory constraints are prepared once for the whole collection, so this method is much faster than
+     * checking each entity with {@link #isPermitted(Entity, ConstraintOperationType)}.
+     *
+     * @return true if at least one entity has been removed
+     */
+    boolean filterNotPermitted(Collection<? extends Entity> entities, ConstraintOperationType operationType);
+
     /**
      * Check if there are registered constraints for the metaClass or it's original metaClass
      */
@@ -40,7 +40,11 @@ import java.util.*;
  * <li>{@link #LOCAL}</li>
  * <li>{@link #MINIMAL}</li>
  * </ul>
- *
+ * <p>
+ * Views deployed to the repository are shared and {@link #isFrozen() frozen}. The repository returns a lightweight
+ * view which shares the properties of a frozen view and copies them on first modification. Views of its properties
+ * remain frozen, so use {@link #copy(View)} to get a deep copy that can be modified at any level.
+ * </p>
  */
 public class View implements Serializable {
 
@@ -94,6 +98,12 @@ public class View implements Serializable {
 
     private boolean loadPartialEntities;
 
+    private transient boolean frozen;
+
+    private transient boolean propertiesShared;
+
+    private transient View sharedView;
+
     public View(Class<? extends Entity> entityClass) {
         this(entityClass, "", true);
     }
@@ -141,6 +151,63 @@ public class View implements Serializable {
         }
     }
 
+    /**
+     * Makes this view and all views of its properties unmodifiable, so it can be shared between threads.
+     * An attempt to modify a frozen view causes {@code IllegalStateException}.
+     *
+     * @return this view instance for chaining
+     */
+    public View freeze() {
+        if (!frozen) {
+            frozen = true;
+            for (ViewProperty property : properties.values()) {
+                if (property.getView() != null) {
+                    property.getView().freeze();
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * @return true if this view is unmodifiable
+     * @see #freeze()
+     */
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * Creates a view that shares properties with the given frozen view until the first modification. Unlike
+     * {@link #copy(View)}, no objects except the returned view are created.
+     *
+     * @param view frozen view
+     * @return new modifiable view
+     */
+    public static View copyOnWrite(View view) {
+        if (!view.frozen) {
+            throw new IllegalArgumentException("View is not frozen: " + view);
+        }
+        View result = new View(new ViewParams().entityClass(view.entityClass).name(view.name));
+        result.properties = view.properties;
+        result.propertiesShared = true;
+        result.sharedView = view;
+        result.loadPartialEntities = view.loadPartialEntities;
+        return result;
+    }
+
+    /**
+     * Returns the frozen view whose properties are the same as of this view: this view itself if it is frozen, or
+     * the source of a {@link #copyOnWrite(View) copy-on-write} view which has not been modified yet. As frozen views
+     * never change, the returned instance can be used as a key for caching data derived from the view structure.
+     *
+     * @return frozen view or null if the view can be modified or has been modified
+     */
+    @Nullable
+    public View getSharedView() {
+        return frozen ? this : sharedView;
+    }
+
     public static View copy(@Nullable View view) {
         if (view == null) {
             return null;
@@ -175,6 +242,9 @@ public class View implements Serializable {
      * @return collection of properties
      */
     public Collection<ViewProperty> getProperties() {
+        if (frozen || propertiesShared) {
+            return Collections.unmodifiableCollection(properties.values());
+        }
         return properties.values();
     }
 
@@ -186,12 +256,14 @@ public class View implements Serializable {
      * @return      this view instance for chaining
      */
     public View addProperty(String name, @Nullable View view, FetchMode fetchMode) {
+        beforeModification();
         properties.put(name, new ViewProperty(name, view, fetchMode));
         return this;
     }
 
     @Deprecated
     public View addProperty(String name, @Nullable View view, boolean lazy) {
+        beforeModification();
         properties.put(name, new ViewProperty(name, view, lazy));
         return this;
     }
@@ -203,6 +275,7 @@ public class View implements Serializable {
      * @return      this view instance for chaining
      */
     public View addProperty(String name, View view) {
+        beforeModification();
         properties.put(name, new ViewProperty(name, view));
         return this;
     }
@@ -213,6 +286,7 @@ public class View implements Serializable {
      * @return      this view instance for chaining
      */
     public View addProperty(String name) {
+        beforeModification();
         properties.put(name, new ViewProperty(name, null));
         return this;
     }
@@ -276,6 +350,7 @@ public class View implements Serializable {
      * @return this view instance for chaining
      */
     public View setLoadPartialEntities(boolean loadPartialEntities) {
+        checkNotFrozen();
         this.loadPartialEntities = loadPartialEntities;
         return this;
     }
@@ -288,6 +363,22 @@ public class View implements Serializable {
         return false;
     }
 
+    protected void checkNotFrozen() {
+        if (frozen) {
+            throw new IllegalStateException(String.format("View %s is shared and cannot be modified. " +
+                    "Use View.copy() to get a modifiable copy", this));
+        }
+    }
+
+    protected void beforeModification() {
+        checkNotFrozen();
+        if (propertiesShared) {
+            properties = new LinkedHashMap<>(properties);
+            propertiesShared = false;
+            sharedView = null;
+        }
+    }
+
     protected Set<String> findSystemProperties(Class entityClass) {
         Set<String> result = new LinkedHashSet<>();
 
@@ -63,6 +63,12 @@ public class AbstractViewRepository implements ViewRepository {
 
     protected Map<MetaClass, Map<String, View>> storage = new ConcurrentHashMap<>();
 
+    /**
+     * Frozen copies of views from {@link #storage} handed out by {@link #findView(MetaClass, String)}.
+     * Filled on demand and cleared on any deployment, read without locking.
+     */
+    protected Map<MetaClass, Map<String, View>> frozenViews = new ConcurrentHashMap<>();
+
     @Inject
     protected Metadata metadata;
 
@@ -95,6 +101,7 @@ public class AbstractViewRepository implements ViewRepository {
 
         storage.clear();
         readFileNames.clear();
+        onViewsChanged();
 
         String configName = AppContext.getProperty("cuba.viewsConfig");
         if (!StringUtils.isBlank(configName)) {
@@ -169,6 +176,14 @@ public class AbstractViewRepository implements ViewRepository {
 
     public void reset() {
         initialized = false;
+        onViewsChanged();
+    }
+
+    /**
+     * Invoked when the deployed views are changed or reset. Discards data derived from the previously deployed views.
+     */
+    protected void onViewsChanged() {
+        frozenViews.clear();
     }
 
     /**
@@ -204,6 +219,9 @@ public class AbstractViewRepository implements ViewRepository {
 
     /**
      * Searches for a View for an entity
+     * <p>
+     * The returned view shares its properties with the deployed view and copies them on first modification,
+     * see {@link View#copyOnWrite(View)}. Once a view is requested, subsequent lookups take no locks.
      *
      * @param metaClass entity class
      * @param name      view name
@@ -220,12 +238,38 @@ public class AbstractViewRepository implements ViewRepository {
             return null;
         }
 
+        View frozenView = findFrozenView(metaClass, name);
+        return frozenView != null ? View.copyOnWrite(frozenView) : null;
+    }
+
+    /**
+     * Returns a shared frozen instance of the view. The instance must not be modified.
+     *
+     * @param metaClass entity class
+     * @param name      view name
+     * @return frozen view instance or null if no view found
+     */
+    @Nullable
+    protected View findFrozenView(MetaClass metaClass, String name) {
+        if (initialized) {
+            Map<String, View> views = frozenViews.get(metaClass);
+            View view = views != null ? views.get(name) : null;
+            if (view != null) {
+                return view;
+            }
+        }
+
         lock.readLock().lock();
         try {
             checkInitialized();
 
             View view = retrieveView(metaClass, name, new HashSet<>());
-            return copyView(view);
+            if (view == null) {
+                return null;
+            }
+            View frozenView = copyView(view).freeze();
+            frozenViews.computeIfAbsent(metaClass, mc -> new ConcurrentHashMap<>()).put(name, frozenView);
+            return frozenView;
         } finally {
             lock.readLock().unlock();
         }
@@ -458,6 +502,7 @@ public class AbstractViewRepository implements ViewRepository {
         if (overwrite) {
             replaceOverridden(view);
         }
+        onViewsChanged();
 
         return view;
     }
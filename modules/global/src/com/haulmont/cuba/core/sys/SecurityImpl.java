@@ -17,6 +17,8 @@
 
 package com.haulmont.cuba.core.sys;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.haulmont.chile.core.datatypes.Datatype;
 import com.haulmont.chile.core.datatypes.Datatypes;
 import com.haulmont.chile.core.model.MetaClass;
@@ -31,12 +33,16 @@ import com.haulmont.cuba.security.entity.EntityOp;
 import com.haulmont.cuba.security.entity.PermissionType;
 import com.haulmont.cuba.security.global.ConstraintData;
 import com.haulmont.cuba.security.global.UserSession;
+import groovy.lang.Binding;
+import groovy.lang.Script;
 import org.apache.commons.lang.StringUtils;
+import org.codehaus.groovy.runtime.InvokerHelper;
 import org.codehaus.groovy.runtime.MethodClosure;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
+import javax.annotation.Nullable;
 import javax.inject.Inject;
 import java.text.ParseException;
 import java.util.*;
@@ -51,6 +57,8 @@ import static java.lang.String.format;
 public class SecurityImpl implements Security {
     private final Logger log = LoggerFactory.getLogger(SecurityImpl.class);
 
+    protected static final int CONSTRAINT_SCRIPTS_CACHE_SIZE = 1000;
+
     @Inject
     protected UserSessionSource userSessionSource;
 
@@ -66,6 +74,10 @@ public class SecurityImpl implements Security {
     @Inject
     protected Scripting scripting;
 
+    // compiled constraint scripts by the script text
+    protected final Cache<String, Class<? extends Script>> constraintScripts =
+            CacheBuilder.newBuilder().maximumSize(CONSTRAINT_SCRIPTS_CACHE_SIZE).build();
+
     @Override
     public boolean isScreenPermitted(String windowAlias) {
         return userSessionSource.getUserSession().isScreenPermitted(windowAlias);
@@ -153,16 +165,24 @@ public class SecurityImpl implements Security {
 
     @Override
     public boolean isPermitted(Entity entity, ConstraintOperationType targetOperationType) {
-        return isPermitted(entity,
-                constraint -> {
-                    ConstraintOperationType operationType = constraint.getOperationType();
-                    return constraint.getCheckType().memory()
-                            && (
-                            (targetOperationType == ALL && operationType != CUSTOM)
-                                    || operationType == targetOperationType
-                                    || operationType == ALL
-                    );
-                });
+        return isPermitted(entity, getInMemoryConstraintsPredicate(targetOperationType));
+    }
+
+    @Override
+    public boolean filterNotPermitted(Collection<? extends Entity> entities, ConstraintOperationType operationType) {
+        return filterNotPermitted(entities, entity -> true, getInMemoryConstraintsPredicate(operationType));
+    }
+
+    protected Predicate<ConstraintData> getInMemoryConstraintsPredicate(ConstraintOperationType targetOperationType) {
+        return constraint -> {
+            ConstraintOperationType operationType = constraint.getOperationType();
+            return constraint.getCheckType().memory()
+                    && (
+                    (targetOperationType == ALL && operationType != CUSTOM)
+                            || operationType == targetOperationType
+                            || operationType == ALL
+            );
+        };
     }
 
     @Override
@@ -196,38 +216,122 @@ public class SecurityImpl implements Security {
     }
 
     protected boolean isPermitted(Entity entity, Predicate<ConstraintData> predicate) {
-        List<ConstraintData> constraints = getConstraints(entity.getMetaClass(), predicate);
+        return createPermittedPredicate(entity.getMetaClass(), predicate).test(entity);
+    }
+
+    /**
+     * Removes entities which do not match in-memory constraints from the collection.
+     * Constraints are looked up and instantiated once for each meta class of the collection.
+     *
+     * @param entities      collection to filter
+     * @param applicable    entities not matching this predicate are not checked
+     * @param predicate     selects constraints to apply
+     * @return true if at least one entity has been removed
+     */
+    protected boolean filterNotPermitted(Collection<? extends Entity> entities, Predicate<Entity> applicable,
+                                         Predicate<ConstraintData> predicate) {
+        Map<MetaClass, Predicate<Entity>> permittedPredicates = new HashMap<>();
+        boolean filtered = false;
+        for (Iterator<? extends Entity> iterator = entities.iterator(); iterator.hasNext(); ) {
+            Entity entity = iterator.next();
+            if (applicable.test(entity)) {
+                Predicate<Entity> permitted = permittedPredicates.computeIfAbsent(entity.getMetaClass(),
+                        metaClass -> createPermittedPredicate(metaClass, predicate));
+                if (!permitted.test(entity)) {
+                    //we ignore situations when the collection is immutable
+                    iterator.remove();
+                    filtered = true;
+                }
+            }
+        }
+        return filtered;
+    }
+
+    /**
+     * Creates a predicate which checks entities of the given meta class against its in-memory constraints.
+     * Constraint scripts are compiled once and instantiated once per predicate, so the returned predicate is
+     * cheap to evaluate for many entities, but it is not thread-safe.
+     */
+    protected Predicate<Entity> createPermittedPredicate(MetaClass metaClass, Predicate<ConstraintData> predicate) {
+        List<ConstraintData> constraints = new ArrayList<>();
+        for (ConstraintData constraint : getConstraints(metaClass, predicate)) {
+            if (constraint.getCheckType().memory() && StringUtils.isNotBlank(constraint.getGroovyScript())) {
+                constraints.add(constraint);
+            }
+        }
+        if (constraints.isEmpty()) {
+            return entity -> true;
+        }
+
+        List<Script> scripts = new ArrayList<>(constraints.size());
         for (ConstraintData constraint : constraints) {
-            if (!isPermitted(entity, constraint)) {
-                return false;
+            scripts.add(createConstraintScript(constraint));
+        }
+        MethodClosure valueClosure = new MethodClosure(this, "getParameterValue");
+        return entity -> {
+            for (int i = 0; i < constraints.size(); i++) {
+                if (!isPermitted(entity, constraints.get(i), scripts.get(i), valueClosure)) {
+                    return false;
+                }
             }
+            return true;
+        };
+    }
+
+    protected boolean isPermitted(Entity entity, ConstraintData constraint) {
+        if (constraint.getCheckType().memory() && StringUtils.isNotBlank(constraint.getGroovyScript())) {
+            return isPermitted(entity, constraint, createConstraintScript(constraint),
+                    new MethodClosure(this, "getParameterValue"));
         }
         return true;
     }
 
-    protected boolean isPermitted(Entity entity, ConstraintData constraint) {
+    protected boolean isPermitted(Entity entity, ConstraintData constraint, @Nullable Script script,
+                                  MethodClosure valueClosure) {
         String metaClassName = entity.getMetaClass().getName();
-        String groovyScript = constraint.getGroovyScript();
-        if (constraint.getCheckType().memory() && StringUtils.isNotBlank(groovyScript)) {
-            Map<String, Object> params = new HashMap<>();
-            params.put("theEntity", metadataTools.deepCopy(entity));//copy to avoid implicit modification
-            params.put("value", new MethodClosure(this, "getParameterValue"));
-            try {
-                Object o = scripting.evaluateGroovy(groovyScript.replace("{E}", "theEntity"), params);
-                if (Boolean.FALSE.equals(o)) {
-                    log.trace("Entity does not match security constraint. Entity class [{}]. Entity [{}]. Constraint [{}].",
-                            metaClassName, entity.getId(), constraint.getCheckType());
-                    return false;
-                }
-            } catch (Exception e) {
-                log.error("An error occurred while applying constraint's groovy script. The entity has been filtered." +
-                          "Entity class [{}]. Entity [{}].", metaClassName, entity.getId(), e);
+        if (script == null) {
+            log.trace("Entity has been filtered by the constraint with invalid script. Entity class [{}]. Entity [{}].",
+                    metaClassName, entity.getId());
+            return false;
+        }
+        Binding binding = new Binding();
+        binding.setVariable("theEntity", metadataTools.deepCopy(entity));//copy to avoid implicit modification
+        binding.setVariable("value", valueClosure);
+        script.setBinding(binding);
+        try {
+            Object o = script.run();
+            if (Boolean.FALSE.equals(o)) {
+                log.trace("Entity does not match security constraint. Entity class [{}]. Entity [{}]. Constraint [{}].",
+                        metaClassName, entity.getId(), constraint.getCheckType());
                 return false;
             }
+        } catch (Exception e) {
+            log.error("An error occurred while applying constraint's groovy script. The entity has been filtered." +
+                      "Entity class [{}]. Entity [{}].", metaClassName, entity.getId(), e);
+            return false;
+        } finally {
+            script.setBinding(new Binding()); // free memory
         }
         return true;
     }
 
+    /**
+     * Returns a new instance of the compiled constraint script, or null if the script cannot be compiled.
+     */
+    @Nullable
+    protected Script createConstraintScript(ConstraintData constraint) {
+        String groovyScript = constraint.getGroovyScript();
+        try {
+            Class<? extends Script> scriptClass = constraintScripts.get(groovyScript,
+                    () -> scripting.compileGroovy(groovyScript.replace("{E}", "theEntity")));
+            return InvokerHelper.createScript(scriptClass, new Binding());
+        } catch (Exception e) {
+            log.error("An error occurred while compiling constraint's groovy script. Constraint [{}].",
+                    constraint.getId(), e);
+            return null;
+        }
+    }
+
     @SuppressWarnings("unused")
     protected Object getParameterValue(Class clazz, String parameterValue) {
         try {
@@ -51,7 +51,15 @@ public class QueryTreeAnalyzer {
         query = query.replace("\n", " ");
         query = query.replace("\r", " ");
         query = query.replace("\t", " ");
-        tree = Parser.parse(query, failOnErrors);
+        prepare(model, Parser.parse(query, failOnErrors));
+    }
+
+    /**
+     * Analyzes an already parsed query tree. The tree becomes owned by this analyzer.
+     */
+    public void prepare(DomainModel model, CommonTree tree) {
+        this.model = model;
+        this.tree = tree;
         TreeVisitor visitor = new TreeVisitor();
         idVarSelector = new IdVarSelector(model);
         visitor.visit(tree, idVarSelector);
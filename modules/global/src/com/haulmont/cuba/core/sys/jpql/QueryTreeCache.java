@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2008-2016 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.core.sys.jpql;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.haulmont.cuba.core.sys.jpql.tree.BaseCustomNode;
+import org.antlr.runtime.RecognitionException;
+import org.antlr.runtime.tree.CommonTree;
+
+/**
+ * Bounded cache of parsed and analyzed JPQL query trees keyed by query text.
+ * <p>
+ * Cached analyzers are shared and must be used for reading only. Code that modifies the tree should work on
+ * a copy returned by {@link #copyTree(String)}.
+ */
+public class QueryTreeCache {
+
+    protected final DomainModel model;
+
+    protected final Cache<String, QueryTreeAnalyzer> cache;
+
+    public QueryTreeCache(DomainModel model, int maxSize) {
+        this.model = model;
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maxSize)
+                .recordStats()
+                .build();
+    }
+
+    public DomainModel getModel() {
+        return model;
+    }
+
+    /**
+     * Returns a shared analyzer for the query, parsing the query if it is not in the cache yet.
+     * Queries containing errors are not cached.
+     */
+    public QueryTreeAnalyzer getAnalyzer(String query) throws RecognitionException {
+        QueryTreeAnalyzer analyzer = cache.getIfPresent(query);
+        if (analyzer == null) {
+            analyzer = new QueryTreeAnalyzer();
+            analyzer.prepare(model, query);
+            if (analyzer.getInvalidIdVarNodes().isEmpty()) {
+                cache.put(query, analyzer);
+            }
+        }
+        return analyzer;
+    }
+
+    /**
+     * Returns a private copy of the parsed query tree which can be freely modified by the caller.
+     */
+    public CommonTree copyTree(String query) throws RecognitionException {
+        return BaseCustomNode.copyTree(getAnalyzer(query).getTree());
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    public CacheStats getStats() {
+        return cache.stats();
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+}
@@ -44,17 +44,30 @@ public class QueryTransformerAstBased implements QueryTransformer {
     private Set<String> addedParams = new HashSet<>();
     private String returnedEntityName;
     private String mainEntityName;
+    private QueryTreeCache queryTreeCache;
 
     public QueryTransformerAstBased(DomainModel model, String query) {
         this.model = model;
         this.query = query;
     }
 
+    /**
+     * Creates a transformer which works on a copy of the query tree taken from the given cache.
+     */
+    public QueryTransformerAstBased(DomainModel model, String query, QueryTreeCache queryTreeCache) {
+        this(model, query);
+        this.queryTreeCache = queryTreeCache;
+    }
+
     private QueryTreeTransformer getQueryTransformer() {
         if (queryTreeTransformer == null) {
             queryTreeTransformer = new QueryTreeTransformer();
             try {
-                queryTreeTransformer.prepare(model, query);
+                if (queryTreeCache != null) {
+                    queryTreeTransformer.prepare(model, queryTreeCache.copyTree(query));
+                } else {
+                    queryTreeTransformer.prepare(model, query);
+                }
             } catch (RecognitionException e) {
                 throw new RuntimeException("Internal error while init queryTreeTransformer",e);
             }
@@ -21,7 +21,6 @@ import com.haulmont.cuba.core.sys.jpql.ErrorRec;
 import com.haulmont.cuba.core.sys.jpql.QueryBuilder;
 import org.antlr.runtime.Token;
 import org.antlr.runtime.tree.CommonTree;
-import org.antlr.runtime.tree.Tree;
 
 import java.util.List;
 
@@ -53,10 +52,28 @@ public class BaseCustomNode extends CommonTree implements TreeToQueryCapable {
     }
 
     protected void dupChildren(CommonTree result) {
+        if (children == null) {
+            return;
+        }
         for (Object child : children) {
-            CommonTree t = (CommonTree) child;
-            Tree copy = t.dupNode();
-            result.addChild(copy);
+            result.addChild(copyTree((CommonTree) child));
+        }
+    }
+
+    /**
+     * Creates a deep copy of the given subtree. Tokens are shared between the source and the copy, so the copy
+     * must not modify them.
+     */
+    public static CommonTree copyTree(CommonTree node) {
+        if (node instanceof BaseCustomNode) {
+            return (CommonTree) node.dupNode();
+        }
+        CommonTree result = (CommonTree) node.dupNode();
+        if (node.getChildCount() > 0) {
+            for (Object child : node.getChildren()) {
+                result.addChild(copyTree((CommonTree) child));
+            }
         }
+        return result;
     }
 }
\ No newline at end of file
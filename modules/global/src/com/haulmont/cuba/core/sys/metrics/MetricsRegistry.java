@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2008-2016 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.haulmont.cuba.core.sys.metrics;
+
+import com.haulmont.cuba.core.sys.AppContext;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Registry of named latency histograms and counters of the application block.
+ * <p>
+ * Timings are recorded in microseconds:
+ * <pre>
+ *     long start = metrics.start();
+ *     try {
+ *         ...
+ *     } finally {
+ *         if (start != MetricsRegistry.NOT_SAMPLED)
+ *             metrics.stop("dataManager.loadList(" + entityName + ")", start);
+ *     }
+ * </pre>
+ * Check the start value before building a timer name dynamically, so that nothing is allocated for invocations
+ * that are not sampled.
+ * The {@code cuba.metricsSamplingRate} application property sets the sampling mode: 1 (default) records every
+ * invocation, N records one of N invocations chosen at random, 0 disables timing. Counters are always exact.
+ * <p>
+ * The number of distinct names is limited by the {@code cuba.metricsMaxNames} property, values for names
+ * registered after the limit is reached are accumulated under {@link #OVERFLOW_NAME}.
+ */
+@Component(MetricsRegistry.NAME)
+public class MetricsRegistry {
+
+    public static final String NAME = "cuba_MetricsRegistry";
+
+    public static final String OVERFLOW_NAME = "other";
+
+    /**
+     * Value returned by {@link #start()} when the invocation is not sampled.
+     */
+    public static final long NOT_SAMPLED = Long.MIN_VALUE;
+
+    protected final ConcurrentMap<String, Histogram> timers = new ConcurrentHashMap<>();
+    protected final ConcurrentMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+
+    protected volatile int samplingRate = 1;
+    protected volatile int maxNames = 5000;
+
+    @PostConstruct
+    protected void init() {
+        samplingRate = getIntProperty("cuba.metricsSamplingRate", samplingRate);
+        maxNames = getIntProperty("cuba.metricsMaxNames", maxNames);
+    }
+
+    /**
+     * @return start time to be passed to {@link #stop(String, long)}, or {@link #NOT_SAMPLED}
+     */
+    public long start() {
+        int rate = samplingRate;
+        if (rate <= 0 || (rate > 1 && ThreadLocalRandom.current().nextInt(rate) != 0))
+            return NOT_SAMPLED;
+        return System.nanoTime();
+    }
+
+    /**
+     * Records the time elapsed since {@code start} into the timer of the given name.
+     *
+     * @param name  timer name
+     * @param start value returned by {@link #start()}
+     */
+    public void stop(String name, long start) {
+        if (start == NOT_SAMPLED)
+            return;
+        record(name, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start));
+    }
+
+    /**
+     * Records a value into the histogram of the given name regardless of the sampling mode.
+     */
+    public void record(String name, long value) {
+        Histogram histogram = timers.get(name);
+        if (histogram == null) {
+            histogram = timers.computeIfAbsent(timers.size() < maxNames ? name : OVERFLOW_NAME, s -> new Histogram());
+        }
+        histogram.record(value);
+    }
+
+    public void increment(String name) {
+        LongAdder counter = counters.get(name);
+        if (counter == null) {
+            counter = counters.computeIfAbsent(counters.size() < maxNames ? name : OVERFLOW_NAME, s -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    /**
+     * @return histogram of the given name or null if nothing has been recorded
+     */
+    public Histogram getTimer(String name) {
+        return timers.get(name);
+    }
+
+    public long getCount(String name) {
+        LongAdder counter = counters.get(name);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    public int getSamplingRate() {
+        return samplingRate;
+    }
+
+    public void setSamplingRate(int samplingRate) {
+        this.samplingRate = samplingRate;
+    }
+
+    /**
+     * @param prefix name prefix, an empty string or null to print all metrics
+     * @return timers in microseconds and counters which names start with the prefix, sorted by name
+     */
+    public String print(String prefix) {
+        String p = prefix == null ? "" : prefix;
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, Histogram> entry : new TreeMap<>(timers).entrySet()) {
+            if (entry.getKey().startsWith(p)) {
+                sb.append(entry.getKey()).append(", us: ").append(entry.getValue().print()).append("\n");
+            }
+        }
+        for (Map.Entry<String, LongAdder> entry : new TreeMap<>(counters).entrySet()) {
+            if (entry.getKey().startsWith(p)) {
+                sb.append(entry.getKey()).append(": ").append(entry.getValue().sum()).append("\n");
+            }
+        }
+        return sb.toString();
+    }
+
+    public void reset() {
+        timers.clear();
+        counters.clear();
+    }
+
+    protected static int getIntProperty(String name, int defaultValue) {
+        String value = AppContext.getProperty(name);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+}
@@ -22,9 +22,14 @@ import org.apache.commons.lang.StringUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
 
@@ -33,7 +38,20 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
  * <p/>
  * Always inject or lookup this bean by name, not by type, because an application project can define several instances
  * of this type to work with different middleware blocks.
- *
+ * <p/>
+ * By default, servers are invoked in the order of the URL list, and the list is reordered only when a server fails.
+ * If the {@code cuba.adaptiveServerSelection} application property is set to true, the list returned by
+ * {@link #getUrlList(String)} is sorted by the current load of the servers instead:
+ * <ul>
+ *     <li>a server with the lowest product of the exponentially weighted moving average latency and the number of
+ *     invocations in progress goes first. The average latency of a server that is not invoked halves every
+ *     {@code cuba.serverLatencyHalfLifeSec} seconds (10 by default), so a server that was slow once gets
+ *     requests again and its latency is measured anew;</li>
+ *     <li>a server that has failed {@code cuba.serverFailureThreshold} times in a row (3 by default) is moved to
+ *     the end of the list for {@code cuba.serverRetryTimeoutSec} seconds (30 by default). Such servers are probed
+ *     in background every {@code cuba.serverHealthCheckIntervalSec} seconds (5 by default) and are returned to
+ *     the list as soon as their {@code health} endpoint responds successfully.</li>
+ * </ul>
  */
 public class ClusterInvocationSupport {
 
@@ -46,6 +64,90 @@ public class ClusterInvocationSupport {
         void urlListChanged(List<String> newUrlList);
     }
 
+    /**
+     * Load and health state of a server, used in the adaptive server selection mode.
+     */
+    public static class ServerState {
+
+        protected static final double EWMA_WEIGHT = 0.2;
+
+        protected final long latencyHalfLifeMs;
+
+        protected final AtomicInteger inFlight = new AtomicInteger();
+        protected volatile double latency;
+        protected volatile long latencyUpdated;
+        protected volatile int failures;
+        protected volatile long unavailableUntil;
+
+        public ServerState(long latencyHalfLifeMs) {
+            this.latencyHalfLifeMs = latencyHalfLifeMs;
+        }
+
+        public int getInFlight() {
+            return inFlight.get();
+        }
+
+        /**
+         * @return exponentially weighted moving average of invocation time in milliseconds
+         */
+        public double getLatency() {
+            return getLatency(System.currentTimeMillis());
+        }
+
+        /**
+         * @return average invocation time decayed by the time passed since the last successful invocation
+         */
+        public double getLatency(long now) {
+            double value = latency;
+            long elapsed = now - latencyUpdated;
+            if (latencyHalfLifeMs <= 0 || elapsed <= 0)
+                return value;
+            return value * Math.pow(0.5, (double) elapsed / latencyHalfLifeMs);
+        }
+
+        public int getFailures() {
+            return failures;
+        }
+
+        public boolean isAvailable(long now) {
+            return unavailableUntil <= now;
+        }
+
+        protected double getLoad(long now) {
+            return (getLatency(now) + 1) * (inFlight.get() + 1);
+        }
+
+        protected synchronized void succeeded(long latencyMs, long now) {
+            if (latencyUpdated == 0) {
+                latency = latencyMs;
+            } else {
+                double current = getLatency(now);
+                latency = current + EWMA_WEIGHT * (latencyMs - current);
+            }
+            latencyUpdated = now;
+            failures = 0;
+            unavailableUntil = 0;
+        }
+
+        protected synchronized void failed(int failureThreshold, long retryTimeoutMs) {
+            failures++;
+            if (failures >= failureThreshold) {
+                unavailableUntil = System.currentTimeMillis() + retryTimeoutMs;
+            }
+        }
+
+        protected synchronized void recovered() {
+            failures = 0;
+            unavailableUntil = 0;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("inFlight=%d, latency=%.1f, failures=%d, available=%s",
+                    getInFlight(), getLatency(), failures, isAvailable(System.currentTimeMillis()));
+        }
+    }
+
     private final Logger log = LoggerFactory.getLogger(getClass());
 
     protected List<String> urls;
@@ -61,6 +163,17 @@ public class ClusterInvocationSupport {
 
     protected List<Listener> listeners = new ArrayList<>();
 
+    protected RemotingStatistics statistics = new RemotingStatistics();
+
+    protected boolean adaptive = Boolean.valueOf(AppContext.getProperty("cuba.adaptiveServerSelection"));
+    protected int failureThreshold = getIntProperty("cuba.serverFailureThreshold", 3);
+    protected int retryTimeoutSec = getIntProperty("cuba.serverRetryTimeoutSec", 30);
+    protected int healthCheckIntervalSec = getIntProperty("cuba.serverHealthCheckIntervalSec", 5);
+    protected int latencyHalfLifeSec = getIntProperty("cuba.serverLatencyHalfLifeSec", 10);
+
+    protected ConcurrentMap<String, ServerState> serverStates = new ConcurrentHashMap<>();
+    protected ScheduledExecutorService healthCheckExecutor;
+
     public ClusterInvocationSupport() {
         baseUrl = AppContext.getProperty("cuba.connectionUrlList");
 
@@ -114,6 +227,30 @@ public class ClusterInvocationSupport {
         if (urls.size() > 1 && randomPriority) {
             Collections.shuffle(urls);
         }
+        if (adaptive && urls.size() > 1 && healthCheckIntervalSec > 0) {
+            healthCheckExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "ServerHealthCheck-" + servletPath);
+                thread.setDaemon(true);
+                return thread;
+            });
+            healthCheckExecutor.scheduleWithFixedDelay(this::checkUnavailableServers,
+                    healthCheckIntervalSec, healthCheckIntervalSec, TimeUnit.SECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (healthCheckExecutor != null) {
+            healthCheckExecutor.shutdownNow();
+        }
+    }
+
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    public void setAdaptive(boolean adaptive) {
+        this.adaptive = adaptive;
     }
 
     public List<String> getUrlList() {
@@ -124,7 +261,7 @@ public class ClusterInvocationSupport {
         lock.readLock().lock();
         try {
             List<String> list = new ArrayList<>(urls.size());
-            for (String url : urls) {
+            for (String url : adaptive ? sortByLoad(urls) : urls) {
                 list.add(url + "/" + serviceName);
             }
             return list;
@@ -154,6 +291,124 @@ public class ClusterInvocationSupport {
         }
     }
 
+    /**
+     * Invoked by {@link ClusteredHttpInvokerRequestExecutor} before sending a request to the service URL.
+     */
+    public void invocationStarted(String serviceUrl) {
+        if (adaptive) {
+            getServerState(serviceUrl).inFlight.incrementAndGet();
+        }
+    }
+
+    /**
+     * Invoked by {@link ClusteredHttpInvokerRequestExecutor} after the invocation of the service URL completes,
+     * successfully or not.
+     */
+    public void invocationFinished(String serviceUrl, boolean success, long latencyMs) {
+        if (adaptive) {
+            ServerState state = getServerState(serviceUrl);
+            state.inFlight.decrementAndGet();
+            if (success) {
+                state.succeeded(latencyMs, System.currentTimeMillis());
+            } else {
+                state.failed(failureThreshold, retryTimeoutSec * 1000L);
+                if (!state.isAvailable(System.currentTimeMillis())) {
+                    log.warn("Server " + getBaseUrl(serviceUrl) + " is considered unavailable for "
+                            + retryTimeoutSec + " sec after " + state.getFailures() + " failures");
+                }
+            }
+        }
+    }
+
+    /**
+     * @return load and health state of the servers tracked in the adaptive server selection mode
+     */
+    public List<String> printServerStates() {
+        List<String> list = new ArrayList<>();
+        for (String url : getUrlList()) {
+            ServerState state = serverStates.get(url);
+            list.add(url + ": " + (state != null ? state : "no invocations"));
+        }
+        return list;
+    }
+
+    protected ServerState getServerState(String serviceUrl) {
+        return serverStates.computeIfAbsent(getBaseUrl(serviceUrl), url -> new ServerState(latencyHalfLifeSec * 1000L));
+    }
+
+    protected String getBaseUrl(String serviceUrl) {
+        return serviceUrl.substring(0, serviceUrl.lastIndexOf("/"));
+    }
+
+    protected List<String> sortByLoad(List<String> urlList) {
+        if (urlList.size() < 2)
+            return urlList;
+
+        // the load changes concurrently, so it is read once per server to keep the comparator consistent
+        long now = System.currentTimeMillis();
+        Map<String, Boolean> unavailable = new HashMap<>(urlList.size());
+        Map<String, Double> loads = new HashMap<>(urlList.size());
+        for (String url : urlList) {
+            ServerState state = serverStates.get(url);
+            unavailable.put(url, state != null && !state.isAvailable(now));
+            loads.put(url, state != null ? state.getLoad(now) : 0);
+        }
+
+        List<String> sorted = new ArrayList<>(urlList);
+        // the sort is stable, so servers with equal load keep the configured priority
+        sorted.sort(Comparator.comparing(unavailable::get).thenComparingDouble(loads::get));
+        return sorted;
+    }
+
+    protected void checkUnavailableServers() {
+        long now = System.currentTimeMillis();
+        for (String url : getUrlList()) {
+            ServerState state = serverStates.get(url);
+            if (state != null && !state.isAvailable(now) && isServerResponding(url)) {
+                log.info("Server " + url + " is available again");
+                state.recovered();
+            }
+        }
+    }
+
+    /**
+     * Active health probe: the server is alive if its {@code health} endpoint returns a successful or redirect
+     * response. Error responses, e.g. from a proxy or from an application that is not started yet, mean the server
+     * is still unavailable.
+     */
+    protected boolean isServerResponding(String url) {
+        try {
+            URLConnection con = new URL(url + "/health").openConnection();
+            if (!(con instanceof HttpURLConnection))
+                return false;
+            HttpURLConnection httpCon = (HttpURLConnection) con;
+            int timeout = connectTimeout > 0 ? connectTimeout : healthCheckIntervalSec * 1000;
+            httpCon.setConnectTimeout(timeout);
+            httpCon.setReadTimeout(timeout);
+            try {
+                int responseCode = httpCon.getResponseCode();
+                return responseCode >= 200 && responseCode < 400;
+            } finally {
+                httpCon.disconnect();
+            }
+        } catch (IOException e) {
+            log.debug("Health check of " + url + " failed: " + e);
+            return false;
+        }
+    }
+
+    protected static int getIntProperty(String name, int defaultValue) {
+        String value = AppContext.getProperty(name);
+        return value == null ? defaultValue : Integer.parseInt(value);
+    }
+
+    /**
+     * @return statistics of remote invocations made through this cluster
+     */
+    public RemotingStatistics getStatistics() {
+        return statistics;
+    }
+
     public void addListener(Listener listener) {
         if (!listeners.contains(listener))
             listeners.add(listener);
@@ -30,19 +30,34 @@ import java.net.HttpURLConnection;
 import java.net.URL;
 import java.net.URLConnection;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.GZIPInputStream;
+
+import static com.haulmont.cuba.core.sys.remoting.RemotingCompression.*;
 
 /**
  * HttpInvokerRequestExecutor that executes a request on a server which is selected according to the current cluster
  * topology, provided by {@link ClusterInvocationSupport}.
+ * <p>
+ * Requests and responses larger than {@link RemotingCompression#getThreshold()} are compressed, see
+ * {@link RemotingCompression}. Sizes and timings of invocations are collected in
+ * {@link ClusterInvocationSupport#getStatistics()}.
  */
 public class ClusteredHttpInvokerRequestExecutor extends SimpleHttpInvokerRequestExecutor {
 
     private ClusterInvocationSupport support;
 
+    protected int compressionThreshold = RemotingCompression.getThreshold();
+
+    // URLs of servers that have declared support of compressed requests
+    protected Set<String> gzipRequestUrls = ConcurrentHashMap.newKeySet();
+
     public ClusteredHttpInvokerRequestExecutor(ClusterInvocationSupport support) {
         this.support = support;
         setConnectTimeout(support.getConnectTimeout());
         setReadTimeout(support.getReadTimeout());
+        setAcceptGzipEncoding(compressionThreshold > 0);
     }
 
     @Override
@@ -56,26 +71,48 @@ public class ClusteredHttpInvokerRequestExecutor extends SimpleHttpInvokerReques
         for (int i = 0; i < urlList.size(); i++) {
             String url = urlList.get(i);
             HttpURLConnection con = openConnection(url);
+            boolean success = false;
+            long start = System.currentTimeMillis();
+            support.invocationStarted(url);
             try {
                 StopWatch sw = new StopWatch();
-                prepareConnection(con, baos.size());
-                writeRequestBody(config, con, baos);
+                sw.start("writing time");
+                ByteArrayOutputStream requestBody = baos;
+                boolean compressed = false;
+                if (compressionThreshold > 0 && baos.size() > compressionThreshold && gzipRequestUrls.contains(url)) {
+                    requestBody = compress(baos);
+                    compressed = true;
+                }
+                prepareConnection(con, requestBody.size());
+                if (compressed) {
+                    con.setRequestProperty(CONTENT_ENCODING_HEADER, GZIP);
+                }
+                writeRequestBody(config, con, requestBody);
+                sw.stop();
                 sw.start("waiting time");
                 validateResponse(config, con);
-                CountingInputStream responseInputStream = new CountingInputStream(readResponseBody(config, con));
+                if (isGzip(con.getHeaderField(ACCEPT_REQUEST_ENCODING_HEADER))) {
+                    gzipRequestUrls.add(url);
+                }
+                CountingInputStream responseInputStream = new CountingInputStream(con.getInputStream());
+                InputStream responseBody = isGzipResponse(con) ? new GZIPInputStream(responseInputStream) : responseInputStream;
                 sw.stop();
                 if (i > 0) {
                     support.updateUrlPriority(url);
                 }
                 sw.start("reading time");
-                try (ObjectInputStream ois = createObjectInputStream(decorateInputStream(responseInputStream), config.getCodebaseUrl())) {
+                try (ObjectInputStream ois = createObjectInputStream(decorateInputStream(responseBody), config.getCodebaseUrl())) {
                     result = doReadRemoteInvocationResult(ois);
                 }
                 sw.stop();
+                support.getStatistics().record(config.getServiceUrl(),
+                        requestBody.size(), responseInputStream.getCount(), sw.getTotalTimeMillis());
                 if (logger.isDebugEnabled()) {
-                    logger.debug(String.format("Receiving HTTP invoker response for service at [%s], with size %s, %s", config.getServiceUrl(),
-                            responseInputStream.getCount(), printStopWatch(sw)));
+                    logger.debug(String.format("Receiving HTTP invoker response for service at [%s], with size %s%s, %s",
+                            config.getServiceUrl(), responseInputStream.getCount(), isGzipResponse(con) ? " (gzip)" : "",
+                            printStopWatch(sw)));
                 }
+                success = true;
                 break;
             } catch (IOException e) {
                 logger.info(String.format("Invocation of %s failed: %s", url, e));
@@ -86,6 +123,8 @@ public class ClusteredHttpInvokerRequestExecutor extends SimpleHttpInvokerReques
                 }
                 logger.info("No more URL available");
                 throw e;
+            } finally {
+                support.invocationFinished(url, success, System.currentTimeMillis() - start);
             }
         }
         return result;
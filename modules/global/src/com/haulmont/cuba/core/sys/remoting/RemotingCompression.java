@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2008-2016 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.core.sys.remoting;
+
+import com.haulmont.cuba.core.sys.AppContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Gzip compression of HTTP remoting messages.
+ * <p>
+ * A response is compressed if the client sends {@code Accept-Encoding: gzip} and the serialized result is larger
+ * than the threshold. A request is compressed only after the server has declared support by the
+ * {@link #ACCEPT_REQUEST_ENCODING_HEADER} response header, so that clients keep working with older middleware.
+ * <p>
+ * The threshold in bytes is set by the {@code cuba.remotingCompressionThreshold} application property,
+ * zero or a negative value disables compression.
+ */
+public final class RemotingCompression {
+
+    public static final String CONTENT_ENCODING_HEADER = "Content-Encoding";
+    public static final String ACCEPT_ENCODING_HEADER = "Accept-Encoding";
+    public static final String ACCEPT_REQUEST_ENCODING_HEADER = "X-Cuba-Accept-Request-Encoding";
+    public static final String GZIP = "gzip";
+
+    public static final int DEFAULT_THRESHOLD = 8192;
+
+    private RemotingCompression() {
+    }
+
+    public static int getThreshold() {
+        String prop = AppContext.getProperty("cuba.remotingCompressionThreshold");
+        return prop == null ? DEFAULT_THRESHOLD : Integer.parseInt(prop.trim());
+    }
+
+    public static boolean isGzip(String encodingHeader) {
+        return encodingHeader != null && encodingHeader.toLowerCase().contains(GZIP);
+    }
+
+    public static ByteArrayOutputStream compress(ByteArrayOutputStream data) throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(Math.max(data.size() / 4, 64));
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            data.writeTo(gzip);
+        }
+        return compressed;
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2008-2016 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.core.sys.remoting;
+
+import com.haulmont.cuba.core.sys.metrics.Histogram;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Per-service statistics of remote invocations made by {@link ClusteredHttpInvokerRequestExecutor}:
+ * request and response sizes as transferred over the wire, and invocation latency.
+ */
+public class RemotingStatistics {
+
+    public static class ServiceStatistics {
+
+        protected final Histogram requestBytes = new Histogram();
+        protected final Histogram responseBytes = new Histogram();
+        protected final Histogram latency = new Histogram();
+
+        public Histogram getRequestBytes() {
+            return requestBytes;
+        }
+
+        public Histogram getResponseBytes() {
+            return responseBytes;
+        }
+
+        /**
+         * @return histogram of invocation time in milliseconds
+         */
+        public Histogram getLatency() {
+            return latency;
+        }
+
+        public void reset() {
+            requestBytes.reset();
+            responseBytes.reset();
+            latency.reset();
+        }
+    }
+
+    protected final ConcurrentMap<String, ServiceStatistics> services = new ConcurrentHashMap<>();
+
+    /**
+     * Records a successful invocation.
+     *
+     * @param serviceName   remote service name
+     * @param requestBytes  size of the request body sent to the server
+     * @param responseBytes size of the response body received from the server
+     * @param latencyMs     invocation time in milliseconds
+     */
+    public void record(String serviceName, long requestBytes, long responseBytes, long latencyMs) {
+        ServiceStatistics statistics = services.computeIfAbsent(serviceName, s -> new ServiceStatistics());
+        statistics.requestBytes.record(requestBytes);
+        statistics.responseBytes.record(responseBytes);
+        statistics.latency.record(latencyMs);
+    }
+
+    /**
+     * @return statistics of the service or null if the service has not been invoked yet
+     */
+    public ServiceStatistics getServiceStatistics(String serviceName) {
+        return services.get(serviceName);
+    }
+
+    /**
+     * @return statistics of all invoked services sorted by service name
+     */
+    public Map<String, ServiceStatistics> getServices() {
+        return new TreeMap<>(services);
+    }
+
+    public String print() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, ServiceStatistics> entry : getServices().entrySet()) {
+            ServiceStatistics statistics = entry.getValue();
+            sb.append(entry.getKey()).append(":\n")
+                    .append("  latency, ms: ").append(statistics.latency.print()).append("\n")
+                    .append("  request, bytes: ").append(statistics.requestBytes.print()).append("\n")
+                    .append("  response, bytes: ").append(statistics.responseBytes.print()).append("\n");
+        }
+        return sb.toString();
+    }
+
+    public void reset() {
+        for (ServiceStatistics statistics : services.values()) {
+            statistics.reset();
+        }
+    }
+}
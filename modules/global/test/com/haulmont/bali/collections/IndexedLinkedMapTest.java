@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2008-2016 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.bali.collections;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class IndexedLinkedMapTest {
+
+    @Test
+    public void testPositionalAccess() throws Exception {
+        IndexedLinkedMap map = new IndexedLinkedMap();
+        for (int i = 0; i < 10; i++) {
+            map.put("k" + i, i);
+        }
+        assertEquals("k0", map.get(0));
+        assertEquals("k9", map.get(9));
+        assertEquals(5, map.indexOf("k5"));
+        assertEquals(-1, map.indexOf("none"));
+
+        map.remove("k0");
+        assertEquals("k1", map.get(0));
+        assertEquals(4, map.indexOf("k5"));
+
+        map.put("k10", 10);
+        assertEquals("k10", map.get(9));
+        assertEquals(9, map.indexOf("k10"));
+
+        // replacing a value does not change positions
+        map.put("k5", 50);
+        assertEquals(4, map.indexOf("k5"));
+
+        map.clear();
+        assertEquals(-1, map.indexOf("k5"));
+        map.put("a", 1);
+        assertEquals("a", map.get(0));
+        assertEquals(0, map.indexOf("a"));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void testInvalidIndex() throws Exception {
+        IndexedLinkedMap map = new IndexedLinkedMap();
+        map.put("a", 1);
+        map.get(1);
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2008-2016 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.haulmont.chile.core.model.impl;
+
+import com.haulmont.chile.core.model.MetaClass;
+import com.haulmont.chile.core.model.MetaProperty;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class AbstractInstanceTest {
+
+    public static class InstanceBean extends AbstractInstance {
+        private String name;
+        private int setterCalls;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+            setterCalls++;
+        }
+
+        public int getSetterCalls() {
+            return setterCalls;
+        }
+
+        @Override
+        public MetaClass getMetaClass() {
+            return null;
+        }
+    }
+
+    public static class CustomAccessBean extends InstanceBean {
+        @SuppressWarnings("unchecked")
+        @Override
+        public <T> T getValue(String name) {
+            return (T) ("custom " + super.getValue(name));
+        }
+
+        @Override
+        public void setValue(String name, Object value, boolean checkEquals) {
+            super.setValue(name, "custom " + value, checkEquals);
+        }
+    }
+
+    private MetaProperty nameProperty;
+
+    @Before
+    public void setUp() throws Exception {
+        nameProperty = createProperty("name");
+    }
+
+    public static MetaProperty createProperty(String name) {
+        MetaModelImpl model = new MetaModelImpl(new SessionImpl(), "test");
+        return new MetaPropertyImpl(new MetaClassImpl(model, "test$InstanceBean"), name);
+    }
+
+    @Test
+    public void testMetaPropertyAccess() throws Exception {
+        InstanceBean bean = new InstanceBean();
+        assertTrue(bean.isDirectGetterSupported());
+        assertTrue(bean.isDirectSetterSupported());
+
+        bean.setValue(nameProperty, "test");
+        assertEquals("test", bean.getName());
+        assertEquals("test", bean.getValue(nameProperty));
+        assertEquals(1, bean.getSetterCalls());
+
+        // the setter is not invoked for an equal value, as in setValue(String, Object)
+        bean.setValue(nameProperty, "test");
+        assertEquals(1, bean.getSetterCalls());
+        bean.setValue(nameProperty, null);
+        assertNull(bean.getValue(nameProperty));
+        assertEquals(2, bean.getSetterCalls());
+    }
+
+    @Test
+    public void testCustomAccessByName() throws Exception {
+        CustomAccessBean bean = new CustomAccessBean();
+        assertFalse(bean.isDirectGetterSupported());
+        assertFalse(bean.isDirectSetterSupported());
+
+        bean.setValue(nameProperty, "test");
+        assertEquals("custom test", bean.getName());
+        assertEquals("custom custom test", bean.getValue(nameProperty));
+        assertEquals(bean.getValue("name"), bean.getValue(nameProperty));
+    }
+
+    @Test
+    public void testMissingProperty() throws Exception {
+        try {
+            new InstanceBean().getValue(createProperty("unknown"));
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2008-2016 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.haulmont.chile.core.model.utils;
+
+import com.haulmont.chile.core.model.MetaProperty;
+import com.haulmont.chile.core.model.impl.AbstractInstanceTest;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Compares attribute access through reflection with generated accessors of {@link MethodsCache}, and access to
+ * instance attributes by name with access by meta-property.
+ * Not a unit test, run it by the {@link #main(String[])} method.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MethodsCacheBenchmark {
+
+    private MethodsCacheTest.Bean bean;
+    private Method getNameMethod;
+    private Method setNameMethod;
+    private MethodsCache methodsCache;
+    private Function<Object, Object> nameGetter;
+    private AbstractInstanceTest.InstanceBean instance;
+    private AbstractInstanceTest.CustomAccessBean customAccessInstance;
+    private MetaProperty nameProperty;
+
+    @Setup
+    public void setUp() throws Exception {
+        bean = new MethodsCacheTest.Bean();
+        bean.setName("name");
+        bean.setCount(1);
+        getNameMethod = MethodsCacheTest.Bean.class.getMethod("getName");
+        setNameMethod = MethodsCacheTest.Bean.class.getMethod("setName", String.class);
+        methodsCache = new MethodsCache(MethodsCacheTest.Bean.class);
+        nameGetter = methodsCache.getGetter("name");
+
+        instance = new AbstractInstanceTest.InstanceBean();
+        instance.setName("name");
+        customAccessInstance = new AbstractInstanceTest.CustomAccessBean();
+        customAccessInstance.setName("name");
+        nameProperty = AbstractInstanceTest.createProperty("name");
+    }
+
+    @Benchmark
+    public Object reflectionGet() throws Exception {
+        return getNameMethod.invoke(bean);
+    }
+
+    @Benchmark
+    public void reflectionSet() throws Exception {
+        setNameMethod.invoke(bean, "name");
+    }
+
+    @Benchmark
+    public Object cacheGet() {
+        return methodsCache.invokeGetter(bean, "name");
+    }
+
+    @Benchmark
+    public Object cacheGetPrimitive() {
+        return methodsCache.invokeGetter(bean, "count");
+    }
+
+    @Benchmark
+    public void cacheSet() {
+        methodsCache.invokeSetter(bean, "name", "name");
+    }
+
+    @Benchmark
+    public Object resolvedGetter() {
+        return nameGetter.apply(bean);
+    }
+
+    @Benchmark
+    public Object instanceGetByName() {
+        return instance.getValue("name");
+    }
+
+    @Benchmark
+    public Object instanceGetByMetaProperty() {
+        return instance.getValue(nameProperty);
+    }
+
+    @Benchmark
+    public Object customInstanceGetByMetaProperty() {
+        return customAccessInstance.getValue(nameProperty);
+    }
+
+    @Benchmark
+    public void instanceSetByName() {
+        instance.setValue("name", "name");
+    }
+
+    @Benchmark
+    public void instanceSetByMetaProperty() {
+        instance.setValue(nameProperty, "name");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(MethodsCacheBenchmark.class.getSimpleName()).build()).run();
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2008-2016 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.haulmont.chile.core.model.utils;
+
+import org.junit.Test;
+
+import java.util.function.Function;
+
+import static org.junit.Assert.*;
+
+public class MethodsCacheTest {
+
+    public static class Bean {
+        private String name;
+        private int count;
+        private boolean active;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public Bean setCount(int count) {
+            this.count = count;
+            return this;
+        }
+
+        public boolean isActive() {
+            return active;
+        }
+
+        public void setActive(boolean active) {
+            this.active = active;
+        }
+    }
+
+    static class HiddenBean {
+        private String name;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+    }
+
+    @Test
+    public void testAccessors() throws Exception {
+        MethodsCache methodsCache = new MethodsCache(Bean.class);
+        Bean bean = new Bean();
+
+        methodsCache.invokeSetter(bean, "name", "test");
+        methodsCache.invokeSetter(bean, "count", 10);
+        methodsCache.invokeSetter(bean, "active", true);
+
+        assertEquals("test", bean.getName());
+        assertEquals(10, bean.getCount());
+        assertTrue(bean.isActive());
+
+        assertEquals("test", methodsCache.invokeGetter(bean, "name"));
+        assertEquals(10, methodsCache.invokeGetter(bean, "count"));
+        assertEquals(true, methodsCache.invokeGetter(bean, "active"));
+
+        Function<Object, Object> getter = methodsCache.getGetter("name");
+        assertSame(getter, methodsCache.getGetter("name"));
+        assertEquals("test", getter.apply(bean));
+    }
+
+    @Test
+    public void testReflectionFallback() throws Exception {
+        MethodsCache methodsCache = new MethodsCache(HiddenBean.class);
+        HiddenBean bean = new HiddenBean();
+
+        methodsCache.invokeSetter(bean, "name", "test");
+        assertEquals("test", bean.getName());
+        assertEquals("test", methodsCache.invokeGetter(bean, "name"));
+    }
+
+    @Test
+    public void testMissingProperty() throws Exception {
+        MethodsCache methodsCache = new MethodsCache(Bean.class);
+        try {
+            methodsCache.invokeGetter(new Bean(), "unknown");
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        try {
+            methodsCache.invokeSetter(new Bean(), "unknown", null);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+    }
+}
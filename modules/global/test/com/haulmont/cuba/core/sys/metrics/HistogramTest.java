@@ -0,0 +1,86 @@
+/*
+ * Copyright (c) 2008-2016 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.core.sys.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class HistogramTest {
+
+    @Test
+    public void testPercentiles() throws Exception {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.getPercentile(99));
+
+        for (int i = 1; i <= 100; i++) {
+            histogram.record(i);
+        }
+        assertEquals(100, histogram.getCount());
+        assertEquals(5050, histogram.getSum());
+        assertEquals(100, histogram.getMax());
+        assertEquals(50.5, histogram.getMean(), 0.001);
+
+        long median = histogram.getPercentile(50);
+        assertTrue(median >= 50 && median < 100);
+        assertEquals(100, histogram.getPercentile(100));
+        assertEquals(1, histogram.getPercentile(0));
+    }
+
+    @Test
+    public void testPercentileAccuracy() throws Exception {
+        Histogram histogram = new Histogram();
+        for (int i = 1; i <= 100000; i++) {
+            histogram.record(i);
+        }
+        for (double percentile : new double[] {50, 90, 99, 99.9}) {
+            long exact = (long) (100000 * percentile / 100);
+            long value = histogram.getPercentile(percentile);
+            assertTrue(percentile + ": " + value, value >= exact && value - exact <= exact / 16);
+        }
+
+        histogram.reset();
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(Long.MAX_VALUE, histogram.getPercentile(50));
+    }
+
+    @Test
+    public void testBuckets() throws Exception {
+        for (long value : new long[] {0, 1, 15, 16, 17, 31, 32, 33, 1000, 123456789, Long.MAX_VALUE}) {
+            int index = Histogram.bucketIndex(value);
+            assertTrue(index >= 0 && index < Histogram.BUCKETS);
+            assertTrue(value <= Histogram.bucketUpperBound(index));
+            assertTrue(index == 0 || value > Histogram.bucketUpperBound(index - 1));
+        }
+        assertEquals(Long.MAX_VALUE, Histogram.bucketUpperBound(Histogram.BUCKETS - 1));
+    }
+
+    @Test
+    public void testReset() throws Exception {
+        Histogram histogram = new Histogram();
+        histogram.record(10);
+        histogram.record(-1);
+        assertEquals(2, histogram.getCount());
+        assertEquals(0, histogram.getPercentile(50));
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+        assertEquals(0, histogram.getPercentile(50));
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2008-2016 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.haulmont.cuba.core.sys.metrics;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MetricsRegistryTest {
+
+    @Test
+    public void testTimersAndCounters() throws Exception {
+        MetricsRegistry metrics = new MetricsRegistry();
+
+        long start = metrics.start();
+        assertNotEquals(MetricsRegistry.NOT_SAMPLED, start);
+        metrics.stop("service.test", start);
+        metrics.record("service.test", 100);
+        metrics.increment("cluster.sent");
+        metrics.increment("cluster.sent");
+
+        assertEquals(2, metrics.getTimer("service.test").getCount());
+        assertEquals(2, metrics.getCount("cluster.sent"));
+        assertEquals(0, metrics.getCount("unknown"));
+
+        String printed = metrics.print("service");
+        assertTrue(printed.contains("service.test"));
+        assertFalse(printed.contains("cluster.sent"));
+
+        metrics.reset();
+        assertNull(metrics.getTimer("service.test"));
+        assertEquals("", metrics.print(null));
+    }
+
+    @Test
+    public void testSampling() throws Exception {
+        MetricsRegistry metrics = new MetricsRegistry();
+
+        metrics.setSamplingRate(0);
+        long start = metrics.start();
+        assertEquals(MetricsRegistry.NOT_SAMPLED, start);
+        metrics.stop("service.test", start);
+        assertNull(metrics.getTimer("service.test"));
+
+        metrics.setSamplingRate(10);
+        for (int i = 0; i < 1000; i++) {
+            metrics.stop("service.test", metrics.start());
+        }
+        long count = metrics.getTimer("service.test").getCount();
+        assertTrue(count > 0 && count < 1000);
+    }
+
+    @Test
+    public void testMaxNames() throws Exception {
+        MetricsRegistry metrics = new MetricsRegistry();
+        metrics.maxNames = 2;
+
+        metrics.record("a", 1);
+        metrics.record("b", 1);
+        metrics.record("c", 1);
+        metrics.record("d", 1);
+
+        assertNull(metrics.getTimer("c"));
+        assertEquals(2, metrics.getTimer(MetricsRegistry.OVERFLOW_NAME).getCount());
+    }
+}
@@ -21,6 +21,7 @@ import com.haulmont.bali.util.Preconditions;
 import com.haulmont.bali.util.ReflectionHelper;
 import com.haulmont.cuba.core.entity.Entity;
 import com.haulmont.cuba.core.global.*;
+import com.haulmont.cuba.core.sys.metrics.MetricsRegistry;
 import com.haulmont.cuba.gui.components.*;
 import com.haulmont.cuba.gui.config.WindowInfo;
 import com.haulmont.cuba.gui.data.DataSupplier;
@@ -45,11 +46,8 @@ import com.haulmont.cuba.security.entity.PermissionType;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.BooleanUtils;
 import org.apache.commons.lang.StringUtils;
-import org.apache.log4j.Logger;
 import org.dom4j.Document;
 import org.dom4j.Element;
-import org.perf4j.StopWatch;
-import org.perf4j.log4j.Log4JStopWatch;
 import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
@@ -320,6 +318,8 @@ public abstract class WindowManager {
 
     protected ScreenXmlDocumentCache screenXmlCache = AppBeans.get(ScreenXmlDocumentCache.class);
 
+    protected MetricsRegistry metrics = AppBeans.get(MetricsRegistry.NAME);
+
     private DialogParams dialogParams;
 
     protected List<WindowCloseListener> listeners = new ArrayList<>();
@@ -350,9 +350,7 @@ public abstract class WindowManager {
                                   LayoutLoaderConfig layoutConfig) {
         checkPermission(windowInfo);
 
-        StopWatch loadDescriptorWatch = new Log4JStopWatch(windowInfo.getId() + "#" +
-                UIPerformanceLogger.LifeCycle.LOAD,
-                Logger.getLogger(UIPerformanceLogger.class));
+        long loadDescriptorStart = metrics.start();
 
         String templatePath = windowInfo.getTemplate();
 
@@ -370,9 +368,7 @@ public abstract class WindowManager {
             IOUtils.closeQuietly(stream);
         }
 
-        StopWatch xmlLoadWatch = new Log4JStopWatch(windowInfo.getId() + "#" +
-                UIPerformanceLogger.LifeCycle.XML,
-                Logger.getLogger(UIPerformanceLogger.class));
+        long xmlLoadStart = metrics.start();
 
         Document document = screenXmlCache.get(template);
         if (document == null) {
@@ -388,7 +384,7 @@ public abstract class WindowManager {
 
         Element element = document.getRootElement();
 
-        xmlLoadWatch.stop();
+        stopScreenTimer(windowInfo.getId(), UIPerformanceLogger.LifeCycle.XML, xmlLoadStart);
 
         preloadMainScreenClass(element);//try to load main screen class to resolve dynamic compilation dependencies issues
 
@@ -416,7 +412,7 @@ public abstract class WindowManager {
 
         clientSpecificWindow.setWindowManager(this);
 
-        loadDescriptorWatch.stop();
+        stopScreenTimer(windowInfo.getId(), UIPerformanceLogger.LifeCycle.LOAD, loadDescriptorStart);
 
         initWrapperFrame(windowWrapper, componentLoaderContext, element, params);
 
@@ -427,14 +423,12 @@ public abstract class WindowManager {
             initDebugIds(clientSpecificWindow);
         }
 
-        StopWatch uiPermissionsWatch = new Log4JStopWatch(windowInfo.getId() + "#" +
-                UIPerformanceLogger.LifeCycle.UI_PERMISSIONS,
-                Logger.getLogger(UIPerformanceLogger.class));
+        long uiPermissionsStart = metrics.start();
 
         // apply ui permissions
         WindowCreationHelper.applyUiPermissions(clientSpecificWindow);
 
-        uiPermissionsWatch.stop();
+        stopScreenTimer(windowInfo.getId(), UIPerformanceLogger.LifeCycle.UI_PERMISSIONS, uiPermissionsStart);
 
         return windowWrapper;
     }
@@ -521,14 +515,12 @@ public abstract class WindowManager {
 
         init(window, params);
 
-        StopWatch uiPermissionsWatch = new Log4JStopWatch(windowInfo.getId() + "#" +
-                UIPerformanceLogger.LifeCycle.UI_PERMISSIONS,
-                Logger.getLogger(UIPerformanceLogger.class));
+        long uiPermissionsStart = metrics.start();
 
         // apply ui permissions
         WindowCreationHelper.applyUiPermissions(window);
 
-        uiPermissionsWatch.stop();
+        stopScreenTimer(windowInfo.getId(), UIPerformanceLogger.LifeCycle.UI_PERMISSIONS, uiPermissionsStart);
 
         return window;
     }
@@ -712,13 +704,11 @@ public abstract class WindowManager {
         }
         ((Window.Editor) window).setParentDs(parentDs);
 
-        StopWatch setItemWatch = new Log4JStopWatch(windowInfo.getId() + "#" +
-                UIPerformanceLogger.LifeCycle.SET_ITEM,
-                Logger.getLogger(UIPerformanceLogger.class));
+        long setItemStart = metrics.start();
 
         ((Window.Editor) window).setItem(item);
 
-        setItemWatch.stop();
+        stopScreenTimer(windowInfo.getId(), UIPerformanceLogger.LifeCycle.SET_ITEM, setItemStart);
 
         String caption = loadCaption(window, params);
         String description = loadDescription(window, params);
@@ -813,9 +803,7 @@ public abstract class WindowManager {
             throw new GuiDevelopmentException("Template is not found", context.getFullFrameId(), "Path", src);
         }
 
-        StopWatch loadDescriptorWatch = new Log4JStopWatch(windowInfo.getId() + "#" +
-                UIPerformanceLogger.LifeCycle.LOAD,
-                Logger.getLogger(UIPerformanceLogger.class));
+        long loadDescriptorStart = metrics.start();
 
         Frame component;
         String frameId = id != null ? id : windowInfo.getId();
@@ -847,7 +835,7 @@ public abstract class WindowManager {
 
         context.executePostInitTasks();
 
-        loadDescriptorWatch.stop();
+        stopScreenTimer(windowInfo.getId(), UIPerformanceLogger.LifeCycle.LOAD, loadDescriptorStart);
 
         initDebugIds(component);
 
@@ -967,18 +955,22 @@ public abstract class WindowManager {
         }
 
         if (window instanceof AbstractWindow) {
-            StopWatch readyStopWatch = new Log4JStopWatch(window.getId() + "#" +
-                    UIPerformanceLogger.LifeCycle.READY,
-                    Logger.getLogger(UIPerformanceLogger.class));
+            long readyStart = metrics.start();
 
             ((AbstractWindow) window).ready();
 
-            readyStopWatch.stop();
+            stopScreenTimer(window.getId(), UIPerformanceLogger.LifeCycle.READY, readyStart);
         }
     }
 
     public abstract void close(Window window);
 
+    protected void stopScreenTimer(String screenId, UIPerformanceLogger.LifeCycle lifeCycle, long start) {
+        if (start != MetricsRegistry.NOT_SAMPLED) {
+            metrics.stop("screen." + screenId + "#" + lifeCycle, start);
+        }
+    }
+
 ////////////////////////////////////////////////////////////////////////////////////////////////////////////////////////
 
     protected Locale getLocale() {
@@ -1005,24 +997,20 @@ public abstract class WindowManager {
         if (wrappingWindow instanceof AbstractWindow) {
             Element companionsElem = element.element("companions");
             if (companionsElem != null) {
-                StopWatch companionStopWatch = new Log4JStopWatch(wrappingWindow.getId() + "#" +
-                        UIPerformanceLogger.LifeCycle.COMPANION,
-                        Logger.getLogger(UIPerformanceLogger.class));
+                long companionStart = metrics.start();
 
                 initCompanion(companionsElem, (AbstractWindow) wrappingWindow);
 
-                companionStopWatch.stop();
+                stopScreenTimer(wrappingWindow.getId(), UIPerformanceLogger.LifeCycle.COMPANION, companionStart);
             }
         }
 
-        StopWatch injectStopWatch = new Log4JStopWatch(wrappingWindow.getId() + "#" +
-                UIPerformanceLogger.LifeCycle.INJECTION,
-                Logger.getLogger(UIPerformanceLogger.class));
+        long injectStart = metrics.start();
 
         ControllerDependencyInjector dependencyInjector = new ControllerDependencyInjector(wrappingWindow, params);
         dependencyInjector.inject();
 
-        injectStopWatch.stop();
+        stopScreenTimer(wrappingWindow.getId(), UIPerformanceLogger.LifeCycle.INJECTION, injectStart);
 
         context.executeInjectTasks();
         context.executePostWrapTasks();
@@ -1034,13 +1022,11 @@ public abstract class WindowManager {
 
     protected void init(Window window, Map<String, Object> params) {
         if (window instanceof AbstractWindow) {
-            StopWatch initStopWatch = new Log4JStopWatch(window.getId() +
-                    "#" + UIPerformanceLogger.LifeCycle.INIT,
-                    Logger.getLogger(UIPerformanceLogger.class));
+            long initStart = metrics.start();
 
             ((AbstractWindow) window).init(params);
 
-            initStopWatch.stop();
+            stopScreenTimer(window.getId(), UIPerformanceLogger.LifeCycle.INIT, initStart);
         }
     }
 
@@ -16,10 +16,13 @@
  */
 package com.haulmont.cuba.gui.components.actions;
 
+import com.haulmont.cuba.client.ClientConfig;
 import com.haulmont.cuba.core.global.AppBeans;
+import com.haulmont.cuba.core.global.Configuration;
 import com.haulmont.cuba.gui.AppConfig;
 import com.haulmont.cuba.gui.components.*;
 import com.haulmont.cuba.gui.components.DialogAction.Type;
+import com.haulmont.cuba.gui.data.impl.CollectionDatasourceImpl;
 import com.haulmont.cuba.gui.export.ExcelExporter;
 import com.haulmont.cuba.gui.export.ExportDisplay;
 import com.haulmont.cuba.gui.theme.ThemeConstantsManager;
@@ -127,7 +130,23 @@ public class ExcelAction extends BaseAction implements Action.HasBeforeActionPer
      */
     protected void export(ExportMode exportMode) {
         ExcelExporter exporter = new ExcelExporter();
-        exporter.exportTable(table, table.getNotCollapsedColumns(), display, exportMode);
+        if (exportMode == ExportMode.ALL_ROWS && isStreamingExportRequired(exporter)) {
+            exporter.exportTableStreaming(table, table.getNotCollapsedColumns(), display, null, null, exportMode);
+        } else {
+            exporter.exportTable(table, table.getNotCollapsedColumns(), display, exportMode);
+        }
+    }
+
+    /**
+     * @return true if the number of rows in the datasource query exceeds {@link ClientConfig#getExcelStreamingExportThreshold()},
+     * so the rows should be loaded and exported to XLSX in background
+     */
+    protected boolean isStreamingExportRequired(ExcelExporter exporter) {
+        Configuration configuration = AppBeans.get(Configuration.NAME);
+        int threshold = configuration.getConfig(ClientConfig.class).getExcelStreamingExportThreshold();
+        return threshold > 0
+                && exporter.isStreamingExportSupported(table)
+                && ((CollectionDatasourceImpl) table.getDatasource()).getCount() > threshold;
     }
 
     @Override
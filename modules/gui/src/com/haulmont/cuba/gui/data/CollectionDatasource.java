@@ -263,6 +263,28 @@ public interface CollectionDatasource<T extends Entity<K>, K> extends Datasource
         boolean isLastId(K itemId);
     }
 
+    /**
+     * Ordered CollectionDatasource providing fast positional access to its items.
+     * @param <T> type of entity
+     * @param <K> type of entity ID
+     */
+    interface Indexed<T extends Entity<K>, K> extends Ordered<T, K> {
+
+        /**
+         * @param itemId item ID
+         * @return position of the item in the order of {@link #firstItemId()} and {@link #nextItemId(Object)},
+         * or -1 if the datasource does not contain the item
+         */
+        int indexOfId(K itemId);
+
+        /**
+         * @param index position of the item, from 0 to {@code size() - 1}
+         * @return item ID
+         * @throws IndexOutOfBoundsException if the index is out of range
+         */
+        K getItemIdByIndex(int index);
+    }
+
     /**
      * Ordered CollectionDatasource supporting order change.
      * @param <T> type of entity
@@ -40,6 +40,11 @@ public abstract class AbstractTreeDatasource<T extends Entity<K>, K>
     protected Tree<T> tree;
     protected Map<K, Node<T>> nodes;
 
+    @Override
+    protected boolean isBatchLoadSupported() {
+        return false;
+    }
+
     @Override
     protected void loadData(Map<String, Object> params) {
         String tag = getLoggingTag("TDS");
@@ -16,6 +16,7 @@
  */
 package com.haulmont.cuba.gui.data.impl;
 
+import com.haulmont.bali.collections.IndexedLinkedMap;
 import com.haulmont.bali.collections.ReadOnlyLinkedMapValuesView;
 import com.haulmont.chile.core.model.Instance;
 import com.haulmont.chile.core.model.MetaPropertyPath;
@@ -28,6 +29,7 @@ import com.haulmont.cuba.core.global.filter.LogicalCondition;
 import com.haulmont.cuba.core.global.filter.LogicalOp;
 import com.haulmont.cuba.gui.components.AggregationInfo;
 import com.haulmont.cuba.gui.data.CollectionDatasource;
+import com.haulmont.cuba.gui.data.DataSupplier;
 import com.haulmont.cuba.gui.logging.UIPerformanceLogger;
 import com.haulmont.cuba.security.entity.EntityOp;
 import org.apache.commons.collections.map.LinkedMap;
@@ -35,6 +37,7 @@ import org.apache.log4j.Logger;
 import org.perf4j.StopWatch;
 import org.perf4j.log4j.Log4JStopWatch;
 
+import javax.annotation.Nullable;
 import java.util.*;
 
 /**
@@ -51,12 +54,13 @@ public class CollectionDatasourceImpl<T extends Entity<K>, K>
             AbstractCollectionDatasource<T, K>
         implements
             CollectionDatasource.Sortable<T, K>,
+            CollectionDatasource.Indexed<T, K>,
             CollectionDatasource.Aggregatable<T, K>,
             CollectionDatasource.Suspendable<T, K>,
             CollectionDatasource.SupportsPaging<T, K>,
             CollectionDatasource.SupportsApplyToSelected<T, K> {
 
-    protected LinkedMap data = new LinkedMap();
+    protected LinkedMap data = new IndexedLinkedMap();
 
     private boolean inRefresh;
 
@@ -85,6 +89,11 @@ public class CollectionDatasourceImpl<T extends Entity<K>, K>
     protected LinkedList<LoadContext.Query> prevQueries = new LinkedList<>();
     protected Integer queryKey;
 
+    // data loaded by DsContextImpl together with other datasources, consumed by the next loadData() call
+    protected LoadContext batchLoadContext;
+    protected Map<String, Object> batchLoadParams;
+    protected Collection<T> batchLoadResult;
+
     @Override
     public void refreshIfNotSuspended() {
         if (suspended) {
@@ -294,6 +303,16 @@ public class CollectionDatasourceImpl<T extends Entity<K>, K>
         return (K) data.previousKey(itemId);
     }
 
+    @Override
+    public int indexOfId(K itemId) {
+        return data.indexOf(itemId);
+    }
+
+    @Override
+    public K getItemIdByIndex(int index) {
+        return (K) data.get(index);
+    }
+
     @Override
     public boolean isFirstId(K itemId) {
         return itemId != null && itemId.equals(firstItemId());
@@ -526,12 +545,23 @@ public class CollectionDatasourceImpl<T extends Entity<K>, K>
         StopWatch sw = new Log4JStopWatch(tag, Logger.getLogger(UIPerformanceLogger.class));
 
         if (needLoading()) {
-            LoadContext context = beforeLoadData(params);
+            LoadContext context;
+            Collection<T> entities = null;
+            if (batchLoadResult != null && params.equals(batchLoadParams)) {
+                context = batchLoadContext;
+                entities = batchLoadResult;
+                dataLoadError = null;
+            } else {
+                context = beforeLoadData(params);
+            }
+            resetBatchLoad();
             if (context == null) {
                 return;
             }
             try {
-                final Collection<T> entities = dataSupplier.loadList(context);
+                if (entities == null) {
+                    entities = dataSupplier.loadList(context);
+                }
 
                 afterLoadData(params, context, entities);
             } catch (Throwable e) {
@@ -542,6 +572,51 @@ public class CollectionDatasourceImpl<T extends Entity<K>, K>
         sw.stop();
     }
 
+    /**
+     * Prepares a {@code LoadContext} to be loaded together with other datasources before this datasource is resumed.
+     * The loaded entities are passed back by {@link #setBatchLoadResult(Collection)} and used by the refresh
+     * caused by resuming instead of a separate {@link DataSupplier#loadList(LoadContext)} call.
+     *
+     * @return  LoadContext to load, or null if the datasource is not going to load data on resume
+     */
+    @Nullable
+    protected LoadContext prepareBatchLoad() {
+        resetBatchLoad();
+        if (!suspended || !refreshOnResumeRequired || refreshMode == RefreshMode.NEVER || !isBatchLoadSupported()) {
+            return null;
+        }
+        Security security = AppBeans.get(Security.NAME);
+        if (!security.isEntityOpPermitted(metaClass, EntityOp.READ) || !needLoading()) {
+            return null;
+        }
+        Map<String, Object> params = savedParameters == null ? Collections.<String, Object>emptyMap() : savedParameters;
+        LoadContext context = createLoadContext(params);
+        if (context != null) {
+            batchLoadContext = context;
+            batchLoadParams = params;
+        }
+        return context;
+    }
+
+    protected void setBatchLoadResult(Collection<T> entities) {
+        batchLoadResult = entities;
+    }
+
+    protected void resetBatchLoad() {
+        batchLoadContext = null;
+        batchLoadParams = null;
+        batchLoadResult = null;
+    }
+
+    /**
+     * @return  true if the datasource loads data by {@link DataSupplier#loadList(LoadContext)} with the context
+     * created by {@link #createLoadContext(Map)}, and thus can be loaded in a batch with other datasources.
+     * Datasources overriding {@link #loadData(Map)} or {@link #beforeLoadData(Map)} should return false.
+     */
+    protected boolean isBatchLoadSupported() {
+        return true;
+    }
+
     /**
      * This method is invoked by {@link #loadData(Map)} method immediately before loading entities from {@code DataSupplier}.
      * <p>If you override this method, be sure to call {@code super()}.
@@ -550,12 +625,30 @@ public class CollectionDatasourceImpl<T extends Entity<K>, K>
      * @return          LoadContext which will be used to load data
      */
     protected LoadContext beforeLoadData(Map<String, Object> params) {
-        final LoadContext context = new LoadContext(metaClass);
+        LoadContext context = createLoadContext(params);
+        if (context == null) {
+            detachListener(data.values());
+            data.clear();
+            return null;
+        }
+
+        dataLoadError = null;
+        return context;
+    }
+
+    /**
+     * Creates a {@code LoadContext} for the current query, parameters, sorting and paging of the datasource without
+     * changing the datasource state.
+     *
+     * @param params    datasource parameters, as described in {@link CollectionDatasource#refresh(java.util.Map)}
+     * @return          LoadContext or null if the query cannot be executed with the given parameters
+     */
+    @Nullable
+    protected LoadContext createLoadContext(Map<String, Object> params) {
+        LoadContext context = new LoadContext(metaClass);
 
         LoadContext.Query q = createLoadContextQuery(context, params);
         if (q == null) {
-            detachListener(data.values());
-            data.clear();
             return null;
         }
 
@@ -575,10 +668,42 @@ public class CollectionDatasourceImpl<T extends Entity<K>, K>
 
         prepareLoadContext(context);
 
-        dataLoadError = null;
         return context;
     }
 
+    /**
+     * Creates a {@code LoadContext} for the current query, parameters and sorting of the datasource without paging
+     * restrictions. It can be used to process all entities matching the datasource query by chunks, without loading
+     * them into the datasource.
+     *
+     * @return LoadContext or null if the query cannot be executed with the current parameters
+     */
+    @Nullable
+    public LoadContext<T> createUnpagedLoadContext() {
+        LoadContext<T> context = new LoadContext<>(metaClass);
+        Map<String, Object> params = savedParameters == null ? Collections.<String, Object>emptyMap() : savedParameters;
+        LoadContext.Query q = createLoadContextQuery(context, params);
+        if (q == null) {
+            return null;
+        }
+        if (sortInfos != null && sortOnDb) {
+            setSortDirection(q);
+        }
+        context.setView(view);
+        context.setSoftDeletion(isSoftDeletion());
+        prepareLoadContext(context);
+        return context;
+    }
+
+    /**
+     * @return sorting applied to the query by {@link #createUnpagedLoadContext()}, or null if the entities are loaded
+     * in the order defined by the query
+     */
+    @Nullable
+    public SortInfo<MetaPropertyPath> getDbSortInfo() {
+        return sortInfos != null && sortInfos.length > 0 && sortOnDb ? sortInfos[0] : null;
+    }
+
     /**
      * This method is invoked by {@link #loadData(Map)} method immediately after loading entities from {@code DataSupplier}.
      * <p>If you override this method, be sure to call {@code super()}. If you process the loaded entities somehow,
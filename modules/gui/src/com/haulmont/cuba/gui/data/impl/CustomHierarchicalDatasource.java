@@ -40,6 +40,11 @@ public abstract class CustomHierarchicalDatasource<T extends Entity<K>, K>
      */
     protected abstract Collection<T> getEntities(Map<String, Object> params);
 
+    @Override
+    protected boolean isBatchLoadSupported() {
+        return false;
+    }
+
     @Override
     protected void loadData(Map<String, Object> params) {
         Collection<T> entities = getEntities(params);
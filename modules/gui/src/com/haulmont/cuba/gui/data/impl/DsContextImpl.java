@@ -20,6 +20,7 @@ import com.haulmont.bali.util.Preconditions;
 import com.haulmont.chile.core.model.MetaClass;
 import com.haulmont.chile.core.model.MetaProperty;
 import com.haulmont.chile.core.model.impl.AbstractInstance;
+import com.haulmont.cuba.client.ClientConfig;
 import com.haulmont.cuba.core.entity.Entity;
 import com.haulmont.cuba.core.global.*;
 import com.haulmont.cuba.gui.FrameContext;
@@ -29,11 +30,15 @@ import com.haulmont.cuba.gui.data.*;
 import com.haulmont.cuba.gui.data.impl.compatibility.DsContextCommitListenerWrapper;
 import com.haulmont.cuba.core.global.filter.ParameterInfo;
 import org.apache.commons.lang.ObjectUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import java.util.*;
 
 public class DsContextImpl implements DsContextImplementation {
 
+    private static final Logger log = LoggerFactory.getLogger(DsContextImpl.class);
+
     protected FrameContext windowContext;
     protected DataSupplier dataservice;
 
@@ -79,9 +84,73 @@ public class DsContextImpl implements DsContextImplementation {
 
         addDsContextToResume(this, list);
 
-        for (CollectionDatasource.Suspendable suspendable : list) {
-            suspendable.setSuspended(false);
+        Configuration configuration = AppBeans.get(Configuration.NAME);
+        List<CollectionDatasourceImpl> batchLoaded = configuration.getConfig(ClientConfig.class).getDatasourceBatchLoadEnabled()
+                ? loadBatch(list) : Collections.<CollectionDatasourceImpl>emptyList();
+        try {
+            for (CollectionDatasource.Suspendable suspendable : list) {
+                suspendable.setSuspended(false);
+            }
+        } finally {
+            for (CollectionDatasourceImpl datasource : batchLoaded) {
+                datasource.resetBatchLoad();
+            }
+        }
+    }
+
+    /**
+     * Loads data for the datasources which are going to be refreshed on resume, in one request per DataSupplier.
+     * Datasources depending on other datasources are refreshed separately because their queries can be built
+     * only after their masters are loaded.
+     *
+     * @return datasources that have received the loaded data
+     */
+    @SuppressWarnings("unchecked")
+    protected List<CollectionDatasourceImpl> loadBatch(List<CollectionDatasource.Suspendable> datasources) {
+        Map<DataSupplier, List<CollectionDatasourceImpl>> batches = new LinkedHashMap<>();
+        for (CollectionDatasource.Suspendable datasource : datasources) {
+            if (!(datasource instanceof CollectionDatasourceImpl) || isDependent(datasource)) {
+                continue;
+            }
+            CollectionDatasourceImpl collectionDs = (CollectionDatasourceImpl) datasource;
+            if (collectionDs.prepareBatchLoad() != null) {
+                batches.computeIfAbsent(collectionDs.getDataSupplier(), dataSupplier -> new ArrayList<>())
+                        .add(collectionDs);
+            }
+        }
+
+        List<CollectionDatasourceImpl> result = new ArrayList<>();
+        for (Map.Entry<DataSupplier, List<CollectionDatasourceImpl>> entry : batches.entrySet()) {
+            List<CollectionDatasourceImpl> batch = entry.getValue();
+            List<LoadContext<?>> contexts = new ArrayList<>(batch.size());
+            for (CollectionDatasourceImpl datasource : batch) {
+                contexts.add(datasource.batchLoadContext);
+            }
+            List<List<Entity>> loaded;
+            try {
+                loaded = entry.getKey().loadBatch(contexts);
+            } catch (RuntimeException e) {
+                // datasources will load their data separately and receive their own errors
+                log.debug("Unable to load datasources in batch: {}", e.toString());
+                for (CollectionDatasourceImpl datasource : batch) {
+                    datasource.resetBatchLoad();
+                }
+                continue;
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).setBatchLoadResult(loaded.get(i));
+            }
+            result.addAll(batch);
+        }
+        return result;
+    }
+
+    protected boolean isDependent(Datasource datasource) {
+        if (dependencies.containsKey(datasource)) {
+            return true;
         }
+        DsContext dsContext = datasource.getDsContext();
+        return dsContext instanceof DsContextImpl && ((DsContextImpl) dsContext).dependencies.containsKey(datasource);
     }
 
     protected void addDsContextToResume(DsContext dsContext, LinkedList<CollectionDatasource.Suspendable> list) {
@@ -51,7 +51,7 @@ public class EntityComparator<T extends Entity> extends AbstractComparator<T> {
     private Object getValue(Instance instance) {
         Object value;
         if (property != null) {
-            value = instance.getValue(property.getName());
+            value = instance.getValue(property);
         } else {
             value = instance.getValueEx(propertyPath.toString());
         }
@@ -25,6 +25,7 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.List;
 import java.util.Set;
+import java.util.stream.Stream;
 
 public class GenericDataSupplier implements DataSupplier {
 
@@ -104,4 +105,19 @@ public class GenericDataSupplier implements DataSupplier {
     public long getCount(LoadContext<? extends Entity> context) {
         return dataManager.getCount(context);
     }
+
+    @Override
+    public List<List<Entity>> loadBatch(List<LoadContext<?>> contexts) {
+        return dataManager.loadBatch(contexts);
+    }
+
+    @Override
+    public <E extends Entity> Stream<E> loadStream(LoadContext<E> context, int chunkSize) {
+        return dataManager.loadStream(context, chunkSize);
+    }
+
+    @Override
+    public int bulkUpdate(BulkUpdateContext context) {
+        return dataManager.bulkUpdate(context);
+    }
 }
\ No newline at end of file
@@ -154,6 +154,42 @@ public class GroupDatasourceImpl<T extends Entity<K>, K>
             return super.prevItemId(itemId);
     }
 
+    @Override
+    public int indexOfId(K itemId) {
+        if (hasGroups()) {
+            // positions follow the order of root groups, the same as items are displayed
+            int index = 0;
+            for (GroupInfo rootGroup : groupDelegate.rootGroups()) {
+                List<K> groupItemIds = groupDelegate.getGroupItemIds(rootGroup);
+                int groupIndex = groupItemIds.indexOf(itemId);
+                if (groupIndex >= 0) {
+                    return index + groupIndex;
+                }
+                index += groupItemIds.size();
+            }
+            return -1;
+        } else {
+            return super.indexOfId(itemId);
+        }
+    }
+
+    @Override
+    public K getItemIdByIndex(int index) {
+        if (hasGroups()) {
+            int groupStart = 0;
+            for (GroupInfo rootGroup : groupDelegate.rootGroups()) {
+                List<K> groupItemIds = groupDelegate.getGroupItemIds(rootGroup);
+                if (index >= groupStart && index < groupStart + groupItemIds.size()) {
+                    return groupItemIds.get(index - groupStart);
+                }
+                groupStart += groupItemIds.size();
+            }
+            throw new IndexOutOfBoundsException("Index " + index + " is invalid for size " + groupStart);
+        } else {
+            return super.getItemIdByIndex(index);
+        }
+    }
+
     @Override
     public K firstItemId() {
         List<GroupInfo> rootGroups = groupDelegate.rootGroups();
@@ -48,6 +48,11 @@ public class KeyValueCollectionDatasourceImpl extends CollectionDatasourceImpl<K
         return this;
     }
 
+    @Override
+    protected boolean isBatchLoadSupported() {
+        return false;
+    }
+
     @Override
     protected void loadData(Map<String, Object> params) {
     }
@@ -58,6 +58,11 @@ public class KeyValueHierarchicalDatasourceImpl extends HierarchicalDatasourceIm
         metaClass.addProperty(new KeyValueMetaProperty(metaClass, hierarchyPropertyName, KeyValueEntity.class));
     }
 
+    @Override
+    protected boolean isBatchLoadSupported() {
+        return false;
+    }
+
     @Override
     protected void loadData(Map<String, Object> params) {
     }
@@ -0,0 +1,398 @@
+/*
+ * Copyright (c) 2008-2016 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.gui.data.impl;
+
+import com.haulmont.cuba.client.ClientConfig;
+import com.haulmont.cuba.core.entity.Entity;
+import com.haulmont.cuba.core.global.*;
+import com.haulmont.cuba.gui.data.CollectionDatasource;
+import com.haulmont.cuba.gui.logging.UIPerformanceLogger;
+import com.haulmont.cuba.security.entity.EntityOp;
+import org.apache.log4j.Logger;
+import org.perf4j.StopWatch;
+import org.perf4j.log4j.Log4JStopWatch;
+
+import java.util.*;
+
+/**
+ * Collection datasource which loads entities by windows of rows when they are requested by position.
+ * <p>
+ * On refresh, the datasource loads only the number of rows of its query and the first window. Other windows are
+ * loaded by {@link #getItemIdByIndex(int)}, which is invoked by tables for the rows they display. At most
+ * {@link ClientConfig#getLazyDatasourceMaxWindows()} windows are kept in memory, the least recently used ones are
+ * evicted together with their entities, except the selected and modified ones.
+ * <p>
+ * {@link #size()} returns the number of all rows of the query, while {@link #getItemIds()}, {@link #getItems()}
+ * and {@link #getItem(Object)} work with the loaded rows only. Sorting is always performed on the database, so the
+ * query should define a stable order, e.g. by including the primary key into the {@code order by} clause.
+ * <p>
+ * Use the datasource by specifying its class in the {@code datasourceClass} attribute of a {@code collectionDatasource}
+ * element. The datasource does not support paging: do not add the {@code rowsCount} component to its table.
+ *
+ * @param <T> type of entity
+ * @param <K> type of entity ID
+ */
+public class LazyCollectionDatasourceImpl<T extends Entity<K>, K>
+        extends CollectionDatasourceImpl<T, K>
+        implements CollectionDatasource.Lazy<T, K> {
+
+    protected int windowSize;
+    protected int maxWindows;
+
+    // IDs of all rows in the query order, null for rows which are not loaded
+    protected List<K> rowIds = new ArrayList<>();
+    // positions of the loaded rows, lazily rebuilt after rows are inserted or removed
+    protected Map<K, Integer> rowIndexes;
+    // numbers of the loaded windows in the access order
+    protected LinkedHashMap<Integer, Boolean> loadedWindows = new LinkedHashMap<>(16, 0.75f, true);
+
+    protected LoadContext loadContext;
+
+    public LazyCollectionDatasourceImpl() {
+        ClientConfig clientConfig = AppBeans.<Configuration>get(Configuration.NAME).getConfig(ClientConfig.class);
+        windowSize = clientConfig.getLazyDatasourceWindowSize();
+        maxWindows = clientConfig.getLazyDatasourceMaxWindows();
+        sortOnDb = true;
+    }
+
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+    /**
+     * Sets the number of rows loaded by a single query. Takes effect on the next refresh.
+     */
+    public void setWindowSize(int windowSize) {
+        if (windowSize <= 0) {
+            throw new IllegalArgumentException("Window size must be positive");
+        }
+        this.windowSize = windowSize;
+    }
+
+    public int getMaxWindows() {
+        return maxWindows;
+    }
+
+    public void setMaxWindows(int maxWindows) {
+        if (maxWindows <= 0) {
+            throw new IllegalArgumentException("Max windows must be positive");
+        }
+        this.maxWindows = maxWindows;
+    }
+
+    @Override
+    public boolean isCompletelyLoaded() {
+        return state == State.VALID && data.size() >= rowIds.size();
+    }
+
+    @Override
+    public int size() {
+        backgroundWorker.checkUIAccess();
+
+        if ((state == State.NOT_INITIALIZED) || suspended) {
+            return 0;
+        } else {
+            return rowIds.size();
+        }
+    }
+
+    @Override
+    public Collection<K> getItemIds() {
+        backgroundWorker.checkUIAccess();
+
+        if (state == State.NOT_INITIALIZED) {
+            return Collections.emptyList();
+        } else {
+            List<K> ids = new ArrayList<>(data.size());
+            for (K id : rowIds) {
+                if (id != null) {
+                    ids.add(id);
+                }
+            }
+            return Collections.unmodifiableList(ids);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Collection<T> getItems() {
+        backgroundWorker.checkUIAccess();
+
+        if (state == State.NOT_INITIALIZED) {
+            return Collections.emptyList();
+        } else {
+            List<T> items = new ArrayList<>(data.size());
+            for (K id : rowIds) {
+                if (id != null) {
+                    items.add((T) data.get(id));
+                }
+            }
+            return Collections.unmodifiableList(items);
+        }
+    }
+
+    /**
+     * Returns ID of the row at the given position, loading the window containing the row if needed.
+     */
+    @Override
+    public K getItemIdByIndex(int index) {
+        backgroundWorker.checkUIAccess();
+
+        if (index < 0 || index >= rowIds.size()) {
+            throw new IndexOutOfBoundsException("Index " + index + " is invalid for size " + rowIds.size());
+        }
+        K id = rowIds.get(index);
+        if (id == null) {
+            loadWindow(index / windowSize);
+            id = rowIds.get(index);
+        } else {
+            // mark the window as recently used
+            loadedWindows.get(index / windowSize);
+        }
+        return id;
+    }
+
+    /**
+     * @return position of the item or -1 if the item is not loaded
+     */
+    @Override
+    public int indexOfId(K itemId) {
+        if (rowIndexes == null) {
+            rowIndexes = new HashMap<>();
+            for (int i = 0; i < rowIds.size(); i++) {
+                K id = rowIds.get(i);
+                if (id != null) {
+                    rowIndexes.put(id, i);
+                }
+            }
+        }
+        Integer index = rowIndexes.get(itemId);
+        return index != null ? index : -1;
+    }
+
+    @Override
+    public K firstItemId() {
+        return rowIds.isEmpty() ? null : getItemIdByIndex(0);
+    }
+
+    @Override
+    public K lastItemId() {
+        return rowIds.isEmpty() ? null : getItemIdByIndex(rowIds.size() - 1);
+    }
+
+    @Override
+    public K nextItemId(K itemId) {
+        int index = indexOfId(itemId);
+        return index >= 0 && index < rowIds.size() - 1 ? getItemIdByIndex(index + 1) : null;
+    }
+
+    @Override
+    public K prevItemId(K itemId) {
+        int index = indexOfId(itemId);
+        return index > 0 ? getItemIdByIndex(index - 1) : null;
+    }
+
+    @Override
+    public void sort(SortInfo[] sortInfos) {
+        if (sortInfos.length != 1)
+            throw new UnsupportedOperationException("Supporting sort by one field only");
+
+        if (!Arrays.equals(this.sortInfos, sortInfos)) {
+            //noinspection unchecked
+            this.sortInfos = sortInfos;
+            if (!rowIds.isEmpty()) {
+                refresh();
+            }
+        }
+    }
+
+    @Override
+    protected void doSort() {
+        // rows are sorted by the database
+    }
+
+    @Override
+    protected boolean isBatchLoadSupported() {
+        return false;
+    }
+
+    @Override
+    protected void loadData(Map<String, Object> params) {
+        detachListener(data.values());
+        data.clear();
+        clearRows();
+
+        Security security = AppBeans.get(Security.NAME);
+        if (!security.isEntityOpPermitted(metaClass, EntityOp.READ) || !needLoading()) {
+            return;
+        }
+
+        StopWatch sw = new Log4JStopWatch(getLoggingTag("LCDS"), Logger.getLogger(UIPerformanceLogger.class));
+        try {
+            LoadContext context = beforeLoadData(params);
+            if (context == null) {
+                return;
+            }
+            context.getQuery().setFirstResult(0);
+            context.getQuery().setMaxResults(0);
+
+            long count = dataSupplier.getCount(context);
+            if (count > Integer.MAX_VALUE)
+                throw new RuntimeException("Number of records is too big: " + count);
+
+            loadContext = context;
+            lastQuery = context.getQuery();
+            rowIds = new ArrayList<>(Collections.<K>nCopies((int) count, null));
+            if (count > 0) {
+                loadWindow(0);
+            }
+        } catch (Throwable e) {
+            dataLoadError = e;
+        }
+
+        sw.stop();
+    }
+
+    /**
+     * Loads rows of the window from the database and evicts the least recently used windows if the number of
+     * loaded windows exceeds the limit.
+     */
+    @SuppressWarnings("unchecked")
+    protected void loadWindow(int window) {
+        if (loadContext == null) {
+            return;
+        }
+        int first = window * windowSize;
+
+        StopWatch sw = new Log4JStopWatch(getLoggingTag("LCDS") + " window", Logger.getLogger(UIPerformanceLogger.class));
+
+        loadContext.getQuery().setFirstResult(first);
+        loadContext.getQuery().setMaxResults(windowSize);
+        List<T> entities = dataSupplier.loadList(loadContext);
+
+        for (int i = 0; i < entities.size() && first + i < rowIds.size(); i++) {
+            T entity = entities.get(i);
+            K id = entity.getId();
+            // keep the instance which is already loaded, it can be modified
+            if (!data.containsKey(id)) {
+                data.put(id, entity);
+                attachListener(entity);
+            }
+            rowIds.set(first + i, id);
+            if (rowIndexes != null) {
+                rowIndexes.put(id, first + i);
+            }
+        }
+        loadedWindows.put(window, Boolean.TRUE);
+
+        evictWindows();
+
+        sw.stop();
+    }
+
+    protected void evictWindows() {
+        Iterator<Integer> iterator = loadedWindows.keySet().iterator();
+        while (loadedWindows.size() > maxWindows && iterator.hasNext()) {
+            int window = iterator.next();
+            iterator.remove();
+
+            int first = window * windowSize;
+            int last = Math.min(first + windowSize, rowIds.size());
+            for (int i = first; i < last; i++) {
+                K id = rowIds.get(i);
+                if (id != null && isEvictable(id)) {
+                    rowIds.set(i, null);
+                    if (rowIndexes != null) {
+                        rowIndexes.remove(id);
+                    }
+                    Object entity = data.remove(id);
+                    if (entity != null) {
+                        detachListener((Entity) entity);
+                    }
+                }
+            }
+        }
+    }
+
+    protected boolean isEvictable(K id) {
+        if (item != null && id.equals(item.getId())) {
+            return false;
+        }
+        Object entity = data.get(id);
+        return entity == null
+                || !(itemsToCreate.contains(entity) || itemsToUpdate.contains(entity) || itemsToDelete.contains(entity));
+    }
+
+    protected void clearRows() {
+        rowIds = new ArrayList<>();
+        rowIndexes = null;
+        loadedWindows.clear();
+        loadContext = null;
+    }
+
+    @Override
+    public void addItem(T item) {
+        checkStateBeforeAdd();
+        appendRow(item);
+        super.addItem(item);
+    }
+
+    @Override
+    public void includeItem(T item) {
+        checkStateBeforeAdd();
+        appendRow(item);
+        super.includeItem(item);
+    }
+
+    @Override
+    public void removeItem(T item) {
+        checkState();
+        removeRow(item);
+        super.removeItem(item);
+    }
+
+    @Override
+    public void excludeItem(T item) {
+        checkState();
+        removeRow(item);
+        super.excludeItem(item);
+    }
+
+    @Override
+    public void clear() {
+        clearRows();
+        super.clear();
+    }
+
+    protected void appendRow(T item) {
+        if (!data.containsKey(item.getId())) {
+            rowIds.add(item.getId());
+            if (rowIndexes != null) {
+                rowIndexes.put(item.getId(), rowIds.size() - 1);
+            }
+        }
+    }
+
+    protected void removeRow(T item) {
+        int index = indexOfId(item.getId());
+        if (index >= 0) {
+            rowIds.remove(index);
+            rowIndexes = null;
+        }
+    }
+}
@@ -16,33 +16,45 @@
  */
 package com.haulmont.cuba.gui.export;
 
+import com.google.common.collect.AbstractIterator;
 import com.haulmont.chile.core.datatypes.Datatype;
 import com.haulmont.chile.core.datatypes.Datatypes;
 import com.haulmont.chile.core.datatypes.impl.EnumClass;
 import com.haulmont.chile.core.model.Instance;
+import com.haulmont.chile.core.model.MetaClass;
+import com.haulmont.chile.core.model.MetaProperty;
 import com.haulmont.chile.core.model.MetaPropertyPath;
 import com.haulmont.chile.core.model.utils.InstanceUtils;
 import com.haulmont.cuba.core.entity.Entity;
 import com.haulmont.cuba.core.entity.annotation.IgnoreUserTimeZone;
 import com.haulmont.cuba.core.global.*;
+import com.haulmont.cuba.gui.backgroundwork.BackgroundWorkProgressWindow;
 import com.haulmont.cuba.gui.components.AggregationInfo;
+import com.haulmont.cuba.gui.components.Formatter;
 import com.haulmont.cuba.gui.components.GroupTable;
 import com.haulmont.cuba.gui.components.Table;
 import com.haulmont.cuba.gui.components.TreeTable;
 import com.haulmont.cuba.gui.data.CollectionDatasource;
+import com.haulmont.cuba.gui.data.CollectionDatasource.Sortable.SortInfo;
 import com.haulmont.cuba.gui.data.GroupDatasource;
 import com.haulmont.cuba.gui.data.GroupInfo;
 import com.haulmont.cuba.gui.data.HierarchicalDatasource;
+import com.haulmont.cuba.gui.data.impl.CollectionDatasourceImpl;
+import com.haulmont.cuba.gui.executors.BackgroundTask;
+import com.haulmont.cuba.gui.executors.TaskLifeCycle;
+import com.haulmont.cuba.gui.export.XlsxStreamWriter.Style;
+import com.haulmont.cuba.gui.upload.FileUploadingAPI;
 import org.apache.commons.lang.BooleanUtils;
 import org.apache.commons.lang.StringUtils;
 import org.apache.poi.hssf.usermodel.*;
 import org.apache.poi.ss.usermodel.CellStyle;
 import org.dom4j.Element;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.annotation.Nullable;
 import javax.persistence.TemporalType;
-import java.io.ByteArrayOutputStream;
-import java.io.IOException;
+import java.io.*;
 import java.text.ParseException;
 import java.util.*;
 
@@ -52,8 +64,15 @@ import java.util.*;
  * <br>Just create an instance of this class and invoke one of <code>exportTable</code> methods.
  */
 public class ExcelExporter {
+    private static final Logger log = LoggerFactory.getLogger(ExcelExporter.class);
+
     protected static final int COL_WIDTH_MAGIC = 48;
 
+    protected static final int STREAMING_CHUNK_SIZE = 1000;
+    protected static final int STREAMING_PROGRESS_STEP = 100;
+    protected static final long STREAMING_TIMEOUT_SEC = 3600;
+    protected static final int STREAMING_MAX_COLUMN_WIDTH = 60;
+
     private static final int SPACE_COUNT = 10;
 
     protected HSSFWorkbook wb;
@@ -248,6 +267,359 @@ public class ExcelExporter {
         display.show(new ByteArrayDataProvider(out.toByteArray()), fileName + ".xls", ExportFormat.XLS);
     }
 
+    /**
+     * @return true if all rows of the table can be exported by
+     * {@link #exportTableStreaming(Table, List, ExportDisplay, List, String, ExportMode)} loading them from the
+     * datasource query, i.e. the table is a flat list backed by a standard collection datasource
+     */
+    public boolean isStreamingExportSupported(Table table) {
+        CollectionDatasource datasource = table.getDatasource();
+        return datasource instanceof CollectionDatasourceImpl
+                && !(table instanceof TreeTable)
+                && !(datasource instanceof GroupDatasource && ((GroupDatasource) datasource).hasGroups());
+    }
+
+    /**
+     * Exports the table to the XLSX format in a background task showing a progress window.
+     * <p>
+     * Rows are written to the workbook one by one without building it in memory. In the {@link ExportMode#ALL_ROWS}
+     * mode, if {@link #isStreamingExportSupported(Table)}, entities are loaded by chunks from the datasource query
+     * regardless of how many of them the datasource contains, otherwise the datasource items are exported.
+     * Hierarchy, groups and aggregation rows are not exported in this mode.
+     * <p>
+     * The workbook is written to a temporary file which is deleted when the stream of the
+     * {@link ExportDataProvider} passed to the display is closed, so the exported file can be downloaded only once.
+     */
+    public void exportTableStreaming(Table<Entity> table, List<Table.Column> columns, ExportDisplay display,
+                                     @Nullable List<String> filterDescription, @Nullable String fileName,
+                                     ExportMode exportMode) {
+        if (display == null) {
+            throw new IllegalArgumentException("ExportDisplay is null");
+        }
+
+        String resourceName;
+        if (fileName == null) {
+            MessageTools messageTools = AppBeans.get(MessageTools.NAME);
+            resourceName = messageTools.getEntityCaption(table.getDatasource().getMetaClass());
+        } else {
+            resourceName = fileName;
+        }
+
+        // the background task must not access UI components, so their state is read here
+        int total = getStreamingExportSize(table, exportMode);
+        Iterator<? extends Entity> items = getStreamingExportItems(table, exportMode);
+        List<ExportColumn> exportColumns = new ArrayList<>(columns.size());
+        for (Table.Column column : columns) {
+            exportColumns.add(new ExportColumn(table, column));
+        }
+
+        BackgroundTask<Integer, UUID> task = new BackgroundTask<Integer, UUID>(STREAMING_TIMEOUT_SEC, table.getFrame()) {
+            @Override
+            public UUID run(TaskLifeCycle<Integer> taskLifeCycle) throws Exception {
+                UUID fileId = writeXlsx(items, exportColumns, filterDescription, resourceName, taskLifeCycle);
+                if (taskLifeCycle.isInterrupted()) {
+                    deleteExportedFile(fileId);
+                    return null;
+                }
+                return fileId;
+            }
+
+            @Override
+            public void done(UUID fileId) {
+                display.show(() -> openExportedFile(fileId), resourceName + ".xlsx", ExportFormat.XLSX);
+            }
+        };
+        BackgroundWorkProgressWindow.show(task, messages.getMessage(getClass(), "excelExporter.streamingExport"),
+                null, Math.max(total, 1), true);
+    }
+
+    protected int getStreamingExportSize(Table<Entity> table, ExportMode exportMode) {
+        if (exportMode == ExportMode.SELECTED_ROWS && table.getSelected().size() > 0) {
+            return table.getSelected().size();
+        }
+        CollectionDatasource datasource = table.getDatasource();
+        if (isStreamingExportSupported(table)) {
+            return ((CollectionDatasourceImpl) datasource).getCount();
+        }
+        return datasource.size();
+    }
+
+    /**
+     * Invoked in the UI thread. The returned iterator is consumed by the background task, so it does not access
+     * the table and its datasource.
+     */
+    @SuppressWarnings("unchecked")
+    protected Iterator<? extends Entity> getStreamingExportItems(Table<Entity> table, ExportMode exportMode) {
+        if (exportMode == ExportMode.SELECTED_ROWS && table.getSelected().size() > 0) {
+            return new ArrayList<>(table.getSelected()).iterator();
+        }
+        CollectionDatasource datasource = table.getDatasource();
+        if (isStreamingExportSupported(table)) {
+            CollectionDatasourceImpl ds = (CollectionDatasourceImpl) datasource;
+            LoadContext<Entity> context = ds.createUnpagedLoadContext();
+            if (context == null) {
+                return Collections.emptyIterator();
+            }
+            return loadByChunks(ds.getDataSupplier(), context, ds.getDbSortInfo());
+        }
+        return new ArrayList<Entity>(datasource.getItems()).iterator();
+    }
+
+    /**
+     * Loads all entities of the query by chunks with keyset pagination, so that the cost of loading a chunk does not
+     * depend on its position in the result:
+     * <ul>
+     *     <li>if the datasource is sorted by a persistent datatype attribute of the entity, the entities are loaded
+     *     ordered by this attribute and the primary key, see {@link SortedKeysetIterator};</li>
+     *     <li>if the query has no {@code order by} clause, the entities are loaded with
+     *     {@link DataManager#loadStream(LoadContext, int)}.</li>
+     * </ul>
+     * Other orderings, e.g. by a reference attribute or by several columns of the query, cannot be expressed
+     * by a keyset condition, so such queries are paged by offset.
+     *
+     * @param sortInfo sorting applied to the query by the datasource, or null if the query defines the order itself
+     */
+    protected Iterator<Entity> loadByChunks(DataManager dataManager, LoadContext<Entity> context,
+                                            @Nullable SortInfo<MetaPropertyPath> sortInfo) {
+        Metadata metadata = AppBeans.get(Metadata.NAME);
+        MetaClass metaClass = metadata.getClassNN(context.getMetaClass());
+        MetaProperty primaryKey = metadata.getTools().getPrimaryKeyProperty(metaClass);
+        if (primaryKey != null && !primaryKey.getRange().isClass()) {
+            if (sortInfo != null) {
+                MetaProperty sortProperty = getKeysetSortProperty(sortInfo, context);
+                if (sortProperty != null) {
+                    return new SortedKeysetIterator(dataManager, context, sortProperty.getName(), primaryKey.getName(),
+                            sortInfo.getOrder() == CollectionDatasource.Sortable.Order.DESC, STREAMING_CHUNK_SIZE);
+                }
+            } else if (!hasOrderBy(context.getQuery().getQueryString())) {
+                return dataManager.loadStream(context, STREAMING_CHUNK_SIZE).iterator();
+            }
+        }
+        return loadByOffset(dataManager, context);
+    }
+
+    /**
+     * @return the attribute the datasource is sorted by, if its values can be compared in a keyset condition
+     */
+    @Nullable
+    protected MetaProperty getKeysetSortProperty(SortInfo<MetaPropertyPath> sortInfo, LoadContext<Entity> context) {
+        // a generated column can be sorted by its string identifier
+        Object sortPath = ((SortInfo) sortInfo).getPropertyPath();
+        if (!(sortPath instanceof MetaPropertyPath) || ((MetaPropertyPath) sortPath).getMetaProperties().length != 1) {
+            return null;
+        }
+        MetaProperty property = ((MetaPropertyPath) sortPath).getMetaProperty();
+        MetadataTools metadataTools = AppBeans.get(MetadataTools.NAME);
+        if (!property.getRange().isDatatype() || !metadataTools.isPersistent(property)) {
+            return null;
+        }
+        // the value of the last loaded entity is the key of the next chunk
+        View view = context.getView();
+        if (view != null && view.getProperty(property.getName()) == null) {
+            return null;
+        }
+        return property;
+    }
+
+    protected boolean hasOrderBy(String queryString) {
+        QueryTransformer transformer = QueryTransformerFactory.createTransformer(queryString);
+        String query = transformer.getResult();
+        transformer.removeOrderBy();
+        return !query.equals(transformer.getResult());
+    }
+
+    protected Iterator<Entity> loadByOffset(DataManager dataManager, LoadContext<Entity> context) {
+        return new AbstractIterator<Entity>() {
+            protected int firstResult;
+            protected Iterator<Entity> chunk = Collections.emptyIterator();
+            protected boolean exhausted;
+
+            @Override
+            @SuppressWarnings("unchecked")
+            protected Entity computeNext() {
+                while (!chunk.hasNext()) {
+                    if (exhausted) {
+                        return endOfData();
+                    }
+                    LoadContext<Entity> chunkContext = (LoadContext<Entity>) context.copy();
+                    chunkContext.getQuery().setFirstResult(firstResult);
+                    chunkContext.getQuery().setMaxResults(STREAMING_CHUNK_SIZE);
+                    List<Entity> entities = dataManager.loadList(chunkContext);
+                    firstResult += STREAMING_CHUNK_SIZE;
+                    exhausted = entities.isEmpty();
+                    chunk = entities.iterator();
+                }
+                return chunk.next();
+            }
+        };
+    }
+
+    /**
+     * Writes the table to a new temporary file of {@link FileUploadingAPI}.
+     *
+     * @return ID of the temporary file, which is deleted when the stream returned by {@link #openExportedFile(UUID)}
+     * is closed
+     */
+    protected UUID writeXlsx(Iterator<? extends Entity> items, List<ExportColumn> columns,
+                             @Nullable List<String> filterDescription, String resourceName,
+                             TaskLifeCycle<Integer> taskLifeCycle) throws Exception {
+        FileUploadingAPI fileUploading = AppBeans.get(FileUploadingAPI.NAME);
+        UUID fileId = fileUploading.createEmptyFile();
+        File file = fileUploading.getFile(fileId);
+
+        try (XlsxStreamWriter writer = new XlsxStreamWriter("Export")) {
+            if (filterDescription != null) {
+                for (int i = 0; i < filterDescription.size(); i++) {
+                    writer.startRow(null);
+                    writer.writeString(0, filterDescription.get(i), i == 0 ? Style.BOLD : Style.DEFAULT);
+                }
+                writer.startRow(null);
+            }
+
+            int maxLines = 1;
+            for (ExportColumn column : columns) {
+                maxLines = Math.max(maxLines, StringUtils.countMatches(column.caption, "\n") + 1);
+            }
+            writer.startRow(maxLines > 1 ? maxLines * 12.75f : null);
+
+            int[] widths = new int[columns.size()];
+            for (int c = 0; c < columns.size(); c++) {
+                String caption = StringUtils.defaultString(columns.get(c).caption);
+                writer.writeString(c, caption, Style.HEADER);
+                for (String line : caption.split("\n")) {
+                    widths[c] = Math.max(widths[c], line.length());
+                }
+            }
+
+            int count = 0;
+            while (items.hasNext()) {
+                if (writer.getRowCount() >= XlsxStreamWriter.MAX_ROWS) {
+                    log.warn("Export of {} is truncated to {} rows", resourceName, XlsxStreamWriter.MAX_ROWS);
+                    break;
+                }
+                Entity item = items.next();
+                writer.startRow(null);
+                for (int c = 0; c < columns.size(); c++) {
+                    ExportColumn column = columns.get(c);
+                    MetaPropertyPath propertyPath = column.id instanceof MetaPropertyPath ?
+                            (MetaPropertyPath) column.id : null;
+                    Object cellValue = getColumnValue(item, column.id, column.printable, column.captionProperty,
+                            column.formatter);
+                    String str = writeXlsxCell(writer, c, cellValue, propertyPath);
+                    if (str != null) {
+                        widths[c] = Math.max(widths[c], str.length());
+                    }
+                }
+                if (++count % STREAMING_PROGRESS_STEP == 0) {
+                    taskLifeCycle.publish(count);
+                }
+            }
+
+            for (int c = 0; c < columns.size(); c++) {
+                writer.setColumnWidth(c, Math.min(widths[c] + 2, STREAMING_MAX_COLUMN_WIDTH));
+            }
+            try (OutputStream outputStream = new FileOutputStream(file)) {
+                writer.finish(outputStream);
+            }
+        } catch (Exception e) {
+            deleteExportedFile(fileId);
+            throw e;
+        }
+        return fileId;
+    }
+
+    /**
+     * Writes the cell value formatted like {@link #formatValueCell} does.
+     *
+     * @return string representation of the value used to calculate the column width, or null for an empty cell
+     */
+    @Nullable
+    protected String writeXlsxCell(XlsxStreamWriter writer, int column, @Nullable Object cellValue,
+                                   @Nullable MetaPropertyPath metaPropertyPath) throws IOException {
+        if (cellValue == null) {
+            return null;
+        }
+
+        if (cellValue instanceof Number) {
+            Number n = (Number) cellValue;
+            Datatype datatype = Datatypes.getNN(n.getClass());
+            String str = datatype.format(n);
+            try {
+                Number result = (Number) datatype.parse(str);
+                if (result != null) {
+                    if (n instanceof Integer || n instanceof Long || n instanceof Byte || n instanceof Short) {
+                        writer.writeNumber(column, result.longValue(), Style.INTEGER);
+                    } else {
+                        writer.writeNumber(column, result.doubleValue(), Style.DOUBLE);
+                    }
+                }
+            } catch (ParseException e) {
+                throw new RuntimeException(e);
+            }
+            return str;
+        } else if (cellValue instanceof Date) {
+            Date date = convertToUserTimeZone((Date) cellValue, metaPropertyPath);
+            Style style = Style.DATE_TIME;
+            TemporalType temporalType = getTemporalType(metaPropertyPath);
+            if (temporalType == TemporalType.DATE) {
+                style = Style.DATE;
+            } else if (temporalType == TemporalType.TIME) {
+                style = Style.TIME;
+            }
+            writer.writeDate(column, date, style);
+            return Datatypes.getNN(Date.class).format(date);
+        }
+
+        String str;
+        if (cellValue instanceof Boolean) {
+            str = ((Boolean) cellValue) ? trueStr : falseStr;
+        } else if (cellValue instanceof EnumClass) {
+            str = messages.getMessage(cellValue.getClass(), cellValue.getClass().getSimpleName() + "." + cellValue);
+        } else if (cellValue instanceof Entity) {
+            str = ((Entity) cellValue).getInstanceName();
+        } else if (cellValue instanceof Collection) {
+            str = "";
+        } else {
+            str = cellValue.toString();
+        }
+        writer.writeString(column, StringUtils.defaultString(str), Style.DEFAULT);
+        return str;
+    }
+
+    /**
+     * @return stream of the exported file which deletes the file when closed
+     */
+    protected InputStream openExportedFile(UUID fileId) {
+        FileUploadingAPI fileUploading = AppBeans.get(FileUploadingAPI.NAME);
+        File file = fileUploading.getFile(fileId);
+        if (file == null) {
+            throw new RuntimeException("Exported file not found: " + fileId);
+        }
+        try {
+            return new FileInputStream(file) {
+                @Override
+                public void close() throws IOException {
+                    try {
+                        super.close();
+                    } finally {
+                        deleteExportedFile(fileId);
+                    }
+                }
+            };
+        } catch (FileNotFoundException e) {
+            throw new RuntimeException("Exported file not found: " + file, e);
+        }
+    }
+
+    protected void deleteExportedFile(UUID fileId) {
+        FileUploadingAPI fileUploading = AppBeans.get(FileUploadingAPI.NAME);
+        try {
+            fileUploading.deleteFile(fileId);
+        } catch (FileStorageException e) {
+            log.warn("Unable to delete exported file {}", fileId, e);
+        }
+    }
+
     protected void createFormats() {
         timeFormatCellStyle = wb.createCellStyle();
         timeFormatCellStyle.setDataFormat(HSSFDataFormat.getBuiltinFormat("h:mm"));
@@ -370,35 +742,47 @@ public class ExcelExporter {
             HSSFCell cell = row.createCell(c);
 
             Table.Column column = columns.get(c);
-            Object cellValue = null;
+            Object cellValue = getColumnValue(table, column, instance);
+            MetaPropertyPath propertyPath = column.getId() instanceof MetaPropertyPath ?
+                    (MetaPropertyPath) column.getId() : null;
 
-            MetaPropertyPath propertyPath = null;
-            if (column.getId() instanceof MetaPropertyPath) {
-                propertyPath = (MetaPropertyPath) column.getId();
+            formatValueCell(cell, cellValue, propertyPath, c, rowNumber, level, null);
+        }
+    }
 
-                Table.Printable printable = table.getPrintable(column);
-                if (printable != null) {
-                    cellValue = printable.getValue((Entity) instance);
-                } else {
-                    Element xmlDescriptor = column.getXmlDescriptor();
-                    if (xmlDescriptor != null && StringUtils.isNotEmpty(xmlDescriptor.attributeValue("captionProperty"))) {
-                        String captionProperty = xmlDescriptor.attributeValue("captionProperty");
-                        cellValue = InstanceUtils.getValueEx(instance, captionProperty);
-                    } else {
-                        cellValue = InstanceUtils.getValueEx(instance, propertyPath.getPath());
-                    }
-                    if (column.getFormatter() != null)
-                        cellValue = column.getFormatter().format(cellValue);
-                }
+    @Nullable
+    protected Object getColumnValue(Table table, Table.Column column, Instance instance) {
+        Element xmlDescriptor = column.getXmlDescriptor();
+        String captionProperty = xmlDescriptor != null ? xmlDescriptor.attributeValue("captionProperty") : null;
+        return getColumnValue(instance, column.getId(), table.getPrintable(column), captionProperty,
+                column.getFormatter());
+    }
+
+    @SuppressWarnings("unchecked")
+    @Nullable
+    protected Object getColumnValue(Instance instance, Object columnId, @Nullable Table.Printable printable,
+                                    @Nullable String captionProperty, @Nullable Formatter formatter) {
+        Object cellValue = null;
+        if (columnId instanceof MetaPropertyPath) {
+            MetaPropertyPath propertyPath = (MetaPropertyPath) columnId;
+
+            if (printable != null) {
+                cellValue = printable.getValue((Entity) instance);
             } else {
-                Table.Printable printable = table.getPrintable(column);
-                if (printable != null) {
-                    cellValue = printable.getValue((Entity) instance);
+                if (StringUtils.isNotEmpty(captionProperty)) {
+                    cellValue = InstanceUtils.getValueEx(instance, captionProperty);
+                } else {
+                    cellValue = InstanceUtils.getValueEx(instance, propertyPath.getPath());
                 }
+                if (formatter != null)
+                    cellValue = formatter.format(cellValue);
+            }
+        } else {
+            if (printable != null) {
+                cellValue = printable.getValue((Entity) instance);
             }
-
-            formatValueCell(cell, cellValue, propertyPath, c, rowNumber, level, null);
         }
+        return cellValue;
     }
 
     protected String createSpaceString(int level) {
@@ -413,6 +797,25 @@ public class ExcelExporter {
         return sb.toString();
     }
 
+    @Nullable
+    protected TemporalType getTemporalType(@Nullable MetaPropertyPath metaPropertyPath) {
+        return metaPropertyPath != null ?
+                (TemporalType) metaPropertyPath.getMetaProperty().getAnnotations().get("temporal") : null;
+    }
+
+    protected Date convertToUserTimeZone(Date value, @Nullable MetaPropertyPath metaPropertyPath) {
+        TemporalType temporalType = getTemporalType(metaPropertyPath);
+        Boolean ignoreUserTimeZone = metaPropertyPath != null ?
+                (Boolean) metaPropertyPath.getMetaProperty().getAnnotations().get(IgnoreUserTimeZone.class.getName()) : null;
+
+        TimeZone userTimeZone = userSessionSource.getUserSession().getTimeZone();
+        if (userTimeZone != null && temporalType != null && temporalType == TemporalType.TIMESTAMP
+                && (ignoreUserTimeZone == null || Boolean.FALSE.equals(ignoreUserTimeZone))) {
+            return timeZones.convert(value, TimeZone.getDefault(), userTimeZone);
+        }
+        return value;
+    }
+
     protected void formatValueCell(HSSFCell cell, @Nullable Object cellValue, @Nullable MetaPropertyPath metaPropertyPath,
                                    int sizersIndex, int notificationRequired, int level, @Nullable Integer groupChildCount) {
         if (cellValue == null) {
@@ -453,23 +856,8 @@ public class ExcelExporter {
                 sizers[sizersIndex].notifyCellValue(str, stdFont);
             }
         } else if (cellValue instanceof Date) {
-            TemporalType temporalType = null;
-            Boolean ignoreUserTimeZone = null;
-
-            if (metaPropertyPath != null) {
-                Map<String, Object> annotations = metaPropertyPath.getMetaProperty().getAnnotations();
-                temporalType = (TemporalType) annotations.get("temporal");
-                ignoreUserTimeZone = (Boolean) annotations.get(IgnoreUserTimeZone.class.getName());
-            }
-
-            TimeZone userTimeZone = userSessionSource.getUserSession().getTimeZone();
-            Date date;
-            if (userTimeZone != null && temporalType != null && temporalType == TemporalType.TIMESTAMP
-                    && (ignoreUserTimeZone == null || Boolean.FALSE.equals(ignoreUserTimeZone))) {
-                date = timeZones.convert((Date) cellValue, TimeZone.getDefault(), userTimeZone);
-            } else {
-                date = (Date) cellValue;
-            }
+            TemporalType temporalType = getTemporalType(metaPropertyPath);
+            Date date = convertToUserTimeZone((Date) cellValue, metaPropertyPath);
 
             cell.setCellValue(date);
 
@@ -535,4 +923,114 @@ public class ExcelExporter {
             }
         }
     }
-}
\ No newline at end of file
+
+    /**
+     * Column state read in the UI thread for the export in a background task.
+     */
+    protected static class ExportColumn {
+        protected final Object id;
+        protected final String caption;
+        protected final Table.Printable printable;
+        protected final String captionProperty;
+        protected final Formatter formatter;
+
+        public ExportColumn(Table table, Table.Column column) {
+            id = column.getId();
+            caption = column.getCaption();
+            printable = table.getPrintable(column);
+            Element xmlDescriptor = column.getXmlDescriptor();
+            captionProperty = xmlDescriptor != null ? xmlDescriptor.attributeValue("captionProperty") : null;
+            formatter = column.getFormatter();
+        }
+    }
+
+    /**
+     * Loads entities of the query ordered by an attribute and the primary key with keyset pagination: each chunk is
+     * requested by the condition {@code (attr > :lastValue or (attr = :lastValue and pk > :lastKey))}, or with
+     * {@code <} in the descending order. Entities with a null attribute value are loaded after the others.
+     */
+    protected static class SortedKeysetIterator extends AbstractIterator<Entity> {
+
+        public static final String LAST_VALUE_PARAM = "cuba_keysetLastValue";
+
+        protected final DataManager dataManager;
+        protected final LoadContext<Entity> context;
+        protected final String sortProperty;
+        protected final int chunkSize;
+
+        // queries for the entities with a non-null attribute value, then for the entities with a null value
+        protected final String[] firstQueryStrings;
+        protected final String[] nextQueryStrings;
+
+        protected int segment;
+        protected Entity last;
+        protected Iterator<Entity> chunk = Collections.emptyIterator();
+
+        public SortedKeysetIterator(DataManager dataManager, LoadContext<Entity> context, String sortProperty,
+                                    String primaryKey, boolean desc, int chunkSize) {
+            this.dataManager = dataManager;
+            this.context = context;
+            this.sortProperty = sortProperty;
+            this.chunkSize = chunkSize;
+
+            String queryString = context.getQuery().getQueryString();
+            String attr = "{E}." + sortProperty;
+            String pk = "{E}." + primaryKey;
+            String op = desc ? " < " : " > ";
+            String lastValue = ":" + LAST_VALUE_PARAM;
+            String lastKey = ":" + KeysetPagingIterator.LAST_KEY_PARAM;
+            firstQueryStrings = new String[]{
+                    transformQuery(queryString, attr + " is not null", desc, sortProperty, primaryKey),
+                    transformQuery(queryString, attr + " is null", desc, primaryKey)
+            };
+            nextQueryStrings = new String[]{
+                    transformQuery(queryString, attr + " is not null and (" + attr + op + lastValue
+                            + " or (" + attr + " = " + lastValue + " and " + pk + op + lastKey + "))",
+                            desc, sortProperty, primaryKey),
+                    transformQuery(queryString, attr + " is null and " + pk + op + lastKey, desc, primaryKey)
+            };
+        }
+
+        protected static String transformQuery(String queryString, String where, boolean desc, String... orderBy) {
+            QueryTransformer transformer = QueryTransformerFactory.createTransformer(queryString);
+            transformer.addWhere(where);
+            transformer.replaceOrderBy(desc, orderBy);
+            return transformer.getResult();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        protected Entity computeNext() {
+            while (!chunk.hasNext()) {
+                if (segment >= firstQueryStrings.length) {
+                    return endOfData();
+                }
+                LoadContext<Entity> chunkContext = (LoadContext<Entity>) context.copy();
+                LoadContext.Query query = chunkContext.getQuery();
+                if (last == null) {
+                    query.setQueryString(firstQueryStrings[segment]);
+                } else {
+                    query.setQueryString(nextQueryStrings[segment]);
+                    query.setParameter(KeysetPagingIterator.LAST_KEY_PARAM, last.getId());
+                    if (segment == 0) {
+                        query.setParameter(LAST_VALUE_PARAM, last.getValue(sortProperty));
+                    }
+                }
+                query.setFirstResult(0);
+                query.setMaxResults(chunkSize);
+                query.setCacheable(false);
+
+                // only an empty chunk means the end of the segment, see KeysetPagingIterator
+                List<Entity> entities = dataManager.loadList(chunkContext);
+                if (entities.isEmpty()) {
+                    segment++;
+                    last = null;
+                } else {
+                    last = entities.get(entities.size() - 1);
+                    chunk = entities.iterator();
+                }
+            }
+            return chunk.next();
+        }
+    }
+}
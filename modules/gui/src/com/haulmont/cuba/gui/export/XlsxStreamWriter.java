@@ -0,0 +1,320 @@
+/*
+ * Copyright (c) 2008-2016 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.gui.export;
+
+import javax.annotation.Nullable;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Date;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Writes a single-sheet XLSX (Office Open XML) workbook row by row.
+ * <p>
+ * Rows are not kept in memory: they are written to a temporary file as they come, and the workbook archive is
+ * assembled by {@link #finish(OutputStream)}. Cells refer to a fixed set of shared {@link Style}s, strings are
+ * written inline. Column widths can be set at any moment before {@link #finish(OutputStream)}.
+ * <p>
+ * Rows must be written in ascending order. The instance must be closed to delete the temporary file.
+ */
+public class XlsxStreamWriter implements Closeable {
+
+    public static final int MAX_ROWS = 1048576;
+
+    protected static final String NAMESPACE = "http://schemas.openxmlformats.org/spreadsheetml/2006/main";
+
+    /**
+     * Cell styles of the workbook.
+     */
+    public enum Style {
+        DEFAULT(0),
+        HEADER(1),
+        BOLD(2),
+        INTEGER(3),
+        DOUBLE(4),
+        DATE(5),
+        TIME(6),
+        DATE_TIME(7);
+
+        private final int index;
+
+        Style(int index) {
+            this.index = index;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+    }
+
+    protected final String sheetName;
+    protected final File tempFile;
+    protected final Writer sheetWriter;
+
+    protected final Map<Integer, Double> columnWidths = new TreeMap<>();
+
+    protected int rowCount;
+    protected boolean rowStarted;
+
+    public XlsxStreamWriter(String sheetName) throws IOException {
+        this.sheetName = sheetName;
+        this.tempFile = File.createTempFile("xlsx-sheet", ".xml");
+        this.sheetWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(tempFile), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return number of started rows
+     */
+    public int getRowCount() {
+        return rowCount;
+    }
+
+    /**
+     * Starts the next row.
+     *
+     * @param heightInPoints custom row height, or null for the default height
+     */
+    public void startRow(@Nullable Float heightInPoints) throws IOException {
+        if (rowStarted) {
+            endRow();
+        }
+        if (rowCount >= MAX_ROWS) {
+            throw new IllegalStateException("XLSX sheet cannot contain more than " + MAX_ROWS + " rows");
+        }
+        rowCount++;
+        rowStarted = true;
+        sheetWriter.write("<row r=\"" + rowCount + "\"");
+        if (heightInPoints != null) {
+            sheetWriter.write(" ht=\"" + heightInPoints + "\" customHeight=\"1\"");
+        }
+        sheetWriter.write(">");
+    }
+
+    public void endRow() throws IOException {
+        if (rowStarted) {
+            sheetWriter.write("</row>\n");
+            rowStarted = false;
+        }
+    }
+
+    public void writeString(int column, String value, Style style) throws IOException {
+        checkRowStarted();
+        sheetWriter.write("<c r=\"" + cellReference(column) + "\" t=\"inlineStr\"" + styleAttribute(style)
+                + "><is><t xml:space=\"preserve\">");
+        sheetWriter.write(escape(value));
+        sheetWriter.write("</t></is></c>");
+    }
+
+    public void writeNumber(int column, double value, Style style) throws IOException {
+        checkRowStarted();
+        sheetWriter.write("<c r=\"" + cellReference(column) + "\"" + styleAttribute(style) + "><v>");
+        if (value == Math.rint(value) && !Double.isInfinite(value) && Math.abs(value) < 1e15) {
+            sheetWriter.write(Long.toString((long) value));
+        } else {
+            sheetWriter.write(Double.toString(value));
+        }
+        sheetWriter.write("</v></c>");
+    }
+
+    /**
+     * Writes a date as a serial number of days since 1900, according to the default time zone like
+     * {@code HSSFCell.setCellValue(Date)} does.
+     */
+    public void writeDate(int column, Date value, Style style) throws IOException {
+        long millis = value.getTime() + TimeZone.getDefault().getOffset(value.getTime());
+        writeNumber(column, millis / 86400000d + 25569, style);
+    }
+
+    /**
+     * @param column         zero-based column index
+     * @param widthInChars   column width in characters of the default font
+     */
+    public void setColumnWidth(int column, double widthInChars) {
+        columnWidths.put(column, widthInChars);
+    }
+
+    /**
+     * Writes the workbook archive to the output stream. The output stream is not closed.
+     */
+    public void finish(OutputStream outputStream) throws IOException {
+        endRow();
+        sheetWriter.close();
+
+        ZipOutputStream zip = new ZipOutputStream(outputStream);
+        writeEntry(zip, "[Content_Types].xml", contentTypes());
+        writeEntry(zip, "_rels/.rels", rootRelationships());
+        writeEntry(zip, "xl/workbook.xml", workbook());
+        writeEntry(zip, "xl/_rels/workbook.xml.rels", workbookRelationships());
+        writeEntry(zip, "xl/styles.xml", styles());
+
+        zip.putNextEntry(new ZipEntry("xl/worksheets/sheet1.xml"));
+        Writer writer = new OutputStreamWriter(zip, StandardCharsets.UTF_8);
+        writer.write(sheetHeader());
+        writer.flush();
+        Files.copy(tempFile.toPath(), zip);
+        writer.write("</sheetData></worksheet>");
+        writer.flush();
+        zip.closeEntry();
+
+        zip.finish();
+        zip.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            sheetWriter.close();
+        } finally {
+            Files.deleteIfExists(tempFile.toPath());
+        }
+    }
+
+    protected void checkRowStarted() {
+        if (!rowStarted)
+            throw new IllegalStateException("Row is not started");
+    }
+
+    protected String cellReference(int column) {
+        StringBuilder sb = new StringBuilder();
+        for (int c = column + 1; c > 0; c = (c - 1) / 26) {
+            sb.insert(0, (char) ('A' + (c - 1) % 26));
+        }
+        return sb.append(rowCount).toString();
+    }
+
+    protected String styleAttribute(Style style) {
+        return style == Style.DEFAULT ? "" : " s=\"" + style.getIndex() + "\"";
+    }
+
+    protected String escape(String value) {
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char ch = value.charAt(i);
+            switch (ch) {
+                case '<':
+                    sb.append("&lt;");
+                    break;
+                case '>':
+                    sb.append("&gt;");
+                    break;
+                case '&':
+                    sb.append("&amp;");
+                    break;
+                case '"':
+                    sb.append("&quot;");
+                    break;
+                default:
+                    // characters not allowed in XML 1.0 are skipped
+                    if (ch >= 0x20 || ch == '\t' || ch == '\n' || ch == '\r') {
+                        sb.append(ch);
+                    }
+            }
+        }
+        return sb.toString();
+    }
+
+    protected void writeEntry(ZipOutputStream zip, String name, String content) throws IOException {
+        zip.putNextEntry(new ZipEntry(name));
+        zip.write(content.getBytes(StandardCharsets.UTF_8));
+        zip.closeEntry();
+    }
+
+    protected String contentTypes() {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+                + "<Types xmlns=\"http://schemas.openxmlformats.org/package/2006/content-types\">"
+                + "<Default Extension=\"rels\" ContentType=\"application/vnd.openxmlformats-package.relationships+xml\"/>"
+                + "<Default Extension=\"xml\" ContentType=\"application/xml\"/>"
+                + "<Override PartName=\"/xl/workbook.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.sheet.main+xml\"/>"
+                + "<Override PartName=\"/xl/worksheets/sheet1.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.worksheet+xml\"/>"
+                + "<Override PartName=\"/xl/styles.xml\" ContentType=\"application/vnd.openxmlformats-officedocument.spreadsheetml.styles+xml\"/>"
+                + "</Types>";
+    }
+
+    protected String rootRelationships() {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+                + "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+                + "<Relationship Id=\"rId1\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/officeDocument\" Target=\"xl/workbook.xml\"/>"
+                + "</Relationships>";
+    }
+
+    protected String workbook() {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+                + "<workbook xmlns=\"" + NAMESPACE + "\" xmlns:r=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships\">"
+                + "<sheets><sheet name=\"" + escape(sheetName) + "\" sheetId=\"1\" r:id=\"rId1\"/></sheets>"
+                + "</workbook>";
+    }
+
+    protected String workbookRelationships() {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+                + "<Relationships xmlns=\"http://schemas.openxmlformats.org/package/2006/relationships\">"
+                + "<Relationship Id=\"rId1\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/worksheet\" Target=\"worksheets/sheet1.xml\"/>"
+                + "<Relationship Id=\"rId2\" Type=\"http://schemas.openxmlformats.org/officeDocument/2006/relationships/styles\" Target=\"styles.xml\"/>"
+                + "</Relationships>";
+    }
+
+    /*
+     * Cell formats are listed in the order of Style constants. Number formats are built-in:
+     * 3 - "#,##0", 4 - "#,##0.00", 14 - "m/d/yy", 20 - "h:mm", 22 - "m/d/yy h:mm"
+     */
+    protected String styles() {
+        return "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n"
+                + "<styleSheet xmlns=\"" + NAMESPACE + "\">"
+                + "<fonts count=\"2\">"
+                + "<font><sz val=\"10\"/><name val=\"Arial\"/></font>"
+                + "<font><b/><sz val=\"10\"/><name val=\"Arial\"/></font>"
+                + "</fonts>"
+                + "<fills count=\"2\"><fill><patternFill patternType=\"none\"/></fill><fill><patternFill patternType=\"gray125\"/></fill></fills>"
+                + "<borders count=\"1\"><border><left/><right/><top/><bottom/><diagonal/></border></borders>"
+                + "<cellStyleXfs count=\"1\"><xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\"/></cellStyleXfs>"
+                + "<cellXfs count=\"8\">"
+                + "<xf numFmtId=\"0\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\"/>"
+                + "<xf numFmtId=\"0\" fontId=\"1\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyFont=\"1\" applyAlignment=\"1\">"
+                + "<alignment vertical=\"center\" wrapText=\"1\"/></xf>"
+                + "<xf numFmtId=\"0\" fontId=\"1\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyFont=\"1\"/>"
+                + "<xf numFmtId=\"3\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyNumberFormat=\"1\"/>"
+                + "<xf numFmtId=\"4\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyNumberFormat=\"1\"/>"
+                + "<xf numFmtId=\"14\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyNumberFormat=\"1\"/>"
+                + "<xf numFmtId=\"20\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyNumberFormat=\"1\"/>"
+                + "<xf numFmtId=\"22\" fontId=\"0\" fillId=\"0\" borderId=\"0\" xfId=\"0\" applyNumberFormat=\"1\"/>"
+                + "</cellXfs>"
+                + "<cellStyles count=\"1\"><cellStyle name=\"Normal\" xfId=\"0\" builtinId=\"0\"/></cellStyles>"
+                + "</styleSheet>";
+    }
+
+    protected String sheetHeader() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"yes\"?>\n");
+        sb.append("<worksheet xmlns=\"").append(NAMESPACE).append("\">");
+        if (!columnWidths.isEmpty()) {
+            sb.append("<cols>");
+            for (Map.Entry<Integer, Double> entry : columnWidths.entrySet()) {
+                int index = entry.getKey() + 1;
+                sb.append("<col min=\"").append(index).append("\" max=\"").append(index)
+                        .append("\" width=\"").append(entry.getValue()).append("\" customWidth=\"1\"/>");
+            }
+            sb.append("</cols>");
+        }
+        sb.append("<sheetData>");
+        return sb.toString();
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2008-2016 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.haulmont.cuba.gui.data.impl;
+
+import com.haulmont.cuba.client.testsupport.CubaClientTestCase;
+import com.haulmont.cuba.core.entity.Entity;
+import com.haulmont.cuba.core.global.AppBeans;
+import com.haulmont.cuba.core.global.LoadContext;
+import com.haulmont.cuba.gui.data.CollectionDatasource;
+import com.haulmont.cuba.gui.data.DsBuilder;
+import com.haulmont.cuba.gui.data.impl.testmodel1.TestMasterEntity;
+import com.haulmont.cuba.gui.executors.BackgroundWorker;
+import mockit.Mocked;
+import mockit.NonStrictExpectations;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.annotation.Nonnull;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class DatasourceBatchLoadTest extends CubaClientTestCase {
+
+    private BatchDataSupplier dataSupplier;
+    private DsContextImpl dsContext;
+
+    @Mocked
+    protected BackgroundWorker backgroundWorker;
+
+    @Before
+    public void setUp() throws Exception {
+        addEntityPackage("com.haulmont.cuba");
+        setViewConfig("/com/haulmont/cuba/gui/data/impl/testmodel1/test-views.xml");
+        setupInfrastructure();
+
+        new NonStrictExpectations() {
+            {
+                backgroundWorker.checkUIAccess(); result = null;
+                AppBeans.get(BackgroundWorker.NAME); result = backgroundWorker;
+                AppBeans.get(BackgroundWorker.class); result = backgroundWorker;
+                AppBeans.get(BackgroundWorker.NAME, BackgroundWorker.class); result = backgroundWorker;
+
+                clientConfig.getDatasourceBatchLoadEnabled(); result = true;
+            }
+        };
+
+        dataSupplier = new BatchDataSupplier();
+        dsContext = new DsContextImpl(dataSupplier);
+    }
+
+    @Test
+    public void testSuspendedDatasourcesAreLoadedInOneBatch() throws Exception {
+        TestBatchDatasource ds1 = createDatasource("ds1", TestBatchDatasource.class);
+        TestBatchDatasource ds2 = createDatasource("ds2", TestBatchDatasource.class);
+        TestMasterEntity master1 = dataSupplier.addRow("ds1");
+        TestMasterEntity master2 = dataSupplier.addRow("ds2");
+
+        suspendAndRefresh(ds1);
+        suspendAndRefresh(ds2);
+        dsContext.resumeSuspended();
+
+        assertEquals(1, dataSupplier.batches.size());
+        assertEquals(2, dataSupplier.batches.get(0).size());
+        assertEquals(0, dataSupplier.loadListCount);
+
+        assertFalse(ds1.isSuspended());
+        assertEquals(Collections.singletonList(master1.getId()), new ArrayList<>(ds1.getItemIds()));
+        assertEquals(Collections.singletonList(master2.getId()), new ArrayList<>(ds2.getItemIds()));
+        assertNull(ds1.batchLoadResult);
+        assertNull(ds2.batchLoadResult);
+    }
+
+    @Test
+    public void testDatasourceLoadingDataItselfIsNotBatched() throws Exception {
+        TestBatchDatasource ds1 = createDatasource("ds1", TestBatchDatasource.class);
+        TestCustomDatasource ds2 = createDatasource("ds2", TestCustomDatasource.class);
+        TestMasterEntity master1 = dataSupplier.addRow("ds1");
+
+        suspendAndRefresh(ds1);
+        suspendAndRefresh(ds2);
+        dsContext.resumeSuspended();
+
+        assertEquals(1, dataSupplier.batches.size());
+        assertEquals(1, dataSupplier.batches.get(0).size());
+        assertEquals(Collections.singletonList(master1.getId()), new ArrayList<>(ds1.getItemIds()));
+        assertEquals(1, ds2.size());
+    }
+
+    @Test
+    public void testPrepareBatchLoadDoesNotChangeDatasource() throws Exception {
+        TestBatchDatasource ds = createDatasource("ds1", TestBatchDatasource.class);
+        TestMasterEntity master = dataSupplier.addRow("ds1");
+        ds.refresh();
+        assertEquals(1, ds.size());
+
+        // the query cannot be executed with the current parameters
+        ds.queryDefined = false;
+        suspendAndRefresh(ds);
+        assertNull(ds.prepareBatchLoad());
+        assertEquals(Collections.singletonList(master.getId()), new ArrayList<>(ds.getItemIds()));
+
+        dsContext.resumeSuspended();
+        assertTrue(dataSupplier.batches.isEmpty());
+        assertEquals(0, ds.size());
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends CollectionDatasource> T createDatasource(String id, Class<T> dsClass) {
+        T ds = (T) new DsBuilder(dsContext)
+                .setId(id)
+                .setMetaClass(metadata.getSession().getClass(TestMasterEntity.class))
+                .setDsClass(dsClass)
+                .buildCollectionDatasource();
+        ((DatasourceImplementation) ds).initialized();
+        return ds;
+    }
+
+    private void suspendAndRefresh(CollectionDatasource datasource) {
+        CollectionDatasource.Suspendable suspendable = (CollectionDatasource.Suspendable) datasource;
+        suspendable.setSuspended(true);
+        suspendable.refreshIfNotSuspended();
+    }
+
+    /**
+     * Skips the query compilation which requires the middleware.
+     */
+    public static class TestBatchDatasource extends CollectionDatasourceImpl<TestMasterEntity, UUID> {
+
+        boolean queryDefined = true;
+
+        @Override
+        protected LoadContext createLoadContext(Map<String, Object> params) {
+            if (!queryDefined) {
+                return null;
+            }
+            LoadContext context = new LoadContext(getMetaClass());
+            context.setQueryString(queryString(getId()));
+            return context;
+        }
+    }
+
+    public static class TestCustomDatasource extends CustomCollectionDatasource<TestMasterEntity, UUID> {
+
+        @Override
+        protected Collection<TestMasterEntity> getEntities(Map<String, Object> params) {
+            TestMasterEntity entity = new TestMasterEntity();
+            entity.setMasterName("custom");
+            return Collections.singletonList(entity);
+        }
+    }
+
+    private static String queryString(String datasourceId) {
+        return "select e from test$MasterEntity e where e.masterName = '" + datasourceId + "'";
+    }
+
+    private static class BatchDataSupplier extends TestDataSupplier {
+
+        Map<String, List<TestMasterEntity>> rows = new HashMap<>();
+        List<List<LoadContext<?>>> batches = new ArrayList<>();
+        int loadListCount;
+
+        TestMasterEntity addRow(String datasourceId) {
+            TestMasterEntity entity = new TestMasterEntity();
+            entity.setMasterName(datasourceId);
+            rows.computeIfAbsent(queryString(datasourceId), s -> new ArrayList<>()).add(entity);
+            return entity;
+        }
+
+        @Override
+        @Nonnull
+        public <E extends Entity> List<E> loadList(LoadContext<E> context) {
+            loadListCount++;
+            return select(context);
+        }
+
+        @Override
+        public List<List<Entity>> loadBatch(List<LoadContext<?>> contexts) {
+            batches.add(new ArrayList<>(contexts));
+            List<List<Entity>> result = new ArrayList<>();
+            for (LoadContext<?> context : contexts) {
+                result.add(select(context));
+            }
+            return result;
+        }
+
+        @SuppressWarnings("unchecked")
+        private <E extends Entity> List<E> select(LoadContext<?> context) {
+            List<TestMasterEntity> list = rows.getOrDefault(context.getQuery().getQueryString(), Collections.emptyList());
+            return new ArrayList<>((List<E>) list);
+        }
+    }
+}
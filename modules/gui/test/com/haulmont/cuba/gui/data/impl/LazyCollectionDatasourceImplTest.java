@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 2008-2016 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.gui.data.impl;
+
+import com.haulmont.chile.core.model.MetaClass;
+import com.haulmont.cuba.client.ClientConfig;
+import com.haulmont.cuba.client.testsupport.CubaClientTestCase;
+import com.haulmont.cuba.core.entity.Entity;
+import com.haulmont.cuba.core.global.AppBeans;
+import com.haulmont.cuba.core.global.LoadContext;
+import com.haulmont.cuba.gui.data.CollectionDatasource;
+import com.haulmont.cuba.gui.data.DsBuilder;
+import com.haulmont.cuba.gui.data.impl.testmodel1.TestMasterEntity;
+import com.haulmont.cuba.gui.executors.BackgroundWorker;
+import mockit.Mocked;
+import mockit.NonStrictExpectations;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.Assert.*;
+
+public class LazyCollectionDatasourceImplTest extends CubaClientTestCase {
+
+    private static final int ROWS = 10;
+
+    private LazyDataSupplier dataSupplier;
+    private List<TestMasterEntity> rows;
+    private LazyCollectionDatasourceImpl<TestMasterEntity, UUID> ds;
+
+    @Mocked
+    protected ClientConfig clientConfig;
+    @Mocked
+    protected BackgroundWorker backgroundWorker;
+
+    @Before
+    public void setUp() throws Exception {
+        addEntityPackage("com.haulmont.cuba");
+        setViewConfig("/com/haulmont/cuba/gui/data/impl/testmodel1/test-views.xml");
+        setupInfrastructure();
+
+        new NonStrictExpectations() {
+            {
+                backgroundWorker.checkUIAccess(); result = null;
+                AppBeans.get(BackgroundWorker.NAME); result = backgroundWorker;
+                AppBeans.get(BackgroundWorker.class); result = backgroundWorker;
+                AppBeans.get(BackgroundWorker.NAME, BackgroundWorker.class); result = backgroundWorker;
+
+                configuration.getConfig(ClientConfig.class); result = clientConfig;
+
+                clientConfig.getLazyDatasourceWindowSize(); result = 3;
+                clientConfig.getLazyDatasourceMaxWindows(); result = 2;
+            }
+        };
+
+        rows = new ArrayList<>();
+        for (int i = 0; i < ROWS; i++) {
+            TestMasterEntity entity = new TestMasterEntity();
+            entity.setMasterName("master" + i);
+            rows.add(entity);
+        }
+        dataSupplier = new LazyDataSupplier();
+
+        DsContextImpl dsContext = new DsContextImpl(dataSupplier);
+        //noinspection unchecked
+        ds = new DsBuilder(dsContext)
+                .setId("mastersDs")
+                .setMetaClass(metadata.getSession().getClass(TestMasterEntity.class))
+                .setDsClass(TestLazyDatasource.class)
+                .buildCollectionDatasource();
+        ((DatasourceImplementation) ds).initialized();
+    }
+
+    @Test
+    public void testWindowsAreLoadedOnDemand() throws Exception {
+        assertEquals(3, ds.getWindowSize());
+        assertEquals(2, ds.getMaxWindows());
+
+        ds.refresh();
+
+        assertEquals(ROWS, ds.size());
+        assertEquals(Collections.singletonList(0), dataSupplier.firstResults);
+        assertEquals(ids(0, 1, 2), new ArrayList<>(ds.getItemIds()));
+        assertFalse(ds.isCompletelyLoaded());
+
+        assertEquals(rows.get(4).getId(), ds.getItemIdByIndex(4));
+        assertEquals(ids(0, 1, 2, 3, 4, 5), new ArrayList<>(ds.getItemIds()));
+        assertEquals(rows.get(5), ds.getItem(rows.get(5).getId()));
+
+        // the window is loaded once
+        ds.getItemIdByIndex(5);
+        ds.getItemIdByIndex(3);
+        assertEquals(Arrays.asList(0, 3), dataSupplier.firstResults);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedWindowIsEvicted() throws Exception {
+        ds.refresh();
+        ds.getItemIdByIndex(4);
+        // window 0 becomes the most recently used one
+        ds.getItemIdByIndex(1);
+        ds.getItemIdByIndex(7);
+
+        assertEquals(ids(0, 1, 2, 6, 7, 8), new ArrayList<>(ds.getItemIds()));
+        assertEquals(-1, ds.indexOfId(rows.get(4).getId()));
+        assertNull(ds.getItem(rows.get(4).getId()));
+
+        // evicted window is loaded again
+        assertEquals(rows.get(4).getId(), ds.getItemIdByIndex(4));
+        assertEquals(4, ds.indexOfId(rows.get(4).getId()));
+        assertEquals(Arrays.asList(0, 3, 6, 3), dataSupplier.firstResults);
+        assertEquals(-1, ds.indexOfId(rows.get(0).getId()));
+    }
+
+    @Test
+    public void testSelectedItemIsNotEvicted() throws Exception {
+        ds.refresh();
+        ds.setItem(ds.getItem(rows.get(1).getId()));
+        ds.getItemIdByIndex(4);
+        ds.getItemIdByIndex(7);
+
+        assertEquals(ids(1, 3, 4, 5, 6, 7, 8), new ArrayList<>(ds.getItemIds()));
+        assertEquals(1, ds.indexOfId(rows.get(1).getId()));
+        assertEquals(-1, ds.indexOfId(rows.get(0).getId()));
+        assertEquals(rows.get(1), ds.getItem());
+    }
+
+    @Test
+    public void testNavigationAcrossWindowBoundaries() throws Exception {
+        ds.refresh();
+
+        UUID id2 = rows.get(2).getId();
+        UUID id3 = rows.get(3).getId();
+        assertEquals(-1, ds.indexOfId(id3));
+
+        assertEquals(id3, ds.nextItemId(id2));
+        assertEquals(3, ds.indexOfId(id3));
+        assertEquals(id2, ds.prevItemId(id3));
+        assertEquals(rows.get(0).getId(), ds.firstItemId());
+        assertEquals(rows.get(ROWS - 1).getId(), ds.lastItemId());
+        assertNull(ds.nextItemId(rows.get(ROWS - 1).getId()));
+        assertNull(ds.prevItemId(rows.get(0).getId()));
+
+        for (int i = 0; i < ROWS; i++) {
+            UUID id = ds.getItemIdByIndex(i);
+            assertEquals(rows.get(i).getId(), id);
+            assertEquals(i, ds.indexOfId(id));
+        }
+
+        try {
+            ds.getItemIdByIndex(ROWS);
+            fail();
+        } catch (IndexOutOfBoundsException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testRefreshResetsLoadedRows() throws Exception {
+        ds.refresh();
+        ds.getItemIdByIndex(4);
+        UUID id4 = rows.get(4).getId();
+
+        rows.remove(0);
+        dataSupplier.firstResults.clear();
+        ds.refresh();
+
+        assertEquals(ROWS - 1, ds.size());
+        assertEquals(Collections.singletonList(0), dataSupplier.firstResults);
+        assertEquals(ids(0, 1, 2), new ArrayList<>(ds.getItemIds()));
+        assertEquals(-1, ds.indexOfId(id4));
+        assertEquals(id4, ds.getItemIdByIndex(3));
+        assertEquals(3, ds.indexOfId(id4));
+    }
+
+    @Test
+    public void testSortReloadsRows() throws Exception {
+        ds.refresh();
+        ds.getItemIdByIndex(4);
+
+        // the database returns rows in the new order
+        Collections.reverse(rows);
+        dataSupplier.firstResults.clear();
+
+        CollectionDatasource.Sortable.SortInfo sortInfo = new CollectionDatasource.Sortable.SortInfo();
+        //noinspection unchecked
+        sortInfo.setPropertyPath(ds.getMetaClass().getPropertyPath("masterName"));
+        sortInfo.setOrder(CollectionDatasource.Sortable.Order.DESC);
+        ds.sort(new CollectionDatasource.Sortable.SortInfo[]{sortInfo});
+
+        assertEquals(Collections.singletonList(0), dataSupplier.firstResults);
+        assertEquals(ROWS, ds.size());
+        assertEquals(ids(0, 1, 2), new ArrayList<>(ds.getItemIds()));
+        assertEquals(0, ds.indexOfId(rows.get(0).getId()));
+        assertEquals(-1, ds.indexOfId(rows.get(ROWS - 1).getId()));
+        assertEquals(rows.get(ROWS - 1).getId(), ds.getItemIdByIndex(ROWS - 1));
+    }
+
+    private List<UUID> ids(int... indexes) {
+        List<UUID> ids = new ArrayList<>();
+        for (int index : indexes) {
+            ids.add(rows.get(index).getId());
+        }
+        return ids;
+    }
+
+    /**
+     * Skips the query compilation which requires the middleware.
+     */
+    public static class TestLazyDatasource extends LazyCollectionDatasourceImpl<TestMasterEntity, UUID> {
+
+        @Override
+        protected LoadContext beforeLoadData(Map<String, Object> params) {
+            MetaClass metaClass = getMetaClass();
+            LoadContext context = new LoadContext(metaClass);
+            context.setQueryString("select e from test$MasterEntity e order by e.masterName");
+            return context;
+        }
+    }
+
+    private class LazyDataSupplier extends TestDataSupplier {
+
+        List<Integer> firstResults = new ArrayList<>();
+
+        @Override
+        public long getCount(LoadContext<? extends Entity> context) {
+            return rows.size();
+        }
+
+        @SuppressWarnings("unchecked")
+        @Override
+        @Nonnull
+        public <E extends Entity> List<E> loadList(LoadContext<E> context) {
+            int first = context.getQuery().getFirstResult();
+            int max = context.getQuery().getMaxResults();
+            firstResults.add(first);
+            return new ArrayList<>((List<E>) rows.subList(first, Math.min(first + max, rows.size())));
+        }
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2008-2016 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.gui.export;
+
+import com.haulmont.cuba.gui.export.XlsxStreamWriter.Style;
+import org.apache.commons.io.IOUtils;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.Assert.*;
+
+public class XlsxStreamWriterTest {
+
+    @Test
+    public void testWorkbook() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (XlsxStreamWriter writer = new XlsxStreamWriter("Users & <Roles>")) {
+            writer.startRow(null);
+            writer.writeString(0, "Name", Style.HEADER);
+            writer.writeString(27, "Count", Style.HEADER);
+            writer.startRow(30f);
+            writer.writeString(0, "a<b>&\"c\"\u0001", Style.DEFAULT);
+            writer.writeNumber(27, 42, Style.INTEGER);
+            writer.setColumnWidth(0, 20);
+            writer.finish(out);
+            assertEquals(2, writer.getRowCount());
+        }
+
+        Map<String, String> entries = new HashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                entries.put(entry.getName(), IOUtils.toString(zip, StandardCharsets.UTF_8));
+            }
+        }
+
+        assertTrue(entries.containsKey("[Content_Types].xml"));
+        assertTrue(entries.containsKey("xl/styles.xml"));
+        assertTrue(entries.get("xl/workbook.xml").contains("Users &amp; &lt;Roles&gt;"));
+
+        String sheet = entries.get("xl/worksheets/sheet1.xml");
+        assertTrue(sheet.contains("<row r=\"1\"><c r=\"A1\" t=\"inlineStr\" s=\"1\">"));
+        assertTrue(sheet.contains("<c r=\"AB1\""));
+        assertTrue(sheet.contains("<row r=\"2\" ht=\"30.0\" customHeight=\"1\">"));
+        assertTrue(sheet.contains("a&lt;b&gt;&amp;&quot;c&quot;</t>"));
+        assertTrue(sheet.contains("<c r=\"AB2\" s=\"3\"><v>42</v></c>"));
+        assertTrue(sheet.endsWith("</sheetData></worksheet>"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testCellOutsideRow() throws Exception {
+        try (XlsxStreamWriter writer = new XlsxStreamWriter("Sheet")) {
+            writer.writeString(0, "value", Style.DEFAULT);
+        }
+    }
+}
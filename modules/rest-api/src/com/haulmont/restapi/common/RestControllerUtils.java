@@ -17,6 +17,9 @@
 package com.haulmont.restapi.common;
 
 import com.haulmont.chile.core.model.MetaClass;
+import com.haulmont.cuba.core.app.serialization.EntitySerializationAPI;
+import com.haulmont.cuba.core.app.serialization.EntitySerializationOption;
+import com.haulmont.cuba.core.entity.Entity;
 import com.haulmont.cuba.core.global.Metadata;
 import com.haulmont.cuba.core.global.Security;
 import com.haulmont.restapi.exception.RestAPIException;
@@ -24,6 +27,13 @@ import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Component;
 
 import javax.inject.Inject;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
 
 /**
  */
@@ -36,6 +46,9 @@ public class RestControllerUtils {
     @Inject
     protected Security security;
 
+    @Inject
+    protected EntitySerializationAPI entitySerializationAPI;
+
     /**
      * Finds metaClass by entityName. Throws a RestAPIException if metaClass not found
      */
@@ -49,4 +62,17 @@ public class RestControllerUtils {
 
         return metaClass;
     }
+
+    /**
+     * Writes entities as a JSON array directly to the response output stream. As the content length is not known in
+     * advance, the servlet container sends the response using chunked transfer encoding.
+     */
+    public void writeEntitiesJson(HttpServletResponse response,
+                                  Collection<? extends Entity> entities,
+                                  EntitySerializationOption... options) throws IOException {
+        response.setContentType("application/json; charset=UTF-8");
+        Writer writer = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8));
+        entitySerializationAPI.toJson(entities, null, writer, options);
+        writer.flush();
+    }
 }
@@ -29,6 +29,8 @@ import org.springframework.web.util.UriComponentsBuilder;
 
 import javax.inject.Inject;
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 
 /**
  * Controller that performs CRUD entity operations
@@ -49,13 +51,14 @@ public class EntitiesController {
     }
 
     @GetMapping("/{entityName}")
-    public String loadEntitiesList(@PathVariable String entityName,
-                                   @RequestParam(required = false) String view,
-                                   @RequestParam(required = false) Integer limit,
-                                   @RequestParam(required = false) Integer offset,
-                                   @RequestParam(required = false) String sort,
-                                   @RequestParam(required = false) Boolean returnNulls) {
-        return entitiesControllerManager.loadEntitiesList(entityName, view, limit, offset, sort, returnNulls);
+    public void loadEntitiesList(@PathVariable String entityName,
+                                 @RequestParam(required = false) String view,
+                                 @RequestParam(required = false) Integer limit,
+                                 @RequestParam(required = false) Integer offset,
+                                 @RequestParam(required = false) String sort,
+                                 @RequestParam(required = false) Boolean returnNulls,
+                                 HttpServletResponse response) throws IOException {
+        entitiesControllerManager.writeEntitiesList(entityName, view, limit, offset, sort, returnNulls, response);
     }
 
     @PostMapping("/{entityName}")
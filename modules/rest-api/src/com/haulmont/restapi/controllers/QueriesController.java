@@ -21,6 +21,8 @@ import com.haulmont.restapi.service.QueriesControllerManager;
 import org.springframework.web.bind.annotation.*;
 
 import javax.inject.Inject;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.text.ParseException;
 import java.util.List;
 import java.util.Map;
@@ -36,12 +38,13 @@ public class QueriesController {
     protected QueriesControllerManager queriesControllerManager;
 
     @GetMapping("/{entityName}/{queryName}")
-    public String executeQuery(@PathVariable String entityName,
-                               @PathVariable String queryName,
-                               @RequestParam(required = false) Integer limit,
-                               @RequestParam(required = false) Integer offset,
-                               @RequestParam Map<String, String> params) throws ClassNotFoundException, ParseException {
-        return queriesControllerManager.executeQuery(entityName, queryName, limit, offset, params);
+    public void executeQuery(@PathVariable String entityName,
+                             @PathVariable String queryName,
+                             @RequestParam(required = false) Integer limit,
+                             @RequestParam(required = false) Integer offset,
+                             @RequestParam Map<String, String> params,
+                             HttpServletResponse response) throws ClassNotFoundException, ParseException, IOException {
+        queriesControllerManager.writeQueryResult(entityName, queryName, limit, offset, params, response);
     }
 
     @GetMapping("/{entityName}/{queryName}/count")
@@ -42,6 +42,8 @@ import org.springframework.stereotype.Component;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.util.*;
 
 /**
@@ -107,6 +109,31 @@ public class EntitiesControllerManager {
                                    @Nullable Integer offset,
                                    @Nullable String sort,
                                    @Nullable Boolean returnNulls) {
+        List<Entity> entities = loadEntities(entityName, view, limit, offset, sort);
+        return entitySerializationAPI.toJson(entities, null, getListSerializationOptions(returnNulls));
+    }
+
+    /**
+     * Works like {@link #loadEntitiesList(String, String, Integer, Integer, String, Boolean)} but writes the result
+     * directly to the response output stream instead of building a string.
+     */
+    public void writeEntitiesList(String entityName,
+                                  @Nullable String view,
+                                  @Nullable Integer limit,
+                                  @Nullable Integer offset,
+                                  @Nullable String sort,
+                                  @Nullable Boolean returnNulls,
+                                  HttpServletResponse response) throws IOException {
+        // entities are loaded before anything is written, so loading errors are still reported with a proper status
+        List<Entity> entities = loadEntities(entityName, view, limit, offset, sort);
+        restControllerUtils.writeEntitiesJson(response, entities, getListSerializationOptions(returnNulls));
+    }
+
+    protected List<Entity> loadEntities(String entityName,
+                                        @Nullable String view,
+                                        @Nullable Integer limit,
+                                        @Nullable Integer offset,
+                                        @Nullable String sort) {
         MetaClass metaClass = restControllerUtils.getMetaClass(entityName);
         checkCanReadEntity(metaClass);
 
@@ -135,13 +162,14 @@ public class EntitiesControllerManager {
             ctx.setView(view);
         }
 
-        List<Entity> entities = dataManager.loadList(ctx);
+        return dataManager.loadList(ctx);
+    }
 
+    protected EntitySerializationOption[] getListSerializationOptions(@Nullable Boolean returnNulls) {
         List<EntitySerializationOption> serializationOptions = new ArrayList<>();
         serializationOptions.add(EntitySerializationOption.SERIALIZE_INSTANCE_NAME);
         if (BooleanUtils.isTrue(returnNulls)) serializationOptions.add(EntitySerializationOption.SERIALIZE_NULLS);
-
-        return entitySerializationAPI.toJson(entities, null, serializationOptions.toArray(new EntitySerializationOption[0]));
+        return serializationOptions.toArray(new EntitySerializationOption[0]);
     }
 
     public CreatedEntityInfo createEntity(String entityJson, String entityName) {
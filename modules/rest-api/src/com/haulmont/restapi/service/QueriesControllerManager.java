@@ -35,6 +35,8 @@ import org.springframework.util.ClassUtils;
 
 import javax.annotation.Nullable;
 import javax.inject.Inject;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
 import java.math.BigDecimal;
 import java.text.ParseException;
 import java.util.Date;
@@ -73,6 +75,21 @@ public class QueriesControllerManager {
         return entitySerializationAPI.toJson(entities);
     }
 
+    /**
+     * Works like {@link #executeQuery(String, String, Integer, Integer, Map)} but writes the result directly to the
+     * response output stream instead of building a string.
+     */
+    public void writeQueryResult(String entityName,
+                                 String queryName,
+                                 @Nullable Integer limit,
+                                 @Nullable Integer offset,
+                                 Map<String, String> params,
+                                 HttpServletResponse response) throws ClassNotFoundException, ParseException, IOException {
+        LoadContext<Entity> ctx = createQueryLoadContext(entityName, queryName, limit, offset, params);
+        List<Entity> entities = dataManager.loadList(ctx);
+        restControllerUtils.writeEntitiesJson(response, entities);
+    }
+
     public String getCount(String entityName,
                            String queryName,
                            Map<String, String> params) throws ClassNotFoundException, ParseException {
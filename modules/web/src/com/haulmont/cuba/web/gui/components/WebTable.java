@@ -28,6 +28,8 @@ import com.haulmont.cuba.web.gui.data.SortableCollectionDsWrapper;
 import com.haulmont.cuba.web.toolkit.data.AggregationContainer;
 import com.haulmont.cuba.web.toolkit.data.TableContainer;
 import com.haulmont.cuba.web.toolkit.ui.CubaTable;
+import com.vaadin.data.Container;
+import com.vaadin.data.Item;
 import com.vaadin.server.Resource;
 
 import java.util.*;
@@ -59,6 +61,9 @@ public class WebTable<E extends Entity> extends WebAbstractTable<CubaTable, E> {
 
     @Override
     protected CollectionDsWrapper createContainerDatasource(CollectionDatasource datasource, Collection<MetaPropertyPath> columns) {
+        if (datasource instanceof CollectionDatasource.Lazy && datasource instanceof CollectionDatasource.Indexed) {
+            return new LazyTableDsWrapper(datasource, columns);
+        }
         return datasource instanceof CollectionDatasource.Sortable && isSortable() ?
                 new SortableTableDsWrapper(datasource, columns) :
                 new TableDsWrapper(datasource, columns);
@@ -214,4 +219,62 @@ public class WebTable<E extends Entity> extends WebAbstractTable<CubaTable, E> {
             }
         }
     }
+
+    /**
+     * Container for a lazy datasource. The table requests the rows of its visible range by position,
+     * so the datasource loads only the windows containing these rows.
+     */
+    protected class LazyTableDsWrapper extends SortableTableDsWrapper implements Container.Indexed {
+
+        protected int itemsCachePruneSize = 1000;
+
+        public LazyTableDsWrapper(CollectionDatasource datasource, Collection<MetaPropertyPath> properties) {
+            super(datasource, properties);
+        }
+
+        @Override
+        public int indexOfId(Object itemId) {
+            //noinspection unchecked
+            return ((CollectionDatasource.Indexed) datasource).indexOfId(itemId);
+        }
+
+        @Override
+        public Object getIdByIndex(int index) {
+            return ((CollectionDatasource.Indexed) datasource).getItemIdByIndex(index);
+        }
+
+        @Override
+        public List<?> getItemIds(int startIndex, int numberOfItems) {
+            int endIndex = Math.min(startIndex + numberOfItems, size());
+            List<Object> itemIds = new ArrayList<>(Math.max(endIndex - startIndex, 0));
+            for (int i = startIndex; i < endIndex; i++) {
+                Object itemId = getIdByIndex(i);
+                if (itemId != null) {
+                    itemIds.add(itemId);
+                }
+            }
+            return itemIds;
+        }
+
+        @Override
+        protected Item getItemWrapper(Object item) {
+            // wrappers of entities evicted from the datasource are not needed anymore
+            if (itemsCache.size() >= itemsCachePruneSize) {
+                //noinspection unchecked
+                itemsCache.keySet().removeIf(entity -> !datasource.containsItem(((Entity) entity).getId()));
+                itemsCachePruneSize = Math.max(1000, itemsCache.size() * 2);
+            }
+            return super.getItemWrapper(item);
+        }
+
+        @Override
+        public Object addItemAt(int index) throws UnsupportedOperationException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Item addItemAt(int index, Object newItemId) throws UnsupportedOperationException {
+            throw new UnsupportedOperationException();
+        }
+    }
 }
\ No newline at end of file
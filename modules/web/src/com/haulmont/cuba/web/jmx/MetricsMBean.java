@@ -0,0 +1,46 @@
+/*
+ * Copyright (c) 2008-2016 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+package com.haulmont.cuba.web.jmx;
+
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedOperationParameter;
+import org.springframework.jmx.export.annotation.ManagedOperationParameters;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+@ManagedResource(description = "Provides latency histograms and counters collected by the metrics registry")
+public interface MetricsMBean {
+
+    @ManagedOperation(description = "Print all timers (in microseconds) and counters")
+    String printMetrics();
+
+    @ManagedOperation(description = "Print timers (in microseconds) and counters which names start with the prefix")
+    @ManagedOperationParameters({
+            @ManagedOperationParameter(name = "prefix", description = "Name prefix, e.g. service, dataManager, jpql, cluster, screen")
+    })
+    String printMetricsByPrefix(String prefix);
+
+    int getSamplingRate();
+
+    @ManagedOperation(description = "Set sampling rate: 1 records every invocation, N records one of N, 0 disables timing")
+    @ManagedOperationParameters({
+            @ManagedOperationParameter(name = "samplingRate", description = "")
+    })
+    void setSamplingRate(int samplingRate);
+
+    @ManagedOperation(description = "Reset collected metrics")
+    void reset();
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2008-2016 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.web.jmx;
+
+import com.haulmont.cuba.core.sys.remoting.ClusterInvocationSupport;
+import com.haulmont.cuba.core.sys.remoting.RemotingStatistics;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Resource;
+
+@Component("cuba_RemoteInvocationStatisticsMBean")
+public class RemoteInvocationStatistics implements RemoteInvocationStatisticsMBean {
+
+    @Resource(name = ClusterInvocationSupport.NAME)
+    protected ClusterInvocationSupport clusterInvocationSupport;
+
+    @Override
+    public String printStatistics() {
+        String result = clusterInvocationSupport.getStatistics().print();
+        return result.isEmpty() ? "No invocations" : result;
+    }
+
+    @Override
+    public String printServiceStatistics(String serviceName) {
+        RemotingStatistics.ServiceStatistics statistics =
+                clusterInvocationSupport.getStatistics().getServiceStatistics(serviceName);
+        if (statistics == null)
+            return "No invocations of " + serviceName;
+
+        return "latency, ms: " + statistics.getLatency().print() + "\n"
+                + "request, bytes: " + statistics.getRequestBytes().print() + "\n"
+                + "response, bytes: " + statistics.getResponseBytes().print();
+    }
+
+    @Override
+    public String printServerStates() {
+        if (!clusterInvocationSupport.isAdaptive())
+            return "Adaptive server selection is off";
+
+        return String.join("\n", clusterInvocationSupport.printServerStates());
+    }
+
+    @Override
+    public void reset() {
+        clusterInvocationSupport.getStatistics().reset();
+    }
+}
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2008-2016 Haulmont.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ *
+ */
+
+package com.haulmont.cuba.web.jmx;
+
+import org.springframework.jmx.export.annotation.ManagedOperation;
+import org.springframework.jmx.export.annotation.ManagedOperationParameter;
+import org.springframework.jmx.export.annotation.ManagedOperationParameters;
+import org.springframework.jmx.export.annotation.ManagedResource;
+
+@ManagedResource(description = "Provides statistics of middleware service invocations")
+public interface RemoteInvocationStatisticsMBean {
+
+    @ManagedOperation(description = "Print latency and payload size histograms of all invoked services")
+    String printStatistics();
+
+    @ManagedOperation(description = "Print latency and payload size histograms of the service")
+    @ManagedOperationParameters({@ManagedOperationParameter(name = "serviceName", description = "")})
+    String printServiceStatistics(String serviceName);
+
+    @ManagedOperation(description = "Print load and health state of middleware servers used by the adaptive server selection")
+    String printServerStates();
+
+    @ManagedOperation(description = "Reset collected statistics")
+    void reset();
+}